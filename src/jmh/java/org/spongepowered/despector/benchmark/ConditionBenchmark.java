@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.despector.ast.Locals;
+import org.spongepowered.despector.ast.Locals.LocalInstance;
+import org.spongepowered.despector.ast.generic.ClassTypeSignature;
+import org.spongepowered.despector.ast.members.insn.arg.field.LocalAccess;
+import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
+import org.spongepowered.despector.util.ConditionUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks simplifying conditions in disjunctive normal form, as produced
+ * when reconstructing short circuiting conditions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionBenchmark {
+
+    /**
+     * The shape of the condition being simplified.
+     */
+    public static enum Shape {
+        /**
+         * Conjunctions of distinct variables, which cannot be simplified.
+         */
+        CHAIN,
+        /**
+         * Conjunctions sharing variables and their inverses, which can be
+         * factored and reduced.
+         */
+        SHARED,
+        /**
+         * Conjunctions of up to four variables or their inverses picked at
+         * random from twice as many variables as there are terms.
+         */
+        WIDE,
+    }
+
+    @Param({"CHAIN", "SHARED", "WIDE"})
+    public Shape shape;
+
+    @Param({"10", "20", "30"})
+    public int terms;
+
+    private Condition condition;
+
+    @Setup
+    public void setup() {
+        Locals locals = new Locals();
+        List<BooleanCondition> vars = new ArrayList<>();
+        for (int i = 0; i < this.terms * 2; i++) {
+            LocalInstance local = new LocalInstance(locals.getLocal(i), null, "v" + i, ClassTypeSignature.BOOLEAN, -1, -1);
+            vars.add(new BooleanCondition(new LocalAccess(local), false));
+        }
+        List<Condition> products = new ArrayList<>();
+        if (this.shape == Shape.CHAIN) {
+            // (v0) || (v1 && v2) || (v3 && v4 && v5) || ...
+            int term = 0;
+            for (int group = 0; term < this.terms; group++) {
+                int group_end = Math.min(this.terms, term + group % 3 + 1);
+                List<Condition> product = new ArrayList<>();
+                for (; term < group_end; term++) {
+                    product.add(vars.get(term));
+                }
+                products.add(product.size() == 1 ? product.get(0) : new AndCondition(product));
+            }
+        } else if (this.shape == Shape.WIDE) {
+            Random random = new Random(this.terms);
+            for (int i = 0; i < this.terms; i++) {
+                List<Condition> product = new ArrayList<>();
+                int length = 1 + random.nextInt(4);
+                for (int j = 0; j < length; j++) {
+                    Condition var = vars.get(random.nextInt(vars.size()));
+                    product.add(random.nextBoolean() ? var : ConditionUtil.inverse(var));
+                }
+                products.add(product.size() == 1 ? product.get(0) : new AndCondition(product));
+            }
+        } else {
+            int count = Math.max(2, this.terms / 2);
+            for (int i = 0; i < this.terms; i++) {
+                Condition a = vars.get(i % count);
+                Condition b = vars.get((i * 3 + 1) % count);
+                if (i % 4 == 3) {
+                    b = ConditionUtil.inverse(b);
+                }
+                products.add(new AndCondition(a, b));
+            }
+        }
+        this.condition = new OrCondition(products);
+    }
+
+    @Benchmark
+    public Condition simplify() {
+        return ConditionUtil.simplifyCondition(this.condition);
+    }
+
+}
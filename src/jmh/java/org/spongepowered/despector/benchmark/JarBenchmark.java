@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.decompiler.Decompilers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Benchmarks decompiling every class of a jar or class directory. By default
+ * despector's own classes are used, another jar may be given with
+ * {@code -p jar=<path>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JarBenchmark {
+
+    @Param({""})
+    public String jar;
+
+    private List<byte[]> classes;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        LibraryConfiguration.quiet = true;
+        Path path;
+        if (this.jar.isEmpty()) {
+            path = Paths.get(Decompilers.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } else {
+            path = Paths.get(this.jar);
+        }
+        this.classes = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(path)) {
+                files = walk.filter((p) -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                this.classes.add(Files.readAllBytes(file));
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                        continue;
+                    }
+                    try (InputStream input = zip.getInputStream(entry)) {
+                        this.classes.add(ByteStreams.toByteArray(input));
+                    }
+                }
+            }
+        }
+        // classes which cannot be decompiled at all are left out so that every
+        // invocation does the same work
+        SourceSet source = new SourceSet();
+        int skipped = 0;
+        for (Iterator<byte[]> it = this.classes.iterator(); it.hasNext();) {
+            try {
+                Decompilers.WILD.decompile(new ByteArrayInputStream(it.next()), source);
+            } catch (RuntimeException e) {
+                it.remove();
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped " + skipped + " classes from " + path + " which failed to decompile");
+        }
+    }
+
+    @Benchmark
+    public SourceSet decompile() throws IOException {
+        SourceSet source = new SourceSet();
+        for (byte[] data : this.classes) {
+            Decompilers.WILD.decompile(new ByteArrayInputStream(data), source);
+        }
+        return source;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The lambda heavy workload, this class is never run only decompiled. Method
+ * references are avoided as the emitter requires the target of each dynamic
+ * invoke to be a static method in the source set.
+ */
+public class LambdaWorkload {
+
+    private static final List<String> names = new ArrayList<>();
+    private static int counter;
+
+    public static Object lambdas(List<String> input, int limit) throws Exception {
+        Runnable increment = () -> counter++;
+        increment.run();
+        Supplier<List<String>> factory = () -> new ArrayList<>();
+        List<String> output = factory.get();
+        Predicate<String> short_name = (s) -> s.length() < limit;
+        Predicate<String> valid = short_name.and((s) -> !s.isEmpty()).or((s) -> s.startsWith("_"));
+        Function<String, String> upper = (s) -> s.toUpperCase();
+        Function<String, String> trimmed = upper.andThen((s) -> s.trim()).compose((s) -> s + counter);
+        input.forEach((s) -> {
+            if (valid.test(s)) {
+                output.add(trimmed.apply(s));
+            }
+        });
+        output.sort(Comparator.comparing((String s) -> s.length()).thenComparing((a, b) -> b.compareTo(a)));
+        Map<Integer, List<String>> by_length = output.stream()
+                .filter((s) -> s.indexOf('a') != -1)
+                .map((s) -> s.replace('a', 'b'))
+                .collect(Collectors.groupingBy((s) -> s.length()));
+        BiFunction<Integer, Integer, Integer> sum = (a, b) -> a + b + limit;
+        int total = by_length.keySet().stream().reduce(0, (a, b) -> sum.apply(a, b), (a, b) -> a + b);
+        Optional<String> first = output.stream().filter((s) -> names.contains(s)).findFirst();
+        Callable<String> fallback = () -> first.orElseGet(() -> String.valueOf(total));
+        names.removeIf((s) -> s.hashCode() % limit == 0);
+        by_length.computeIfAbsent(total, (k) -> new ArrayList<>()).add(fallback.call());
+        by_length.forEach((k, v) -> v.replaceAll((s) -> s + k));
+        return by_length.values().stream().flatMap((l) -> l.stream()).map((s) -> (Supplier<String>) () -> s).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding and looking up the methods of a type with thousands of
+ * methods, as found in generated and lambda heavy classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberLookupBenchmark {
+
+    /**
+     * How the methods of the type are named.
+     */
+    public static enum Naming {
+        /**
+         * Every method has its own name, like the synthetic methods of a
+         * lambda heavy class.
+         */
+        UNIQUE,
+        /**
+         * Every method shares a single name and differs only by descriptor,
+         * like an obfuscated class.
+         */
+        OVERLOADED,
+    }
+
+    @Param({"UNIQUE", "OVERLOADED"})
+    public Naming naming;
+
+    @Param({"1000", "5000"})
+    public int size;
+
+    private SourceSet source;
+    private MethodEntry[] entries;
+    private TypeEntry type;
+
+    @Setup
+    public void setup() {
+        this.source = new SourceSet();
+        this.entries = new MethodEntry[this.size];
+        for (int i = 0; i < this.size; i++) {
+            MethodEntry entry = new MethodEntry(this.source);
+            entry.setOwner("Generated");
+            if (this.naming == Naming.UNIQUE) {
+                entry.setName("lambda$run$" + i);
+                entry.setSignature("()V");
+            } else {
+                entry.setName("a");
+                // a distinct descriptor for each method, (I)V, (II)V, ...
+                entry.setSignature("(" + Integer.toString(i, 2).replace('0', 'I').replace('1', 'J') + ")V");
+            }
+            entry.setStatic(i % 2 == 0);
+            this.entries[i] = entry;
+        }
+        this.type = build();
+    }
+
+    @Benchmark
+    public TypeEntry build() {
+        TypeEntry type = new ClassEntry(this.source, Language.JAVA, "Generated");
+        for (MethodEntry entry : this.entries) {
+            type.addMethod(entry);
+        }
+        return type;
+    }
+
+    @Benchmark
+    public int lookup() {
+        int found = 0;
+        for (MethodEntry entry : this.entries) {
+            MethodEntry mth;
+            if (entry.isStatic()) {
+                mth = this.type.getStaticMethod(entry.getName(), entry.getSignature());
+            } else {
+                mth = this.type.getMethod(entry.getName(), entry.getSignature());
+            }
+            if (mth == entry) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.Locals;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.decompiler.method.MethodDecompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks decompiling the body of a single method. The stage parameter
+ * allows the cost of the region processors to be found by comparing against
+ * the graph stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodDecompilerBenchmark {
+
+    @Param({"SWITCH", "NESTED", "CONDITIONS", "LAMBDAS", "KOTLIN"})
+    public Workload workload;
+
+    @Param({"8", "16"})
+    public int size;
+
+    @Param({"GRAPH", "REGIONS", "FULL"})
+    public Stage stage;
+
+    private MethodDecompiler decompiler;
+    private MethodNode asm;
+    private MethodEntry entry;
+
+    @Setup
+    public void setup() {
+        LibraryConfiguration.quiet = true;
+        ClassNode cn = this.workload.createNode(this.size);
+        this.asm = this.workload.findMethod(cn);
+        this.entry = new MethodEntry(new SourceSet());
+        this.entry.setName(this.asm.name);
+        this.entry.setOwner(cn.name);
+        this.entry.setSignature(this.asm.desc);
+        this.entry.setStatic((this.asm.access & ACC_STATIC) != 0);
+        this.decompiler = this.stage.create(this.workload == Workload.KOTLIN ? Language.KOTLIN : Language.JAVA);
+    }
+
+    @Benchmark
+    public StatementBlock decompile() {
+        Locals locals = this.decompiler.createLocals(this.entry, this.asm);
+        return this.decompiler.decompile(this.entry, this.asm, locals);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.decompiler.Decompilers;
+import org.spongepowered.despector.decompiler.kotlin.method.graph.create.ElvisGraphProducerStep;
+import org.spongepowered.despector.decompiler.kotlin.method.graph.operate.KotlinTernaryPrePassOperation;
+import org.spongepowered.despector.decompiler.kotlin.method.special.KotlinLocalsProcessor;
+import org.spongepowered.despector.decompiler.method.MethodDecompiler;
+import org.spongepowered.despector.decompiler.method.graph.create.JumpGraphProducerStep;
+import org.spongepowered.despector.decompiler.method.graph.create.SwitchGraphProducerStep;
+import org.spongepowered.despector.decompiler.method.graph.create.TryCatchGraphProducerStep;
+import org.spongepowered.despector.decompiler.method.graph.operate.BlockTargetOperation;
+import org.spongepowered.despector.decompiler.method.graph.operate.BreakPrePassOperation;
+import org.spongepowered.despector.decompiler.method.graph.operate.EmptyBlockClearOperation;
+import org.spongepowered.despector.decompiler.method.graph.operate.JumpSeparateOperation;
+import org.spongepowered.despector.decompiler.method.graph.operate.TernaryPrePassOperation;
+import org.spongepowered.despector.decompiler.method.graph.process.InternalBlockProcessor;
+import org.spongepowered.despector.decompiler.method.graph.process.SubRegionBlockProcessor;
+import org.spongepowered.despector.decompiler.method.graph.process.SwitchBlockProcessor;
+import org.spongepowered.despector.decompiler.method.graph.process.TryCatchBlockProcessor;
+import org.spongepowered.despector.decompiler.method.graph.region.ChildRegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.region.DoWhileRegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.region.IfBlockRegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.region.WhileRegionProcessor;
+import org.spongepowered.despector.decompiler.method.special.LocalsProcessor;
+
+/**
+ * How much of the method decompiler pipeline is run. Comparing the stages
+ * separates the cost of the region processors from building the graph and
+ * from the statement post processors.
+ */
+public enum Stage {
+
+    /**
+     * Only the graph producers and cleanup operations.
+     */
+    GRAPH,
+    /**
+     * The graph and the graph and region processors, without post processing.
+     */
+    REGIONS,
+    /**
+     * The complete pipeline as used by the decompiler.
+     */
+    FULL;
+
+    /**
+     * Creates a method decompiler for this stage of the given language's
+     * pipeline.
+     */
+    public MethodDecompiler create(Language lang) {
+        if (this == FULL) {
+            return lang == Language.KOTLIN ? Decompilers.createKotlinMethodDecompiler() : Decompilers.createJavaMethodDecompiler();
+        }
+        MethodDecompiler decompiler = new MethodDecompiler();
+        decompiler.addGraphProducer(new JumpGraphProducerStep());
+        decompiler.addGraphProducer(new SwitchGraphProducerStep());
+        decompiler.addGraphProducer(new TryCatchGraphProducerStep());
+        decompiler.addCleanupOperation(new EmptyBlockClearOperation());
+        decompiler.addCleanupOperation(new JumpSeparateOperation());
+        decompiler.addCleanupOperation(new BlockTargetOperation());
+        if (lang == Language.KOTLIN) {
+            decompiler.addGraphProducer(new ElvisGraphProducerStep());
+            decompiler.addCleanupOperation(new BreakPrePassOperation());
+            decompiler.addCleanupOperation(new KotlinTernaryPrePassOperation());
+            decompiler.setSpecialProcessor(LocalsProcessor.class, new KotlinLocalsProcessor());
+        } else {
+            decompiler.addCleanupOperation(new TernaryPrePassOperation());
+            decompiler.addCleanupOperation(new BreakPrePassOperation());
+        }
+        if (this == REGIONS) {
+            decompiler.addProcessor(new TryCatchBlockProcessor());
+            decompiler.addProcessor(new InternalBlockProcessor());
+            decompiler.addProcessor(new SwitchBlockProcessor());
+            decompiler.addProcessor(new SubRegionBlockProcessor());
+            decompiler.addRegionProcessor(new ChildRegionProcessor());
+            decompiler.addRegionProcessor(new DoWhileRegionProcessor());
+            decompiler.addRegionProcessor(new WhileRegionProcessor());
+            decompiler.addRegionProcessor(new IfBlockRegionProcessor());
+        }
+        return decompiler;
+    }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.benchmark;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IADD;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.IF_ICMPGE;
+import static org.objectweb.asm.Opcodes.IF_ICMPGT;
+import static org.objectweb.asm.Opcodes.IF_ICMPLE;
+import static org.objectweb.asm.Opcodes.IF_ICMPLT;
+import static org.objectweb.asm.Opcodes.IF_ICMPNE;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IMUL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.ISTORE;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import com.google.common.io.ByteStreams;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * The classes used as input by the benchmarks. The synthetic workloads are
+ * generated with a body of the requested size so that the cost of each stage
+ * of the pipeline can be compared as methods grow.
+ */
+public enum Workload {
+
+    /**
+     * A large table switch with a mix of breaking, returning and fall through
+     * cases.
+     */
+    SWITCH("select"),
+    /**
+     * Alternately nested if statements and while loops.
+     */
+    NESTED("nested"),
+    /**
+     * A long run of if and if-else statements one after another.
+     */
+    BRANCHES("branches"),
+    /**
+     * A long run of try blocks one after another each with its own catch
+     * block.
+     */
+    TRY_CATCH("guarded"),
+    /**
+     * A long boolean chain of conjunctions joined by disjunctions.
+     */
+    CONDITIONS("test"),
+    /**
+     * A class compiled from source which makes heavy use of lambdas and method
+     * references, the size is ignored.
+     */
+    LAMBDAS("lambdas"),
+    /**
+     * The nested and condition methods in a class marked as kotlin so that it
+     * is decompiled with the kotlin pipeline.
+     */
+    KOTLIN("nested"),
+    /**
+     * A long run of kotlin style when expressions over a copy of a parameter
+     * and values held in temporary locals without lvt entries, in a class
+     * marked as kotlin.
+     */
+    TEMPORARIES("choose");
+
+    private static final String GENERATED_PACKAGE = "org/spongepowered/despector/benchmark/generated/";
+
+    private final String method;
+
+    Workload(String method) {
+        this.method = method;
+    }
+
+    /**
+     * Gets the name of the method which makes up the bulk of this workload.
+     */
+    public String getMethodName() {
+        return this.method;
+    }
+
+    /**
+     * Creates the class data of this workload.
+     */
+    public byte[] generate(int size) {
+        if (this == LAMBDAS) {
+            return readClass(LambdaWorkload.class);
+        }
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String name = GENERATED_PACKAGE + name().charAt(0) + name().substring(1).toLowerCase().replace("_", "") + "Workload";
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+        if (this == KOTLIN || this == TEMPORARIES) {
+            cw.visitAnnotation("Lkotlin/Metadata;", true).visitEnd();
+        }
+        if (this == SWITCH) {
+            writeSwitch(cw, size);
+        }
+        if (this == NESTED || this == KOTLIN) {
+            writeNested(cw, size);
+        }
+        if (this == BRANCHES) {
+            writeBranches(cw, size);
+        }
+        if (this == TEMPORARIES) {
+            writeTemporaries(cw, size);
+        }
+        if (this == TRY_CATCH) {
+            writeTryCatch(cw, size);
+        }
+        if (this == CONDITIONS || this == KOTLIN) {
+            writeConditions(cw, size);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Creates the class node of this workload.
+     */
+    public ClassNode createNode(int size) {
+        ClassNode cn = new ClassNode();
+        new ClassReader(generate(size)).accept(cn, 0);
+        return cn;
+    }
+
+    /**
+     * Finds the method which makes up the bulk of this workload in the given
+     * class node.
+     */
+    @SuppressWarnings("unchecked")
+    public MethodNode findMethod(ClassNode cn) {
+        for (MethodNode mn : (List<MethodNode>) cn.methods) {
+            if (mn.name.equals(this.method)) {
+                return mn;
+            }
+        }
+        throw new IllegalStateException("Workload method " + this.method + " not found in " + cn.name);
+    }
+
+    private static void writeSwitch(ClassWriter cw, int size) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "select", "(II)I", null, null);
+        mv.visitCode();
+        Label[] cases = new Label[size];
+        for (int i = 0; i < size; i++) {
+            cases[i] = new Label();
+        }
+        Label dflt = new Label();
+        Label end = new Label();
+        Label start = new Label();
+        mv.visitLabel(start);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitTableSwitchInsn(0, size - 1, dflt, cases);
+        for (int i = 0; i < size; i++) {
+            mv.visitLabel(cases[i]);
+            if (i % 3 == 0) {
+                // a *= i; break;
+                mv.visitVarInsn(ILOAD, 1);
+                pushInt(mv, i);
+                mv.visitInsn(IMUL);
+                mv.visitVarInsn(ISTORE, 1);
+                mv.visitJumpInsn(GOTO, end);
+            } else if (i % 3 == 1) {
+                // return i;
+                pushInt(mv, i);
+                mv.visitInsn(IRETURN);
+            } else {
+                // a += i; and fall through
+                mv.visitIincInsn(1, i % 100 + 1);
+            }
+        }
+        mv.visitLabel(dflt);
+        mv.visitIincInsn(1, -1);
+        mv.visitLabel(end);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitInsn(IRETURN);
+        Label method_end = new Label();
+        mv.visitLabel(method_end);
+        mv.visitLocalVariable("key", "I", null, start, method_end, 0);
+        mv.visitLocalVariable("a", "I", null, start, method_end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeBranches(ClassWriter cw, int count) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "branches", "(II)I", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        for (int i = 0; i < count; i++) {
+            Label end = new Label();
+            if (i % 2 == 0) {
+                // if (a > i) { b += i; }
+                mv.visitVarInsn(ILOAD, 0);
+                pushInt(mv, i);
+                mv.visitJumpInsn(IF_ICMPLE, end);
+                mv.visitIincInsn(1, i % 100 + 1);
+            } else {
+                // if (b < i) { a++; } else { b--; }
+                Label else_start = new Label();
+                mv.visitVarInsn(ILOAD, 1);
+                pushInt(mv, i);
+                mv.visitJumpInsn(IF_ICMPGE, else_start);
+                mv.visitIincInsn(0, 1);
+                mv.visitJumpInsn(GOTO, end);
+                mv.visitLabel(else_start);
+                mv.visitIincInsn(1, -1);
+            }
+            mv.visitLabel(end);
+        }
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitInsn(IRETURN);
+        Label end = new Label();
+        mv.visitLabel(end);
+        mv.visitLocalVariable("a", "I", null, start, end, 0);
+        mv.visitLocalVariable("b", "I", null, start, end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeTryCatch(ClassWriter cw, int count) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "guarded", "(II)I", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        for (int i = 0; i < count; i++) {
+            // try { a += i; } catch (RuntimeException e) { b++; }
+            Label try_start = new Label();
+            Label try_end = new Label();
+            Label handler = new Label();
+            Label catch_start = new Label();
+            Label end = new Label();
+            mv.visitTryCatchBlock(try_start, try_end, handler, "java/lang/RuntimeException");
+            mv.visitLabel(try_start);
+            mv.visitIincInsn(0, i % 100 + 1);
+            mv.visitLabel(try_end);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(handler);
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitLabel(catch_start);
+            mv.visitIincInsn(1, 1);
+            mv.visitLabel(end);
+            mv.visitLocalVariable("e", "Ljava/lang/RuntimeException;", null, catch_start, end, 2);
+        }
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitInsn(IRETURN);
+        Label end = new Label();
+        mv.visitLabel(end);
+        mv.visitLocalVariable("a", "I", null, start, end, 0);
+        mv.visitLocalVariable("b", "I", null, start, end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeTemporaries(ClassWriter cw, int count) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "choose", "(II)I", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        for (int i = 0; i < count; i++) {
+            // when (b) { i -> a += i }
+            Label skip = new Label();
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ISTORE, 2);
+            mv.visitVarInsn(ILOAD, 2);
+            pushInt(mv, i);
+            mv.visitJumpInsn(IF_ICMPNE, skip);
+            mv.visitIincInsn(0, i % 100 + 1);
+            mv.visitLabel(skip);
+            // b += a * i
+            mv.visitVarInsn(ILOAD, 0);
+            pushInt(mv, i);
+            mv.visitInsn(IMUL);
+            mv.visitVarInsn(ISTORE, 3);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitInsn(IADD);
+            mv.visitVarInsn(ISTORE, 1);
+        }
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitInsn(IRETURN);
+        Label end = new Label();
+        mv.visitLabel(end);
+        mv.visitLocalVariable("a", "I", null, start, end, 0);
+        mv.visitLocalVariable("b", "I", null, start, end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeNested(ClassWriter cw, int depth) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "nested", "(II)I", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        writeNestedLevel(mv, 0, depth);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitInsn(IRETURN);
+        Label end = new Label();
+        mv.visitLabel(end);
+        mv.visitLocalVariable("a", "I", null, start, end, 0);
+        mv.visitLocalVariable("b", "I", null, start, end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void writeNestedLevel(MethodVisitor mv, int level, int depth) {
+        if (level == depth) {
+            // a = a + b;
+            mv.visitVarInsn(ILOAD, 0);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitInsn(IADD);
+            mv.visitVarInsn(ISTORE, 0);
+            return;
+        }
+        if (level % 2 == 0) {
+            // if (a > level) { ... } else { b++; }
+            Label else_start = new Label();
+            Label end = new Label();
+            mv.visitVarInsn(ILOAD, 0);
+            pushInt(mv, level);
+            mv.visitJumpInsn(IF_ICMPLE, else_start);
+            writeNestedLevel(mv, level + 1, depth);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(else_start);
+            mv.visitIincInsn(1, 1);
+            mv.visitLabel(end);
+        } else {
+            // while (b < level) { b++; ... }
+            Label body = new Label();
+            Label condition = new Label();
+            mv.visitJumpInsn(GOTO, condition);
+            mv.visitLabel(body);
+            mv.visitIincInsn(1, 1);
+            writeNestedLevel(mv, level + 1, depth);
+            mv.visitLabel(condition);
+            mv.visitVarInsn(ILOAD, 1);
+            pushInt(mv, level);
+            mv.visitJumpInsn(IF_ICMPLT, body);
+        }
+    }
+
+    private static void writeConditions(ClassWriter cw, int terms) {
+        StringBuilder desc = new StringBuilder("(");
+        for (int i = 0; i < terms; i++) {
+            desc.append('I');
+        }
+        desc.append(")Z");
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "test", desc.toString(), null, null);
+        mv.visitCode();
+        Label start = new Label();
+        Label success = new Label();
+        Label failure = new Label();
+        mv.visitLabel(start);
+        // return (p0 > 0) || (p1 > 1 && p2 > 2) || (p3 > 3 && p4 > 4 && p5 > 5) || ...
+        int term = 0;
+        for (int group = 0; term < terms; group++) {
+            int group_end = Math.min(terms, term + group % 3 + 1);
+            boolean last_group = group_end == terms;
+            Label next_group = last_group ? failure : new Label();
+            for (; term < group_end; term++) {
+                mv.visitVarInsn(ILOAD, term);
+                pushInt(mv, term);
+                if (term == group_end - 1 && !last_group) {
+                    mv.visitJumpInsn(IF_ICMPGT, success);
+                } else {
+                    mv.visitJumpInsn(IF_ICMPLE, next_group);
+                }
+            }
+            if (!last_group) {
+                mv.visitLabel(next_group);
+            }
+        }
+        mv.visitLabel(success);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IRETURN);
+        mv.visitLabel(failure);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(IRETURN);
+        Label end = new Label();
+        mv.visitLabel(end);
+        for (int i = 0; i < terms; i++) {
+            mv.visitLocalVariable("p" + i, "I", null, start, end, i);
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Reads the class data of the given class from the classpath.
+     */
+    public static byte[] readClass(Class<?> cls) {
+        try (InputStream input = cls.getResourceAsStream("/" + cls.getName().replace('.', '/') + ".class")) {
+            return ByteStreams.toByteArray(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read class data of " + cls.getName(), e);
+        }
+    }
+
+}
@@ -24,14 +24,19 @@
  */
 package org.spongepowered.despector;
 
+import org.spongepowered.despector.ast.ConcurrentSourceSet;
 import org.spongepowered.despector.ast.SourceSet;
 import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.config.ConfigBase.CleanupConfigSection;
 import org.spongepowered.despector.config.ConfigManager;
+import org.spongepowered.despector.config.LibraryConfiguration;
 import org.spongepowered.despector.decompiler.Decompiler;
+import org.spongepowered.despector.decompiler.DecompilerCache;
 import org.spongepowered.despector.decompiler.Decompilers;
 import org.spongepowered.despector.decompiler.DirectoryWalker;
 import org.spongepowered.despector.decompiler.JarWalker;
+import org.spongepowered.despector.decompiler.JarWalker.GroupVisitor;
+import org.spongepowered.despector.decompiler.method.MethodBudget;
 import org.spongepowered.despector.emitter.Emitter;
 import org.spongepowered.despector.emitter.EmitterContext;
 import org.spongepowered.despector.emitter.Emitters;
@@ -39,28 +44,45 @@ import org.spongepowered.despector.emitter.format.EmitterFormat;
 import org.spongepowered.despector.emitter.format.FormatLoader;
 import org.spongepowered.despector.transform.TypeTransformer;
 import org.spongepowered.despector.transform.cleanup.CleanupOperations;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
+import org.spongepowered.despector.util.metrics.SummaryMetricsSink;
 
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
 public class Despector {
 
     private static final Map<String, Consumer<String>> flags = new HashMap<>();
 
+    /**
+     * The version of despector, taken from the jar manifest.
+     */
+    public static final String VERSION = Despector.class.getPackage().getImplementationVersion() != null
+            ? Despector.class.getPackage().getImplementationVersion() : "dev";
+
     public static Language LANGUAGE = Language.ANY;
 
+    @Nullable private static SummaryMetricsSink METRICS = null;
+
     static {
         flags.put("--config=", (arg) -> {
             String config = arg.substring(9);
@@ -81,6 +103,34 @@ public class Despector {
                 System.exit(0);
             }
         });
+        flags.put("--cache=", (arg) -> {
+            ConfigManager.getConfig().cache_path = arg.substring(8);
+        });
+        flags.put("--stream", (arg) -> {
+            ConfigManager.getConfig().stream_output = true;
+        });
+        flags.put("--threads=", (arg) -> {
+            String threads = arg.substring(10);
+            try {
+                ConfigManager.getConfig().decompile_threads = Integer.parseInt(threads);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid thread count: " + threads);
+                System.exit(0);
+            }
+        });
+        flags.put("--metrics", (arg) -> {
+            int count = 10;
+            if (arg.startsWith("--metrics=")) {
+                try {
+                    count = Integer.parseInt(arg.substring(10));
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid method count: " + arg.substring(10));
+                    System.exit(0);
+                }
+            }
+            METRICS = new SummaryMetricsSink(count);
+            LibraryConfiguration.metrics = METRICS;
+        });
     }
 
     public static TypeEntry decompile(InputStream input) throws IOException {
@@ -155,35 +205,10 @@ public class Despector {
             formatter = EmitterFormat.defaults();
         }
 
-        Decompiler decompiler = Decompilers.get(LANGUAGE);
-
-        SourceSet source = new SourceSet();
-        for (String s : sources) {
-            Path path = Paths.get(s);
-            if (!Files.exists(path)) {
-                System.err.println("Unknown source: " + path.toAbsolutePath().toString());
-            } else if (s.endsWith(".jar")) {
-                JarWalker walker = new JarWalker(path);
-                walker.walk(source, decompiler);
-            } else if (Files.isDirectory(path)) {
-                DirectoryWalker walker = new DirectoryWalker(path);
-                try {
-                    walker.walk(source, decompiler);
-                } catch (IOException e) {
-                    System.err.println("Error while walking directory: " + path.toAbsolutePath().toString());
-                    e.printStackTrace();
-                }
-            } else if (s.endsWith(".class")) {
-                decompiler.decompile(path, source);
-            } else {
-                System.err.println("Unknown source type: " + path.toAbsolutePath().toString() + " must be jar or directory");
-            }
-        }
-
-        if (source.getAllClasses().isEmpty()) {
-            System.err.println("No sources found.");
-            return;
-        }
+        DespectorContext context = DespectorContext.builder().language(LANGUAGE).build();
+        Decompiler decompiler = context.getDecompiler();
+        Emitter emitter = context.getEmitter();
+        MetricsSink metrics = context.getMetrics();
 
         List<TypeTransformer> transformers = new ArrayList<>();
         for (String operation : ConfigManager.getConfig().cleanup.operations) {
@@ -214,34 +239,234 @@ public class Despector {
                 target_trans.addAll(trans);
             }
         }
-        if (!transformers.isEmpty() || !targeted_transformers.isEmpty()) {
-            for (TypeEntry type : source.getAllClasses()) {
-                for (TypeTransformer transformer : transformers) {
-                    transformer.transform(type);
+
+        DecompilerCache cache = null;
+        if (!ConfigManager.getConfig().cache_path.isEmpty()) {
+            StringBuilder salt = new StringBuilder();
+            salt.append(VERSION).append('\n').append(LANGUAGE).append('\n');
+            salt.append(ConfigManager.getOutputFingerprint(ConfigManager.getConfig())).append('\n');
+            if (Files.exists(formatter_path) && Files.exists(importorder_path)) {
+                salt.append(new String(Files.readAllBytes(formatter_path), StandardCharsets.UTF_8)).append('\n');
+                salt.append(new String(Files.readAllBytes(importorder_path), StandardCharsets.UTF_8)).append('\n');
+            }
+            cache = new DecompilerCache(Paths.get(ConfigManager.getConfig().cache_path), salt.toString());
+        }
+
+        // Types from jars which have already been transformed and emitted as
+        // part of their top level type when streaming or caching
+        Set<TypeEntry> streamed = ConcurrentHashMap.newKeySet();
+        AtomicInteger restored = new AtomicInteger();
+        GroupVisitor group_visitor = new GroupEmitter(output, formatter, emitter, metrics, transformers, targeted_transformers, cache, streamed,
+                restored);
+
+        SourceSet source = ConfigManager.getConfig().decompile_threads > 1 ? new ConcurrentSourceSet() : new SourceSet();
+        for (String s : sources) {
+            Path path = Paths.get(s);
+            if (!Files.exists(path)) {
+                System.err.println("Unknown source: " + path.toAbsolutePath().toString());
+            } else if (s.endsWith(".jar")) {
+                JarWalker walker = new JarWalker(path);
+                walker.setThreads(ConfigManager.getConfig().decompile_threads);
+                walker.setMetrics(metrics);
+                if (ConfigManager.getConfig().stream_output || cache != null) {
+                    walker.walk(source, decompiler, group_visitor);
+                } else {
+                    walker.walk(source, decompiler);
                 }
-                Set<TypeTransformer> targetted = targeted_transformers.get(type.getName());
-                if (targetted != null) {
-                    for (TypeTransformer transformer : targetted) {
-                        transformer.transform(type);
-                    }
+            } else if (Files.isDirectory(path)) {
+                DirectoryWalker walker = new DirectoryWalker(path);
+                try {
+                    walker.walk(source, decompiler);
+                } catch (IOException e) {
+                    System.err.println("Error while walking directory: " + path.toAbsolutePath().toString());
+                    e.printStackTrace();
                 }
+            } else if (s.endsWith(".class")) {
+                decompiler.decompile(path, source);
+            } else {
+                System.err.println("Unknown source type: " + path.toAbsolutePath().toString() + " must be jar or directory");
             }
         }
 
-        Emitter emitter = Emitters.get(LANGUAGE);
+        if (source.getAllClasses().isEmpty() && restored.get() == 0) {
+            System.err.println("No sources found.");
+            return;
+        }
+
+        if (!transformers.isEmpty() || !targeted_transformers.isEmpty()) {
+            for (TypeEntry type : source.getAllClasses()) {
+                if (streamed.contains(type)) {
+                    continue;
+                }
+                transform(type, transformers, targeted_transformers, metrics);
+            }
+        }
 
         for (TypeEntry type : source.getAllClasses()) {
-            if (type.isInnerClass() || type.isAnonType()) {
+            if (streamed.contains(type) || type.isInnerClass() || type.isAnonType()) {
                 continue;
             }
-            Path out = output.resolve(type.getName() + LANGUAGE.getExtension(type));
-            if (!Files.exists(out.getParent())) {
-                Files.createDirectories(out.getParent());
+            write(output, getOutputPath(type), emit(formatter, emitter, type));
+        }
+
+        if (METRICS != null) {
+            METRICS.printSummary(System.out);
+        }
+
+    }
+
+    private static void transform(TypeEntry type, List<TypeTransformer> transformers, Map<String, Set<TypeTransformer>> targeted_transformers,
+            MetricsSink metrics) {
+        long start = System.nanoTime();
+        try {
+            for (TypeTransformer transformer : transformers) {
+                transformer.transform(type);
             }
-            try (FileWriter writer = new FileWriter(out.toFile())) {
-                EmitterContext ctx = new EmitterContext(writer, formatter);
-                emitter.emit(ctx, type);
+            Set<TypeTransformer> targetted = targeted_transformers.get(type.getName());
+            if (targetted != null) {
+                for (TypeTransformer transformer : targetted) {
+                    transformer.transform(type);
+                }
             }
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Phase.TRANSFORM, type.getName());
+            throw e;
+        } finally {
+            metrics.recordPhase(Phase.TRANSFORM, System.nanoTime() - start);
+        }
+    }
+
+    private static String getOutputPath(TypeEntry type) {
+        return type.getName() + LANGUAGE.getExtension(type);
+    }
+
+    private static String emit(EmitterFormat formatter, Emitter emitter, TypeEntry type) {
+        StringWriter writer = new StringWriter();
+        EmitterContext ctx = new EmitterContext(writer, formatter);
+        emitter.emit(ctx, type);
+        return writer.toString();
+    }
+
+    private static void write(Path output, String file, String source) throws IOException {
+        Path out = output.resolve(file);
+        if (!Files.exists(out.getParent())) {
+            Files.createDirectories(out.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(source);
+        }
+    }
+
+    /**
+     * Transforms and emits each group of types from a jar as soon as it is
+     * decompiled, restoring and storing the emitted source in the cache if one
+     * is configured.
+     */
+    private static class GroupEmitter implements GroupVisitor {
+
+        private final Path output;
+        private final EmitterFormat formatter;
+        private final Emitter emitter;
+        private final MetricsSink metrics;
+        private final List<TypeTransformer> transformers;
+        private final Map<String, Set<TypeTransformer>> targeted_transformers;
+        @Nullable private final DecompilerCache cache;
+        private final Set<TypeEntry> streamed;
+        private final AtomicInteger restored;
+        private final Map<String, PendingEntry> pending = new ConcurrentHashMap<>();
+
+        public GroupEmitter(Path output, EmitterFormat formatter, Emitter emitter, MetricsSink metrics, List<TypeTransformer> transformers,
+                Map<String, Set<TypeTransformer>> targeted_transformers, @Nullable DecompilerCache cache, Set<TypeEntry> streamed,
+                AtomicInteger restored) {
+            this.output = output;
+            this.formatter = formatter;
+            this.emitter = emitter;
+            this.metrics = metrics;
+            this.transformers = transformers;
+            this.targeted_transformers = targeted_transformers;
+            this.cache = cache;
+            this.streamed = streamed;
+            this.restored = restored;
+        }
+
+        @Override
+        public boolean visitClassData(String name, List<byte[]> data) {
+            if (this.cache == null) {
+                return true;
+            }
+            String key = this.cache.getKey(data);
+            Map<String, String> files = this.cache.get(key);
+            if (files == null) {
+                this.pending.put(name, new PendingEntry(key, MethodBudget.getExceededCount()));
+                return true;
+            }
+            try {
+                for (Map.Entry<String, String> file : files.entrySet()) {
+                    write(this.output, file.getKey(), file.getValue());
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing cached source for: " + name);
+                e.printStackTrace();
+            }
+            this.restored.incrementAndGet();
+            // the group is skipped entirely so its types are never added to
+            // the source set, see DecompilerCache
+            return false;
+        }
+
+        @Override
+        public void visitTypes(String name, List<TypeEntry> types) {
+            for (TypeEntry type : types) {
+                transform(type, this.transformers, this.targeted_transformers, this.metrics);
+            }
+            Map<String, String> files = new LinkedHashMap<>();
+            for (TypeEntry type : types) {
+                if (type.isInnerClass() || type.isAnonType()) {
+                    continue;
+                }
+                String file = getOutputPath(type);
+                String source = emit(this.formatter, this.emitter, type);
+                files.put(file, source);
+                try {
+                    write(this.output, file, source);
+                } catch (IOException e) {
+                    System.err.println("Error emitting type: " + type.getName());
+                    e.printStackTrace();
+                }
+            }
+            PendingEntry pending = this.pending.remove(name);
+            // a group with a method which ran out of budget is not cached as
+            // with a time limit its output depends on how long decompiling
+            // took, the group is decompiled on a single thread so the count
+            // only covers its own methods
+            if (pending != null && MethodBudget.getExceededCount() == pending.exceeded_count) {
+                this.cache.put(pending.key, files);
+            }
+            if (ConfigManager.getConfig().stream_output) {
+                // The method bodies of the group are only needed to emit it so
+                // we can let them go to bound the heap by the largest type
+                // rather than the whole jar
+                for (TypeEntry type : types) {
+                    type.releaseInstructions();
+                }
+            }
+            this.streamed.addAll(types);
+        }
+
+        /**
+         * The cache key of a group which missed the cache and the budget
+         * exceeded count from before it was decompiled.
+         */
+        private static class PendingEntry {
+
+            final String key;
+            final int exceeded_count;
+
+            PendingEntry(String key, int exceeded_count) {
+                this.key = key;
+                this.exceeded_count = exceeded_count;
+            }
+
         }
 
     }
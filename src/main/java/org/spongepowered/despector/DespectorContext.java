@@ -0,0 +1,421 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.ConfigBase;
+import org.spongepowered.despector.config.ConfigManager;
+import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.decompiler.BaseDecompiler;
+import org.spongepowered.despector.decompiler.Decompiler;
+import org.spongepowered.despector.decompiler.Decompilers;
+import org.spongepowered.despector.decompiler.WildDecompiler;
+import org.spongepowered.despector.decompiler.method.MethodDecompiler;
+import org.spongepowered.despector.emitter.BaseEmitter;
+import org.spongepowered.despector.emitter.Emitter;
+import org.spongepowered.despector.emitter.EmitterContext;
+import org.spongepowered.despector.emitter.EmitterSet;
+import org.spongepowered.despector.emitter.Emitters;
+import org.spongepowered.despector.emitter.WildEmitter;
+import org.spongepowered.despector.emitter.format.EmitterFormat;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.EnumMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A self contained set of decompilers, emitters and configuration.
+ * 
+ * <p>Unlike {@link Decompilers} and {@link Emitters} each context owns its own
+ * method decompiler pipelines, emitter sets and a private copy of the
+ * configuration, so differently configured contexts may be used side by side
+ * in the same jvm. A context is immutable once built and may be shared
+ * between threads and reused for any number of classes.</p>
+ * 
+ * <p>While one of the decompilers or emitters of a context is running the
+ * context is bound to the current thread, and {@link ConfigManager#getConfig()},
+ * {@link LibraryConfiguration#isQuiet()} and
+ * {@link LibraryConfiguration#getMetrics()} return the settings of the context
+ * rather than the global settings.</p>
+ */
+public final class DespectorContext {
+
+    private static final ThreadLocal<DespectorContext> current = new ThreadLocal<>();
+
+    /**
+     * Gets the context bound to the current thread, or null if no context is
+     * currently decompiling or emitting on this thread.
+     */
+    @Nullable
+    public static DespectorContext getCurrent() {
+        return current.get();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final Language language;
+    private final ConfigBase config;
+    private final boolean quiet;
+    private final MetricsSink metrics;
+
+    private final MethodDecompiler java_method;
+    private final MethodDecompiler kotlin_method;
+    private final EmitterSet java_set;
+    private final EmitterSet kotlin_set;
+
+    private final EnumMap<Language, Decompiler> decompilers = new EnumMap<>(Language.class);
+    private final EnumMap<Language, Emitter> emitters = new EnumMap<>(Language.class);
+
+    DespectorContext(Language language, ConfigBase config, boolean quiet, MetricsSink metrics, MethodDecompiler java_method,
+            MethodDecompiler kotlin_method, EmitterSet java_set, EmitterSet kotlin_set) {
+        this.language = language;
+        this.config = config;
+        this.quiet = quiet;
+        this.metrics = metrics;
+        this.java_method = java_method;
+        this.kotlin_method = kotlin_method;
+        this.java_set = java_set;
+        this.kotlin_set = kotlin_set;
+
+        BaseDecompiler java = Decompilers.createJavaDecompiler(java_method);
+        BaseDecompiler kotlin = Decompilers.createKotlinDecompiler(kotlin_method);
+        this.decompilers.put(Language.JAVA, new ContextDecompiler(java));
+        this.decompilers.put(Language.KOTLIN, new ContextDecompiler(kotlin));
+        this.decompilers.put(Language.ANY, new ContextDecompiler(new WildDecompiler(java, kotlin)));
+
+        Emitter java_emitter = new BaseEmitter(java_set, true);
+        Emitter kotlin_emitter = new BaseEmitter(kotlin_set, false);
+        this.emitters.put(Language.JAVA, new ContextEmitter(java_emitter));
+        this.emitters.put(Language.KOTLIN, new ContextEmitter(kotlin_emitter));
+        this.emitters.put(Language.ANY, new ContextEmitter(new WildEmitter(java_emitter, kotlin_emitter)));
+    }
+
+    /**
+     * Gets the language which this context decompiles and emits by default.
+     */
+    public Language getLanguage() {
+        return this.language;
+    }
+
+    /**
+     * Gets the configuration of this context. This is a private copy made when
+     * the context was built and should not be modified.
+     */
+    public ConfigBase getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Gets whether progress output is suppressed while decompiling.
+     */
+    public boolean isQuiet() {
+        return this.quiet;
+    }
+
+    /**
+     * Gets the sink which timings and counts are recorded to.
+     */
+    public MetricsSink getMetrics() {
+        return this.metrics;
+    }
+
+    public MethodDecompiler getJavaMethodDecompiler() {
+        return this.java_method;
+    }
+
+    public MethodDecompiler getKotlinMethodDecompiler() {
+        return this.kotlin_method;
+    }
+
+    public EmitterSet getJavaEmitterSet() {
+        return this.java_set;
+    }
+
+    public EmitterSet getKotlinEmitterSet() {
+        return this.kotlin_set;
+    }
+
+    /**
+     * Gets the decompiler for the default language of this context.
+     */
+    public Decompiler getDecompiler() {
+        return this.decompilers.get(this.language);
+    }
+
+    public Decompiler getDecompiler(Language lang) {
+        return this.decompilers.get(lang);
+    }
+
+    /**
+     * Gets the emitter for the default language of this context.
+     */
+    public Emitter getEmitter() {
+        return this.emitters.get(this.language);
+    }
+
+    public Emitter getEmitter(Language lang) {
+        return this.emitters.get(lang);
+    }
+
+    public TypeEntry decompile(InputStream input, SourceSet source) throws IOException {
+        return getDecompiler().decompile(input, source);
+    }
+
+    public String emitToString(TypeEntry type) {
+        return emitToString(type, EmitterFormat.defaults());
+    }
+
+    public String emitToString(TypeEntry type, EmitterFormat format) {
+        StringWriter writer = new StringWriter();
+        EmitterContext ctx = new EmitterContext(writer, format);
+        getEmitter(type.getLanguage()).emit(ctx, type);
+        return writer.toString();
+    }
+
+    /**
+     * Binds this context to the current thread, returning the previously bound
+     * context which should be restored with {@link #restore} afterwards.
+     */
+    DespectorContext bind() {
+        DespectorContext previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    static void restore(@Nullable DespectorContext previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * A decompiler which binds its context to the current thread while
+     * decompiling.
+     */
+    private class ContextDecompiler implements Decompiler {
+
+        private final Decompiler decompiler;
+
+        ContextDecompiler(Decompiler decompiler) {
+            this.decompiler = decompiler;
+        }
+
+        @Override
+        public TypeEntry decompile(Path cls_path, SourceSet source) throws IOException {
+            DespectorContext previous = bind();
+            try {
+                return this.decompiler.decompile(cls_path, source);
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public TypeEntry decompile(File cls_path, SourceSet source) throws IOException {
+            DespectorContext previous = bind();
+            try {
+                return this.decompiler.decompile(cls_path, source);
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public TypeEntry decompile(InputStream cls_path, SourceSet source) throws IOException {
+            DespectorContext previous = bind();
+            try {
+                return this.decompiler.decompile(cls_path, source);
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public TypeEntry decompile(ClassNode cn, SourceSet source) {
+            DespectorContext previous = bind();
+            try {
+                return this.decompiler.decompile(cn, source);
+            } finally {
+                restore(previous);
+            }
+        }
+
+    }
+
+    /**
+     * An emitter which binds its context to the current thread while emitting.
+     */
+    private class ContextEmitter implements Emitter {
+
+        private final Emitter emitter;
+
+        ContextEmitter(Emitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void emit(EmitterContext ctx, TypeEntry type) {
+            DespectorContext previous = bind();
+            try {
+                this.emitter.emit(ctx, type);
+            } finally {
+                restore(previous);
+            }
+        }
+
+    }
+
+    public static class Builder {
+
+        private Language language;
+        @Nullable private ConfigBase config;
+        @Nullable private Boolean quiet;
+        @Nullable private MetricsSink metrics;
+        @Nullable private MethodDecompiler java_method;
+        @Nullable private MethodDecompiler kotlin_method;
+        @Nullable private EmitterSet java_set;
+        @Nullable private EmitterSet kotlin_set;
+
+        public Builder() {
+            reset();
+        }
+
+        /**
+         * Sets the default language of the context, defaults to
+         * {@link Language#ANY}.
+         */
+        public Builder language(Language lang) {
+            this.language = checkNotNull(lang, "language");
+            return this;
+        }
+
+        /**
+         * Sets the configuration of the context, defaults to the global
+         * configuration. The configuration is copied when the context is built.
+         */
+        public Builder config(ConfigBase config) {
+            this.config = checkNotNull(config, "config");
+            return this;
+        }
+
+        /**
+         * Sets whether progress output is suppressed, defaults to the global
+         * {@link LibraryConfiguration#quiet} setting.
+         */
+        public Builder quiet(boolean quiet) {
+            this.quiet = quiet;
+            return this;
+        }
+
+        /**
+         * Sets the sink which timings and counts are recorded to, defaults to
+         * the global {@link LibraryConfiguration#metrics} sink.
+         */
+        public Builder metrics(MetricsSink metrics) {
+            this.metrics = checkNotNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Sets the method decompiler used for java classes, defaults to a new
+         * {@link Decompilers#createJavaMethodDecompiler() java pipeline}. The
+         * method decompiler should not be modified once the context is built.
+         */
+        public Builder javaMethodDecompiler(MethodDecompiler decompiler) {
+            this.java_method = checkNotNull(decompiler, "decompiler");
+            return this;
+        }
+
+        /**
+         * Sets the method decompiler used for kotlin classes, defaults to a new
+         * {@link Decompilers#createKotlinMethodDecompiler() kotlin pipeline}.
+         * The method decompiler should not be modified once the context is
+         * built.
+         */
+        public Builder kotlinMethodDecompiler(MethodDecompiler decompiler) {
+            this.kotlin_method = checkNotNull(decompiler, "decompiler");
+            return this;
+        }
+
+        /**
+         * Sets the emitter set used for java types, defaults to a new
+         * {@link Emitters#createJavaSet() java set}. The set should not be
+         * modified once the context is built.
+         */
+        public Builder javaEmitterSet(EmitterSet set) {
+            this.java_set = checkNotNull(set, "set");
+            return this;
+        }
+
+        /**
+         * Sets the emitter set used for kotlin types, defaults to a new
+         * {@link Emitters#createKotlinSet kotlin set} based on the java set.
+         * The set should not be modified once the context is built.
+         */
+        public Builder kotlinEmitterSet(EmitterSet set) {
+            this.kotlin_set = checkNotNull(set, "set");
+            return this;
+        }
+
+        public Builder reset() {
+            this.language = Language.ANY;
+            this.config = null;
+            this.quiet = null;
+            this.metrics = null;
+            this.java_method = null;
+            this.kotlin_method = null;
+            this.java_set = null;
+            this.kotlin_set = null;
+            return this;
+        }
+
+        public DespectorContext build() {
+            ConfigBase config = this.config != null ? this.config : ConfigManager.getConfig();
+            boolean quiet = this.quiet != null ? this.quiet : LibraryConfiguration.quiet;
+            MetricsSink metrics = this.metrics != null ? this.metrics : LibraryConfiguration.metrics;
+            MethodDecompiler java_method = this.java_method != null ? this.java_method : Decompilers.createJavaMethodDecompiler();
+            MethodDecompiler kotlin_method = this.kotlin_method != null ? this.kotlin_method : Decompilers.createKotlinMethodDecompiler();
+            EmitterSet java_set = this.java_set != null ? this.java_set : Emitters.createJavaSet();
+            EmitterSet kotlin_set = this.kotlin_set != null ? this.kotlin_set : Emitters.createKotlinSet(java_set);
+            return new DespectorContext(this.language, config.copy(), quiet, metrics, java_method, kotlin_method, java_set, kotlin_set);
+        }
+
+    }
+
+}
@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -101,26 +102,47 @@ public class Annotation {
     }
 
     private void writeObj(Object o, MessagePacker pack) throws IOException {
-        if (o instanceof Integer) {
+        if (o == null) {
+            pack.writeNil();
+        } else if (o instanceof Integer) {
             pack.writeInt(((Integer) o).intValue());
         } else if (o instanceof Byte) {
             pack.writeInt(((Byte) o).byteValue());
         } else if (o instanceof Short) {
             pack.writeInt(((Short) o).shortValue());
+        } else if (o instanceof Character) {
+            pack.writeInt(((Character) o).charValue());
         } else if (o instanceof Long) {
             pack.writeInt(((Long) o).longValue());
         } else if (o instanceof Float) {
             pack.writeFloat(((Float) o).floatValue());
         } else if (o instanceof Double) {
             pack.writeDouble(((Double) o).doubleValue());
+        } else if (o instanceof Boolean) {
+            pack.writeBool(((Boolean) o).booleanValue());
         } else if (o instanceof String) {
             pack.writeString(((String) o));
-        } else if (o instanceof Class) {
+        } else if (o instanceof Type) {
             pack.startMap(2);
             pack.writeString("id").writeInt(AstSerializer.ENTRY_ID_CLASS);
-            pack.writeString("class").writeString(((Class<?>) o).getName());
+            pack.writeString("class").writeString(((Type) o).getDescriptor());
+        } else if (o instanceof String[]) {
+            // enum values are stored as a pair of the enum descriptor and the
+            // constant name
+            String[] arr = (String[]) o;
+            pack.startArray(arr.length);
+            for (String str : arr) {
+                pack.writeString(str);
+            }
+        } else if (o instanceof List) {
+            List<?> list = (List<?>) o;
+            pack.startArray(list.size());
+            for (Object obj : list) {
+                writeObj(obj, pack);
+            }
+        } else {
+            throw new IllegalStateException("Cannot pack " + o.getClass().getSimpleName());
         }
-        throw new IllegalStateException("Cannot pack " + o.getClass().getSimpleName());
     }
 
     public void writeTo(MessagePacker pack) throws IOException {
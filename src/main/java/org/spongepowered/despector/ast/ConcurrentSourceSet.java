@@ -0,0 +1,235 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.type.ArrayTypeEntry;
+import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A source set which may be shared between many threads without serializing
+ * access behind a single lock.
+ * 
+ * <p>Types which are lazily loaded through the {@link SourceSet.Loader} are
+ * decompiled at most once, any other thread requesting the same type while it
+ * is being loaded will wait for the in-flight result. The only exception is a
+ * thread whose wait would close a cycle of threads each waiting on a type
+ * another of them is loading, that thread loads its own copy of the type
+ * rather than deadlocking. The first copy of a type to be added wins and is
+ * the one returned to every caller.</p>
+ * 
+ * <p>A lookup of a type which the current thread is itself still loading
+ * returns null, the entry does not exist until its load completes and
+ * neither waiting for it nor loading it again could ever finish.</p>
+ */
+public class ConcurrentSourceSet extends SourceSet {
+
+    private final ConcurrentMap<String, LoadTask> loading = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<String>> thread_loading = ThreadLocal.withInitial(HashSet::new);
+    // the in-flight load each blocked thread is waiting on, guarded by itself
+    private final Map<Thread, LoadTask> waiting = new HashMap<>();
+
+    public ConcurrentSourceSet() {
+        super(ConcurrentHashMap.newKeySet(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Inserts the given type into this source set unless another entry with
+     * the same name has already been added, in which case the existing entry
+     * is kept.
+     */
+    @Override
+    public void add(TypeEntry e) {
+        checkNotNull(e);
+        if (this.classes.putIfAbsent(e.getName(), e) != null) {
+            return;
+        }
+        if (e instanceof EnumEntry) {
+            this.enums.put(e.getName(), (EnumEntry) e);
+        } else if (e instanceof InterfaceEntry) {
+            this.interfaces.put(e.getName(), (InterfaceEntry) e);
+        }
+    }
+
+    @Override
+    public TypeEntry get(String name) {
+        checkNotNull(name);
+        if (name.endsWith("[]")) {
+            ArrayTypeEntry entry = this.array_types.get(name);
+            if (entry == null) {
+                // the component is resolved outside of the map update as it may
+                // recursively create further array types
+                TypeEntry comp = get(name.substring(0, name.length() - 2));
+                ArrayTypeEntry created = new ArrayTypeEntry(this, Language.ANY, comp.getName());
+                entry = this.array_types.putIfAbsent(name, created);
+                if (entry == null) {
+                    entry = created;
+                }
+            }
+            return entry;
+        }
+        TypeEntry entry = this.classes.get(name);
+        if (entry != null || getLoader() == null || this.load_failed_cache.contains(name)) {
+            return entry;
+        }
+        Set<String> thread_loading = this.thread_loading.get();
+        if (thread_loading.contains(name)) {
+            // the type is not added until its load completes
+            return null;
+        }
+        LoadTask task = new LoadTask(name);
+        LoadTask inflight = this.loading.putIfAbsent(name, task);
+        if (inflight == null) {
+            thread_loading.add(name);
+            try {
+                task.run();
+            } finally {
+                thread_loading.remove(name);
+                this.loading.remove(name, task);
+            }
+            return await(task);
+        }
+        if (!startWaiting(inflight)) {
+            // every thread in the cycle is blocked on another, so this thread
+            // breaks it by loading the type itself
+            thread_loading.add(name);
+            try {
+                return loadIfAbsent(name);
+            } finally {
+                thread_loading.remove(name);
+            }
+        }
+        try {
+            return await(inflight);
+        } finally {
+            synchronized (this.waiting) {
+                this.waiting.remove(Thread.currentThread());
+            }
+        }
+    }
+
+    /**
+     * Marks the current thread as waiting on the given in-flight load unless
+     * following the chain of threads waiting on each other from its owner
+     * leads back to the current thread.
+     * 
+     * @return false if waiting would deadlock
+     */
+    private boolean startWaiting(LoadTask task) {
+        Thread current = Thread.currentThread();
+        synchronized (this.waiting) {
+            // the chain is checked and extended atomically so that of the
+            // threads forming a cycle the last to start waiting sees it
+            for (LoadTask next = task; next != null; next = this.waiting.get(next.owner)) {
+                if (next.owner == current) {
+                    return false;
+                }
+            }
+            this.waiting.put(current, task);
+            return true;
+        }
+    }
+
+    private TypeEntry await(LoadTask task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error loading type " + task.name, e.getCause());
+        }
+    }
+
+    private TypeEntry loadIfAbsent(String name) {
+        // another thread may have completed loading this type between our
+        // lookup and claiming the in-flight slot
+        TypeEntry entry = this.classes.get(name);
+        if (entry != null || this.load_failed_cache.contains(name)) {
+            return entry;
+        }
+        entry = load(name);
+        // if a copy loaded to break a cycle was added first then that copy is
+        // the one every caller must see
+        TypeEntry added = this.classes.get(name);
+        return added != null ? added : entry;
+    }
+
+    @Override
+    protected void markLoadFailed(String name) {
+        this.load_failed_cache.add(name);
+    }
+
+    @Override
+    public EnumEntry getEnum(String name) {
+        return this.enums.get(name);
+    }
+
+    @Override
+    public InterfaceEntry getInterface(String name) {
+        return this.interfaces.get(name);
+    }
+
+    @Override
+    public void addAnnotation(AnnotationType anno) {
+        this.annotations.put(anno.getName(), anno);
+    }
+
+    @Override
+    public AnnotationType getAnnotationType(String name) {
+        return this.annotations.computeIfAbsent(name, AnnotationType::new);
+    }
+
+    /**
+     * An in-flight load of a type, run by the thread which first requested it.
+     */
+    private class LoadTask extends FutureTask<TypeEntry> {
+
+        final String name;
+        // tasks are only ever run by the thread which created them
+        final Thread owner = Thread.currentThread();
+
+        LoadTask(String name) {
+            super(() -> loadIfAbsent(name));
+            this.name = name;
+        }
+
+    }
+
+}
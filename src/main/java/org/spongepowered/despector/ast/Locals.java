@@ -26,18 +26,25 @@ package org.spongepowered.despector.ast;
 
 import com.google.common.collect.Lists;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.spongepowered.despector.ast.generic.ClassTypeSignature;
 import org.spongepowered.despector.ast.generic.TypeSignature;
+import org.spongepowered.despector.util.IntervalIndex;
 import org.spongepowered.despector.util.SignatureParser;
 import org.spongepowered.despector.util.serialization.MessagePacker;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 /**
  * A tracker of local variables.
  */
@@ -78,9 +85,9 @@ public class Locals {
         return this.locals[i];
     }
 
-    public void bakeInstances(Map<Label, Integer> label_indices) {
+    public void bakeInstances(InsnList instructions) {
         for (Local local : this.locals) {
-            local.bakeInstances(label_indices);
+            local.bakeInstances(instructions);
         }
     }
 
@@ -116,11 +123,13 @@ public class Locals {
     public void writeTo(MessagePacker pack) throws IOException {
         pack.startArray(this.locals.length);
         for (Local loc : this.locals) {
-            pack.startMap(loc.isParameter() ? 3 : 2);
+            LocalInstance param = loc.getParameterInstance();
+            pack.startMap(param != null ? 4 : 3);
             pack.writeString("index").writeInt(loc.getIndex());
-            if (loc.isParameter()) {
-                pack.writeString("parameter");
-                loc.getParameterInstance().writeTo(pack);
+            pack.writeString("parameter").writeBool(loc.isParameter());
+            if (param != null) {
+                pack.writeString("parameter_instance");
+                param.writeTo(pack);
             }
             pack.writeString("instances").startArray(loc.getInstances().size());
             for (LocalInstance insn : loc.getInstances()) {
@@ -140,6 +149,12 @@ public class Locals {
         private final List<LocalVariableNode> lvt = Lists.newArrayList();
         private final List<LocalInstance> instances = Lists.newArrayList();
 
+        // lookup structures over the lvt and the instances, built when first
+        // needed and discarded whenever either list changes
+        @Nullable private IntervalIndex instance_ranges;
+        @Nullable private Map<Label, List<LocalVariableNode>> lvt_starts;
+        @Nullable private Map<LocalVariableNode, LocalInstance> lvt_instances;
+
         public Local(int i) {
             this.index = i;
         }
@@ -158,21 +173,22 @@ public class Locals {
 
         public void addLVT(LocalVariableNode node) {
             this.lvt.add(node);
+            this.lvt_starts = null;
         }
 
         public List<LocalVariableNode> getLVT() {
-            return this.lvt;
+            return Collections.unmodifiableList(this.lvt);
         }
 
-        public void bakeInstances(Map<Label, Integer> label_indices) {
+        public void bakeInstances(InsnList instructions) {
             if (this.lvt.isEmpty()) {
                 if (this.index == 0) {
                     this.instances.add(new LocalInstance(this, null, "this", ClassTypeSignature.OBJECT, -1, Short.MAX_VALUE));
                 }
             }
             for (LocalVariableNode l : this.lvt) {
-                int start = label_indices.get(l.start.getLabel());
-                int end = label_indices.get(l.end.getLabel());
+                int start = instructions.indexOf(l.start);
+                int end = instructions.indexOf(l.end);
                 TypeSignature sig = null;
                 if (l.signature != null) {
                     sig = SignatureParser.parseFieldTypeSignature(l.signature);
@@ -182,25 +198,47 @@ public class Locals {
                 LocalInstance insn = new LocalInstance(this, l, l.name, sig, start - 1, end);
                 this.instances.add(insn);
             }
+            instancesChanged();
+        }
+
+        private void instancesChanged() {
+            this.instance_ranges = null;
+            this.lvt_instances = null;
+        }
+
+        /**
+         * Finds the first instance whose range covers the given instruction
+         * index.
+         */
+        @Nullable
+        private LocalInstance findInstance(int index) {
+            IntervalIndex ranges = this.instance_ranges;
+            if (ranges == null) {
+                int[] lows = new int[this.instances.size()];
+                int[] highs = new int[this.instances.size()];
+                for (int i = 0; i < lows.length; i++) {
+                    LocalInstance insn = this.instances.get(i);
+                    lows[i] = insn.getStart() - 1;
+                    highs[i] = insn.getEnd();
+                }
+                ranges = new IntervalIndex(lows, highs);
+                this.instance_ranges = ranges;
+            }
+            int found = ranges.find(index);
+            return found == -1 ? null : this.instances.get(found);
         }
 
         public LocalInstance getLVTInstance(int index) {
             if (this.parameter_instance != null) {
                 return this.parameter_instance;
             }
-            for (LocalInstance insn : this.instances) {
-                if (index >= insn.getStart() - 1 && index <= insn.getEnd()) {
-                    return insn;
-                }
-            }
-            return null;
+            return findInstance(index);
         }
 
         public LocalInstance getInstance(int index) {
-            for (LocalInstance insn : this.instances) {
-                if (index >= insn.getStart() - 1 && index <= insn.getEnd()) {
-                    return insn;
-                }
+            LocalInstance insn = findInstance(index);
+            if (insn != null) {
+                return insn;
             }
             if (this.parameter_instance != null) {
                 return this.parameter_instance;
@@ -215,6 +253,7 @@ public class Locals {
                 this.parameter_instance = insn;
             } else {
                 this.instances.add(insn);
+                instancesChanged();
             }
         }
 
@@ -227,21 +266,42 @@ public class Locals {
         }
 
         public LocalInstance find(Label start, String type) {
-            for (LocalVariableNode lvn : this.lvt) {
-                if (lvn.start.getLabel() == start && lvn.desc.equals(type)) {
-                    for (LocalInstance i : this.instances) {
-                        if (lvn == i.getLVN()) {
-                            return i;
+            Map<Label, List<LocalVariableNode>> starts = this.lvt_starts;
+            if (starts == null) {
+                starts = new HashMap<>();
+                for (LocalVariableNode lvn : this.lvt) {
+                    starts.computeIfAbsent(lvn.start.getLabel(), (k) -> new ArrayList<>(1)).add(lvn);
+                }
+                this.lvt_starts = starts;
+            }
+            List<LocalVariableNode> candidates = starts.get(start);
+            if (candidates == null) {
+                return null;
+            }
+            for (LocalVariableNode lvn : candidates) {
+                if (lvn.desc.equals(type)) {
+                    Map<LocalVariableNode, LocalInstance> by_lvn = this.lvt_instances;
+                    if (by_lvn == null) {
+                        by_lvn = new IdentityHashMap<>();
+                        for (LocalInstance i : this.instances) {
+                            if (i.getLVN() != null) {
+                                by_lvn.putIfAbsent(i.getLVN(), i);
+                            }
                         }
+                        this.lvt_instances = by_lvn;
+                    }
+                    LocalInstance i = by_lvn.get(lvn);
+                    if (i == null) {
+                        throw new IllegalStateException();
                     }
-                    throw new IllegalStateException();
+                    return i;
                 }
             }
             return null;
         }
 
         public List<LocalInstance> getInstances() {
-            return this.instances;
+            return Collections.unmodifiableList(this.instances);
         }
 
         @Override
@@ -338,7 +398,11 @@ public class Locals {
             pack.startMap(6);
             pack.writeString("name").writeString(this.name);
             pack.writeString("type");
-            this.type.writeTo(pack);
+            if (this.type != null) {
+                this.type.writeTo(pack);
+            } else {
+                pack.writeNil();
+            }
             pack.writeString("start").writeInt(this.start);
             pack.writeString("end").writeInt(this.end);
             pack.writeString("final").writeBool(this.effectively_final);
@@ -26,12 +26,15 @@ package org.spongepowered.despector.ast;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import org.spongepowered.despector.DespectorContext;
 import org.spongepowered.despector.Language;
 import org.spongepowered.despector.ast.type.ArrayTypeEntry;
 import org.spongepowered.despector.ast.type.EnumEntry;
 import org.spongepowered.despector.ast.type.InterfaceEntry;
 import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.decompiler.Decompiler;
 import org.spongepowered.despector.decompiler.Decompilers;
+import org.spongepowered.despector.decompiler.JarWalker;
 import org.spongepowered.despector.util.serialization.AstSerializer;
 import org.spongepowered.despector.util.serialization.MessagePacker;
 
@@ -45,20 +48,43 @@ import java.util.Set;
 
 /**
  * A source set for types which are part of the obfuscated source being mapped.
+ * 
+ * <p>Insertions and lookups are synchronized so that a single source set may
+ * be shared between the workers of a parallel {@link JarWalker}. The lock is
+ * not held while a missing type is loaded through the {@link Loader}, so two
+ * threads requesting the same missing type may both decompile it. See
+ * {@link ConcurrentSourceSet} for a variant which does not serialize access
+ * behind a single lock and loads each type at most once.</p>
  */
 public class SourceSet {
 
     private Loader loader;
-    private final Set<String> load_failed_cache = new HashSet<>();
+    protected final Set<String> load_failed_cache;
 
-    private final Map<String, TypeEntry> classes = new HashMap<>();
-    private final Map<String, EnumEntry> enums = new HashMap<>();
-    private final Map<String, InterfaceEntry> interfaces = new HashMap<>();
-    private final Map<String, ArrayTypeEntry> array_types = new HashMap<>();
+    protected final Map<String, TypeEntry> classes;
+    protected final Map<String, EnumEntry> enums;
+    protected final Map<String, InterfaceEntry> interfaces;
+    protected final Map<String, ArrayTypeEntry> array_types;
 
-    private final Map<String, AnnotationType> annotations = new HashMap<>();
+    protected final Map<String, AnnotationType> annotations;
+
+    private final SwitchMapCache switch_maps = new SwitchMapCache(this);
 
     public SourceSet() {
+        this(new HashSet<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Creates a new source set backed by the given collections.
+     */
+    protected SourceSet(Set<String> load_failed_cache, Map<String, TypeEntry> classes, Map<String, EnumEntry> enums,
+            Map<String, InterfaceEntry> interfaces, Map<String, ArrayTypeEntry> array_types, Map<String, AnnotationType> annotations) {
+        this.load_failed_cache = load_failed_cache;
+        this.classes = classes;
+        this.enums = enums;
+        this.interfaces = interfaces;
+        this.array_types = array_types;
+        this.annotations = annotations;
     }
 
     public Loader getLoader() {
@@ -72,7 +98,7 @@ public class SourceSet {
     /**
      * Inserts the given type into this source set.
      */
-    public void add(TypeEntry e) {
+    public synchronized void add(TypeEntry e) {
         checkNotNull(e);
         if (e instanceof EnumEntry) {
             this.enums.put(e.getName(), (EnumEntry) e);
@@ -85,39 +111,74 @@ public class SourceSet {
     public TypeEntry get(String name) {
         checkNotNull(name);
         if (name.endsWith("[]")) {
-            ArrayTypeEntry entry = this.array_types.get(name);
+            ArrayTypeEntry entry;
+            synchronized (this) {
+                entry = this.array_types.get(name);
+            }
             if (entry == null) {
+                // the component is resolved outside of the lock as it may need
+                // to be loaded
                 TypeEntry comp = get(name.substring(0, name.length() - 2));
-                entry = new ArrayTypeEntry(this, Language.ANY, comp.getName());
-                this.array_types.put(name, entry);
+                synchronized (this) {
+                    entry = this.array_types.get(name);
+                    if (entry == null) {
+                        entry = new ArrayTypeEntry(this, Language.ANY, comp.getName());
+                        this.array_types.put(name, entry);
+                    }
+                }
             }
             return entry;
         }
-        TypeEntry entry = this.classes.get(name);
-        if (entry == null && this.loader != null && !this.load_failed_cache.contains(name)) {
-            InputStream data = this.loader.find(name);
-            if (data == null) {
-                this.load_failed_cache.add(name);
-                return null;
+        synchronized (this) {
+            TypeEntry entry = this.classes.get(name);
+            if (entry != null || this.loader == null || this.load_failed_cache.contains(name)) {
+                return entry;
             }
-            try {
-                entry = Decompilers.get(Language.ANY).decompile(data, this);
-            } catch (IOException e) {
-                e.printStackTrace();
-                this.load_failed_cache.add(name);
-                return null;
-            }
-            add(entry);
         }
+        // loading decompiles the type which may itself look up further types,
+        // so this must not be done while holding the lock
+        return load(name);
+    }
+
+    /**
+     * Finds the given type with the {@link Loader} and decompiles it into this
+     * source set. If the type cannot be found or loaded then it is added to the
+     * failed cache and null is returned.
+     */
+    protected TypeEntry load(String name) {
+        InputStream data = this.loader.find(name);
+        if (data == null) {
+            markLoadFailed(name);
+            return null;
+        }
+        TypeEntry entry = null;
+        try {
+            DespectorContext context = DespectorContext.getCurrent();
+            Decompiler decompiler = context != null ? context.getDecompiler(Language.ANY) : Decompilers.get(Language.ANY);
+            entry = decompiler.decompile(data, this);
+        } catch (IOException e) {
+            System.err.println("Failed to load type " + name + ": " + e.getMessage());
+            markLoadFailed(name);
+            return null;
+        }
+        add(entry);
         return entry;
     }
 
-    public EnumEntry getEnum(String name) {
+    /**
+     * Marks the given type as having failed to load so that it is not looked
+     * up from the {@link Loader} again.
+     */
+    protected synchronized void markLoadFailed(String name) {
+        this.load_failed_cache.add(name);
+    }
+
+    public synchronized EnumEntry getEnum(String name) {
         EnumEntry entry = this.enums.get(name);
         return entry;
     }
 
-    public InterfaceEntry getInterface(String name) {
+    public synchronized InterfaceEntry getInterface(String name) {
         InterfaceEntry entry = this.interfaces.get(name);
         return entry;
     }
@@ -144,11 +205,11 @@ public class SourceSet {
         return this.interfaces.values();
     }
 
-    public void addAnnotation(AnnotationType anno) {
+    public synchronized void addAnnotation(AnnotationType anno) {
         this.annotations.put(anno.getName(), anno);
     }
 
-    public AnnotationType getAnnotationType(String name) {
+    public synchronized AnnotationType getAnnotationType(String name) {
         AnnotationType anno = this.annotations.get(name);
         if (anno == null) {
             anno = new AnnotationType(name);
@@ -161,6 +222,13 @@ public class SourceSet {
         return this.annotations.values();
     }
 
+    /**
+     * Gets the cache of enum switch tables for the types in this source set.
+     */
+    public SwitchMapCache getSwitchMaps() {
+        return this.switch_maps;
+    }
+
     public void writeTo(MessagePacker pack) throws IOException {
         pack.startMap(2);
         pack.writeString("version").writeInt(AstSerializer.VERSION);
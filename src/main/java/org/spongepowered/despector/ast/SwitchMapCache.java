@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstant;
+import org.spongepowered.despector.ast.members.insn.arg.field.FieldAccess;
+import org.spongepowered.despector.ast.members.insn.arg.field.StaticFieldAccess;
+import org.spongepowered.despector.ast.members.insn.assign.ArrayAssignment;
+import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
+import org.spongepowered.despector.ast.members.insn.function.InstanceMethodInvoke;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cache of the tables which map the case indices of a switch over an enum
+ * back to the names of the enum constants.
+ * 
+ * <p>javac switches over an enum through a {@code $SwitchMap$} field of a
+ * synthetic holder class which is shared by every switch in the outer class,
+ * and kotlinc does the same with the {@code $EnumSwitchMapping$} fields of a
+ * {@code $WhenMappings} class. ecj instead generates a {@code $SWITCH_TABLE$}
+ * method in the switching class for each enum. The tables are read from the
+ * static initializer of the holder, or from the body of the method, once and
+ * then shared by every emitter using the source set.</p>
+ */
+public class SwitchMapCache {
+
+    private final SourceSet source;
+    private final ConcurrentMap<TypeEntry, Map<String, Map<Integer, String>>> holders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MethodEntry, Map<Integer, String>> methods = new ConcurrentHashMap<>();
+
+    public SwitchMapCache(SourceSet source) {
+        this.source = checkNotNull(source, "source");
+    }
+
+    /**
+     * Gets the table held in the given static field of the given switch map
+     * holder, or null if the holder cannot be found or does not initialize
+     * the field.
+     */
+    @Nullable
+    public Map<Integer, String> getFieldTable(String holder, String field) {
+        TypeEntry type = this.source.get(holder);
+        if (type == null) {
+            return null;
+        }
+        Map<String, Map<Integer, String>> tables = this.holders.get(type);
+        if (tables == null) {
+            // every switch map field of the holder is read in one pass over
+            // its static initializer
+            MethodEntry clinit = type.getStaticMethodSafe("<clinit>");
+            tables = clinit == null ? Collections.emptyMap() : buildTables(clinit, true);
+            Map<String, Map<Integer, String>> existing = this.holders.putIfAbsent(type, tables);
+            if (existing != null) {
+                tables = existing;
+            }
+        }
+        return tables.get(field);
+    }
+
+    /**
+     * Gets the table built by the given synthetic switch table method, or null
+     * if the method body is not a switch table.
+     */
+    @Nullable
+    public Map<Integer, String> getMethodTable(MethodEntry method) {
+        Map<Integer, String> table = this.methods.get(method);
+        if (table == null) {
+            table = buildTables(method, false).get(null);
+            if (table == null) {
+                table = Collections.emptyMap();
+            }
+            Map<Integer, String> existing = this.methods.putIfAbsent(method, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        return table.isEmpty() ? null : table;
+    }
+
+    /**
+     * Collects the {@code table[Enum.CONSTANT.ordinal()] = index} assignments
+     * in the body of the given method into tables. If by_field is set the
+     * tables are keyed by the name of the field holding the array, otherwise
+     * all assignments are collected into a single table under the null key.
+     */
+    private static Map<String, Map<Integer, String>> buildTables(MethodEntry method, boolean by_field) {
+        StatementBlock body = method.getInstructions();
+        if (body == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Map<Integer, String>> tables = new HashMap<>();
+        for (Statement stmt : body.getStatements()) {
+            if (stmt instanceof TryCatch) {
+                // javac and ecj guard each assignment against the constant no
+                // longer existing
+                for (Statement inner : ((TryCatch) stmt).getTryBlock().getStatements()) {
+                    addEntry(tables, inner, by_field);
+                }
+            } else {
+                addEntry(tables, stmt, by_field);
+            }
+        }
+        for (Map.Entry<String, Map<Integer, String>> e : tables.entrySet()) {
+            e.setValue(Collections.unmodifiableMap(e.getValue()));
+        }
+        return tables;
+    }
+
+    private static void addEntry(Map<String, Map<Integer, String>> tables, Statement stmt, boolean by_field) {
+        if (!(stmt instanceof ArrayAssignment)) {
+            return;
+        }
+        ArrayAssignment assign = (ArrayAssignment) stmt;
+        if (!(assign.getValue() instanceof IntConstant) || !(assign.getIndex() instanceof InstanceMethodInvoke)) {
+            return;
+        }
+        InstanceMethodInvoke ordinal = (InstanceMethodInvoke) assign.getIndex();
+        if (!ordinal.getMethodName().equals("ordinal") || !(ordinal.getCallee() instanceof StaticFieldAccess)) {
+            return;
+        }
+        String field = null;
+        if (by_field && assign.getArray() instanceof FieldAccess) {
+            field = ((FieldAccess) assign.getArray()).getFieldName();
+        }
+        Map<Integer, String> table = tables.get(field);
+        if (table == null) {
+            table = new HashMap<>();
+            tables.put(field, table);
+        }
+        table.put(((IntConstant) assign.getValue()).getConstant(), ((StaticFieldAccess) ordinal.getCallee()).getFieldName());
+    }
+
+}
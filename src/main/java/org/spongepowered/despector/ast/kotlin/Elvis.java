@@ -29,6 +29,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import org.spongepowered.despector.ast.generic.TypeSignature;
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.util.serialization.AstSerializer;
 import org.spongepowered.despector.util.serialization.MessagePacker;
 
 import java.io.IOException;
@@ -87,7 +88,12 @@ public class Elvis implements Instruction {
 
     @Override
     public void writeTo(MessagePacker pack) throws IOException {
-        //TODO
+        pack.startMap(3);
+        pack.writeString("id").writeInt(AstSerializer.STATEMENT_ID_ELVIS);
+        pack.writeString("left");
+        this.left.writeTo(pack);
+        pack.writeString("else");
+        this.else_.writeTo(pack);
     }
 
     @Override
@@ -33,6 +33,7 @@ import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
 import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.util.serialization.AstSerializer;
 import org.spongepowered.despector.util.serialization.MessagePacker;
 
 import java.io.IOException;
@@ -126,7 +127,18 @@ public class When implements Instruction {
 
     @Override
     public void writeTo(MessagePacker pack) throws IOException {
-        //TODO
+        pack.startMap(5);
+        pack.writeString("id").writeInt(AstSerializer.STATEMENT_ID_WHEN);
+        pack.writeString("local");
+        this.local.writeToSimple(pack);
+        pack.writeString("var");
+        this.var.writeTo(pack);
+        pack.writeString("cases").startArray(this.cases.size());
+        for (Case cs : this.cases) {
+            cs.writeTo(pack);
+        }
+        pack.writeString("else");
+        this.else_body.writeTo(pack);
     }
 
     @Override
@@ -212,6 +224,28 @@ public class When implements Instruction {
         public void setInstruction(Instruction insn) {
             this.last = insn;
         }
+
+        public void writeTo(MessagePacker pack) throws IOException {
+            pack.startMap(3);
+            pack.writeString("condition");
+            if (this.condition != null) {
+                this.condition.writeTo(pack);
+            } else {
+                pack.writeNil();
+            }
+            pack.writeString("body");
+            if (this.body != null) {
+                this.body.writeTo(pack);
+            } else {
+                pack.writeNil();
+            }
+            pack.writeString("last");
+            if (this.last != null) {
+                this.last.writeTo(pack);
+            } else {
+                pack.writeNil();
+            }
+        }
     }
 
 }
@@ -240,9 +240,17 @@ public class MethodEntry extends AstEntry {
             pack.writeString(param);
         }
         pack.writeString("methodsignature");
-        this.sig.writeTo(pack);
+        if (this.sig != null) {
+            this.sig.writeTo(pack);
+        } else {
+            pack.writeNil();
+        }
         pack.writeString("instructions");
-        this.instructions.writeTo(pack);
+        if (this.instructions != null) {
+            this.instructions.writeTo(pack);
+        } else {
+            pack.writeNil();
+        }
         pack.writeString("annotations").startArray(this.annotations.size());
         for (Annotation anno : this.annotations.values()) {
             anno.writeTo(pack);
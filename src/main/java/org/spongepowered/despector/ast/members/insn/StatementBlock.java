@@ -137,8 +137,9 @@ public class StatementBlock {
     }
 
     public void writeTo(MessagePacker pack) throws IOException {
-        pack.startMap(this.type == Type.METHOD ? 3 : 2);
+        pack.startMap(this.type == Type.METHOD ? 4 : 3);
         pack.writeString("id").writeInt(AstSerializer.ENTRY_ID_STATEMENT_BODY);
+        pack.writeString("type").writeInt(this.type.ordinal());
         if (this.type == Type.METHOD) {
             pack.writeString("locals");
             this.locals.writeTo(pack);
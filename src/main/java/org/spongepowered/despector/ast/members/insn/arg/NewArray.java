@@ -34,6 +34,7 @@ import org.spongepowered.despector.util.serialization.AstSerializer;
 import org.spongepowered.despector.util.serialization.MessagePacker;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
@@ -118,9 +119,14 @@ public class NewArray implements Instruction {
         pack.writeString("type").writeString(this.type);
         pack.writeString("size");
         this.size.writeTo(pack);
-        pack.writeString("values").startArray(this.values.length);
-        for (Instruction insn : this.values) {
-            insn.writeTo(pack);
+        pack.writeString("values");
+        if (this.values != null) {
+            pack.startArray(this.values.length);
+            for (Instruction insn : this.values) {
+                insn.writeTo(pack);
+            }
+        } else {
+            pack.writeNil();
         }
     }
 
@@ -160,4 +166,13 @@ public class NewArray implements Instruction {
         return this.size.equals(insn.size) && this.type.equals(insn.type);
     }
 
+    @Override
+    public int hashCode() {
+        int h = 1;
+        h = h * 37 + Arrays.hashCode(this.values);
+        h = h * 37 + this.size.hashCode();
+        h = h * 37 + this.type.hashCode();
+        return h;
+    }
+
 }
@@ -90,4 +90,10 @@ public class DoubleConstant extends Constant {
         DoubleConstant cast = (DoubleConstant) obj;
         return this.cst == cast.cst;
     }
+
+    @Override
+    public int hashCode() {
+        // 0.0 and -0.0 are equal but have different hashes
+        return this.cst == 0 ? 0 : Double.hashCode(this.cst);
+    }
 }
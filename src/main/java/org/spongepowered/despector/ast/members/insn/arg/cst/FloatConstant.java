@@ -91,4 +91,10 @@ public class FloatConstant extends Constant {
         return this.cst == cast.cst;
     }
 
+    @Override
+    public int hashCode() {
+        // 0.0 and -0.0 are equal but have different hashes
+        return this.cst == 0 ? 0 : Float.hashCode(this.cst);
+    }
+
 }
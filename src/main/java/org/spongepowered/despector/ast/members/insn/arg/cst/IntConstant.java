@@ -102,6 +102,11 @@ public class IntConstant extends Constant {
         return this.cst == cast.cst;
     }
 
+    @Override
+    public int hashCode() {
+        return this.cst;
+    }
+
     public static enum IntFormat {
         BINARY,
         OCTAL,
@@ -68,10 +68,15 @@ public class NullConstant extends Constant {
         if (obj == this) {
             return true;
         }
-        if (!(obj instanceof LongConstant)) {
+        if (!(obj instanceof NullConstant)) {
             return false;
         }
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
 }
@@ -94,4 +94,9 @@ public class TypeConstant extends Constant {
         return this.cst.equals(insn.cst);
     }
 
+    @Override
+    public int hashCode() {
+        return this.cst.hashCode();
+    }
+
 }
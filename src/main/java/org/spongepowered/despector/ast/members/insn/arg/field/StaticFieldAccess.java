@@ -53,7 +53,7 @@ public class StaticFieldAccess extends FieldAccess {
         pack.writeString("desc").writeString(this.field_desc);
         pack.writeString("owner").writeString(this.owner_type);
         pack.writeString("signature");
-        this.signature.writeTo(pack);
+        inferType().writeTo(pack);
     }
 
     @Override
@@ -73,4 +73,13 @@ public class StaticFieldAccess extends FieldAccess {
         return this.field_desc.equals(insn.field_desc) && this.field_name.equals(insn.field_name) && this.owner_type.equals(insn.owner_type);
     }
 
+    @Override
+    public int hashCode() {
+        int h = 1;
+        h = h * 37 + this.field_desc.hashCode();
+        h = h * 37 + this.field_name.hashCode();
+        h = h * 37 + this.owner_type.hashCode();
+        return h;
+    }
+
 }
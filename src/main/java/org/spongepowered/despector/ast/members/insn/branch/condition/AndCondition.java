@@ -116,4 +116,9 @@ public class AndCondition extends Condition {
         return true;
     }
 
+    @Override
+    protected int computeHash() {
+        return this.args.hashCode();
+    }
+
 }
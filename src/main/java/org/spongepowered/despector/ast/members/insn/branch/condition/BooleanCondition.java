@@ -58,6 +58,7 @@ public class BooleanCondition extends Condition {
      */
     public void setConditionValue(Instruction insn) {
         this.value = checkNotNull(insn, "value");
+        invalidateHash();
     }
 
     /**
@@ -72,6 +73,7 @@ public class BooleanCondition extends Condition {
      */
     public void setInverse(boolean state) {
         this.inverse = state;
+        invalidateHash();
     }
 
     @Override
@@ -106,4 +108,9 @@ public class BooleanCondition extends Condition {
         return this.value.equals(and.value) && this.inverse == and.inverse;
     }
 
+    @Override
+    protected int computeHash() {
+        return this.value.hashCode() * 37 + (this.inverse ? 1 : 0);
+    }
+
 }
@@ -133,6 +133,7 @@ public class CompareCondition extends Condition {
      */
     public void setLeft(Instruction left) {
         this.left = checkNotNull(left, "left");
+        invalidateHash();
     }
 
     /**
@@ -147,6 +148,7 @@ public class CompareCondition extends Condition {
      */
     public void setRight(Instruction right) {
         this.right = checkNotNull(right, "right");
+        invalidateHash();
     }
 
     /**
@@ -161,6 +163,7 @@ public class CompareCondition extends Condition {
      */
     public void setOperator(CompareOperator op) {
         this.op = checkNotNull(op, "op");
+        invalidateHash();
     }
 
     @Override
@@ -198,4 +201,13 @@ public class CompareCondition extends Condition {
         return and.right.equals(this.right) && and.left.equals(this.left) && this.op == and.op;
     }
 
+    @Override
+    protected int computeHash() {
+        int h = 1;
+        h = h * 37 + this.left.hashCode();
+        h = h * 37 + this.right.hashCode();
+        h = h * 37 + this.op.hashCode();
+        return h;
+    }
+
 }
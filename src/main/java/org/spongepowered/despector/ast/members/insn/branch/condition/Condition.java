@@ -34,6 +34,8 @@ import java.io.IOException;
  */
 public abstract class Condition {
 
+    private int hash;
+
     /**
      * Passes itself and any child nodes to the given visitor.
      */
@@ -45,6 +47,36 @@ public abstract class Condition {
     @Override
     public abstract boolean equals(Object o);
 
+    /**
+     * Gets a hash of the structure of this condition which is consistent with
+     * {@link #equals(Object)}. The hash is cached as conditions are hashed
+     * repeatedly while being simplified, any changes made through the setters
+     * of a condition clear the cache but changes to the operands of the
+     * condition are not seen.
+     */
+    @Override
+    public int hashCode() {
+        if (this.hash == 0) {
+            int h = computeHash();
+            // zero marks the hash as not yet computed
+            this.hash = h == 0 ? 1 : h;
+        }
+        return this.hash;
+    }
+
+    /**
+     * Computes the hash of the structure of this condition.
+     */
+    protected abstract int computeHash();
+
+    /**
+     * Clears the cached hash of this condition, called whenever the
+     * condition is changed.
+     */
+    protected void invalidateHash() {
+        this.hash = 0;
+    }
+
     public abstract void writeTo(MessagePacker pack) throws IOException;
 
 }
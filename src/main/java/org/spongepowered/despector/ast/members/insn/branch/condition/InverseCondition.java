@@ -55,6 +55,7 @@ public class InverseCondition extends Condition {
      */
     public void setConditionValue(Condition val) {
         this.value = checkNotNull(val, "value");
+        invalidateHash();
     }
 
     @Override
@@ -88,4 +89,9 @@ public class InverseCondition extends Condition {
         return this.value.equals(and.value);
     }
 
+    @Override
+    protected int computeHash() {
+        return ~this.value.hashCode();
+    }
+
 }
@@ -106,4 +106,9 @@ public class OrCondition extends Condition {
         return true;
     }
 
+    @Override
+    protected int computeHash() {
+        return this.args.hashCode() * 37 + 1;
+    }
+
 }
@@ -142,4 +142,13 @@ public class New implements Instruction {
         return this.type.equals(insn.type) && this.ctor.equals(insn.ctor) && Arrays.equals(this.params, insn.params);
     }
 
+    @Override
+    public int hashCode() {
+        int h = 1;
+        h = h * 37 + this.type.hashCode();
+        h = h * 37 + this.ctor.hashCode();
+        h = h * 37 + Arrays.hashCode(this.params);
+        return h;
+    }
+
 }
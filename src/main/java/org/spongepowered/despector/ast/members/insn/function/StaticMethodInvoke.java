@@ -86,4 +86,14 @@ public class StaticMethodInvoke extends MethodInvoke {
                 && this.method_owner.equals(insn.method_owner) && Arrays.equals(this.params, insn.params);
     }
 
+    @Override
+    public int hashCode() {
+        int h = 1;
+        h = h * 37 + this.method_desc.hashCode();
+        h = h * 37 + this.method_name.hashCode();
+        h = h * 37 + this.method_owner.hashCode();
+        h = h * 37 + Arrays.hashCode(this.params);
+        return h;
+    }
+
 }
@@ -48,6 +48,7 @@ import org.spongepowered.despector.util.serialization.MessagePacker;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,9 +74,11 @@ public abstract class TypeEntry extends AstEntry {
 
     protected final Map<String, FieldEntry> static_fields = new LinkedHashMap<>();
     protected final Multimap<String, MethodEntry> static_methods = LinkedHashMultimap.create();
+    protected final Map<String, Map<String, MethodEntry>> static_method_sigs = new HashMap<>();
 
     protected final Map<String, FieldEntry> fields = new LinkedHashMap<>();
     protected final Multimap<String, MethodEntry> methods = LinkedHashMultimap.create();
+    protected final Map<String, Map<String, MethodEntry>> method_sigs = new HashMap<>();
 
     protected final Map<AnnotationType, Annotation> annotations = new LinkedHashMap<>();
     protected final Map<String, InnerClassInfo> inner_classes = new LinkedHashMap<>();
@@ -165,25 +168,22 @@ public abstract class TypeEntry extends AstEntry {
     }
 
     protected MethodEntry findMethod(String name, Multimap<String, MethodEntry> map) {
-        MethodEntry ret = null;
-        for (MethodEntry m : map.values()) {
-            if (m.getName().equals(name)) {
-                if (ret != null) {
-                    throw new IllegalStateException("Tried to get ambiguous method " + name);
-                }
-                ret = m;
-            }
+        Collection<MethodEntry> named = map.get(name);
+        if (named.isEmpty()) {
+            return null;
         }
-        return ret;
+        if (named.size() > 1) {
+            throw new IllegalStateException("Tried to get ambiguous method " + name);
+        }
+        return named.iterator().next();
     }
 
-    protected MethodEntry findMethod(String name, String sig, Multimap<String, MethodEntry> map) {
-        for (MethodEntry m : map.values()) {
-            if (m.getName().equals(name) && m.getSignature().equals(sig)) {
-                return m;
-            }
+    protected MethodEntry findMethod(String name, String sig, Map<String, Map<String, MethodEntry>> sigs) {
+        Map<String, MethodEntry> named = sigs.get(name);
+        if (named == null) {
+            return null;
         }
-        return null;
+        return named.get(sig);
     }
 
     /**
@@ -208,7 +208,7 @@ public abstract class TypeEntry extends AstEntry {
      */
     public MethodEntry getStaticMethod(String name, String sig) {
         checkNotNull(name);
-        MethodEntry ret = findMethod(name, sig, this.static_methods);
+        MethodEntry ret = findMethod(name, sig, this.static_method_sigs);
         if (ret == null) {
             throw new IllegalArgumentException("Unknown single method: " + name + sig + " on class " + this);
         }
@@ -226,7 +226,7 @@ public abstract class TypeEntry extends AstEntry {
      */
     public MethodEntry getStaticMethodSafe(String name, String sig) {
         checkNotNull(name);
-        return findMethod(name, sig, this.static_methods);
+        return findMethod(name, sig, this.static_method_sigs);
     }
 
     /**
@@ -251,7 +251,7 @@ public abstract class TypeEntry extends AstEntry {
     public MethodEntry getMethod(String name, String sig) {
         checkNotNull(name);
         checkNotNull(sig);
-        MethodEntry ret = findMethod(name, sig, this.methods);
+        MethodEntry ret = findMethod(name, sig, this.method_sigs);
         if (ret == null) {
             throw new IllegalArgumentException("Unknown method: " + name + sig + " on class " + this);
         }
@@ -270,7 +270,7 @@ public abstract class TypeEntry extends AstEntry {
     public MethodEntry getMethodSafe(String name, String sig) {
         checkNotNull(name);
         checkNotNull(sig);
-        return findMethod(name, sig, this.methods);
+        return findMethod(name, sig, this.method_sigs);
     }
 
     /**
@@ -279,18 +279,24 @@ public abstract class TypeEntry extends AstEntry {
     public void addMethod(MethodEntry m) {
         checkNotNull(m);
         if (m.isStatic()) {
-            MethodEntry existing = getStaticMethodSafe(m.getName(), m.getSignature());
-            if (existing != null) {
-                throw new IllegalArgumentException("Duplicate method " + existing);
-            }
-            this.static_methods.put(m.getName(), m);
+            putMethod(m, this.static_methods, this.static_method_sigs);
         } else {
-            MethodEntry existing = getMethodSafe(m.getName(), m.getSignature());
-            if (existing != null) {
-                throw new IllegalArgumentException("Duplicate method " + existing);
-            }
-            this.methods.put(m.getName(), m);
+            putMethod(m, this.methods, this.method_sigs);
+        }
+    }
+
+    private static void putMethod(MethodEntry m, Multimap<String, MethodEntry> map, Map<String, Map<String, MethodEntry>> sigs) {
+        Map<String, MethodEntry> named = sigs.get(m.getName());
+        if (named == null) {
+            // most names are not overloaded
+            named = new HashMap<>(2);
+            sigs.put(m.getName(), named);
+        }
+        MethodEntry existing = named.putIfAbsent(m.getSignature(), m);
+        if (existing != null) {
+            throw new IllegalArgumentException("Duplicate method " + existing);
         }
+        map.put(m.getName(), m);
     }
 
     public int getMethodCount() {
@@ -309,6 +315,22 @@ public abstract class TypeEntry extends AstEntry {
         return this.static_methods.values();
     }
 
+    /**
+     * Releases the decompiled bodies of all methods in this type, leaving only
+     * the member declarations. Used to reduce memory usage once a type has been
+     * emitted. Anything inspecting the bodies of methods in other types while
+     * emitting, such as synthetic accessors and lambdas, must handle a null
+     * body.
+     */
+    public void releaseInstructions() {
+        for (MethodEntry m : this.methods.values()) {
+            m.setInstructions(null);
+        }
+        for (MethodEntry m : this.static_methods.values()) {
+            m.setInstructions(null);
+        }
+    }
+
     protected FieldEntry findField(String name, Map<String, FieldEntry> map) {
         FieldEntry e = map.get(name);
         return e;
@@ -487,8 +509,18 @@ public abstract class TypeEntry extends AstEntry {
         public void writeTo(MessagePacker pack) throws IOException {
             pack.startMap(8);
             pack.writeString("name").writeString(this.name);
-            pack.writeString("simple_name").writeString(this.simple_name);
-            pack.writeString("outer_name").writeString(this.outer_name);
+            pack.writeString("simple_name");
+            if (this.simple_name != null) {
+                pack.writeString(this.simple_name);
+            } else {
+                pack.writeNil();
+            }
+            pack.writeString("outer_name");
+            if (this.outer_name != null) {
+                pack.writeString(this.outer_name);
+            } else {
+                pack.writeNil();
+            }
             pack.writeString("static").writeBool(this.is_static);
             pack.writeString("final").writeBool(this.is_final);
             pack.writeString("abstract").writeBool(this.is_abstract);
@@ -41,6 +41,8 @@ public class ConfigBase {
     public CleanupConfig cleanup = new CleanupConfig();
     @Setting(comment = "Kotlin specific configuration")
     public KotlinConfig kotlin = new KotlinConfig();
+    @Setting(comment = "Limits on the work spent decompiling a single method")
+    public BudgetConfig budget = new BudgetConfig();
 
     @Setting(comment = "Targeted cleanup iperations")
     public List<CleanupConfigSection> cleanup_sections = new ArrayList<>();
@@ -49,6 +51,40 @@ public class ConfigBase {
     public boolean emit_source_on_load = Boolean.valueOf(System.getProperty("despector.debug.emit", "false"));
     @Setting(value = "print-opcodes-on-error", comment = "Prints out opcodes of a method when it fails to decompile.")
     public boolean print_opcodes_on_error = Boolean.valueOf(System.getProperty("despector.debug.printerrors", "false"));
+    @Setting(value = "decompile-threads", comment = "The number of worker threads used to decompile jars, 1 decompiles on the calling thread.")
+    public int decompile_threads = 1;
+    @Setting(value = "stream-output", comment = "Emits each top level type of a jar as soon as it is decompiled and releases its method bodies afterwards.")
+    public boolean stream_output = false;
+    @Setting(value = "cache-path", comment = "The directory to cache emitted source in between runs, empty to disable caching.")
+    public String cache_path = "";
+
+    /**
+     * Creates a deep copy of this configuration.
+     */
+    public ConfigBase copy() {
+        ConfigBase copy = new ConfigBase();
+        copy.emitter.formatting_path = this.emitter.formatting_path;
+        copy.emitter.imports_path = this.emitter.imports_path;
+        copy.emitter.formatting_type = this.emitter.formatting_type;
+        copy.emitter.emit_synthetics = this.emitter.emit_synthetics;
+        copy.cleanup.operations.addAll(this.cleanup.operations);
+        copy.kotlin.replace_mulit_line_strings = this.kotlin.replace_mulit_line_strings;
+        copy.budget.time_limit = this.budget.time_limit;
+        copy.budget.block_limit = this.budget.block_limit;
+        copy.budget.condition_term_limit = this.budget.condition_term_limit;
+        for (CleanupConfigSection section : this.cleanup_sections) {
+            CleanupConfigSection section_copy = new CleanupConfigSection();
+            section_copy.operations.addAll(section.operations);
+            section_copy.targets.addAll(section.targets);
+            copy.cleanup_sections.add(section_copy);
+        }
+        copy.emit_source_on_load = this.emit_source_on_load;
+        copy.print_opcodes_on_error = this.print_opcodes_on_error;
+        copy.decompile_threads = this.decompile_threads;
+        copy.stream_output = this.stream_output;
+        copy.cache_path = this.cache_path;
+        return copy;
+    }
 
     /**
      * Configuration for the emitter settings.
@@ -97,4 +133,19 @@ public class ConfigBase {
 
     }
 
+    /**
+     * Configuration for the per method decompilation budget.
+     */
+    @ConfigSerializable
+    public static class BudgetConfig {
+
+        @Setting(value = "time-limit", comment = "The time in milliseconds a single method may take to decompile, 0 for no limit")
+        public long time_limit = 0;
+        @Setting(value = "block-limit", comment = "The number of opcode blocks a single method may contain, 0 for no limit")
+        public int block_limit = 0;
+        @Setting(value = "condition-term-limit", comment = "The number of terms a single condition may expand to, 0 for no limit")
+        public int condition_term_limit = 0;
+
+    }
+
 }
@@ -26,9 +26,15 @@ package org.spongepowered.despector.config;
 
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
 import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
 import ninja.leaping.configurate.objectmapping.ObjectMapper;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.spongepowered.despector.DespectorContext;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -46,15 +52,43 @@ public class ConfigManager {
     private static ConfigBase config = null;
 
     /**
-     * Gets the global configuration object.
+     * Gets the configuration of the {@link DespectorContext} bound to the
+     * current thread, or the global configuration object if there is none.
      */
     public static ConfigBase getConfig() {
+        DespectorContext context = DespectorContext.getCurrent();
+        if (context != null) {
+            return context.getConfig();
+        }
         if (config == null) {
             config = new ConfigBase();
         }
         return config;
     }
 
+    /**
+     * Renders the settings of the given configuration which affect the emitted
+     * source as a string. Two configurations with the same fingerprint will
+     * produce the same output for the same input.
+     */
+    public static String getOutputFingerprint(ConfigBase config) {
+        StringWriter writer = new StringWriter();
+        try {
+            CommentedConfigurationNode root = SimpleCommentedConfigurationNode.root();
+            ObjectMapper.forObject(config).serialize(root);
+            // the whole configuration is rendered so that new settings are part
+            // of the fingerprint by default, only the settings which are known
+            // to not change the emitted source are left out
+            root.removeChild("decompile-threads");
+            root.removeChild("stream-output");
+            root.removeChild("cache-path");
+            HoconConfigurationLoader.builder().setSink(() -> new BufferedWriter(writer)).build().save(root);
+        } catch (ObjectMappingException | IOException e) {
+            throw new IllegalStateException("Error rendering configuration", e);
+        }
+        return writer.toString();
+    }
+
     /**
      * Loads the given configuration file.
      */
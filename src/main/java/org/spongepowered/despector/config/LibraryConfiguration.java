@@ -24,11 +24,39 @@
  */
 package org.spongepowered.despector.config;
 
+import org.spongepowered.despector.DespectorContext;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+
 /**
  * Static config designed to be set when despector is being used as a library.
  */
 public class LibraryConfiguration {
 
     public static boolean quiet = false;
+    public static MetricsSink metrics = MetricsSink.NONE;
+
+    /**
+     * Gets whether progress output is suppressed, taken from the
+     * {@link DespectorContext} bound to the current thread if there is one.
+     */
+    public static boolean isQuiet() {
+        DespectorContext context = DespectorContext.getCurrent();
+        if (context != null) {
+            return context.isQuiet();
+        }
+        return quiet;
+    }
+
+    /**
+     * Gets the sink which timings and counts are recorded to, taken from the
+     * {@link DespectorContext} bound to the current thread if there is one.
+     */
+    public static MetricsSink getMetrics() {
+        DespectorContext context = DespectorContext.getCurrent();
+        if (context != null) {
+            return context.getMetrics();
+        }
+        return metrics;
+    }
 
 }
@@ -39,6 +39,8 @@ import org.spongepowered.despector.ast.type.EnumEntry;
 import org.spongepowered.despector.ast.type.InterfaceEntry;
 import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -77,34 +79,60 @@ public class BaseDecompiler implements Decompiler {
 
     @Override
     public TypeEntry decompile(InputStream cls_path, SourceSet source) throws IOException {
-        ClassReader reader = new ClassReader(cls_path);
-        ClassNode cn = new ClassNode();
-        reader.accept(cn, 0);
-        return decompile(cn, source);
+        return decompile(readClass(new ClassReader(cls_path)), source);
     }
 
     @Override
     public TypeEntry decompile(ClassNode cn, SourceSet source) {
-        if (!LibraryConfiguration.quiet) {
+        if (!LibraryConfiguration.isQuiet()) {
             System.out.println("Decompiling class " + cn.name);
         }
-        int acc = cn.access;
-        TypeEntry entry = null;
-        if ((acc & ACC_ENUM) != 0) {
-            entry = new EnumEntry(source, this.lang, cn.name);
-        } else if ((acc & ACC_INTERFACE) != 0) {
-            entry = new InterfaceEntry(source, this.lang, cn.name);
-        } else {
-            entry = new ClassEntry(source, this.lang, cn.name);
-            ((ClassEntry) entry).setSuperclass("L" + cn.superName + ";");
-        }
+        MetricsSink metrics = LibraryConfiguration.getMetrics();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            int acc = cn.access;
+            TypeEntry entry = null;
+            if ((acc & ACC_ENUM) != 0) {
+                entry = new EnumEntry(source, this.lang, cn.name);
+            } else if ((acc & ACC_INTERFACE) != 0) {
+                entry = new InterfaceEntry(source, this.lang, cn.name);
+            } else {
+                entry = new ClassEntry(source, this.lang, cn.name);
+                ((ClassEntry) entry).setSuperclass("L" + cn.superName + ";");
+            }
+
+            for (DecompilerStep step : this.steps) {
+                step.process(cn, entry);
+            }
 
-        for (DecompilerStep step : this.steps) {
-            step.process(cn, entry);
+            source.add(entry);
+            failed = false;
+            return entry;
+        } finally {
+            metrics.recordClass(cn.name, System.nanoTime() - start, failed);
         }
+    }
+
+    /**
+     * Reads a class node from the given reader, recording the time taken as
+     * the {@link Phase#PARSE parse phase} to the sink of the context bound to
+     * the current thread.
+     */
+    public static ClassNode readClass(ClassReader reader) {
+        return readClass(reader, LibraryConfiguration.getMetrics());
+    }
 
-        source.add(entry);
-        return entry;
+    /**
+     * Reads a class node from the given reader, recording the time taken as
+     * the {@link Phase#PARSE parse phase} to the given sink.
+     */
+    public static ClassNode readClass(ClassReader reader, MetricsSink metrics) {
+        long start = System.nanoTime();
+        ClassNode cn = new ClassNode();
+        reader.accept(cn, 0);
+        metrics.recordPhase(Phase.PARSE, System.nanoTime() - start);
+        return cn;
     }
 
     public static Annotation createAnnotation(SourceSet src, AnnotationNode an) {
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler;
+
+import org.spongepowered.despector.util.serialization.MessagePacker;
+import org.spongepowered.despector.util.serialization.MessageUnpacker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A content addressed on-disk cache of emitted source. Entries are keyed by a
+ * hash of the raw class data of a top level type and its inner types, salted
+ * with anything else that affects the output such as the despector version and
+ * the active configuration.
+ * 
+ * <p>A group restored from the cache is not decompiled, so its types are never
+ * added to the {@link org.spongepowered.despector.ast.SourceSet}. This is safe
+ * as the emitted source of a group only depends on the types of that group,
+ * lookups of types in other groups already miss when those groups have not
+ * been walked yet.</p>
+ */
+public class DecompilerCache {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+    private final byte[] salt;
+
+    public DecompilerCache(Path directory, String salt) {
+        this.directory = directory;
+        this.salt = digest().digest(salt.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the directory that cache entries are stored in.
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Gets the cache key for the given class data.
+     */
+    public String getKey(List<byte[]> classes) {
+        MessageDigest digest = digest();
+        digest.update(this.salt);
+        for (byte[] cls : classes) {
+            // the length is included so that the boundaries between classes
+            // are part of the key
+            digest.update((byte) (cls.length >>> 24));
+            digest.update((byte) (cls.length >>> 16));
+            digest.update((byte) (cls.length >>> 8));
+            digest.update((byte) cls.length);
+            digest.update(cls);
+        }
+        byte[] hash = digest.digest();
+        char[] key = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            key[i * 2] = HEX[(hash[i] >>> 4) & 0xF];
+            key[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Gets the cached source files for the given key as a map of output paths
+     * to source, or null if there is no valid entry for the key.
+     */
+    @Nullable
+    public Map<String, String> get(String key) {
+        Path entry = getEntryPath(key);
+        if (!Files.exists(entry)) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(entry)); MessageUnpacker unpack = new MessageUnpacker(in)) {
+            unpack.readMap();
+            unpack.readString();
+            if (unpack.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            unpack.readString();
+            int len = unpack.readMap();
+            Map<String, String> files = new LinkedHashMap<>();
+            for (int i = 0; i < len; i++) {
+                String file = unpack.readString();
+                files.put(file, unpack.readString());
+            }
+            return files;
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Discarding corrupt cache entry " + entry);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given source files, keyed by their output path, in the cache.
+     */
+    public void put(String key, Map<String, String> files) {
+        Path entry = getEntryPath(key);
+        try {
+            Files.createDirectories(entry.getParent());
+            // written to a temporary file first so that concurrent readers
+            // never observe a partial entry
+            Path tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp)); MessagePacker pack = new MessagePacker(out)) {
+                pack.startMap(2);
+                pack.writeString("version").writeInt(FORMAT_VERSION);
+                pack.writeString("files").startMap(files.size());
+                for (Map.Entry<String, String> file : files.entrySet()) {
+                    pack.writeString(file.getKey()).writeString(file.getValue());
+                }
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing cache entry " + entry);
+            e.printStackTrace();
+        }
+    }
+
+    private Path getEntryPath(String key) {
+        return this.directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -59,70 +59,100 @@ import java.util.EnumMap;
 
 public class Decompilers {
 
-    public static final BaseDecompiler JAVA = new BaseDecompiler(Language.JAVA);
-    public static final BaseDecompiler KOTLIN = new BaseDecompiler(Language.KOTLIN);
-    public static final WildDecompiler WILD = new WildDecompiler();
+    public static final MethodDecompiler JAVA_METHOD = createJavaMethodDecompiler();
+    public static final MethodDecompiler KOTLIN_METHOD = createKotlinMethodDecompiler();
 
-    public static final MethodDecompiler JAVA_METHOD = new MethodDecompiler();
-    public static final MethodDecompiler KOTLIN_METHOD = new MethodDecompiler();
+    public static final BaseDecompiler JAVA = createJavaDecompiler(JAVA_METHOD);
+    public static final BaseDecompiler KOTLIN = createKotlinDecompiler(KOTLIN_METHOD);
+    public static final WildDecompiler WILD = new WildDecompiler(JAVA, KOTLIN);
 
     private static final EnumMap<Language, Decompiler> DECOMPILERS = new EnumMap<>(Language.class);
 
     static {
-        JAVA.addStep(new ClassInfoStep());
-        JAVA.addStep(new FieldInfoStep());
-        JAVA.addStep(new MethodInfoStep(JAVA_METHOD));
-        JAVA.addStep(new EnumConstantsStep());
+        DECOMPILERS.put(Language.JAVA, JAVA);
+        DECOMPILERS.put(Language.KOTLIN, KOTLIN);
+        DECOMPILERS.put(Language.ANY, WILD);
+    }
 
-        KOTLIN.addStep(new ClassInfoStep());
-        KOTLIN.addStep(new FieldInfoStep());
-        KOTLIN.addStep(new KotlinMethodInfoStep(KOTLIN_METHOD));
-        KOTLIN.addStep(new EnumConstantsStep());
+    /**
+     * Creates a new java decompiler using the given method decompiler for
+     * method bodies.
+     */
+    public static BaseDecompiler createJavaDecompiler(MethodDecompiler method_decompiler) {
+        BaseDecompiler decompiler = new BaseDecompiler(Language.JAVA);
+        decompiler.addStep(new ClassInfoStep());
+        decompiler.addStep(new FieldInfoStep());
+        decompiler.addStep(new MethodInfoStep(method_decompiler));
+        decompiler.addStep(new EnumConstantsStep());
+        return decompiler;
+    }
 
-        JAVA_METHOD.addGraphProducer(new JumpGraphProducerStep());
-        JAVA_METHOD.addGraphProducer(new SwitchGraphProducerStep());
-        JAVA_METHOD.addGraphProducer(new TryCatchGraphProducerStep());
-        JAVA_METHOD.addCleanupOperation(new EmptyBlockClearOperation());
-        JAVA_METHOD.addCleanupOperation(new JumpSeparateOperation());
-        JAVA_METHOD.addCleanupOperation(new BlockTargetOperation());
-        JAVA_METHOD.addCleanupOperation(new TernaryPrePassOperation());
-        JAVA_METHOD.addCleanupOperation(new BreakPrePassOperation());
-        JAVA_METHOD.addProcessor(new TryCatchBlockProcessor());
-        JAVA_METHOD.addProcessor(new InternalBlockProcessor());
-        JAVA_METHOD.addProcessor(new SwitchBlockProcessor());
-        JAVA_METHOD.addProcessor(new SubRegionBlockProcessor());
-        JAVA_METHOD.addRegionProcessor(new ChildRegionProcessor());
-        JAVA_METHOD.addRegionProcessor(new DoWhileRegionProcessor());
-        JAVA_METHOD.addRegionProcessor(new WhileRegionProcessor());
-        JAVA_METHOD.addRegionProcessor(new IfBlockRegionProcessor());
-        JAVA_METHOD.addPostProcessor(new IfCombiningPostProcessor());
-        JAVA_METHOD.addPostProcessor(new ForFromWhilePostProcessor());
-        JAVA_METHOD.addPostProcessor(new ForEachPostProcessor());
+    /**
+     * Creates a new kotlin decompiler using the given method decompiler for
+     * method bodies.
+     */
+    public static BaseDecompiler createKotlinDecompiler(MethodDecompiler method_decompiler) {
+        BaseDecompiler decompiler = new BaseDecompiler(Language.KOTLIN);
+        decompiler.addStep(new ClassInfoStep());
+        decompiler.addStep(new FieldInfoStep());
+        decompiler.addStep(new KotlinMethodInfoStep(method_decompiler));
+        decompiler.addStep(new EnumConstantsStep());
+        return decompiler;
+    }
 
-        KOTLIN_METHOD.addGraphProducer(new JumpGraphProducerStep());
-        KOTLIN_METHOD.addGraphProducer(new SwitchGraphProducerStep());
-        KOTLIN_METHOD.addGraphProducer(new TryCatchGraphProducerStep());
-        KOTLIN_METHOD.addGraphProducer(new ElvisGraphProducerStep());
-        KOTLIN_METHOD.addCleanupOperation(new EmptyBlockClearOperation());
-        KOTLIN_METHOD.addCleanupOperation(new JumpSeparateOperation());
-        KOTLIN_METHOD.addCleanupOperation(new BlockTargetOperation());
-        KOTLIN_METHOD.addCleanupOperation(new BreakPrePassOperation());
-        KOTLIN_METHOD.addCleanupOperation(new KotlinTernaryPrePassOperation());
-        KOTLIN_METHOD.addProcessor(new TryCatchBlockProcessor());
-        KOTLIN_METHOD.addProcessor(new InternalBlockProcessor());
-        KOTLIN_METHOD.addProcessor(new SwitchBlockProcessor());
-        KOTLIN_METHOD.addProcessor(new SubRegionBlockProcessor());
-        KOTLIN_METHOD.addRegionProcessor(new ChildRegionProcessor());
-        KOTLIN_METHOD.addRegionProcessor(new DoWhileRegionProcessor());
-        KOTLIN_METHOD.addRegionProcessor(new WhileRegionProcessor());
-        KOTLIN_METHOD.addRegionProcessor(new IfBlockRegionProcessor());
-        KOTLIN_METHOD.addPostProcessor(new IfCombiningPostProcessor());
-        KOTLIN_METHOD.addPostProcessor(new ForEachPostProcessor());
-        KOTLIN_METHOD.setSpecialProcessor(LocalsProcessor.class, new KotlinLocalsProcessor());
+    /**
+     * Creates a new method decompiler with the default java pipeline.
+     */
+    public static MethodDecompiler createJavaMethodDecompiler() {
+        MethodDecompiler decompiler = new MethodDecompiler();
+        decompiler.addGraphProducer(new JumpGraphProducerStep());
+        decompiler.addGraphProducer(new SwitchGraphProducerStep());
+        decompiler.addGraphProducer(new TryCatchGraphProducerStep());
+        decompiler.addCleanupOperation(new EmptyBlockClearOperation());
+        decompiler.addCleanupOperation(new JumpSeparateOperation());
+        decompiler.addCleanupOperation(new BlockTargetOperation());
+        decompiler.addCleanupOperation(new TernaryPrePassOperation());
+        decompiler.addCleanupOperation(new BreakPrePassOperation());
+        decompiler.addProcessor(new TryCatchBlockProcessor());
+        decompiler.addProcessor(new InternalBlockProcessor());
+        decompiler.addProcessor(new SwitchBlockProcessor());
+        decompiler.addProcessor(new SubRegionBlockProcessor());
+        decompiler.addRegionProcessor(new ChildRegionProcessor());
+        decompiler.addRegionProcessor(new DoWhileRegionProcessor());
+        decompiler.addRegionProcessor(new WhileRegionProcessor());
+        decompiler.addRegionProcessor(new IfBlockRegionProcessor());
+        decompiler.addPostProcessor(new IfCombiningPostProcessor());
+        decompiler.addPostProcessor(new ForFromWhilePostProcessor());
+        decompiler.addPostProcessor(new ForEachPostProcessor());
+        return decompiler;
+    }
 
-        DECOMPILERS.put(Language.JAVA, JAVA);
-        DECOMPILERS.put(Language.KOTLIN, KOTLIN);
-        DECOMPILERS.put(Language.ANY, WILD);
+    /**
+     * Creates a new method decompiler with the default kotlin pipeline.
+     */
+    public static MethodDecompiler createKotlinMethodDecompiler() {
+        MethodDecompiler decompiler = new MethodDecompiler();
+        decompiler.addGraphProducer(new JumpGraphProducerStep());
+        decompiler.addGraphProducer(new SwitchGraphProducerStep());
+        decompiler.addGraphProducer(new TryCatchGraphProducerStep());
+        decompiler.addGraphProducer(new ElvisGraphProducerStep());
+        decompiler.addCleanupOperation(new EmptyBlockClearOperation());
+        decompiler.addCleanupOperation(new JumpSeparateOperation());
+        decompiler.addCleanupOperation(new BlockTargetOperation());
+        decompiler.addCleanupOperation(new BreakPrePassOperation());
+        decompiler.addCleanupOperation(new KotlinTernaryPrePassOperation());
+        decompiler.addProcessor(new TryCatchBlockProcessor());
+        decompiler.addProcessor(new InternalBlockProcessor());
+        decompiler.addProcessor(new SwitchBlockProcessor());
+        decompiler.addProcessor(new SubRegionBlockProcessor());
+        decompiler.addRegionProcessor(new ChildRegionProcessor());
+        decompiler.addRegionProcessor(new DoWhileRegionProcessor());
+        decompiler.addRegionProcessor(new WhileRegionProcessor());
+        decompiler.addRegionProcessor(new IfBlockRegionProcessor());
+        decompiler.addPostProcessor(new IfCombiningPostProcessor());
+        decompiler.addPostProcessor(new ForEachPostProcessor());
+        decompiler.setSpecialProcessor(LocalsProcessor.class, new KotlinLocalsProcessor());
+        return decompiler;
     }
 
     public static Decompiler get(Language lang) {
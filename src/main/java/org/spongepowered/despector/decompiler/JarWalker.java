@@ -24,18 +24,38 @@
  */
 package org.spongepowered.despector.decompiler;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
+import org.spongepowered.despector.ast.ConcurrentSourceSet;
 import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * Walks a jar file to produce an ast. Steps such as associating overriding
@@ -74,6 +94,8 @@ public class JarWalker {
     }
 
     private final Path jar;
+    private int threads = 1;
+    private MetricsSink metrics = LibraryConfiguration.getMetrics();
 
     /**
      * Creates a new jar walker.
@@ -82,11 +104,148 @@ public class JarWalker {
         this.jar = jar;
     }
 
+    /**
+     * Gets the number of worker threads used to decompile the jar.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Sets the number of worker threads used to decompile the jar. A value
+     * greater than one causes the entries to be read from a random access
+     * {@link ZipFile} and decompiled in parallel, in which case the target
+     * source set should be a {@link ConcurrentSourceSet} to avoid contention.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Gets the sink which parse timings and failures of the walk are recorded
+     * to.
+     */
+    public MetricsSink getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the sink which parse timings and failures of the walk are recorded
+     * to. Class files are parsed before they are handed to the decompiler, so
+     * this should match the sink of the decompiler's context. Defaults to the
+     * sink current when the walker was created.
+     */
+    public void setMetrics(MetricsSink metrics) {
+        this.metrics = checkNotNull(metrics, "metrics");
+    }
+
     /**
      * Produces a new obfuscated source set for this version.
      */
     public void walk(SourceSet sources, Decompiler decomp) {
-        scanJar(this.jar, sources, decomp);
+        if (this.threads > 1) {
+            scanJarParallel(this.jar, sources, decomp);
+        } else {
+            scanJar(this.jar, sources, decomp);
+        }
+    }
+
+    /**
+     * Walks the jar one top level type at a time. Each top level type is
+     * decompiled together with its inner and anonymous types and the resulting
+     * group is passed to the given consumer before the next group is
+     * decompiled. If more than one thread is configured then groups are
+     * decompiled in parallel and the consumer may be invoked concurrently.
+     */
+    public void walk(SourceSet sources, Decompiler decomp, Consumer<List<TypeEntry>> consumer) {
+        walk(sources, decomp, new GroupVisitor() {
+
+            @Override
+            public boolean visitClassData(String name, List<byte[]> data) {
+                return true;
+            }
+
+            @Override
+            public void visitTypes(String name, List<TypeEntry> types) {
+                consumer.accept(types);
+            }
+        });
+    }
+
+    /**
+     * Walks the jar one top level type at a time as with
+     * {@link #walk(SourceSet, Decompiler, Consumer)}, additionally giving the
+     * visitor a chance to inspect the raw class data of each group and skip
+     * decompiling it.
+     */
+    public void walk(SourceSet sources, Decompiler decomp, GroupVisitor visitor) {
+        // with a single thread the groups are walked on the calling thread
+        ExecutorService workers = this.threads > 1 ? Executors.newFixedThreadPool(this.threads) : null;
+        try (ZipFile jar = new ZipFile(this.jar.toFile())) {
+            Map<String, List<ZipEntry>> groups = new LinkedHashMap<>();
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class")) {
+                    continue;
+                }
+                int inner = name.indexOf('$', name.lastIndexOf('/') + 1);
+                String top_level = inner == -1 ? name.substring(0, name.length() - 6) : name.substring(0, inner);
+                List<ZipEntry> group = groups.get(top_level);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(top_level, group);
+                }
+                group.add(entry);
+            }
+            Map<String, Future<?>> tasks = new LinkedHashMap<>();
+            for (Map.Entry<String, List<ZipEntry>> group : groups.entrySet()) {
+                if (workers == null) {
+                    try {
+                        walkGroup(jar, group.getKey(), group.getValue(), sources, decomp, visitor);
+                    } catch (IOException | RuntimeException e) {
+                        reportFailure(group.getKey(), e);
+                    }
+                    continue;
+                }
+                tasks.put(group.getKey(), workers.submit(() -> {
+                    walkGroup(jar, group.getKey(), group.getValue(), sources, decomp, visitor);
+                    return null;
+                }));
+            }
+            awaitAll(tasks);
+        } catch (IOException e) {
+            reportFailure(this.jar.toString(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private void walkGroup(ZipFile jar, String name, List<ZipEntry> group, SourceSet sources, Decompiler decomp, GroupVisitor visitor)
+            throws IOException {
+        List<byte[]> data = new ArrayList<>();
+        for (ZipEntry entry : group) {
+            try (InputStream input = jar.getInputStream(entry)) {
+                data.add(ByteStreams.toByteArray(input));
+            }
+        }
+        if (!visitor.visitClassData(name, data)) {
+            return;
+        }
+        List<TypeEntry> types = new ArrayList<>();
+        for (byte[] cls : data) {
+            TypeEntry type = scanClassFile(new ClassReader(cls), sources, decomp);
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        if (!types.isEmpty()) {
+            visitor.visitTypes(name, types);
+        }
     }
 
     private void scanJar(Path path, SourceSet src, Decompiler decomp) {
@@ -106,21 +265,103 @@ public class JarWalker {
                 scanClassFile(jar, src, decomp);
             } while ((entry = jar.getNextEntry()) != null);
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(this.jar.toString(), e);
             return;
         }
     }
 
-    private void scanClassFile(JarInputStream input, SourceSet src, Decompiler decomp) throws IOException {
-        ClassReader reader = new ClassReader(input);
-        ClassNode cn = new ClassNode();
-        reader.accept(cn, 0);
+    private void scanJarParallel(Path path, SourceSet src, Decompiler decomp) {
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+        try (ZipFile jar = new ZipFile(path.toFile())) {
+            Map<String, Future<?>> tasks = new LinkedHashMap<>();
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                tasks.put(entry.getName(), workers.submit(() -> {
+                    try (InputStream input = jar.getInputStream(entry)) {
+                        scanClassFile(input, src, decomp);
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(tasks);
+        } catch (IOException e) {
+            reportFailure(this.jar.toString(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void awaitAll(Map<String, Future<?>> tasks) throws InterruptedException {
+        for (Map.Entry<String, Future<?>> task : tasks.entrySet()) {
+            try {
+                task.getValue().get();
+            } catch (ExecutionException e) {
+                reportFailure(task.getKey(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reports a failure to read or decompile the given jar or entry. Failures
+     * to read class data are recorded as a failure of the
+     * {@link Phase#PARSE parse phase}, failures while decompiling have already
+     * been recorded against the failing class by the decompiler. The stack
+     * trace of the cause is always printed.
+     */
+    private void reportFailure(String name, Throwable cause) {
+        if (cause instanceof IOException) {
+            this.metrics.recordFailure(Phase.PARSE, name);
+        }
+        // held so the trace of one worker is not interleaved with another
+        synchronized (System.err) {
+            System.err.println("Error decompiling " + name + ":");
+            cause.printStackTrace();
+        }
+    }
+
+    private TypeEntry scanClassFile(InputStream input, SourceSet src, Decompiler decomp) throws IOException {
+        return scanClassFile(new ClassReader(input), src, decomp);
+    }
+
+    private TypeEntry scanClassFile(ClassReader reader, SourceSet src, Decompiler decomp) {
+        ClassNode cn = BaseDecompiler.readClass(reader, this.metrics);
         for (String ex : EXCLUDES) {
             if (cn.name.startsWith(ex)) {
-                return;
+                return null;
             }
         }
-        decomp.decompile(cn, src);
+        TypeEntry type = decomp.decompile(cn, src);
+        // the type may also have been loaded lazily by another worker, in
+        // which case the copy which was added first is the one to use
+        TypeEntry added = src.get(cn.name);
+        return added != null ? added : type;
+    }
+
+
+    /**
+     * A visitor for the groups of types produced by a per top level type walk
+     * of a jar.
+     */
+    public static interface GroupVisitor {
+
+        /**
+         * Visits the raw class data of a top level type and its inner types
+         * before they are decompiled.
+         * 
+         * @return false if decompiling the group should be skipped
+         */
+        boolean visitClassData(String name, List<byte[]> data);
+
+        /**
+         * Visits the decompiled types of a group.
+         */
+        void visitTypes(String name, List<TypeEntry> types);
+
     }
 
 }
@@ -39,6 +39,22 @@ import java.util.List;
 
 public class WildDecompiler implements Decompiler {
 
+    private final Decompiler java;
+    private final Decompiler kotlin;
+
+    public WildDecompiler() {
+        this(Decompilers.JAVA, Decompilers.KOTLIN);
+    }
+
+    /**
+     * Creates a new decompiler which delegates classes with kotlin metadata to
+     * the given kotlin decompiler and all others to the given java decompiler.
+     */
+    public WildDecompiler(Decompiler java, Decompiler kotlin) {
+        this.java = java;
+        this.kotlin = kotlin;
+    }
+
     @Override
     public TypeEntry decompile(Path cls_path, SourceSet source) throws IOException {
         return decompile(cls_path.toFile(), source);
@@ -51,10 +67,7 @@ public class WildDecompiler implements Decompiler {
 
     @Override
     public TypeEntry decompile(InputStream cls_path, SourceSet source) throws IOException {
-        ClassReader reader = new ClassReader(cls_path);
-        ClassNode cn = new ClassNode();
-        reader.accept(cn, 0);
-        return decompile(cn, source);
+        return decompile(BaseDecompiler.readClass(new ClassReader(cls_path)), source);
     }
 
     @SuppressWarnings("unchecked")
@@ -63,10 +76,10 @@ public class WildDecompiler implements Decompiler {
         if (cn.visibleAnnotations != null) {
             for (AnnotationNode anno : (List<AnnotationNode>) cn.visibleAnnotations) {
                 if (anno.desc.startsWith("Lkotlin")) {
-                    return Decompilers.KOTLIN.decompile(cn, source);
+                    return this.kotlin.decompile(cn, source);
                 }
             }
         }
-        return Decompilers.JAVA.decompile(cn, source);
+        return this.java.decompile(cn, source);
     }
 }
@@ -33,11 +33,9 @@ import static org.objectweb.asm.Opcodes.IFNULL;
 import static org.objectweb.asm.Opcodes.IF_ACMPNE;
 import static org.objectweb.asm.Opcodes.POP;
 
-import org.objectweb.asm.Label;
 import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.JumpInsnNode;
-import org.objectweb.asm.tree.LabelNode;
 import org.spongepowered.despector.decompiler.kotlin.method.graph.data.ElvisBlockSection;
+import org.spongepowered.despector.decompiler.method.OpcodeTable;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphOperation;
 import org.spongepowered.despector.decompiler.method.graph.GraphProducerStep;
@@ -46,10 +44,10 @@ import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlo
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.ProcessedOpcodeBlock;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * A graph operation that pre-processes ternaries before the rest of the graph
@@ -57,17 +55,19 @@ import java.util.Set;
  */
 public class ElvisGraphProducerStep implements GraphProducerStep {
 
-    private Map<Integer, ElvisBlockSection> sections = new HashMap<>();
+    // the sections are held per thread as the method decompiler may be shared
+    // between the workers of a parallel decompile
+    private final ThreadLocal<Map<Integer, ElvisBlockSection>> sections = ThreadLocal.withInitial(HashMap::new);
 
     @Override
-    public void collectBreakpoints(PartialMethod partial, Set<Integer> break_points) {
-        this.sections.clear();
-        List<AbstractInsnNode> ops = partial.getOpcodes();
-        if (ops.isEmpty()) {
+    public void collectBreakpoints(PartialMethod partial, BitSet break_points) {
+        this.sections.get().clear();
+        OpcodeTable table = partial.getOpcodeTable();
+        if (table.size() == 0) {
             return;
         }
-        int last = ops.get(0).getOpcode();
-        for (int i = 1; i < ops.size(); i++) {
+        int last = table.getOpcode(0);
+        for (int i = 1; i < table.size(); i++) {
             // an elvis statement when compiled will look something like:
             //
             // Example: var a = b ?: ""
@@ -84,91 +84,81 @@ public class ElvisGraphProducerStep implements GraphProducerStep {
             //
             // Sometimes with the condition inverted and the else case placed
             // before the GOTO
-            int next = ops.get(i).getOpcode();
+            int next = table.getOpcode(i);
             if (last == DUP && ((next >= IFEQ && next <= IF_ACMPNE) || next == IFNULL || next == IFNONNULL)) {
                 // Hello elvis
-                int o = i;
                 int start = i - 1;
-                AbstractInsnNode search = ops.get(o++);
-                Label target = ((JumpInsnNode) search).label.getLabel();
-                JumpInsnNode ggoto = null;
-                // loop forwards and look for the label we're targeting with the
-                // check, and pick up the last goto on the way
+                int target = table.getJumpTarget(i);
+                int ggoto = -1;
+                // look between the check and the label we're targeting for the
+                // last goto on the way
                 //
                 // There will occasionally be a cast or something in here, not
                 // sure if I need to pay attention to it or not for the purposes
                 // of decompiling.
-                while (true) {
-                    search = ops.get(o++);
-                    if (search instanceof LabelNode) {
-                        if (((LabelNode) search).getLabel() == target) {
-                            break;
-                        }
-                    } else if (search.getOpcode() == GOTO) {
-                        ggoto = (JumpInsnNode) search;
+                for (int o = i + 1; o < target; o++) {
+                    if (table.getOpcode(o) == GOTO) {
+                        ggoto = o;
                     }
                 }
-                checkState(ggoto != null);
-                // The target will be the end of the else body
-                target = ggoto.label.getLabel();
+                checkState(ggoto != -1);
+                // The target of the goto will be the end of the else body
+                int end = table.getJumpTarget(ggoto);
                 List<AbstractInsnNode> else_body = new ArrayList<>();
                 boolean first_pop = false;
-                while (true) {
-                    search = ops.get(o++);
-                    if (search instanceof LabelNode) {
-                        if (((LabelNode) search).getLabel() == target) {
-                            break;
-                        }
-                    }
+                for (int o = target + 1; o < end; o++) {
                     // we ignore the first pop which is removing the checked
                     // value from the stack
-                    if (search.getOpcode() == POP && !first_pop) {
+                    if (table.getOpcode(o) == POP && !first_pop) {
                         first_pop = true;
                     } else {
-                        else_body.add(search);
+                        else_body.add(table.get(o));
                     }
                 }
                 OpcodeBlock holder = new BodyOpcodeBlock(0);
                 holder.getOpcodes().addAll(else_body);
                 // remove any break points that were placed inside the elvis
-                for (int l = start; l < o; l++) {
-                    break_points.remove(l);
-                }
+                break_points.clear(start, end + 1);
                 // add break points at the start and end of the elvis
                 //
                 // the one just before will create a body block that ends with
                 // the checked value being left on the stack
-                break_points.add(o - 1);
-                break_points.add(start - 1);
+                break_points.set(end);
+                break_points.set(start - 1);
                 // TODO we need to parse any ternaries that might be contained
                 // in the else body of the elvis statement.
                 ElvisBlockSection elvis = new ElvisBlockSection(holder);
                 // store the elvis to be created properly later
-                this.sections.put(Integer.valueOf(o - 1), elvis);
+                this.sections.get().put(Integer.valueOf(end), elvis);
             }
             last = next;
         }
     }
 
     @Override
-    public void formEdges(PartialMethod partial, Map<Integer, OpcodeBlock> blocks, List<Integer> sorted_break_points, List<OpcodeBlock> block_list) {
-        for (Map.Entry<Integer, OpcodeBlock> e : blocks.entrySet()) {
-            ElvisBlockSection elvis = this.sections.get(e.getKey());
+    public void formEdges(PartialMethod partial, OpcodeBlock[] blocks, int[] sorted_break_points, List<OpcodeBlock> block_list) {
+        Map<Integer, ElvisBlockSection> sections = this.sections.get();
+        if (sections.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < blocks.length; i++) {
+            ElvisBlockSection elvis = sections.get(sorted_break_points[i]);
             // Now we loop through the break points and find any that we
             // compiled an elvis statement for to create the block section.
             if (elvis != null) {
-                OpcodeBlock block = e.getValue();
+                OpcodeBlock block = blocks[i];
                 ProcessedOpcodeBlock replacement = new ProcessedOpcodeBlock(block.getBreakpoint(), elvis);
                 replacement.setTarget(block.getTarget());
-                block_list.set(block_list.indexOf(block), replacement);
+                replacement.setIndex(block.getIndex());
+                block_list.set(OpcodeBlock.indexOf(block_list, block), replacement);
                 // omit the next block from the ternary check as it will look
                 // like a ternary since its missing the value which is the
                 // result of the elvis statement
-                block_list.get(block_list.indexOf(block) + 1).omitFromTernaryCheck(true);
+                block_list.get(OpcodeBlock.indexOf(block_list, block) + 1).omitFromTernaryCheck(true);
                 GraphOperation.remap(block_list, block, replacement);
             }
         }
-        this.sections.clear();
+        sections.clear();
     }
 
 }
@@ -71,7 +71,7 @@ public class KotlinTernaryPrePassOperation implements GraphOperation {
         }
         for (int i = 0; i < blocks.size(); i++) {
             OpcodeBlock block = blocks.get(i);
-            if (!block.isOmittedFromTernaryCheck() && AstUtil.hasStartingRequirement(block.getOpcodes())) {
+            if (!block.isOmittedFromTernaryCheck() && AstUtil.hasStartingRequirement(block.getOpcodes(), partial.getOpcodeTable())) {
                 i -= compileTernary(blocks, i, partial.getLocals());
             }
         }
@@ -207,7 +207,8 @@ public class KotlinTernaryPrePassOperation implements GraphOperation {
             replacement = new ProcessedOpcodeBlock(first.getBreakpoint(), ternary);
         }
         replacement.setTarget(consumer);
-        start = blocks.indexOf(first);
+        replacement.setIndex(first.getIndex());
+        start = OpcodeBlock.indexOf(blocks, first);
         int removed = 0;
         if (consumer instanceof ConditionalOpcodeBlock) {
             ((ConditionalOpcodeBlock) consumer).setPrefix(replacement);
@@ -29,8 +29,6 @@ import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.ILOAD;
 import static org.objectweb.asm.Opcodes.ISTORE;
 
-import com.google.common.collect.Lists;
-import org.objectweb.asm.Label;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FrameNode;
 import org.objectweb.asm.tree.InsnList;
@@ -44,197 +42,344 @@ import org.spongepowered.despector.decompiler.method.special.LocalsProcessor;
 import org.spongepowered.despector.util.AstUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Removes the temporary locals that the kotlin compiler introduces, either
+ * copies of another local or values which are read exactly once.
+ *
+ * <p>The instructions are read once into an array and all positions refer to
+ * that array. The loads and stores of each local are tracked as bitsets of
+ * positions so finding the next write or the reads of a local before it is a
+ * bitset search rather than a scan of the remaining instructions. Removed
+ * and rewritten instructions are edited in the instruction list directly,
+ * which never shifts the positions of the remaining instructions.</p>
+ */
 public class KotlinLocalsProcessor implements LocalsProcessor {
 
-    @SuppressWarnings("unchecked")
     @Override
     public void process(MethodNode asm, Locals locals) {
-        List<AbstractInsnNode> ops = Lists.newArrayList(asm.instructions.iterator());
         InsnList insn = asm.instructions;
-        VarInsnNode last = null;
+        AbstractInsnNode[] ops = insn.toArray();
+        BitSet removed = new BitSet(ops.length);
+        removeCopies(insn, ops, removed);
+        inlineSingleReads(insn, ops, removed, locals);
+    }
+
+    /**
+     * Removes stores of a local directly into another local, renaming the
+     * reads of the copy to the original where the original is not written to
+     * while the copy is still read.
+     */
+    private static void removeCopies(InsnList insn, AbstractInsnNode[] ops, BitSet removed) {
+        int local_count = countLocals(ops);
+        BitSet[] loads = new BitSet[local_count];
+        BitSet[] stores = new BitSet[local_count];
+        collectAccesses(ops, removed, loads, stores);
 
-        for (int i = 0; i < ops.size(); i++) {
-            AbstractInsnNode next = ops.get(i);
-            if (next.getOpcode() >= ILOAD && next.getOpcode() <= ALOAD) {
+        VarInsnNode last = null;
+        int last_index = -1;
+        for (int i = 0; i < ops.length; i++) {
+            AbstractInsnNode next = ops[i];
+            if (isLoad(next.getOpcode())) {
                 last = (VarInsnNode) next;
-            } else if (next.getOpcode() >= ISTORE && next.getOpcode() <= ASTORE && last != null) {
+                last_index = i;
+            } else if (isStore(next.getOpcode()) && last != null) {
                 VarInsnNode store = (VarInsnNode) next;
-                int life = nextMod(ops, i + 1, store.var);
-                if (life == -1) {
-                    life = ops.size();
-                }
-                int last_read = lastRead(ops, i + 1, life, store.var);
+                int life = nextStore(stores, store.var, i + 1, ops.length);
+                int last_read = lastLoad(loads, store.var, i + 1, life);
 
                 if (last_read == -1) {
                     // the local is never read before it is next written to
                     insn.remove(last);
                     insn.remove(next);
-                    ops.remove(last);
-                    ops.remove(next);
-                    i -= 2;
+                    removed.set(last_index);
+                    removed.set(i);
                     last = null;
                     continue;
                 }
-                int invalid = nextMod(ops, i + 1, last.var);
-                if (invalid == -1) {
-                    invalid = ops.size();
-                }
+                int invalid = nextStore(stores, last.var, i + 1, ops.length);
 
                 if (invalid > last_read) {
                     invalid = Math.min(invalid, life);
 
-                    for (int j = i + 1; j < invalid; j++) {
-                        AbstractInsnNode n = ops.get(j);
-                        if (n.getOpcode() >= ILOAD && n.getOpcode() <= ALOAD) {
-                            VarInsnNode var = (VarInsnNode) n;
-                            if (var.var == store.var) {
-                                var.var = last.var;
-                            }
-                        }
+                    BitSet from = loads[store.var];
+                    BitSet to = loads[last.var];
+                    for (int j = from.nextSetBit(i + 1); j != -1 && j < invalid; j = from.nextSetBit(j + 1)) {
+                        ((VarInsnNode) ops[j]).var = last.var;
+                        from.clear(j);
+                        to.set(j);
                     }
 
                     insn.remove(last);
                     insn.remove(next);
-                    ops.remove(last);
-                    ops.remove(next);
-                    i -= 2;
+                    removed.set(last_index);
+                    removed.set(i);
                 }
                 last = null;
             } else {
                 last = null;
             }
         }
+    }
 
-        Map<Label, List<Integer>> label_targets = new HashMap<>();
-        for (int i = 0; i < ops.size(); i++) {
-            AbstractInsnNode next = ops.get(i);
-            if (next instanceof JumpInsnNode) {
-                JumpInsnNode jump = (JumpInsnNode) next;
-                List<Integer> target = label_targets.get(jump.label.getLabel());
-                if (target == null) {
-                    target = new ArrayList<>();
-                    label_targets.put(jump.label.getLabel(), target);
-                }
-                target.add(i);
+    /**
+     * Moves the value stored into a local without an lvt entry to the place
+     * it is read, where the local is read exactly once and no jumps enter or
+     * leave the section of code in which it is live.
+     */
+    private static void inlineSingleReads(InsnList insn, AbstractInsnNode[] ops, BitSet removed, Locals locals) {
+        int local_count = countLocals(ops);
+        BitSet[] loads = new BitSet[local_count];
+        BitSet[] stores = new BitSet[local_count];
+        collectAccesses(ops, removed, loads, stores);
+        JumpRanges jumps = null;
+
+        // the instructions now standing in place of a read which has been
+        // replaced by the value of its local
+        Map<Integer, List<AbstractInsnNode>> replaced = new HashMap<>();
+        // the instructions before the current position, searched backwards
+        // for the value of each store
+        List<AbstractInsnNode> visited = new ArrayList<>();
+
+        outer: for (int i = 0; i < ops.length; i++) {
+            if (removed.get(i)) {
+                continue;
+            }
+            List<AbstractInsnNode> replacement = replaced.isEmpty() ? null : replaced.get(i);
+            if (replacement != null) {
+                visited.addAll(replacement);
+                continue;
+            }
+            AbstractInsnNode next = ops[i];
+            visited.add(next);
+            if (!isStore(next.getOpcode())) {
+                continue;
+            }
+            VarInsnNode store = (VarInsnNode) next;
+            int life = nextStore(stores, store.var, i + 1, ops.length);
+            int read = singleLoad(loads, replaced, store.var, i + 1, life);
+            if (read == -1) {
+                continue;
+            }
+            if (jumps == null) {
+                jumps = new JumpRanges(ops);
+            }
+            if (jumps.crosses(i + 1, life) || !locals.getLocal(store.var).getLVT().isEmpty()) {
+                continue;
             }
-        }
 
-        outer: for (int i = 0; i < ops.size(); i++) {
-            AbstractInsnNode next = ops.get(i);
-            if (next.getOpcode() >= ISTORE && next.getOpcode() <= ASTORE) {
-                VarInsnNode store = (VarInsnNode) next;
-                int life = nextMod(ops, i + 1, store.var);
-                if (life == -1) {
-                    life = ops.size();
+            int val_start = visited.size() - 1;
+            int required = -1;
+            for (int o = visited.size() - 2; o >= 0; o--) {
+                AbstractInsnNode prev = visited.get(o);
+                if (prev instanceof JumpInsnNode || prev instanceof LabelNode || prev instanceof FrameNode
+                        || prev instanceof LineNumberNode) {
+                    continue outer;
                 }
-                int reads = countReads(ops, i + 1, life, store.var, label_targets);
-                if (reads == 1 && locals.getLocal(store.var).getLVT().isEmpty()) {
-                    List<AbstractInsnNode> val = new ArrayList<>();
-                    int required = -1;
-                    for (int o = i - 1; o >= 0; o--) {
-                        AbstractInsnNode prev = ops.get(o);
-                        if (prev instanceof JumpInsnNode || prev instanceof LabelNode || prev instanceof FrameNode
-                                || prev instanceof LineNumberNode) {
-                            continue outer;
-                        }
-                        val.add(0, prev);
-                        required += AstUtil.getStackDelta(prev);
-                        if (required == 0) {
-                            break;
-                        }
-                    }
-                    if (val.size() > 1 && reads != 1) {
-                        continue;
-                    }
-                    for (AbstractInsnNode v : val) {
-                        insn.remove(v);
-                        ops.remove(v);
-                        i--;
-                    }
-                    insn.remove(next);
-                    for (int o = i + 1; o < life; o++) {
-                        AbstractInsnNode n = ops.get(o);
-                        if (n.getOpcode() >= ILOAD && n.getOpcode() <= ALOAD) {
-                            VarInsnNode var = (VarInsnNode) n;
-                            if (var.var == store.var) {
-                                for (AbstractInsnNode v : val) {
-                                    insn.insertBefore(var, v.clone(null));
-                                    ops.add(o++, v);
-                                }
-                                insn.remove(var);
-                                ops.remove(var);
-                                o--;
-                                life--;
-                            }
-                        }
-                    }
+                val_start = o;
+                required += AstUtil.getStackDelta(prev);
+                if (required == 0) {
+                    break;
                 }
             }
+            List<AbstractInsnNode> val = new ArrayList<>(visited.subList(val_start, visited.size() - 1));
+            visited.subList(val_start, visited.size()).clear();
+            for (AbstractInsnNode v : val) {
+                insn.remove(v);
+            }
+            insn.remove(store);
+
+            List<AbstractInsnNode> target = replaced.get(read);
+            if (target == null) {
+                target = new ArrayList<>();
+                target.add(ops[read]);
+                replaced.put(read, target);
+            }
+            int load_index = indexOfLoad(target, store.var);
+            AbstractInsnNode load = target.remove(load_index);
+            for (AbstractInsnNode v : val) {
+                AbstractInsnNode copy = v.clone(null);
+                insn.insertBefore(load, copy);
+                target.add(load_index++, copy);
+                if (isLoad(copy.getOpcode())) {
+                    loads[((VarInsnNode) copy).var].set(read);
+                } else if (isStore(copy.getOpcode())) {
+                    stores[((VarInsnNode) copy).var].set(read);
+                }
+            }
+            insn.remove(load);
+            if (indexOfLoad(target, store.var) == -1) {
+                loads[store.var].clear(read);
+            }
         }
+    }
+
+    private static boolean isLoad(int opcode) {
+        return opcode >= ILOAD && opcode <= ALOAD;
+    }
 
+    private static boolean isStore(int opcode) {
+        return opcode >= ISTORE && opcode <= ASTORE;
     }
 
-    public static int countReads(List<AbstractInsnNode> ops, int start, int end, int local, Map<Label, List<Integer>> label_targets) {
+    private static int countLocals(AbstractInsnNode[] ops) {
         int count = 0;
-        for (int i = end - 1; i >= start; i--) {
-            AbstractInsnNode next = ops.get(i);
-            if (next.getOpcode() >= ILOAD && next.getOpcode() <= ALOAD) {
-                VarInsnNode node = (VarInsnNode) next;
-                if (node.var == local) {
-                    count++;
-                }
-            } else if (next instanceof JumpInsnNode) {
-                int target = ops.indexOf(((JumpInsnNode) next).label);
-                if (target < start || target > end) {
-                    return -1;
-                }
-            } else if (next instanceof LabelNode) {
-                List<Integer> targets = label_targets.get(((LabelNode) next).getLabel());
-                if (targets != null) {
-                    for (int t : targets) {
-                        if (t < start || t > end) {
-                            return -1;
-                        }
-                    }
-                }
+        for (AbstractInsnNode next : ops) {
+            if (next instanceof VarInsnNode) {
+                count = Math.max(count, ((VarInsnNode) next).var + 1);
             }
         }
-
         return count;
     }
 
-    public static int lastRead(List<AbstractInsnNode> ops, int start, int end, int local) {
+    private static void collectAccesses(AbstractInsnNode[] ops, BitSet removed, BitSet[] loads, BitSet[] stores) {
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new BitSet();
+            stores[i] = new BitSet();
+        }
+        for (int i = 0; i < ops.length; i++) {
+            if (removed.get(i)) {
+                continue;
+            }
+            int opcode = ops[i].getOpcode();
+            if (isLoad(opcode)) {
+                loads[((VarInsnNode) ops[i]).var].set(i);
+            } else if (isStore(opcode)) {
+                stores[((VarInsnNode) ops[i]).var].set(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the position of the next store to the given local at or after the
+     * start, or the end if there is none.
+     */
+    private static int nextStore(BitSet[] stores, int local, int start, int end) {
+        int next = stores[local].nextSetBit(start);
+        return next == -1 ? end : next;
+    }
+
+    /**
+     * Gets the position of the last load of the given local within the range,
+     * or -1 if there is none.
+     */
+    private static int lastLoad(BitSet[] loads, int local, int start, int end) {
+        int last = loads[local].previousSetBit(end - 1);
+        return last >= start ? last : -1;
+    }
 
-        for (int i = end - 1; i >= start; i--) {
-            AbstractInsnNode next = ops.get(i);
-            if (next.getOpcode() >= ILOAD && next.getOpcode() <= ALOAD) {
-                VarInsnNode node = (VarInsnNode) next;
-                if (node.var == local) {
-                    return i;
+    /**
+     * Gets the position of the only load of the given local within the range,
+     * or -1 if it is loaded either more than once or not at all.
+     */
+    private static int singleLoad(BitSet[] loads, Map<Integer, List<AbstractInsnNode>> replaced, int local, int start, int end) {
+        BitSet local_loads = loads[local];
+        int first = local_loads.nextSetBit(start);
+        if (first == -1 || first >= end) {
+            return -1;
+        }
+        int second = local_loads.nextSetBit(first + 1);
+        if (second != -1 && second < end) {
+            return -1;
+        }
+        List<AbstractInsnNode> replacement = replaced.get(first);
+        if (replacement != null) {
+            int count = 0;
+            for (AbstractInsnNode next : replacement) {
+                if (isLoad(next.getOpcode()) && ((VarInsnNode) next).var == local) {
+                    count++;
                 }
             }
+            if (count != 1) {
+                return -1;
+            }
         }
+        return first;
+    }
 
+    private static int indexOfLoad(List<AbstractInsnNode> insns, int local) {
+        for (int i = 0; i < insns.size(); i++) {
+            AbstractInsnNode next = insns.get(i);
+            if (isLoad(next.getOpcode()) && ((VarInsnNode) next).var == local) {
+                return i;
+            }
+        }
         return -1;
     }
 
-    public static int nextMod(List<AbstractInsnNode> ops, int start, int local) {
+    /**
+     * The jumps of a method indexed so that whether any jump enters or leaves
+     * a range of instructions can be found in logarithmic time.
+     */
+    private static class JumpRanges {
+
+        private final int size;
+        // segment trees over the lowest and highest position at the other end
+        // of any jump to or from each position
+        private final int[] low;
+        private final int[] high;
 
-        for (int i = start; i < ops.size(); i++) {
-            AbstractInsnNode next = ops.get(i);
-            if (next.getOpcode() >= ISTORE && next.getOpcode() <= ASTORE) {
-                VarInsnNode node = (VarInsnNode) next;
-                if (node.var == local) {
-                    return i;
+        JumpRanges(AbstractInsnNode[] ops) {
+            this.size = ops.length;
+            this.low = new int[this.size * 2];
+            this.high = new int[this.size * 2];
+            Arrays.fill(this.low, Integer.MAX_VALUE);
+            Arrays.fill(this.high, Integer.MIN_VALUE);
+            Map<LabelNode, Integer> labels = new IdentityHashMap<>();
+            for (int i = 0; i < ops.length; i++) {
+                if (ops[i] instanceof LabelNode) {
+                    labels.put((LabelNode) ops[i], i);
                 }
             }
+            for (int i = 0; i < ops.length; i++) {
+                if (ops[i] instanceof JumpInsnNode) {
+                    Integer target = labels.get(((JumpInsnNode) ops[i]).label);
+                    int t = target == null ? -1 : target;
+                    mark(i, t);
+                    if (t != -1) {
+                        mark(t, i);
+                    }
+                }
+            }
+            for (int i = this.size - 1; i > 0; i--) {
+                this.low[i] = Math.min(this.low[i * 2], this.low[i * 2 + 1]);
+                this.high[i] = Math.max(this.high[i * 2], this.high[i * 2 + 1]);
+            }
+        }
+
+        private void mark(int position, int other) {
+            int leaf = position + this.size;
+            this.low[leaf] = Math.min(this.low[leaf], other);
+            this.high[leaf] = Math.max(this.high[leaf], other);
+        }
+
+        /**
+         * Gets if any jump from a position in the range {@code [start, end)}
+         * targets a position outside of {@code [start, end]}, or any jump from
+         * outside of {@code [start, end]} targets a position in the range.
+         */
+        boolean crosses(int start, int end) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int l = start + this.size, r = end + this.size; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) != 0) {
+                    min = Math.min(min, this.low[l]);
+                    max = Math.max(max, this.high[l++]);
+                }
+                if ((r & 1) != 0) {
+                    min = Math.min(min, this.low[--r]);
+                    max = Math.max(max, this.high[r]);
+                }
+            }
+            return min < start || max > end;
         }
 
-        return -1;
     }
 
 }
@@ -44,6 +44,7 @@ import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.config.ConfigManager;
 import org.spongepowered.despector.decompiler.BaseDecompiler;
 import org.spongepowered.despector.decompiler.DecompilerStep;
+import org.spongepowered.despector.decompiler.method.MethodBudgetExceededException;
 import org.spongepowered.despector.decompiler.method.MethodDecompiler;
 import org.spongepowered.despector.util.AstUtil;
 import org.spongepowered.despector.util.SignatureParser;
@@ -99,8 +100,12 @@ public class KotlinMethodInfoStep implements DecompilerStep {
                 StatementBlock insns = this.method_decomp.decompile(m, mn, locals);
                 m.setInstructions(insns);
             } catch (Exception ex) {
-                System.err.println("Error decompiling method body for " + cn.name + " " + m.toString());
-                ex.printStackTrace();
+                if (ex instanceof MethodBudgetExceededException) {
+                    System.err.println("Skipped decompiling method body for " + cn.name + " " + m.toString() + ": " + ex.getMessage());
+                } else {
+                    System.err.println("Error decompiling method body for " + cn.name + " " + m.toString());
+                    ex.printStackTrace();
+                }
                 StatementBlock insns = new StatementBlock(Type.METHOD, locals);
                 if (ConfigManager.getConfig().print_opcodes_on_error) {
                     List<String> text = new ArrayList<>();
@@ -61,6 +61,8 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 /**
  * A utility for forming a condition a set of conditional jumps.
  */
@@ -153,6 +155,9 @@ public class ConditionBuilder {
                 Condition partial = new AndCondition(stack);
                 next.addPartialCondition(partial);
             }
+            // the number of paths can grow exponentially with the number of
+            // nodes
+            MethodBudget.checkConditionTerms(next.getPartialConditions().size());
         }
         if (next.getSimpleCondition() == null) {
             return;
@@ -173,48 +178,173 @@ public class ConditionBuilder {
      * Converts the given set of {@link OpcodeBlock}s to a condition.
      */
     public static Condition makeCondition(List<ConditionalOpcodeBlock> blocks, Locals locals, OpcodeBlock body, OpcodeBlock ret) {
-        List<ConditionGraphNode> nodes = new ArrayList<>(blocks.size());
+        int count = blocks.size();
+        // the body and ret are given the indices following the blocks
+        int body_index = count;
+        int ret_index = count + 1;
 
-        ConditionGraphNode body_node = new ConditionGraphNode(null);
-        ConditionGraphNode ret_node = new ConditionGraphNode(null);
-
-        // Forms a condition from a set of conditional jumps. This is done by
-        // performing a depth first search of the nodes which form the
-        // condition. Each path through the graph from root to the start of the
-        // body is found and combined with OR to form a very much expanded
-        // version of the condition for this block. This is then simplified
-        // before being returned.
-
-        for (int i = 0; i < blocks.size(); i++) {
-            OpcodeBlock next = blocks.get(i);
-            // make the nodes and compute the simple condition for each node.
-            nodes.add(new ConditionGraphNode(makeSimpleCondition((ConditionalOpcodeBlock) next, locals)));
-        }
+        Condition[] conditions = new Condition[count];
+        int[] targets = new int[count];
+        int[] else_targets = new int[count];
 
-        for (int i = 0; i < blocks.size(); i++) {
+        for (int i = 0; i < count; i++) {
             ConditionalOpcodeBlock next = blocks.get(i);
-            ConditionGraphNode node = nodes.get(i);
-            // connect the nodes
+            // compute the simple condition for each block and find the blocks
+            // that it jumps to
+            conditions[i] = makeSimpleCondition(next, locals);
             if (next.getTarget() == body) {
-                node.setTarget(body_node);
+                targets[i] = body_index;
             } else if (next.getTarget() == ret) {
-                node.setTarget(ret_node);
+                targets[i] = ret_index;
             } else {
-                int target = blocks.indexOf(next.getTarget());
-                if (target == -1) {
+                targets[i] = OpcodeBlock.indexOf(blocks, next.getTarget());
+                if (targets[i] == -1) {
                     System.err.println("Condition target was unknown block " + next.getTarget().getBreakpoint());
                 }
-                node.setTarget(nodes.get(target));
             }
             if (next.getElseTarget() == body) {
-                node.setElseTarget(body_node);
+                else_targets[i] = body_index;
             } else if (next.getElseTarget() == ret) {
-                node.setElseTarget(ret_node);
+                else_targets[i] = ret_index;
             } else {
-                int target = blocks.indexOf(next.getElseTarget());
-                node.setElseTarget(nodes.get(target));
+                else_targets[i] = OpcodeBlock.indexOf(blocks, next.getElseTarget());
+            }
+        }
+
+        Condition condition = collapse(conditions.clone(), targets.clone(), else_targets.clone());
+        if (condition != null) {
+            return condition;
+        }
+        return expand(conditions, targets, else_targets);
+    }
+
+    /**
+     * Forms the condition by collapsing the graph of conditional jumps from the
+     * bottom up. Short circuiting operators compile to a node whose target or
+     * else target is a node with no other predecessors and which shares its
+     * other target with that node, so each such pair is replaced by a single
+     * node with the combined condition until only the first node remains.
+     * This takes time linear in the number of jumps.
+     * 
+     * <p>Returns null if the graph cannot be collapsed to a single node.</p>
+     */
+    @Nullable
+    private static Condition collapse(Condition[] conditions, int[] targets, int[] else_targets) {
+        int count = conditions.length;
+        int body_index = count;
+        int ret_index = count + 1;
+        int[] predecessors = new int[count + 2];
+        for (int i = 0; i < count; i++) {
+            if (targets[i] < 0 || else_targets[i] < 0) {
+                return null;
+            }
+            predecessors[targets[i]]++;
+            predecessors[else_targets[i]]++;
+        }
+        int remaining = count;
+        for (int i = count - 1; i >= 0; i--) {
+            while (true) {
+                int target = targets[i];
+                int else_target = else_targets[i];
+                int merge = -1;
+                Condition merged = null;
+                if (target < count && target > i && predecessors[target] == 1) {
+                    if (else_targets[target] == else_target) {
+                        // a && b
+                        merge = target;
+                        merged = and(conditions[i], conditions[merge]);
+                    } else if (targets[target] == else_target) {
+                        // !a || b
+                        merge = target;
+                        merged = or(inverse(conditions[i]), conditions[merge]);
+                    }
+                }
+                if (merge == -1 && else_target < count && else_target > i && predecessors[else_target] == 1) {
+                    if (targets[else_target] == target) {
+                        // a || b
+                        merge = else_target;
+                        merged = or(conditions[i], conditions[merge]);
+                    } else if (else_targets[else_target] == target) {
+                        // !a && b
+                        merge = else_target;
+                        merged = and(inverse(conditions[i]), conditions[merge]);
+                    }
+                }
+                if (merge == -1) {
+                    break;
+                }
+                // the merged node takes over the edges of the node it absorbed,
+                // and loses its own two edges
+                predecessors[target]--;
+                predecessors[else_target]--;
+                conditions[i] = merged;
+                targets[i] = targets[merge];
+                else_targets[i] = else_targets[merge];
+                conditions[merge] = null;
+                remaining--;
             }
         }
+        if (remaining != 1) {
+            return null;
+        }
+        if (targets[0] == body_index && else_targets[0] == ret_index) {
+            return conditions[0];
+        } else if (targets[0] == ret_index && else_targets[0] == body_index) {
+            return inverse(conditions[0]);
+        }
+        return null;
+    }
+
+    private static Condition and(Condition a, Condition b) {
+        List<Condition> operands = new ArrayList<>();
+        addOperands(operands, a, AndCondition.class);
+        addOperands(operands, b, AndCondition.class);
+        return new AndCondition(operands);
+    }
+
+    private static Condition or(Condition a, Condition b) {
+        List<Condition> operands = new ArrayList<>();
+        addOperands(operands, a, OrCondition.class);
+        addOperands(operands, b, OrCondition.class);
+        return new OrCondition(operands);
+    }
+
+    private static void addOperands(List<Condition> operands, Condition condition, Class<? extends Condition> type) {
+        if (condition instanceof AndCondition && type == AndCondition.class) {
+            operands.addAll(((AndCondition) condition).getOperands());
+        } else if (condition instanceof OrCondition && type == OrCondition.class) {
+            operands.addAll(((OrCondition) condition).getOperands());
+        } else {
+            operands.add(condition);
+        }
+    }
+
+    /**
+     * Forms the condition by performing a depth first search of the nodes
+     * which form the condition. Each path through the graph from root to the
+     * start of the body is found and combined with OR to form a very much
+     * expanded version of the condition for this block. This is then
+     * simplified before being returned. The number of paths may grow
+     * exponentially with the number of jumps so this is only used for graphs
+     * which cannot be collapsed.
+     */
+    private static Condition expand(Condition[] conditions, int[] targets, int[] else_targets) {
+        int count = conditions.length;
+        List<ConditionGraphNode> nodes = new ArrayList<>(count + 2);
+        for (int i = 0; i < count; i++) {
+            nodes.add(new ConditionGraphNode(conditions[i]));
+        }
+        ConditionGraphNode body_node = new ConditionGraphNode(null);
+        ConditionGraphNode ret_node = new ConditionGraphNode(null);
+        nodes.add(body_node);
+        nodes.add(ret_node);
+
+        for (int i = 0; i < count; i++) {
+            // connect the nodes
+            ConditionGraphNode node = nodes.get(i);
+            node.setTarget(nodes.get(targets[i]));
+            node.setElseTarget(nodes.get(else_targets[i]));
+        }
 
         ConditionGraphNode start = nodes.get(0);
 
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method;
+
+import org.spongepowered.despector.config.ConfigBase.BudgetConfig;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the time, block count and condition term budget of the method
+ * currently being decompiled on this thread.
+ * 
+ * <p>The checks are static so that deeply nested processors and utilities
+ * may call them without being passed the budget. If no method is being
+ * decompiled on the current thread the checks do nothing.</p>
+ */
+public class MethodBudget {
+
+    private static final ThreadLocal<MethodBudget> current = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> exceeded_count = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Starts a new budget for a method on the current thread. The budget must
+     * be ended with {@link #end()} once the method is complete.
+     */
+    public static MethodBudget start(BudgetConfig config) {
+        MethodBudget budget = new MethodBudget(current.get(), config);
+        current.set(budget);
+        return budget;
+    }
+
+    /**
+     * Gets the number of times a method has exceeded its budget on the current
+     * thread. Comparing the count from before and after decompiling a type
+     * tells whether any of its methods were cut short.
+     */
+    public static int getExceededCount() {
+        return exceeded_count.get()[0];
+    }
+
+    /**
+     * Checks that the current method has not run out of time.
+     */
+    public static void checkTime() {
+        MethodBudget budget = current.get();
+        if (budget != null && budget.deadline != 0 && System.nanoTime() - budget.deadline > 0) {
+            throw exceeded("Method took longer than " + budget.config.time_limit + "ms to decompile");
+        }
+    }
+
+    /**
+     * Checks that the graph of the current method is within the block limit.
+     */
+    public static void checkBlocks(int blocks) {
+        MethodBudget budget = current.get();
+        if (budget != null && budget.config.block_limit > 0 && blocks > budget.config.block_limit) {
+            throw exceeded("Method has " + blocks + " blocks, more than the limit of " + budget.config.block_limit);
+        }
+    }
+
+    /**
+     * Checks that a condition of the current method is within the condition
+     * term limit, and that the method has not run out of time.
+     */
+    public static void checkConditionTerms(int terms) {
+        MethodBudget budget = current.get();
+        if (budget == null) {
+            return;
+        }
+        if (budget.config.condition_term_limit > 0 && terms > budget.config.condition_term_limit) {
+            throw exceeded(
+                    "Condition has " + terms + " terms, more than the limit of " + budget.config.condition_term_limit);
+        }
+        checkTime();
+    }
+
+    private static MethodBudgetExceededException exceeded(String message) {
+        exceeded_count.get()[0]++;
+        return new MethodBudgetExceededException(message);
+    }
+
+    @Nullable private final MethodBudget parent;
+    private final BudgetConfig config;
+    private final long deadline;
+
+    private MethodBudget(@Nullable MethodBudget parent, BudgetConfig config) {
+        this.parent = parent;
+        this.config = config;
+        if (config.time_limit > 0) {
+            // zero marks no deadline so avoid landing on it
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.time_limit);
+            this.deadline = deadline == 0 ? 1 : deadline;
+        } else {
+            this.deadline = 0;
+        }
+    }
+
+    /**
+     * Ends this budget, restoring the budget of any method which was being
+     * decompiled when this one started.
+     */
+    public void end() {
+        if (this.parent == null) {
+            current.remove();
+        } else {
+            current.set(this.parent);
+        }
+    }
+
+}
@@ -26,15 +26,14 @@ package org.spongepowered.despector.decompiler.method;
 
 import static org.objectweb.asm.Opcodes.ALOAD;
 import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.ATHROW;
 import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IRETURN;
 import static org.objectweb.asm.Opcodes.ISTORE;
+import static org.objectweb.asm.Opcodes.RETURN;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.VarInsnNode;
@@ -46,29 +45,37 @@ import org.spongepowered.despector.ast.generic.TypeSignature;
 import org.spongepowered.despector.ast.members.MethodEntry;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.config.ConfigManager;
+import org.spongepowered.despector.config.LibraryConfiguration;
 import org.spongepowered.despector.decompiler.method.graph.GraphOperation;
 import org.spongepowered.despector.decompiler.method.graph.GraphProcessor;
 import org.spongepowered.despector.decompiler.method.graph.GraphProducerStep;
+import org.spongepowered.despector.decompiler.method.graph.GraphScan;
+import org.spongepowered.despector.decompiler.method.graph.NestedScan;
 import org.spongepowered.despector.decompiler.method.graph.RegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.RegionScan;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.BodyOpcodeBlock;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+import org.spongepowered.despector.decompiler.method.postprocess.PostProcessPass;
 import org.spongepowered.despector.decompiler.method.postprocess.StatementPostProcessor;
 import org.spongepowered.despector.decompiler.method.special.LocalsProcessor;
 import org.spongepowered.despector.decompiler.method.special.SpecialMethodProcessor;
 import org.spongepowered.despector.util.SignatureParser;
 import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+
+import javax.annotation.Nullable;
 
 /**
  * A decompiler for method bodies.
@@ -81,7 +88,7 @@ public class MethodDecompiler {
     private final List<GraphOperation> cleanup_operations = new ArrayList<>();
     private final List<GraphProcessor> processors = new ArrayList<>();
     private final List<RegionProcessor> region_processors = new ArrayList<>();
-    private final List<StatementPostProcessor> post_processors = new ArrayList<>();
+    private final PostProcessPass post_pass = new PostProcessPass();
     private final Map<Class<?>, SpecialMethodProcessor> special_processors = new HashMap<>();
 
     public void addGraphProducer(GraphProducerStep step) {
@@ -101,7 +108,7 @@ public class MethodDecompiler {
     }
 
     public void addPostProcessor(StatementPostProcessor post) {
-        this.post_processors.add(post);
+        this.post_pass.add(post);
     }
 
     public <T extends SpecialMethodProcessor> void setSpecialProcessor(Class<T> type, T processor) {
@@ -182,133 +189,446 @@ public class MethodDecompiler {
             return null;
         }
 
-        PartialMethod partial = new PartialMethod(this, asm, entry);
-        partial.setLocals(locals);
+        MetricsSink metrics = LibraryConfiguration.getMetrics();
+        long method_start = System.nanoTime();
+        Phase phase = Phase.GRAPH;
+        MethodBudget budget = MethodBudget.start(ConfigManager.getConfig().budget);
+        try {
+            PartialMethod partial = new PartialMethod(this, asm, entry);
+            partial.setLocals(locals);
+
+            OpcodeTable table = new OpcodeTable(asm.instructions);
+            List<AbstractInsnNode> ops = table.asList();
+            partial.setOpcodeTable(table);
+            partial.setOpcodes(ops);
+            StatementBlock block = new StatementBlock(StatementBlock.Type.METHOD, partial.getLocals());
+            partial.setBlock(block);
+
+            partial.getLocals().bakeInstances(asm.instructions);
+
+            int block_count;
+            long phase_start;
+            int straight_end = findStraightLineEnd(asm, table);
+            if (straight_end != -1) {
+                // a method without any jumps, switches or try blocks always
+                // forms a single block so we append its statements directly
+                // rather than building and structuring a graph
+                block_count = 1;
+                phase_start = System.nanoTime();
+                metrics.recordPhase(Phase.GRAPH, phase_start - method_start);
+                phase = Phase.FLATTEN;
+                OpcodeBlock body = new BodyOpcodeBlock(straight_end);
+                body.getOpcodes().addAll(ops.subList(0, straight_end + 1));
+                StatementBuilder.appendBlock(body, block, partial.getLocals(), new ArrayDeque<>());
+            } else {
+                List<OpcodeBlock> graph = makeGraph(partial);
+                partial.setGraph(graph);
+                block_count = graph.size();
+                MethodBudget.checkBlocks(block_count);
 
-        List<AbstractInsnNode> ops = Lists.newArrayList(asm.instructions.iterator());
-        partial.setOpcodes(ops);
-        StatementBlock block = new StatementBlock(StatementBlock.Type.METHOD, partial.getLocals());
-        partial.setBlock(block);
+                phase_start = System.nanoTime();
+                metrics.recordPhase(Phase.GRAPH, phase_start - method_start);
+                phase = Phase.CLEANUP;
 
-        Map<Label, Integer> label_indices = Maps.newHashMap();
-        for (int index = 0; index < ops.size(); index++) {
-            AbstractInsnNode next = ops.get(index);
-            if (next instanceof LabelNode) {
-                label_indices.put(((LabelNode) next).getLabel(), index);
-            }
-        }
-        partial.getLocals().bakeInstances(label_indices);
-        partial.setLabelIndices(label_indices);
+                if (partial.getEntry().getName().equals(targeted_breakpoint)) {
+                    System.out.println();
+                }
 
-        List<OpcodeBlock> graph = makeGraph(partial);
-        partial.setGraph(graph);
+                for (GraphOperation op : this.cleanup_operations) {
+                    op.process(partial);
+                    OpcodeBlock.renumber(partial.getGraph());
+                    MethodBudget.checkTime();
+                }
 
-        if (partial.getEntry().getName().equals(targeted_breakpoint)) {
-            System.out.println();
-        }
+                if (partial.getEntry().getName().equals(targeted_breakpoint)) {
+                    for (OpcodeBlock g : graph) {
+                        System.out.println(g.toString());
+                    }
+                    System.out.println();
+                }
 
-        for (GraphOperation op : this.cleanup_operations) {
-            op.process(partial);
-        }
+                long cleanup_end = System.nanoTime();
+                metrics.recordPhase(Phase.CLEANUP, cleanup_end - phase_start);
+                phase_start = cleanup_end;
+                phase = Phase.FLATTEN;
+
+                // Performs a sequence of transformations to convert the graph into a
+                // simple array of partially decompiled block sections.
+                List<BlockSection> flat_graph = new ArrayList<>();
 
-        if (partial.getEntry().getName().equals(targeted_breakpoint)) {
-            for (OpcodeBlock g : graph) {
-                System.out.println(g.toString());
+                flattenGraph(partial, graph, graph.size(), flat_graph);
+
+                // Append all block sections to the output in order. This finalizes all
+                // decompilation of statements not already decompiled.
+                Deque<Instruction> stack = new ArrayDeque<>();
+                int start = entry.getName().startsWith("$SWITCH_TABLE$") ? 2 : 0;
+                for (int i = start; i < flat_graph.size(); i++) {
+                    BlockSection op = flat_graph.get(i);
+                    op.appendTo(block, stack);
+                }
             }
-            System.out.println();
-        }
 
-        // Performs a sequence of transformations to convert the graph into a
-        // simple array of partially decompiled block sections.
-        List<BlockSection> flat_graph = new ArrayList<>();
+            long now = System.nanoTime();
+            metrics.recordPhase(Phase.FLATTEN, now - phase_start);
+            phase_start = now;
+            phase = Phase.POST_PROCESS;
 
-        flattenGraph(partial, graph, graph.size(), flat_graph);
+            // All post processors are run together in a single walk of the
+            // method body, each processor which failed is recorded separately.
+            for (StatementPostProcessor post : this.post_pass.run(block)) {
+                metrics.recordFailure(Phase.POST_PROCESS,
+                        entry.getOwner() + "." + entry.getName() + entry.getSignature() + " (" + post.getClass().getName() + ")");
+            }
 
-        // Append all block sections to the output in order. This finalizes all
-        // decompilation of statements not already decompiled.
-        Deque<Instruction> stack = new ArrayDeque<>();
-        int start = entry.getName().startsWith("$SWITCH_TABLE$") ? 2 : 0;
-        for (int i = start; i < flat_graph.size(); i++) {
-            BlockSection op = flat_graph.get(i);
-            op.appendTo(block, stack);
+            now = System.nanoTime();
+            metrics.recordPhase(Phase.POST_PROCESS, now - phase_start);
+            metrics.recordMethod(entry.getOwner(), entry.getName(), entry.getSignature(), now - method_start, block_count,
+                    block.getStatementCount());
+            return block;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(phase, entry.getOwner() + "." + entry.getName() + entry.getSignature());
+            throw e;
+        } finally {
+            budget.end();
         }
+    }
 
-        for (StatementPostProcessor post : this.post_processors) {
-            try {
-                post.postprocess(block);
-            } catch (Exception e) {
-                System.err.println("Failed to apply post processor: " + post.getClass().getSimpleName());
-                e.printStackTrace();
+    /**
+     * Gets the index of the return or throw ending the method if the method
+     * has no jumps, switches or try blocks, or -1 if it has any of them or if
+     * any code follows the end.
+     */
+    private static int findStraightLineEnd(MethodNode asm, OpcodeTable table) {
+        if (!asm.tryCatchBlocks.isEmpty()) {
+            return -1;
+        }
+        int end = -1;
+        for (int i = 0; i < table.size(); i++) {
+            if (table.isJump(i) || table.isSwitch(i)) {
+                return -1;
+            }
+            int op = table.getOpcode(i);
+            if (op == -1) {
+                // labels, line numbers and frames
+                continue;
+            }
+            if (end != -1) {
+                return -1;
+            }
+            if (op >= IRETURN && op <= RETURN || op == ATHROW) {
+                end = i;
             }
         }
-
-        return block;
+        return end;
     }
 
     private List<OpcodeBlock> makeGraph(PartialMethod partial) {
         List<AbstractInsnNode> instructions = partial.getOpcodes();
+        OpcodeTable table = partial.getOpcodeTable();
 
-        Set<Integer> break_points = new HashSet<>();
+        BitSet break_points = new BitSet(table.size());
 
         for (GraphProducerStep step : this.graph_producers) {
             step.collectBreakpoints(partial, break_points);
         }
 
-        // Sort the break points
-        List<Integer> sorted_break_points = new ArrayList<>(break_points);
-        sorted_break_points.sort(Comparator.naturalOrder());
-        Map<Integer, OpcodeBlock> blocks = new HashMap<>();
-        List<OpcodeBlock> block_list = new ArrayList<>();
+        // The break points are walked in order and the block ending at each
+        // is held at the same position as its break point
+        int[] sorted_break_points = new int[break_points.cardinality()];
+        OpcodeBlock[] blocks = new OpcodeBlock[sorted_break_points.length];
+        List<OpcodeBlock> block_list = new ArrayList<>(sorted_break_points.length);
 
         int last_brk = 0;
-        for (int brk : sorted_break_points) {
+        int count = 0;
+        for (int brk = break_points.nextSetBit(0); brk >= 0; brk = break_points.nextSetBit(brk + 1)) {
             // accumulate the opcodes beween the next breakpoint and the last
             // breakpoint.
             OpcodeBlock block = new BodyOpcodeBlock(brk);
             block_list.add(block);
-            for (int i = last_brk; i <= brk; i++) {
-                block.getOpcodes().add(instructions.get(i));
-            }
-            blocks.put(brk, block);
+            block.getOpcodes().addAll(instructions.subList(last_brk, brk + 1));
+            sorted_break_points[count] = brk;
+            blocks[count++] = block;
             last_brk = brk + 1;
         }
 
         for (int i = 0; i < block_list.size() - 1; i++) {
-            OpcodeBlock next = block_list.get(i);
-            if (next.getLast() instanceof LabelNode) {
-                next.setTarget(block_list.get(i + 1));
+            if (table.isLabel(sorted_break_points[i])) {
+                block_list.get(i).setTarget(block_list.get(i + 1));
             }
         }
 
+        OpcodeBlock.renumber(block_list);
         for (GraphProducerStep step : this.graph_producers) {
             step.formEdges(partial, blocks, sorted_break_points, block_list);
+            OpcodeBlock.renumber(block_list);
         }
 
         return block_list;
     }
 
+    /**
+     * Flattens the given blocks up to the stop point into a list of sections.
+     * 
+     * <p>Regions nested within the blocks are processed from a stack of
+     * pending work rather than by recursing for each level of nesting so that
+     * deeply nested methods do not run out of thread stack.</p>
+     */
     public void flattenGraph(PartialMethod partial, List<OpcodeBlock> blocks, int stop_point, List<BlockSection> result) {
-        int stop_offs = blocks.size() - stop_point;
-        outer: for (int i = 0; i < blocks.size() - stop_offs; i++) {
-            OpcodeBlock region_start = blocks.get(i);
-            for (GraphProcessor processor : this.processors) {
-                int next = processor.process(partial, blocks, region_start, result);
-                if (next != -1) {
-                    i = next;
-                    continue outer;
+        run(partial, new PendingFlatten(blocks, stop_point, result));
+    }
+
+    /**
+     * Processes the given region into a single section.
+     * 
+     * <p>Regions nested within the region are processed from a stack of
+     * pending work rather than by recursing for each level of nesting so that
+     * deeply nested methods do not run out of thread stack.</p>
+     */
+    public BlockSection processRegion(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+        PendingRegion root = new PendingRegion(region, ret, body_start);
+        run(partial, root);
+        return root.result;
+    }
+
+    /**
+     * Runs the given scan to completion, processing each of its nested
+     * regions from the stack of pending work.
+     */
+    public void runScan(PartialMethod partial, NestedScan scan) {
+        run(partial, new PendingScan(scan));
+    }
+
+    private void run(PartialMethod partial, PendingWork root) {
+        Deque<PendingWork> pending = new ArrayDeque<>();
+        PendingWork next = root;
+        while (true) {
+            try {
+                if (next.run(partial)) {
+                    // the nested region is processed before the scan waiting
+                    // on it continues
+                    NestedScan scan = next.getScan();
+                    List<BlockSection> output = scan.getSubRegionOutput();
+                    PendingWork nested;
+                    if (output == null) {
+                        nested = new PendingRegion(scan.getSubRegion(), scan.getSubRegionReturn(), scan.getSubRegionBodyStart());
+                    } else {
+                        nested = new PendingFlatten(scan.getSubRegion(), scan.getSubRegionStopPoint(), output);
+                    }
+                    next.waiting = true;
+                    pending.push(next);
+                    next = nested;
+                    continue;
                 }
+            } catch (RuntimeException e) {
+                // the exception is handed to the scan waiting on the failed
+                // region as if it had been thrown by a nested call
+                if (pending.isEmpty()) {
+                    throw e;
+                }
+                next = pending.pop();
+                next.failure = e;
+                continue;
+            }
+            if (pending.isEmpty()) {
+                return;
             }
+            PendingWork done = next;
+            next = pending.pop();
+            next.nested_result = done.result;
         }
     }
 
-    public BlockSection processRegion(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
-        for (RegionProcessor proc : this.region_processors) {
-            BlockSection block = proc.process(partial, region, ret, body_start);
-            if (block != null) {
-                return block;
+    /**
+     * Work which is being processed and which may be waiting on a nested
+     * region.
+     */
+    private abstract static class PendingWork {
+
+        boolean waiting;
+        @Nullable BlockSection nested_result;
+        @Nullable RuntimeException failure;
+        @Nullable BlockSection result;
+
+        /**
+         * Continues the work until it is complete, returning false, or until
+         * its scan is waiting on a nested region, returning true.
+         */
+        abstract boolean run(PartialMethod partial);
+
+        /**
+         * Gets the scan of the work which is waiting on a nested region.
+         */
+        abstract NestedScan getScan();
+
+        /**
+         * Hands the result of the nested region the scan was waiting on to the
+         * scan.
+         */
+        void resume() {
+            if (!this.waiting) {
+                return;
+            }
+            this.waiting = false;
+            RuntimeException failure = this.failure;
+            BlockSection section = this.nested_result;
+            this.failure = null;
+            this.nested_result = null;
+            if (failure != null) {
+                getScan().fail(failure);
+            } else {
+                getScan().complete(section);
+            }
+        }
+
+    }
+
+    /**
+     * A region which is being processed along with the region processor it
+     * has reached.
+     */
+    private class PendingRegion extends PendingWork {
+
+        final List<OpcodeBlock> region;
+        final OpcodeBlock ret;
+        final int body_start;
+
+        boolean started;
+        int processor;
+        @Nullable RegionScan scan;
+
+        PendingRegion(List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+            this.region = region;
+            this.ret = ret;
+            this.body_start = body_start;
+        }
+
+        @Override
+        boolean run(PartialMethod partial) {
+            if (!this.started) {
+                this.started = true;
+                MethodBudget.checkTime();
             }
+            resume();
+            while (this.scan != null || this.processor < MethodDecompiler.this.region_processors.size()) {
+                if (this.scan == null) {
+                    RegionProcessor proc = MethodDecompiler.this.region_processors.get(this.processor++);
+                    this.scan = proc.scan(partial, this.region, this.ret, this.body_start);
+                    if (this.scan == null) {
+                        this.result = proc.process(partial, this.region, this.ret, this.body_start);
+                        if (this.result != null) {
+                            return false;
+                        }
+                        continue;
+                    }
+                }
+                if (this.scan.advance()) {
+                    return true;
+                }
+                this.result = this.scan.getResult();
+                this.scan = null;
+                if (this.result != null) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        NestedScan getScan() {
+            return this.scan;
         }
-        return null;
+
+    }
+
+    /**
+     * Blocks which are being flattened along with the block and graph
+     * processor they have reached.
+     */
+    private class PendingFlatten extends PendingWork {
+
+        final List<OpcodeBlock> blocks;
+        final int stop_offs;
+        final List<BlockSection> output;
+
+        int index;
+        int processor;
+        @Nullable GraphScan scan;
+
+        PendingFlatten(List<OpcodeBlock> blocks, int stop_point, List<BlockSection> output) {
+            this.blocks = blocks;
+            this.stop_offs = blocks.size() - stop_point;
+            this.output = output;
+        }
+
+        @Override
+        boolean run(PartialMethod partial) {
+            resume();
+            List<GraphProcessor> processors = MethodDecompiler.this.processors;
+            while (true) {
+                int next = -1;
+                if (this.scan != null) {
+                    if (this.scan.advance()) {
+                        return true;
+                    }
+                    next = this.scan.getResult();
+                    this.scan = null;
+                } else {
+                    if (this.processor == 0) {
+                        if (this.index >= this.blocks.size() - this.stop_offs) {
+                            return false;
+                        }
+                        MethodBudget.checkTime();
+                    }
+                    if (this.processor == processors.size()) {
+                        // no processor took the block
+                        this.index++;
+                        this.processor = 0;
+                        continue;
+                    }
+                    GraphProcessor proc = processors.get(this.processor++);
+                    OpcodeBlock region_start = this.blocks.get(this.index);
+                    this.scan = proc.scan(partial, this.blocks, region_start, this.output);
+                    if (this.scan != null) {
+                        continue;
+                    }
+                    next = proc.process(partial, this.blocks, region_start, this.output);
+                }
+                if (next != -1) {
+                    this.index = next + 1;
+                    this.processor = 0;
+                }
+            }
+        }
+
+        @Override
+        NestedScan getScan() {
+            return this.scan;
+        }
+
+    }
+
+    /**
+     * A scan which is being run to completion by itself.
+     */
+    private static class PendingScan extends PendingWork {
+
+        final NestedScan scan;
+
+        PendingScan(NestedScan scan) {
+            this.scan = scan;
+        }
+
+        @Override
+        boolean run(PartialMethod partial) {
+            resume();
+            return this.scan.advance();
+        }
+
+        @Override
+        NestedScan getScan() {
+            return this.scan;
+        }
+
     }
 
 }
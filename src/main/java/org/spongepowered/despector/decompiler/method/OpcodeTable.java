@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.spongepowered.despector.util.AstUtil;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A flat table of the instructions of a method, built once per method before
+ * the graph is formed.
+ * 
+ * <p>The opcode, instruction type and primitive operand of every instruction
+ * are held in parallel arrays indexed by the position of the instruction in
+ * the method. The operand is the index of the target label for jumps, the
+ * local index for local and increment instructions, and the immediate value
+ * for int instructions. The stack delta of each instruction is computed the
+ * first time it is requested and then kept.</p>
+ * 
+ * <p>Labels are located through the index which the instruction list keeps
+ * for its own nodes rather than through a map of labels.</p>
+ */
+public class OpcodeTable {
+
+    private static final int UNKNOWN_DELTA = Integer.MIN_VALUE;
+
+    private final InsnList list;
+    private final AbstractInsnNode[] instructions;
+    private final int[] opcodes;
+    private final byte[] types;
+    private final int[] operands;
+    private final int[] stack_deltas;
+
+    public OpcodeTable(InsnList list) {
+        this.list = list;
+        this.instructions = list.toArray();
+        int size = this.instructions.length;
+        this.opcodes = new int[size];
+        this.types = new byte[size];
+        this.operands = new int[size];
+        this.stack_deltas = new int[size];
+        Arrays.fill(this.stack_deltas, UNKNOWN_DELTA);
+
+        for (int i = 0; i < size; i++) {
+            AbstractInsnNode next = this.instructions[i];
+            int type = next.getType();
+            this.opcodes[i] = next.getOpcode();
+            this.types[i] = (byte) type;
+            if (type == AbstractInsnNode.JUMP_INSN) {
+                this.operands[i] = list.indexOf(((JumpInsnNode) next).label);
+            } else if (type == AbstractInsnNode.VAR_INSN) {
+                this.operands[i] = ((VarInsnNode) next).var;
+            } else if (type == AbstractInsnNode.IINC_INSN) {
+                this.operands[i] = ((IincInsnNode) next).var;
+            } else if (type == AbstractInsnNode.INT_INSN) {
+                this.operands[i] = ((IntInsnNode) next).operand;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of instructions in the method.
+     */
+    public int size() {
+        return this.instructions.length;
+    }
+
+    /**
+     * Gets the instruction at the given index.
+     */
+    public AbstractInsnNode get(int index) {
+        return this.instructions[index];
+    }
+
+    /**
+     * Gets a fixed size list view of the instructions of the method.
+     */
+    public List<AbstractInsnNode> asList() {
+        return Arrays.asList(this.instructions);
+    }
+
+    /**
+     * Gets the opcode of the instruction at the given index, or -1 for
+     * labels, frames and line numbers.
+     */
+    public int getOpcode(int index) {
+        return this.opcodes[index];
+    }
+
+    /**
+     * Gets the {@link AbstractInsnNode#getType() type} of the instruction at
+     * the given index.
+     */
+    public int getType(int index) {
+        return this.types[index];
+    }
+
+    /**
+     * Gets the primitive operand of the instruction at the given index, or 0
+     * if the instruction has none.
+     */
+    public int getOperand(int index) {
+        return this.operands[index];
+    }
+
+    /**
+     * Gets if the instruction at the given index is a conditional or
+     * unconditional jump.
+     */
+    public boolean isJump(int index) {
+        return this.types[index] == AbstractInsnNode.JUMP_INSN;
+    }
+
+    /**
+     * Gets if the instruction at the given index is a table or lookup switch.
+     */
+    public boolean isSwitch(int index) {
+        return this.types[index] == AbstractInsnNode.TABLESWITCH_INSN || this.types[index] == AbstractInsnNode.LOOKUPSWITCH_INSN;
+    }
+
+    /**
+     * Gets if the instruction at the given index is a label.
+     */
+    public boolean isLabel(int index) {
+        return this.types[index] == AbstractInsnNode.LABEL;
+    }
+
+    /**
+     * Gets the index of the label targeted by the jump at the given index.
+     */
+    public int getJumpTarget(int index) {
+        return this.operands[index];
+    }
+
+    /**
+     * Gets the index of the given label.
+     */
+    public int getLabelIndex(LabelNode label) {
+        return this.list.indexOf(label);
+    }
+
+    /**
+     * Gets the index of the given instruction, or -1 if it is not part of
+     * this method.
+     */
+    public int indexOf(AbstractInsnNode insn) {
+        int index = this.list.indexOf(insn);
+        if (index < 0 || index >= this.instructions.length || this.instructions[index] != insn) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the stack delta of the instruction at the given index.
+     * 
+     * @see AstUtil#getStackDelta(AbstractInsnNode)
+     */
+    public int getStackDelta(int index) {
+        int delta = this.stack_deltas[index];
+        if (delta == UNKNOWN_DELTA) {
+            delta = AstUtil.getStackDelta(this.instructions[index]);
+            this.stack_deltas[index] = delta;
+        }
+        return delta;
+    }
+
+    /**
+     * Gets the stack delta of the given instruction, using the kept delta if
+     * the instruction is part of this method.
+     * 
+     * @see AstUtil#getStackDelta(AbstractInsnNode)
+     */
+    public int getStackDelta(AbstractInsnNode insn) {
+        int index = indexOf(insn);
+        if (index == -1) {
+            return AstUtil.getStackDelta(insn);
+        }
+        return getStackDelta(index);
+    }
+
+}
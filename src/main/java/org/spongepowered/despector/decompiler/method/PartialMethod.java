@@ -24,18 +24,17 @@
  */
 package org.spongepowered.despector.decompiler.method;
 
-import org.objectweb.asm.Label;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.spongepowered.despector.ast.Locals;
 import org.spongepowered.despector.ast.members.MethodEntry;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.decompiler.method.graph.DominatorTree;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class PartialMethod {
 
@@ -45,9 +44,10 @@ public class PartialMethod {
 
     private Locals locals;
     private List<AbstractInsnNode> ops;
+    private OpcodeTable table;
     private StatementBlock block;
-    private Map<Label, Integer> label_indices;
     private List<OpcodeBlock> graph;
+    private DominatorTree dominators;
     private List<BlockSection> final_blocks = new ArrayList<>();
 
     public PartialMethod(MethodDecompiler decompiler, MethodNode node, MethodEntry method) {
@@ -84,20 +84,23 @@ public class PartialMethod {
         this.ops = ops;
     }
 
-    public StatementBlock getBlock() {
-        return this.block;
+    /**
+     * Gets the flat table of the instructions of the method.
+     */
+    public OpcodeTable getOpcodeTable() {
+        return this.table;
     }
 
-    public void setBlock(StatementBlock block) {
-        this.block = block;
+    public void setOpcodeTable(OpcodeTable table) {
+        this.table = table;
     }
 
-    public Map<Label, Integer> getLabelIndices() {
-        return this.label_indices;
+    public StatementBlock getBlock() {
+        return this.block;
     }
 
-    public void setLabelIndices(Map<Label, Integer> label_indices) {
-        this.label_indices = label_indices;
+    public void setBlock(StatementBlock block) {
+        this.block = block;
     }
 
     public List<OpcodeBlock> getGraph() {
@@ -108,6 +111,17 @@ public class PartialMethod {
         this.graph = graph;
     }
 
+    /**
+     * Gets the dominator trees of the graph. The trees are computed when first
+     * requested which must be after the graph has been cleaned up.
+     */
+    public DominatorTree getDominatorTree() {
+        if (this.dominators == null) {
+            this.dominators = DominatorTree.compute(this.graph);
+        }
+        return this.dominators;
+    }
+
     public List<BlockSection> getFinalBlocks() {
         return this.final_blocks;
     }
@@ -30,13 +30,10 @@ import org.objectweb.asm.Handle;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.FrameNode;
 import org.objectweb.asm.tree.IincInsnNode;
 import org.objectweb.asm.tree.IntInsnNode;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
-import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LdcInsnNode;
-import org.objectweb.asm.tree.LineNumberNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
@@ -94,15 +91,13 @@ public class StatementBuilder {
         for (int index = 0; index < op.getOpcodes().size(); index++) {
             int label_index = op.getBreakpoint() - (op.getOpcodes().size() - index);
             AbstractInsnNode next = op.getOpcodes().get(index);
-            if (next instanceof LabelNode) {
-                continue;
-            } else if (next instanceof FrameNode) {
-                continue;
-            } else if (next instanceof LineNumberNode) {
+            int opcode = next.getOpcode();
+            if (opcode == -1) {
+                // labels, frames and line numbers
                 continue;
             }
 
-            switch (next.getOpcode()) {
+            switch (opcode) {
             case NOP:
                 break;
             case ACONST_NULL:
@@ -674,7 +669,7 @@ public class StatementBuilder {
                 // TODO
                 throw new IllegalStateException();
             default:
-                System.err.println("Unsupported opcode: " + next.getOpcode());
+                System.err.println("Unsupported opcode: " + opcode);
                 throw new IllegalStateException();
             }
         }
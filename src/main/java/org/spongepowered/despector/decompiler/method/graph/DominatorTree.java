@@ -0,0 +1,474 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method.graph;
+
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ConditionalOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ProcessedOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.SwitchOpcodeBlock;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The dominator tree of a method graph.
+ * 
+ * <p>The tree is computed after the graph has been cleaned up with the
+ * iterative algorithm of Cooper, Harvey and Kennedy and is keyed by the graph
+ * index of each block. Blocks which cannot be reached from the first block
+ * (such as catch handlers) are treated as additional entry points so that
+ * every block has a place in the tree.</p>
+ * 
+ * <p>The edges of the graph are changed as regions are processed so the tree
+ * describes the graph as it was when it was computed. Processing only
+ * retargets blocks within a region onto other blocks of the same region which
+ * leaves the answers for regions later in the graph unchanged. A block which
+ * is retargeted onto a later block of its region gives that block a new
+ * entry, these are {@link #addEntry recorded} and any region containing such
+ * a block past its start is no longer known to be single entry.</p>
+ * 
+ * <p>Regions are processed as lists of the blocks of the graph in graph
+ * order, in which nested regions which have already been processed are
+ * condensed into a single block holding the graph index of the first block
+ * it replaced. The queries taking a list of blocks place positions within
+ * such a list back into the graph so that the tree answers for the regions
+ * at every level of nesting.</p>
+ */
+public class DominatorTree {
+
+    private final int[] idom;
+    private final Numbering dom_numbering;
+    private final RangeMax last_entry;
+    // stores the negated pre order number so the range maximum gives the
+    // minimum pre order number
+    private final RangeMax min_pre_order;
+    private final RangeMax max_pre_order;
+    private final BitSet added_entries = new BitSet();
+
+    private DominatorTree(int[] idom, int[] last_entry) {
+        this.idom = idom;
+        this.dom_numbering = new Numbering(idom);
+        this.last_entry = new RangeMax(last_entry);
+        int[] pre = this.dom_numbering.pre_order;
+        int[] negated = new int[pre.length];
+        for (int i = 0; i < pre.length; i++) {
+            negated[i] = -pre[i];
+        }
+        this.min_pre_order = new RangeMax(negated);
+        this.max_pre_order = new RangeMax(pre);
+    }
+
+    /**
+     * Computes the dominator tree of the given graph. The index of each
+     * block must match its position in the list.
+     */
+    public static DominatorTree compute(List<OpcodeBlock> graph) {
+        int size = graph.size();
+        int[][] successors = new int[size][];
+        int[] pred_count = new int[size];
+        int[] last_entry = new int[size];
+        Arrays.fill(last_entry, -1);
+        int[] buffer = new int[4];
+        for (int i = 0; i < size; i++) {
+            OpcodeBlock block = graph.get(i);
+            int count = 0;
+            count = addSuccessor(graph, block.getTarget(), buffer, count);
+            if (block instanceof ConditionalOpcodeBlock) {
+                count = addSuccessor(graph, ((ConditionalOpcodeBlock) block).getElseTarget(), buffer, count);
+            } else if (block instanceof SwitchOpcodeBlock) {
+                for (OpcodeBlock target : ((SwitchOpcodeBlock) block).getAdditionalTargets().values()) {
+                    if (count == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, count * 2);
+                    }
+                    count = addSuccessor(graph, target, buffer, count);
+                }
+            }
+            successors[i] = Arrays.copyOf(buffer, count);
+            for (int o = 0; o < count; o++) {
+                int next = buffer[o];
+                pred_count[next]++;
+                last_entry[next] = i;
+            }
+        }
+        int[][] predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            predecessors[i] = new int[pred_count[i]];
+            pred_count[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int next : successors[i]) {
+                predecessors[next][pred_count[next]++] = i;
+            }
+        }
+
+        // entry points in order of preference, the first block and then any
+        // block not yet reached
+        int[] entries = new int[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = i;
+        }
+
+        int[] idom = immediateDominators(size, successors, predecessors, entries);
+        return new DominatorTree(idom, last_entry);
+    }
+
+    private static int addSuccessor(List<OpcodeBlock> graph, OpcodeBlock target, int[] buffer, int count) {
+        if (target == null) {
+            return count;
+        }
+        int index = target.getIndex();
+        if (index < 0 || index >= graph.size() || graph.get(index) != target) {
+            // the block is not part of the graph
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            if (buffer[i] == index) {
+                return count;
+            }
+        }
+        buffer[count] = index;
+        return count + 1;
+    }
+
+    /**
+     * Computes the immediate dominator of each node of the graph. A virtual
+     * root with the index {@code size} is placed before each entry which is
+     * not reachable from an earlier entry, the immediate dominator of nodes
+     * dominated only by the virtual root is -1.
+     */
+    private static int[] immediateDominators(int size, int[][] successors, int[][] predecessors, int[] entries) {
+        int root = size;
+        // number the nodes in post order with an iterative depth first search
+        int[] post_order = new int[size + 1];
+        Arrays.fill(post_order, -1);
+        int[] order = new int[size + 1];
+        boolean[] visited = new boolean[size];
+        boolean[] is_entry = new boolean[size];
+        int[] stack = new int[size];
+        int[] edge = new int[size];
+        int count = 0;
+        for (int entry : entries) {
+            if (visited[entry]) {
+                continue;
+            }
+            is_entry[entry] = true;
+            visited[entry] = true;
+            int depth = 0;
+            stack[0] = entry;
+            edge[0] = 0;
+            while (depth >= 0) {
+                int node = stack[depth];
+                int[] next = successors[node];
+                if (edge[depth] < next.length) {
+                    int succ = next[edge[depth]++];
+                    if (!visited[succ]) {
+                        visited[succ] = true;
+                        depth++;
+                        stack[depth] = succ;
+                        edge[depth] = 0;
+                    }
+                } else {
+                    post_order[node] = count;
+                    order[count++] = node;
+                    depth--;
+                }
+            }
+        }
+        post_order[root] = count;
+        order[count] = root;
+
+        int[] idom = new int[size + 1];
+        Arrays.fill(idom, -1);
+        idom[root] = root;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // visit the nodes in reverse post order, skipping the root
+            for (int i = count - 1; i >= 0; i--) {
+                int node = order[i];
+                int new_idom = is_entry[node] ? root : -1;
+                for (int pred : predecessors[node]) {
+                    if (idom[pred] == -1) {
+                        continue;
+                    }
+                    if (new_idom == -1) {
+                        new_idom = pred;
+                    } else {
+                        new_idom = intersect(idom, post_order, pred, new_idom);
+                    }
+                }
+                if (idom[node] != new_idom) {
+                    idom[node] = new_idom;
+                    changed = true;
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(idom, size);
+        for (int i = 0; i < size; i++) {
+            if (result[i] == root) {
+                result[i] = -1;
+            }
+        }
+        return result;
+    }
+
+    private static int intersect(int[] idom, int[] post_order, int a, int b) {
+        while (a != b) {
+            while (post_order[a] < post_order[b]) {
+                a = idom[a];
+            }
+            while (post_order[b] < post_order[a]) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Gets the number of blocks in the graph.
+     */
+    public int size() {
+        return this.idom.length;
+    }
+
+    /**
+     * Gets the index of the immediate dominator of the given block, or -1 if
+     * the block is an entry point of the graph.
+     */
+    public int getImmediateDominator(int block) {
+        return this.idom[block];
+    }
+
+    /**
+     * Gets if every path from an entry point to block b passes through block
+     * a. Every block dominates itself.
+     */
+    public boolean dominates(int a, int b) {
+        return this.dom_numbering.isAncestor(a, b);
+    }
+
+    /**
+     * Gets if the given block is the only way into the blocks between it and
+     * the given end (exclusive), that is if it dominates all of the blocks
+     * between and does not dominate any block before it.
+     */
+    public boolean isSingleEntry(int start, int end) {
+        if (this.dom_numbering.min_index[start] < start) {
+            return false;
+        }
+        int last = Math.min(end, this.idom.length) - 1;
+        if (last <= start) {
+            return true;
+        }
+        int added = this.added_entries.nextSetBit(start + 1);
+        if (added != -1 && added <= last) {
+            return false;
+        }
+        int pre = this.dom_numbering.pre_order[start];
+        return -this.min_pre_order.get(start + 1, last) >= pre
+                && this.max_pre_order.get(start + 1, last) <= this.dom_numbering.last_pre_order[start];
+    }
+
+    /**
+     * Records that a block earlier in the graph has been retargeted onto the
+     * given block since the tree was computed.
+     */
+    public void addEntry(OpcodeBlock block) {
+        int index = block.getIndex();
+        if (index >= 0 && index < this.idom.length) {
+            this.added_entries.set(index);
+        }
+    }
+
+    /**
+     * Gets the highest index of any block with an edge into the blocks from
+     * start to end (both inclusive), or -1 if none of the blocks are targeted.
+     */
+    public int getLastEntry(int start, int end) {
+        int last = Math.min(end, this.idom.length - 1);
+        if (last < start) {
+            return -1;
+        }
+        return this.last_entry.get(start, last);
+    }
+
+    /**
+     * Gets if the block at the given position of a region is the only way into
+     * the blocks of the region between it and the given end position
+     * (exclusive). Returns false if the positions cannot be placed in the
+     * graph.
+     */
+    public boolean isSingleEntry(List<OpcodeBlock> blocks, int start, int end) {
+        int first = blocks.get(start).getIndex();
+        int last = getLastCovered(blocks, end);
+        if (first < 0 || last < first) {
+            return false;
+        }
+        return isSingleEntry(first, last + 1);
+    }
+
+    /**
+     * Gets if any block of a region at or after the given position may have
+     * an edge into the blocks of the region from start to end (exclusive).
+     * Returns true if the positions cannot be placed in the graph.
+     */
+    public boolean isEnteredFrom(List<OpcodeBlock> blocks, int start, int end, int from) {
+        if (start >= end || from >= blocks.size()) {
+            return false;
+        }
+        int first = blocks.get(start).getIndex();
+        int last = getLastCovered(blocks, end);
+        int from_index = blocks.get(from).getIndex();
+        if (first < 0 || last < first || from_index <= last) {
+            return true;
+        }
+        return getLastEntry(first, last) >= from_index;
+    }
+
+    /**
+     * Gets the graph index of the last block of the graph covered by the
+     * blocks of a region before the given position, or -1 if it is not known.
+     * A block condensed from a nested region covers every block up to the
+     * next block of the region.
+     */
+    private int getLastCovered(List<OpcodeBlock> blocks, int end) {
+        if (end <= 0 || end > blocks.size()) {
+            return -1;
+        }
+        OpcodeBlock last = blocks.get(end - 1);
+        int index = last.getIndex();
+        if (end < blocks.size()) {
+            index = Math.max(index, blocks.get(end).getIndex() - 1);
+        } else if (last instanceof ProcessedOpcodeBlock) {
+            return -1;
+        }
+        return index < this.idom.length ? index : -1;
+    }
+
+    /**
+     * A pre order numbering of a tree which allows ancestor checks in constant
+     * time.
+     */
+    private static class Numbering {
+
+        final int[] pre_order;
+        final int[] last_pre_order;
+        final int[] min_index;
+
+        Numbering(int[] parent) {
+            int size = parent.length;
+            this.pre_order = new int[size];
+            this.last_pre_order = new int[size];
+            this.min_index = new int[size];
+            // link the children of each node, keeping them in index order
+            int[] first_child = new int[size];
+            int[] next_sibling = new int[size];
+            Arrays.fill(first_child, -1);
+            Arrays.fill(next_sibling, -1);
+            for (int i = size - 1; i >= 0; i--) {
+                int p = parent[i];
+                if (p != -1) {
+                    next_sibling[i] = first_child[p];
+                    first_child[p] = i;
+                }
+            }
+            int[] stack = new int[size];
+            int[] child = new int[size];
+            int count = 0;
+            for (int root = 0; root < size; root++) {
+                if (parent[root] != -1) {
+                    continue;
+                }
+                int depth = 0;
+                stack[0] = root;
+                child[0] = first_child[root];
+                this.pre_order[root] = count++;
+                this.min_index[root] = root;
+                while (depth >= 0) {
+                    int node = stack[depth];
+                    int next = child[depth];
+                    if (next != -1) {
+                        child[depth] = next_sibling[next];
+                        this.pre_order[next] = count++;
+                        this.min_index[next] = next;
+                        depth++;
+                        stack[depth] = next;
+                        child[depth] = first_child[next];
+                    } else {
+                        this.last_pre_order[node] = count - 1;
+                        depth--;
+                        if (depth >= 0) {
+                            int p = stack[depth];
+                            this.min_index[p] = Math.min(this.min_index[p], this.min_index[node]);
+                        }
+                    }
+                }
+            }
+        }
+
+        boolean isAncestor(int a, int b) {
+            int pre = this.pre_order[b];
+            return this.pre_order[a] <= pre && pre <= this.last_pre_order[a];
+        }
+
+    }
+
+    /**
+     * A sparse table answering range maximum queries in constant time.
+     */
+    private static class RangeMax {
+
+        private final int[][] table;
+
+        RangeMax(int[] values) {
+            int levels = 1;
+            while ((1 << levels) <= values.length) {
+                levels++;
+            }
+            this.table = new int[levels][];
+            this.table[0] = values;
+            for (int k = 1; k < levels; k++) {
+                int[] prev = this.table[k - 1];
+                int half = 1 << (k - 1);
+                int[] level = new int[values.length - (1 << k) + 1];
+                for (int i = 0; i < level.length; i++) {
+                    level[i] = Math.max(prev[i], prev[i + half]);
+                }
+                this.table[k] = level;
+            }
+        }
+
+        /**
+         * Gets the maximum value from start to end (both inclusive).
+         */
+        int get(int start, int end) {
+            int k = 31 - Integer.numberOfLeadingZeros(end - start + 1);
+            return Math.max(this.table[k][start], this.table[k][end - (1 << k) + 1]);
+        }
+
+    }
+
+}
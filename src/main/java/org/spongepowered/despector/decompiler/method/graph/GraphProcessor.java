@@ -30,6 +30,8 @@ import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlo
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 /**
  * A processor that processes a region of the graph into one or more block
  * sections.
@@ -45,4 +47,14 @@ public interface GraphProcessor {
      */
     int process(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks);
 
+    /**
+     * Begins a scan of the region starting at the start block if this
+     * processor processes nested regions, or returns null if the region
+     * should be given to {@link #process} directly.
+     */
+    @Nullable
+    default GraphScan scan(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
+        return null;
+    }
+
 }
@@ -27,9 +27,8 @@ package org.spongepowered.despector.decompiler.method.graph;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A producer for dividing up the opcodes into blocks and joining them together
@@ -38,13 +37,16 @@ import java.util.Set;
 public interface GraphProducerStep {
 
     /**
-     * Adds the indices of any opcodes that the opcode list should be split
-     * after to the break_points set.
+     * Sets the indices of any opcodes that the opcode list should be split
+     * after in the break_points set.
      */
-    void collectBreakpoints(PartialMethod partial, Set<Integer> break_points);
+    void collectBreakpoints(PartialMethod partial, BitSet break_points);
 
     /**
-     * Forms edges between blocks in the graph.
+     * Forms edges between blocks in the graph. The block ending at each break
+     * point is at the same position in the blocks array as the break point is
+     * in the sorted break points, blocks which are replaced should be replaced
+     * in the array as well.
      */
-    void formEdges(PartialMethod partial, Map<Integer, OpcodeBlock> blocks, List<Integer> sorted_break_points, List<OpcodeBlock> block_list);
+    void formEdges(PartialMethod partial, OpcodeBlock[] blocks, int[] sorted_break_points, List<OpcodeBlock> block_list);
 }
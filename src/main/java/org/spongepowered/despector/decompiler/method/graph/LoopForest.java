@@ -0,0 +1,238 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method.graph;
+
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.BreakMarkerOpcodeBlock.MarkerType;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ConditionalOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.GotoOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * The jumps of a method graph which break out of or continue a loop, as used
+ * by the {@link org.spongepowered.despector.decompiler.method.graph.operate.BreakPrePassOperation
+ * break pre-pass}.
+ * 
+ * <p>Loops are found from their back edges in a single pass over the graph
+ * by the layout of the blocks rather than by dominance. A back edge is either
+ * a goto to an earlier block, a goto forward to the condition of a loop which
+ * is placed after its body, or a condition jumping back to the start of a
+ * do-while loop. Every other goto within a loop which targets the condition
+ * of the loop is a continue, and every goto which leaves the loop is a break
+ * of the outermost loop which it leaves.</p>
+ * 
+ * <p>The jumps are only valid until the graph is next changed.</p>
+ */
+public class LoopForest {
+
+    private final Map<OpcodeBlock, Loop> by_jump;
+    private final Map<OpcodeBlock, MarkerType> jump_types;
+
+    private LoopForest(Map<OpcodeBlock, Loop> by_jump, Map<OpcodeBlock, MarkerType> jump_types) {
+        this.by_jump = by_jump;
+        this.jump_types = jump_types;
+    }
+
+    /**
+     * Finds the loops of the given graph. The index of each block must match
+     * its position in the list.
+     */
+    public static LoopForest compute(List<OpcodeBlock> blocks) {
+        List<GotoOpcodeBlock> gotos = new ArrayList<>();
+        for (OpcodeBlock block : blocks) {
+            if (block instanceof GotoOpcodeBlock) {
+                gotos.add((GotoOpcodeBlock) block);
+            }
+        }
+
+        List<Loop> loops = new ArrayList<>();
+        Map<OpcodeBlock, Loop> by_condition = new IdentityHashMap<>();
+        Map<GotoOpcodeBlock, Loop> by_entry = new IdentityHashMap<>();
+        // whether the run of conditions starting at each index contains a
+        // back edge, filled in as needed
+        byte[] back_edge_runs = new byte[blocks.size()];
+
+        search: for (GotoOpcodeBlock ggoto : gotos) {
+            OpcodeBlock target = ggoto.getTarget();
+            int target_index = OpcodeBlock.indexOf(blocks, target);
+            int goto_index = OpcodeBlock.indexOf(blocks, ggoto);
+            if (target.getBreakpoint() < ggoto.getBreakpoint()) {
+                // a back edge is either a while loop or a continue statement
+                for (OpcodeBlock other : target.getTargettedBy()) {
+                    if (other instanceof GotoOpcodeBlock && OpcodeBlock.indexOf(blocks, other) > goto_index) {
+                        // if there is another goto targetting our target from
+                        // farther in the opcodes then this goto is a continue
+                        continue search;
+                    }
+                }
+            } else if (target instanceof ConditionalOpcodeBlock) {
+                // otherwise if this goto points forwards then we need to check
+                // if the condition its targetting is forming the back edge
+                if (!hasBackEdge(blocks, target_index, back_edge_runs)) {
+                    continue;
+                }
+                for (OpcodeBlock other : target.getTargettedBy()) {
+                    if (other instanceof GotoOpcodeBlock && OpcodeBlock.indexOf(blocks, other) < goto_index) {
+                        // if there is another goto targetting our target from
+                        // earlier in the opcodes then that goto enters the loop
+                        continue search;
+                    }
+                }
+            } else {
+                // if this goto is pointing forwards but its not targetting a
+                // condition then its either a break or a else/try-catch block,
+                // we'll figure out which later
+                continue;
+            }
+            Loop loop = new Loop(Math.min(goto_index, target_index), Math.max(goto_index, target_index), target);
+            loops.add(loop);
+            by_condition.putIfAbsent(target, loop);
+            by_entry.put(ggoto, loop);
+        }
+
+        for (OpcodeBlock block : blocks) {
+            if (!(block instanceof ConditionalOpcodeBlock)) {
+                continue;
+            }
+            ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) block;
+            if (cond.getTarget().getBreakpoint() < cond.getBreakpoint() && !by_condition.containsKey(cond)) {
+                // a do-while loop
+                Loop loop = new Loop(OpcodeBlock.indexOf(blocks, cond.getTarget()), OpcodeBlock.indexOf(blocks, cond), cond);
+                loops.add(loop);
+                by_condition.put(cond, loop);
+            }
+        }
+
+        // the sort is stable so loops with the same start stay in the order
+        // they were found
+        loops.sort((a, b) -> Integer.compare(a.start, b.start));
+        Map<OpcodeBlock, Loop> by_jump = new IdentityHashMap<>();
+        Map<OpcodeBlock, MarkerType> jump_types = new IdentityHashMap<>();
+        findJumps(blocks, gotos, loops, by_entry, by_jump, jump_types);
+        return new LoopForest(by_jump, jump_types);
+    }
+
+    private static boolean hasBackEdge(List<OpcodeBlock> blocks, int start, byte[] back_edge_runs) {
+        if (back_edge_runs[start] == 0) {
+            boolean found = false;
+            for (int i = start; i < blocks.size(); i++) {
+                OpcodeBlock next = blocks.get(i);
+                if (!(next instanceof ConditionalOpcodeBlock)) {
+                    break;
+                }
+                if (OpcodeBlock.indexOf(blocks, next.getTarget()) < start) {
+                    found = true;
+                    break;
+                }
+            }
+            back_edge_runs[start] = (byte) (found ? 1 : 2);
+        }
+        return back_edge_runs[start] == 1;
+    }
+
+    private static void findJumps(List<OpcodeBlock> blocks, List<GotoOpcodeBlock> gotos, List<Loop> sorted, Map<GotoOpcodeBlock, Loop> by_entry,
+            Map<OpcodeBlock, Loop> by_jump, Map<OpcodeBlock, MarkerType> jump_types) {
+        // sweep over the gotos in order keeping the loops which contain the
+        // current goto, ordered by their start
+        List<Loop> active = new ArrayList<>();
+        int next_loop = 0;
+        for (GotoOpcodeBlock ggoto : gotos) {
+            int goto_index = OpcodeBlock.indexOf(blocks, ggoto);
+            while (next_loop < sorted.size() && sorted.get(next_loop).start < goto_index) {
+                active.add(sorted.get(next_loop++));
+            }
+            active.removeIf((loop) -> loop.end <= goto_index);
+            if (by_entry.containsKey(ggoto)) {
+                continue;
+            }
+            Loop found = null;
+            MarkerType type = null;
+            int target_index = OpcodeBlock.indexOf(blocks, ggoto.getTarget());
+            for (Loop loop : active) {
+                if (ggoto.getTarget() == loop.condition) {
+                    found = loop;
+                    type = MarkerType.CONTINUE;
+                    break;
+                } else if (type == null && target_index > loop.end) {
+                    // the outermost loop which the goto breaks out of
+                    found = loop;
+                    type = MarkerType.BREAK;
+                }
+            }
+            if (type != null) {
+                by_jump.put(ggoto, found);
+                jump_types.put(ggoto, type);
+            }
+        }
+    }
+
+    /**
+     * Gets the loop which the given jump breaks out of or continues, if any.
+     */
+    @Nullable
+    public Loop getJumpLoop(OpcodeBlock jump) {
+        return this.by_jump.get(jump);
+    }
+
+    /**
+     * Gets whether the given jump breaks out of or continues its loop, or null
+     * if it is not a jump of any loop.
+     */
+    @Nullable
+    public MarkerType getJumpType(OpcodeBlock jump) {
+        return this.jump_types.get(jump);
+    }
+
+    /**
+     * A loop in the method graph.
+     */
+    public static class Loop {
+
+        final int start;
+        final int end;
+        final OpcodeBlock condition;
+
+        Loop(int start, int end, OpcodeBlock condition) {
+            this.start = start;
+            this.end = end;
+            this.condition = condition;
+        }
+
+        /**
+         * Gets the block which is the condition of the loop.
+         */
+        public OpcodeBlock getCondition() {
+            return this.condition;
+        }
+
+    }
+
+}
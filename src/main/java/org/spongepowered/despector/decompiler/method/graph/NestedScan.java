@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method.graph;
+
+import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * The progress of a processor through a part of the graph which contains
+ * nested regions.
+ * 
+ * <p>Rather than processing each nested region itself the scan hands them
+ * back one at a time and waits for the result of each. This lets the method
+ * decompiler process nested regions from a stack of pending work on the heap
+ * instead of recursing once per level of nesting.</p>
+ * 
+ * <p>A nested region is either processed into a single section, as by
+ * {@link RegionProcessor}s, or flattened into a list of sections, as by
+ * {@link GraphProcessor}s.</p>
+ */
+public interface NestedScan {
+
+    /**
+     * Advances the scan to the next nested region which must be processed
+     * before the scan can continue. Returns false once the scan is complete.
+     */
+    boolean advance();
+
+    /**
+     * Gets the blocks of the nested region the scan is waiting on.
+     */
+    List<OpcodeBlock> getSubRegion();
+
+    /**
+     * Gets the block following the nested region the scan is waiting on. Only
+     * used if the nested region is processed into a single section.
+     */
+    OpcodeBlock getSubRegionReturn();
+
+    /**
+     * Gets the index within the nested region at which its body starts. Only
+     * used if the nested region is processed into a single section.
+     */
+    int getSubRegionBodyStart();
+
+    /**
+     * Gets the list of sections the nested region the scan is waiting on is
+     * flattened into, or null if it is processed into a single section.
+     */
+    @Nullable
+    default List<BlockSection> getSubRegionOutput() {
+        return null;
+    }
+
+    /**
+     * Gets the index within the nested region at which flattening stops.
+     */
+    default int getSubRegionStopPoint() {
+        return getSubRegion().size();
+    }
+
+    /**
+     * Completes the nested region the scan is waiting on with its processed
+     * section. A flattened region is completed with null once its sections
+     * have been added to its output.
+     */
+    void complete(@Nullable BlockSection section);
+
+    /**
+     * Completes the nested region the scan is waiting on with the exception
+     * thrown while processing it. The scan may either recover and continue
+     * or rethrow the exception.
+     */
+    default void fail(RuntimeException e) {
+        throw e;
+    }
+
+}
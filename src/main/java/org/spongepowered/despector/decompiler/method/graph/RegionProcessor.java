@@ -24,6 +24,7 @@
  */
 package org.spongepowered.despector.decompiler.method.graph;
 
+import org.spongepowered.despector.decompiler.method.MethodBudget;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.BreakMarkerOpcodeBlock;
@@ -31,9 +32,11 @@ import org.spongepowered.despector.decompiler.method.graph.data.opcode.Condition
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.GotoOpcodeBlock;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 /**
  * Processes a region of the graph into a single {@link BlockSection}.
  */
@@ -44,11 +47,41 @@ public interface RegionProcessor {
      */
     BlockSection process(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start);
 
+    /**
+     * Begins a scan of the given region if this processor processes nested
+     * regions, or returns null if the region should be given to
+     * {@link #process} directly.
+     */
+    @Nullable
+    default RegionScan scan(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+        return null;
+    }
+
     static int getRegionEnd(List<OpcodeBlock> blk, OpcodeBlock ret, int start) {
-        List<OpcodeBlock> blocks = new ArrayList<>(blk);
-        if (ret != null) {
-            blocks.add(ret);
-        }
+        return getRegionEnd(blk, ret, start, null);
+    }
+
+    /**
+     * Gets the end of the region starting at the given block, or -1 if the
+     * block does not start a region. The dominator tree of the method graph
+     * may be given which spares checking every block outside of the region
+     * for edges into it.
+     */
+    static int getRegionEnd(List<OpcodeBlock> blk, OpcodeBlock ret, int start, @Nullable DominatorTree dominators) {
+        // view the region with the return block appended rather than copying
+        // the region for every candidate start
+        List<OpcodeBlock> blocks = ret == null ? blk : new AbstractList<OpcodeBlock>() {
+
+            @Override
+            public OpcodeBlock get(int index) {
+                return index == blk.size() ? ret : blk.get(index);
+            }
+
+            @Override
+            public int size() {
+                return blk.size() + 1;
+            }
+        };
         OpcodeBlock region_start = blocks.get(start);
         // if the target is behind the start then we break as this is likely the
         // condition of a do-while
@@ -64,14 +97,14 @@ public interface RegionProcessor {
         int end = start + 1;
         if (region_start instanceof ConditionalOpcodeBlock) {
             ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) region_start;
-            int end_a = blocks.indexOf(cond.getTarget());
+            int end_a = OpcodeBlock.indexOf(blocks, cond.getTarget());
             if (cond.getTarget().getBreakpoint() <= region_start.getBreakpoint()) {
                 boolean found = false;
                 if (cond.getTarget() instanceof ConditionalOpcodeBlock) {
                     ConditionalOpcodeBlock target = (ConditionalOpcodeBlock) cond.getTarget();
                     for (OpcodeBlock op : target.getTargettedBy()) {
                         if (op instanceof GotoOpcodeBlock && op.getBreakpoint() > cond.getBreakpoint()) {
-                            end_a = blocks.indexOf(op);
+                            end_a = OpcodeBlock.indexOf(blocks, op);
                             found = true;
                             break;
                         }
@@ -86,7 +119,7 @@ public interface RegionProcessor {
                     ConditionalOpcodeBlock cond_target = (ConditionalOpcodeBlock) cond.getTarget();
                     if (cond_target.getTarget().getBreakpoint() < cond_target.getBreakpoint()
                             && cond_target.getTarget().getBreakpoint() > region_start.getBreakpoint()) {
-                        end_a = blocks.indexOf(cond_target.getTarget());
+                        end_a = OpcodeBlock.indexOf(blocks, cond_target.getTarget());
                     }
                 }
             }
@@ -94,23 +127,27 @@ public interface RegionProcessor {
                 ConditionalOpcodeBlock target = (ConditionalOpcodeBlock) cond.getTarget();
                 for (OpcodeBlock op : target.getTargettedBy()) {
                     if (op instanceof GotoOpcodeBlock && op.getBreakpoint() > cond.getBreakpoint()) {
-                        end_a = blocks.indexOf(op);
+                        end_a = OpcodeBlock.indexOf(blocks, op);
                         break;
                     }
                 }
             }
-            int end_b = blocks.indexOf(cond.getElseTarget());
+            int end_b = OpcodeBlock.indexOf(blocks, cond.getElseTarget());
             // Use the target of the start node as a starting point for our
             // search
             end = Math.max(end_a, end_b);
         } else {
-            end = blocks.indexOf(region_start.getTarget());
+            end = OpcodeBlock.indexOf(blocks, region_start.getTarget());
         }
         boolean isGoto = region_start instanceof GotoOpcodeBlock;
-        return getRegionEnd(blocks, start, end, isGoto, ret);
+        return getRegionEnd(blocks, start, end, isGoto, ret, dominators);
     }
 
     static int getRegionEnd(List<OpcodeBlock> blocks, int start, int end, boolean isGoto, OpcodeBlock ret) {
+        return getRegionEnd(blocks, start, end, isGoto, ret, null);
+    }
+
+    static int getRegionEnd(List<OpcodeBlock> blocks, int start, int end, boolean isGoto, OpcodeBlock ret, @Nullable DominatorTree dominators) {
 
         // This is a rather brute force search for the next node after the start
         // node which post-dominates the preceding nodes.
@@ -119,12 +156,16 @@ public interface RegionProcessor {
         int end_b = -1;
 
         check: while (true) {
-            for (int o = 0; o < start; o++) {
+            MethodBudget.checkTime();
+            // if the start dominates the region then any edge into the region
+            // must come from the region itself
+            boolean single_entry = dominators != null && dominators.isSingleEntry(blocks, start, end);
+            for (int o = 0; !single_entry && o < start; o++) {
                 OpcodeBlock next = blocks.get(o);
-                end_a = blocks.indexOf(next.getTarget());
+                end_a = OpcodeBlock.indexOf(blocks, next.getTarget());
                 if (next instanceof ConditionalOpcodeBlock) {
                     ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) next;
-                    end_b = blocks.indexOf(cond.getTarget());
+                    end_b = OpcodeBlock.indexOf(blocks, cond.getTarget());
                 } else {
                     end_b = -1;
                 }
@@ -136,19 +177,19 @@ public interface RegionProcessor {
             }
             for (int o = start + 1; o < end; o++) {
                 OpcodeBlock next = blocks.get(o);
-                end_a = blocks.indexOf(next.getTarget());
+                end_a = OpcodeBlock.indexOf(blocks, next.getTarget());
                 if (next instanceof ConditionalOpcodeBlock) {
                     if (end_a < o && next.getTarget() instanceof ConditionalOpcodeBlock) {
                         ConditionalOpcodeBlock target = (ConditionalOpcodeBlock) next.getTarget();
                         for (OpcodeBlock op : target.getTargettedBy()) {
                             if (op instanceof GotoOpcodeBlock && op.getBreakpoint() > next.getBreakpoint()) {
-                                end_a = blocks.indexOf(op);
+                                end_a = OpcodeBlock.indexOf(blocks, op);
                                 break;
                             }
                         }
                     }
                     ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) next;
-                    end_b = blocks.indexOf(cond.getTarget());
+                    end_b = OpcodeBlock.indexOf(blocks, cond.getTarget());
                 } else {
                     end_b = -1;
                 }
@@ -162,7 +203,7 @@ public interface RegionProcessor {
                         int alt_end = o;
                         for (OpcodeBlock block : target.getTargettedBy()) {
                             if (block instanceof GotoOpcodeBlock) {
-                                int block_index = blocks.indexOf(block);
+                                int block_index = OpcodeBlock.indexOf(blocks, block);
                                 if (block_index > start && block_index < end && block_index > alt_end) {
                                     alt_end = block_index;
                                     alt = block;
@@ -172,6 +213,9 @@ public interface RegionProcessor {
                         if (alt != next) {
                             end = Math.max(end, alt_end);
                             ((GotoOpcodeBlock) next).setTarget(alt);
+                            if (dominators != null) {
+                                dominators.addEntry(alt);
+                            }
                             continue;
                         }
                     } else {
@@ -180,13 +224,13 @@ public interface RegionProcessor {
                         int alt_end = o;
                         for (OpcodeBlock block : target.getTargettedBy()) {
                             if (block instanceof GotoOpcodeBlock) {
-                                int block_index = blocks.indexOf(block);
+                                int block_index = OpcodeBlock.indexOf(blocks, block);
                                 if (block_index > start && block_index < end && block_index > alt_end) {
                                     alt_end = block_index;
                                     alt = block;
                                 }
                             } else if(block instanceof BreakMarkerOpcodeBlock) {
-                                int block_index = blocks.indexOf(block);
+                                int block_index = OpcodeBlock.indexOf(blocks, block);
                                 if (block_index > start && block_index < end && block_index > alt_end) {
                                     alt_end = block_index;
                                     alt = block;
@@ -196,6 +240,9 @@ public interface RegionProcessor {
                         if (alt != next) {
                             end = Math.max(end, alt_end);
                             next.setTarget(alt);
+                            if (dominators != null) {
+                                dominators.addEntry(alt);
+                            }
                             continue;
                         }
                     }
@@ -211,8 +258,8 @@ public interface RegionProcessor {
                 int pos_ext = end_extension;
                 while (next instanceof ConditionalOpcodeBlock) {
                     ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) next;
-                    end_a = blocks.indexOf(cond.getTarget());
-                    end_b = blocks.indexOf(cond.getElseTarget());
+                    end_a = OpcodeBlock.indexOf(blocks, cond.getTarget());
+                    end_b = OpcodeBlock.indexOf(blocks, cond.getElseTarget());
                     if ((end_a > start && end_a < end) || (end_b > start && end_b < end)) {
                         end_extension = ++pos_ext;
                         next = blocks.get(end + end_extension);
@@ -222,12 +269,16 @@ public interface RegionProcessor {
                     next = blocks.get(end + pos_ext);
                 }
             }
+            if (dominators != null && !dominators.isEnteredFrom(blocks, start + 1, end, end + end_extension)) {
+                // no block past the end has an edge into the region
+                break;
+            }
             for (int o = end + end_extension; o < blocks.size(); o++) {
                 OpcodeBlock next = blocks.get(o);
-                end_a = blocks.indexOf(next.getTarget());
+                end_a = OpcodeBlock.indexOf(blocks, next.getTarget());
                 if (next instanceof ConditionalOpcodeBlock) {
                     ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) next;
-                    end_b = blocks.indexOf(cond.getTarget());
+                    end_b = OpcodeBlock.indexOf(blocks, cond.getTarget());
                 } else {
                     end_b = -1;
                 }
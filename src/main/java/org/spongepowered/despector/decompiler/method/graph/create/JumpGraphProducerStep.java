@@ -29,9 +29,7 @@ import static org.objectweb.asm.Opcodes.GOTO;
 import static org.objectweb.asm.Opcodes.IRETURN;
 import static org.objectweb.asm.Opcodes.RETURN;
 
-import org.objectweb.asm.Label;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.JumpInsnNode;
+import org.spongepowered.despector.decompiler.method.OpcodeTable;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphOperation;
 import org.spongepowered.despector.decompiler.method.graph.GraphProducerStep;
@@ -39,9 +37,9 @@ import org.spongepowered.despector.decompiler.method.graph.data.opcode.Condition
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.GotoOpcodeBlock;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A graph producer that creates opcode blocks for condition and unconditional
@@ -50,53 +48,54 @@ import java.util.Set;
 public class JumpGraphProducerStep implements GraphProducerStep {
 
     @Override
-    public void collectBreakpoints(PartialMethod partial, Set<Integer> break_points) {
-        List<AbstractInsnNode> instructions = partial.getOpcodes();
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
+    public void collectBreakpoints(PartialMethod partial, BitSet break_points) {
+        OpcodeTable table = partial.getOpcodeTable();
 
-        for (int i = 0; i < instructions.size(); i++) {
-            AbstractInsnNode next = instructions.get(i);
-            if (next instanceof JumpInsnNode) {
-                break_points.add(i);
+        for (int i = 0; i < table.size(); i++) {
+            if (table.isJump(i)) {
+                break_points.set(i);
                 // also break before labels targetted by jump opcodes to have a
                 // break between the body of an if block and the statements
                 // after it
-                break_points.add(label_indices.get(((JumpInsnNode) next).label.getLabel()));
+                break_points.set(table.getJumpTarget(i));
                 continue;
             }
-            int op = next.getOpcode();
+            int op = table.getOpcode(i);
             if (op <= RETURN && op >= IRETURN || op == ATHROW) {
-                break_points.add(i);
+                break_points.set(i);
             }
         }
     }
 
     @Override
-    public void formEdges(PartialMethod partial, Map<Integer, OpcodeBlock> blocks, List<Integer> sorted_break_points, List<OpcodeBlock> block_list) {
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
-        for (Map.Entry<Integer, OpcodeBlock> e : blocks.entrySet()) {
+    public void formEdges(PartialMethod partial, OpcodeBlock[] blocks, int[] sorted_break_points, List<OpcodeBlock> block_list) {
+        OpcodeTable table = partial.getOpcodeTable();
+        for (int i = 0; i < blocks.length; i++) {
             // Now we go through and form an edge from any block and the block
             // it flows (or jumps) into next.
-            OpcodeBlock block = e.getValue();
-            if (block.getLast() instanceof JumpInsnNode) {
-                Label label = ((JumpInsnNode) block.getLast()).label.getLabel();
-                if(block.getLast().getOpcode() == GOTO) {
-                    GotoOpcodeBlock replacement = new GotoOpcodeBlock(block.getBreakpoint());
-                    e.setValue(replacement);
-                    block_list.set(block_list.indexOf(block), replacement);
-                    replacement.getOpcodes().addAll(block.getOpcodes());
-                    replacement.setTarget(blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
-                    GraphOperation.remap(block_list, block, replacement);
-                } else {
-                    ConditionalOpcodeBlock replacement = new ConditionalOpcodeBlock(block.getBreakpoint());
-                    e.setValue(replacement);
-                    block_list.set(block_list.indexOf(block), replacement);
-                    replacement.getOpcodes().addAll(block.getOpcodes());
-                    replacement.setTarget(blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
-                    OpcodeBlock next = blocks.get(sorted_break_points.get(sorted_break_points.indexOf(e.getKey()) + 1));
-                    replacement.setElseTarget(next);
-                    GraphOperation.remap(block_list, block, replacement);
-                }
+            int last = sorted_break_points[i];
+            if (!table.isJump(last)) {
+                continue;
+            }
+            OpcodeBlock block = blocks[i];
+            OpcodeBlock target = blocks[Arrays.binarySearch(sorted_break_points, table.getJumpTarget(last)) + 1];
+            if (table.getOpcode(last) == GOTO) {
+                GotoOpcodeBlock replacement = new GotoOpcodeBlock(block.getBreakpoint());
+                blocks[i] = replacement;
+                replacement.setIndex(block.getIndex());
+                block_list.set(OpcodeBlock.indexOf(block_list, block), replacement);
+                replacement.getOpcodes().addAll(block.getOpcodes());
+                replacement.setTarget(target);
+                GraphOperation.remap(block_list, block, replacement);
+            } else {
+                ConditionalOpcodeBlock replacement = new ConditionalOpcodeBlock(block.getBreakpoint());
+                blocks[i] = replacement;
+                replacement.setIndex(block.getIndex());
+                block_list.set(OpcodeBlock.indexOf(block_list, block), replacement);
+                replacement.getOpcodes().addAll(block.getOpcodes());
+                replacement.setTarget(target);
+                replacement.setElseTarget(blocks[i + 1]);
+                GraphOperation.remap(block_list, block, replacement);
             }
         }
     }
@@ -24,20 +24,20 @@
  */
 package org.spongepowered.despector.decompiler.method.graph.create;
 
-import org.objectweb.asm.Label;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.spongepowered.despector.decompiler.method.OpcodeTable;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphOperation;
 import org.spongepowered.despector.decompiler.method.graph.GraphProducerStep;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.SwitchOpcodeBlock;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A graph producer that creates opcode blocks for switch statements.
@@ -46,67 +46,66 @@ public class SwitchGraphProducerStep implements GraphProducerStep {
 
     @SuppressWarnings("unchecked")
     @Override
-    public void collectBreakpoints(PartialMethod partial, Set<Integer> break_points) {
-        List<AbstractInsnNode> instructions = partial.getOpcodes();
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
+    public void collectBreakpoints(PartialMethod partial, BitSet break_points) {
+        OpcodeTable table = partial.getOpcodeTable();
 
-        for (int i = 0; i < instructions.size(); i++) {
-            AbstractInsnNode next = instructions.get(i);
+        for (int i = 0; i < table.size(); i++) {
+            if (!table.isSwitch(i)) {
+                continue;
+            }
+            AbstractInsnNode next = table.get(i);
             if (next instanceof TableSwitchInsnNode) {
-                break_points.add(i);
+                break_points.set(i);
                 TableSwitchInsnNode ts = (TableSwitchInsnNode) next;
                 for (LabelNode l : (List<LabelNode>) ts.labels) {
-                    break_points.add(label_indices.get(l.getLabel()));
+                    break_points.set(table.getLabelIndex(l));
                 }
-                break_points.add(label_indices.get(ts.dflt.getLabel()));
+                break_points.set(table.getLabelIndex(ts.dflt));
             } else if (next instanceof LookupSwitchInsnNode) {
-                break_points.add(i);
+                break_points.set(i);
                 LookupSwitchInsnNode ts = (LookupSwitchInsnNode) next;
                 for (LabelNode l : (List<LabelNode>) ts.labels) {
-                    break_points.add(label_indices.get(l.getLabel()));
+                    break_points.set(table.getLabelIndex(l));
                 }
-                break_points.add(label_indices.get(ts.dflt.getLabel()));
+                break_points.set(table.getLabelIndex(ts.dflt));
             }
         }
     }
 
     @SuppressWarnings("unchecked")
     @Override
-    public void formEdges(PartialMethod partial, Map<Integer, OpcodeBlock> blocks, List<Integer> sorted_break_points, List<OpcodeBlock> block_list) {
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
-        for (Map.Entry<Integer, OpcodeBlock> e : blocks.entrySet()) {
+    public void formEdges(PartialMethod partial, OpcodeBlock[] blocks, int[] sorted_break_points, List<OpcodeBlock> block_list) {
+        OpcodeTable table = partial.getOpcodeTable();
+        for (int i = 0; i < blocks.length; i++) {
             // Now we go through and form an edge from any block and the block
             // it flows (or jumps) into next.
-            OpcodeBlock block = e.getValue();
-            if (!(block.getLast() instanceof TableSwitchInsnNode) && !(block.getLast() instanceof LookupSwitchInsnNode)) {
+            if (!table.isSwitch(sorted_break_points[i])) {
                 continue;
             }
+            OpcodeBlock block = blocks[i];
             SwitchOpcodeBlock replacement = new SwitchOpcodeBlock(block.getBreakpoint());
             replacement.getOpcodes().addAll(block.getOpcodes());
             replacement.setTarget(block.getTarget());
-            block_list.set(block_list.indexOf(block), replacement);
-            e.setValue(replacement);
+            replacement.setIndex(block.getIndex());
+            block_list.set(OpcodeBlock.indexOf(block_list, block), replacement);
+            blocks[i] = replacement;
             GraphOperation.remap(block_list, block, replacement);
             if (block.getLast() instanceof TableSwitchInsnNode) {
                 TableSwitchInsnNode ts = (TableSwitchInsnNode) block.getLast();
                 for (LabelNode l : (List<LabelNode>) ts.labels) {
-                    Label label = l.getLabel();
-                    replacement.getAdditionalTargets().put(label,
-                            blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
+                    replacement.getAdditionalTargets().put(l.getLabel(),
+                            blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(l)) + 1]);
                 }
-                Label label = ts.dflt.getLabel();
-                replacement.getAdditionalTargets().put(label,
-                        blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
+                replacement.getAdditionalTargets().put(ts.dflt.getLabel(),
+                        blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(ts.dflt)) + 1]);
             } else if (block.getLast() instanceof LookupSwitchInsnNode) {
                 LookupSwitchInsnNode ts = (LookupSwitchInsnNode) block.getLast();
                 for (LabelNode l : (List<LabelNode>) ts.labels) {
-                    Label label = l.getLabel();
-                    replacement.getAdditionalTargets().put(label,
-                            blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
+                    replacement.getAdditionalTargets().put(l.getLabel(),
+                            blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(l)) + 1]);
                 }
-                Label label = ts.dflt.getLabel();
-                replacement.getAdditionalTargets().put(label,
-                        blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(label)) + 1)));
+                replacement.getAdditionalTargets().put(ts.dflt.getLabel(),
+                        blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(ts.dflt)) + 1]);
             }
         }
     }
@@ -25,20 +25,20 @@
 package org.spongepowered.despector.decompiler.method.graph.create;
 
 import org.objectweb.asm.Label;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.TryCatchBlockNode;
 import org.spongepowered.despector.ast.Locals;
 import org.spongepowered.despector.ast.Locals.LocalInstance;
+import org.spongepowered.despector.decompiler.method.OpcodeTable;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphProducerStep;
 import org.spongepowered.despector.decompiler.method.graph.data.TryCatchMarkerType;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.TryCatchMarkerOpcodeBlock;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A graph producer that creates opcode blocks for try-catch statements. It
@@ -49,48 +49,67 @@ public class TryCatchGraphProducerStep implements GraphProducerStep {
 
     @SuppressWarnings("unchecked")
     @Override
-    public void collectBreakpoints(PartialMethod partial, Set<Integer> break_points) {
+    public void collectBreakpoints(PartialMethod partial, BitSet break_points) {
         List<TryCatchBlockNode> tryCatchBlocks = partial.getAsmNode().tryCatchBlocks;
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
-        List<AbstractInsnNode> instructions = partial.getOpcodes();
+        OpcodeTable table = partial.getOpcodeTable();
         Locals locals = partial.getLocals();
 
+        if (tryCatchBlocks.isEmpty()) {
+            return;
+        }
+        // the index of the first label at or after each instruction, found in
+        // a single pass rather than scanning forward from each handler
+        int[] next_label = new int[table.size() + 1];
+        next_label[table.size()] = -1;
+        for (int i = table.size() - 1; i >= 0; i--) {
+            next_label[i] = table.isLabel(i) ? i : next_label[i + 1];
+        }
+
         for (TryCatchBlockNode tc : tryCatchBlocks) {
-            break_points.add(label_indices.get(tc.start.getLabel()));
-            break_points.add(label_indices.get(tc.end.getLabel()));
-            break_points.add(label_indices.get(tc.handler.getLabel()));
+            int handler = table.getLabelIndex(tc.handler);
+            break_points.set(table.getLabelIndex(tc.start));
+            break_points.set(table.getLabelIndex(tc.end));
+            break_points.set(handler);
 
             LocalInstance local = null;
-            for (int i = label_indices.get(tc.handler.getLabel()) + 1; i < instructions.size(); i++) {
-                AbstractInsnNode next = instructions.get(i);
-                if (next instanceof LabelNode) {
-                    local = locals.findLocal(((LabelNode) next).getLabel(), "L" + tc.type + ";");
+            int label_index = next_label[handler + 1];
+            if (label_index != -1) {
+                Label label = ((LabelNode) table.get(label_index)).getLabel();
+                local = locals.findLocal(label, "L" + tc.type + ";");
+                if (local == null) {
+                    local = locals.findLocal(label, "Ljava/lang/RuntimeException;");
                     if (local == null) {
-                        local = locals.findLocal(((LabelNode) next).getLabel(), "Ljava/lang/RuntimeException;");
-                        if (local == null) {
-                            local = locals.findLocal(((LabelNode) next).getLabel(), "Ljava/lang/Exception;");
-                        }
+                        local = locals.findLocal(label, "Ljava/lang/Exception;");
                     }
-                    break;
                 }
             }
-            if (local != null && local.getEnd() < instructions.size() - 1) {
-                break_points.add(local.getEnd());
+            if (local != null && local.getEnd() < table.size() - 1) {
+                break_points.set(local.getEnd());
             }
         }
     }
 
     @SuppressWarnings("unchecked")
     @Override
-    public void formEdges(PartialMethod partial, Map<Integer, OpcodeBlock> blocks, List<Integer> sorted_break_points, List<OpcodeBlock> block_list) {
+    public void formEdges(PartialMethod partial, OpcodeBlock[] blocks, int[] sorted_break_points, List<OpcodeBlock> block_list) {
         List<TryCatchBlockNode> tryCatchBlocks = partial.getAsmNode().tryCatchBlocks;
-        Map<Label, Integer> label_indices = partial.getLabelIndices();
+        OpcodeTable table = partial.getOpcodeTable();
 
+        if (tryCatchBlocks.isEmpty()) {
+            return;
+        }
+        int size = block_list.size();
+        int marker_count = tryCatchBlocks.size() * 3;
+        // the markers in the order they are created along with the position
+        // of the block each is inserted before
+        TryCatchMarkerOpcodeBlock[] markers = new TryCatchMarkerOpcodeBlock[marker_count];
+        int[] positions = new int[marker_count];
+        int next = 0;
         for (int i = tryCatchBlocks.size() - 1; i >= 0; i--) {
             TryCatchBlockNode tc = tryCatchBlocks.get(i);
-            OpcodeBlock start = blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(tc.start.getLabel())) + 1));
-            OpcodeBlock end = blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(tc.end.getLabel())) + 1));
-            OpcodeBlock handler = blocks.get(sorted_break_points.get(sorted_break_points.indexOf(label_indices.get(tc.handler.getLabel())) + 1));
+            OpcodeBlock start = blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(tc.start)) + 1];
+            OpcodeBlock end = blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(tc.end)) + 1];
+            OpcodeBlock handler = blocks[Arrays.binarySearch(sorted_break_points, table.getLabelIndex(tc.handler)) + 1];
             TryCatchMarkerOpcodeBlock start_marker = new TryCatchMarkerOpcodeBlock(TryCatchMarkerType.START, tc);
             TryCatchMarkerOpcodeBlock end_marker = new TryCatchMarkerOpcodeBlock(TryCatchMarkerType.END, tc);
             TryCatchMarkerOpcodeBlock handler_marker = new TryCatchMarkerOpcodeBlock(TryCatchMarkerType.CATCH, tc);
@@ -98,10 +117,44 @@ public class TryCatchGraphProducerStep implements GraphProducerStep {
             end_marker.setStartMarker(start_marker);
             handler_marker.setStartMarker(start_marker);
             handler_marker.setEndMarker(end_marker);
-            block_list.add(block_list.indexOf(start), start_marker);
-            block_list.add(block_list.indexOf(end), end_marker);
-            block_list.add(block_list.indexOf(handler), handler_marker);
+            start_marker.setIndex(start.getIndex());
+            end_marker.setIndex(end.getIndex());
+            handler_marker.setIndex(handler.getIndex());
+            // the block list was renumbered after the previous step so the
+            // index of each block is its position in the list
+            markers[next] = start_marker;
+            positions[next++] = start.getIndex();
+            markers[next] = end_marker;
+            positions[next++] = end.getIndex();
+            markers[next] = handler_marker;
+            positions[next++] = handler.getIndex();
+        }
+
+        // The markers are inserted in a single merge pass. Markers before the
+        // same block keep the order they were created in, matching inserting
+        // each one directly before its block in turn.
+        int[] first = new int[size + 1];
+        for (int i = 0; i < marker_count; i++) {
+            first[positions[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            first[i + 1] += first[i];
+        }
+        TryCatchMarkerOpcodeBlock[] sorted = new TryCatchMarkerOpcodeBlock[marker_count];
+        int[] fill = Arrays.copyOf(first, size);
+        for (int i = 0; i < marker_count; i++) {
+            sorted[fill[positions[i]]++] = markers[i];
+        }
+        OpcodeBlock[] merged = new OpcodeBlock[size + marker_count];
+        int m = 0;
+        for (int i = 0; i < size; i++) {
+            for (int k = first[i]; k < first[i + 1]; k++) {
+                merged[m++] = sorted[k];
+            }
+            merged[m++] = block_list.get(i);
         }
+        block_list.clear();
+        block_list.addAll(Arrays.asList(merged));
     }
 
 }
@@ -29,7 +29,8 @@ import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSecti
 import org.spongepowered.despector.util.AstUtil;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -42,10 +43,11 @@ import java.util.Set;
 public abstract class OpcodeBlock {
 
     protected final int break_point;
+    protected int index = -1;
     protected final List<AbstractInsnNode> opcodes = new ArrayList<>();
     protected OpcodeBlock target;
 
-    protected Set<OpcodeBlock> targetted_by = new HashSet<>();
+    protected Set<OpcodeBlock> targetted_by = Collections.emptySet();
     protected boolean exclude_from_ternary_check = false;
 
     public OpcodeBlock(int br) {
@@ -61,6 +63,22 @@ public abstract class OpcodeBlock {
         return this.break_point;
     }
 
+    /**
+     * Gets the position of this block within the method graph, or -1 if it has
+     * not been assigned. Blocks which replace others in the graph take over the
+     * index of the block they replace so lists of blocks stay ordered by index.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Sets the position of this block within the method graph.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Gets the opcodes that are part of this block.
      */
@@ -96,7 +114,8 @@ public abstract class OpcodeBlock {
     }
 
     /**
-     * Gets a set of blocks which target this block.
+     * Gets a set of blocks which target this block. The set is empty and
+     * unmodifiable until a block is first {@link #targettedBy added}.
      */
     public Set<OpcodeBlock> getTargettedBy() {
         return this.targetted_by;
@@ -106,6 +125,11 @@ public abstract class OpcodeBlock {
      * Adds a block as having this block as a target.
      */
     public void targettedBy(OpcodeBlock block) {
+        if (this.targetted_by.isEmpty()) {
+            // most blocks are only reached by falling through from the block
+            // before them so the set is only created once it is needed
+            this.targetted_by = new LinkedHashSet<>();
+        }
         this.targetted_by.add(block);
     }
 
@@ -134,6 +158,72 @@ public abstract class OpcodeBlock {
 
     public abstract BlockSection toBlockSection();
 
+    /**
+     * Gets the position of the given block in the list, or -1 if it is not
+     * present. Equivalent to {@link List#indexOf} but uses the graph index of
+     * the block to find its position without scanning the list where possible.
+     */
+    public static int indexOf(List<? extends OpcodeBlock> blocks, OpcodeBlock block) {
+        if (block == null || blocks.isEmpty()) {
+            return -1;
+        }
+        int index = block.index;
+        if (index < 0) {
+            return blocks.indexOf(block);
+        }
+        int size = blocks.size();
+        // regions are usually a contiguous run of the graph
+        int pos = index - blocks.get(0).index;
+        if (pos >= 0 && pos < size && blocks.get(pos) == block) {
+            return pos;
+        }
+        // regions are often searched with their return block appended
+        if (blocks.get(size - 1) == block) {
+            return size - 1;
+        }
+        // otherwise the blocks are still in graph order so we can search by
+        // index
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            OpcodeBlock next = blocks.get(mid);
+            if (next.index < 0) {
+                // a block was added without an index so the list can no
+                // longer be searched by index
+                return blocks.indexOf(block);
+            } else if (next.index < index) {
+                low = mid + 1;
+            } else if (next.index > index) {
+                high = mid - 1;
+            } else {
+                // blocks inserted during processing share the index of the
+                // block they were placed next to
+                for (int i = mid; i >= 0 && blocks.get(i).index == index; i--) {
+                    if (blocks.get(i) == block) {
+                        return i;
+                    }
+                }
+                for (int i = mid + 1; i < size && blocks.get(i).index == index; i++) {
+                    if (blocks.get(i) == block) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the index of each block in the graph to its position in the list.
+     */
+    public static void renumber(List<? extends OpcodeBlock> blocks) {
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).index = i;
+        }
+    }
+
     /**
      * Prints this block's information for debugging.
      */
@@ -27,12 +27,12 @@ package org.spongepowered.despector.decompiler.method.graph.data.opcode;
 import org.objectweb.asm.Label;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class SwitchOpcodeBlock extends OpcodeBlock {
 
-    private final Map<Label, OpcodeBlock> additional_targets = new HashMap<>();
+    private final Map<Label, OpcodeBlock> additional_targets = new LinkedHashMap<>();
 
     public SwitchOpcodeBlock(int br) {
         super(br);
@@ -45,7 +45,7 @@ public class BlockTargetOperation implements GraphOperation {
             if (block instanceof ConditionalOpcodeBlock) {
                 ((ConditionalOpcodeBlock) block).getElseTarget().targettedBy(block);
             }
-            if (block.hasTarget() && blocks.indexOf(block.getTarget()) != i + 1) {
+            if (block.hasTarget() && OpcodeBlock.indexOf(blocks, block.getTarget()) != i + 1) {
                 block.getTarget().targettedBy(block);
             }
         }
@@ -70,7 +70,7 @@ public class JumpSeparateOperation implements GraphOperation {
                 fblocks.add(header);
                 fblocks.add(block);
             } else if (block instanceof ConditionalOpcodeBlock || block instanceof SwitchOpcodeBlock) {
-                int cond_start = AstUtil.findStartLastStatement(block.getOpcodes());
+                int cond_start = AstUtil.findStartLastStatement(block.getOpcodes(), partial.getOpcodeTable());
                 if (cond_start > 0) {
                     OpcodeBlock header = new BodyOpcodeBlock(block.getBreakpoint());
                     for (int i = 0; i < cond_start; i++) {
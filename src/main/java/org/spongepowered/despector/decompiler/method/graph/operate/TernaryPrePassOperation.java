@@ -70,7 +70,7 @@ public class TernaryPrePassOperation implements GraphOperation {
         }
         for (int i = 0; i < blocks.size(); i++) {
             OpcodeBlock block = blocks.get(i);
-            if (!block.isOmittedFromTernaryCheck() && AstUtil.hasStartingRequirement(block.getOpcodes())) {
+            if (!block.isOmittedFromTernaryCheck() && AstUtil.hasStartingRequirement(block.getOpcodes(), partial.getOpcodeTable())) {
                 i -= compileTernary(blocks, i, partial.getLocals());
             }
         }
@@ -170,7 +170,8 @@ public class TernaryPrePassOperation implements GraphOperation {
         OpcodeBlock first = condition_blocks.get(0);
         OpcodeBlock replacement = new ProcessedOpcodeBlock(first.getBreakpoint(), ternary);
         replacement.setTarget(consumer);
-        start = blocks.indexOf(first);
+        replacement.setIndex(first.getIndex());
+        start = OpcodeBlock.indexOf(blocks, first);
         int removed = has_more ? 1 : 0;
         blocks.set(start, replacement);
         GraphOperation.remap(blocks, first, replacement);
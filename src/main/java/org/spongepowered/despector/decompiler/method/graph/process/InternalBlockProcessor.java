@@ -41,7 +41,7 @@ public class InternalBlockProcessor implements GraphProcessor {
     public int process(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
         if (region_start instanceof ProcessedOpcodeBlock) {
             final_blocks.add(((ProcessedOpcodeBlock) region_start).getPrecompiledSection());
-            return blocks.indexOf(region_start);
+            return OpcodeBlock.indexOf(blocks, region_start);
         }
         return -1;
     }
@@ -28,6 +28,7 @@ import org.objectweb.asm.tree.AbstractInsnNode;
 import org.spongepowered.despector.config.ConfigManager;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphProcessor;
+import org.spongepowered.despector.decompiler.method.graph.GraphScan;
 import org.spongepowered.despector.decompiler.method.graph.RegionProcessor;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.CommentBlockSection;
@@ -50,6 +51,19 @@ public class SubRegionBlockProcessor implements GraphProcessor {
 
     @Override
     public int process(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
+        GraphScan scan = scan(partial, blocks, region_start, final_blocks);
+        if (scan == null) {
+            // If the next block isn't conditional then we simply append it
+            // to the output.
+            final_blocks.add(new InlineBlockSection(region_start));
+            return OpcodeBlock.indexOf(blocks, region_start);
+        }
+        partial.getDecompiler().runScan(partial, scan);
+        return scan.getResult();
+    }
+
+    @Override
+    public GraphScan scan(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
 
         // here we're splitting a graph into regions by points that both
         // dominate and post-dominate the rest of the graph (eg. points that all
@@ -63,12 +77,12 @@ public class SubRegionBlockProcessor implements GraphProcessor {
         // We iterate the blocks in order to ensure that we always fine the
         // earliest block of any control flow statement which makes sure that we
         // don't miss any parts of the control flow statement.
-        int i = blocks.indexOf(region_start);
+        int i = OpcodeBlock.indexOf(blocks, region_start);
         int end = -1;
         boolean targeted_in_future = false;
         if (!(region_start instanceof ConditionalOpcodeBlock) && !(region_start instanceof GotoOpcodeBlock)) {
             for (OpcodeBlock t : region_start.getTargettedBy()) {
-                int index = blocks.indexOf(t);
+                int index = OpcodeBlock.indexOf(blocks, t);
                 if (index > i) {
                     targeted_in_future = true;
                     if (index > end) {
@@ -79,15 +93,12 @@ public class SubRegionBlockProcessor implements GraphProcessor {
             // if the block is targeted by a block farther in the code then
             // this block is the first block in a do_while loop
             if (!targeted_in_future) {
-                // If the next block isn't conditional then we simply append
-                // it
-                // to the output.
-                final_blocks.add(new InlineBlockSection(region_start));
-                return i;
+                // the block is appended to the output by process
+                return null;
             }
         }
         if (end == -1) {
-            end = RegionProcessor.getRegionEnd(blocks, null, i);
+            end = RegionProcessor.getRegionEnd(blocks, null, i, partial.getDominatorTree());
         } else if (end != blocks.size() - 1) {
             end++;
         }
@@ -109,44 +120,103 @@ public class SubRegionBlockProcessor implements GraphProcessor {
         }
 
         OpcodeBlock first = region.get(0);
-        if (first instanceof ConditionalOpcodeBlock && AstUtil.hasStartingRequirement(first.getOpcodes())) {
+        if (first instanceof ConditionalOpcodeBlock && AstUtil.hasStartingRequirement(first.getOpcodes(), partial.getOpcodeTable())) {
             OpcodeBlock prev = blocks.get(i - 1);
             if (prev instanceof ProcessedOpcodeBlock) {
                 ((ConditionalOpcodeBlock) first).setPrefix(prev);
             }
         }
 
-        // process the region down to a single block
-        try {
-            final_blocks.add(partial.getDecompiler().processRegion(partial, region, last, targeted_in_future ? 0 : 1));
-        } catch (Exception e) {
-            if (ConfigManager.getConfig().print_opcodes_on_error) {
-                List<String> comment = new ArrayList<>();
-                for (OpcodeBlock op : region) {
-                    comment.add(op.getDebugHeader());
-                    for (AbstractInsnNode insn : op.getOpcodes()) {
-                        comment.add(AstUtil.insnToString(insn));
-                    }
+        return new SubRegionScan(partial, blocks, final_blocks, region, last, end, targeted_in_future);
+    }
+
+    /**
+     * Waits on the sub region to be processed down to a single block.
+     */
+    private static class SubRegionScan implements GraphScan {
+
+        private final PartialMethod partial;
+        private final List<OpcodeBlock> blocks;
+        private final List<BlockSection> final_blocks;
+        private final List<OpcodeBlock> region;
+        private final OpcodeBlock last;
+        private final int end;
+        private final boolean targeted_in_future;
+
+        private boolean started;
+
+        public SubRegionScan(PartialMethod partial, List<OpcodeBlock> blocks, List<BlockSection> final_blocks, List<OpcodeBlock> region,
+                OpcodeBlock last, int end, boolean targeted_in_future) {
+            this.partial = partial;
+            this.blocks = blocks;
+            this.final_blocks = final_blocks;
+            this.region = region;
+            this.last = last;
+            this.end = end;
+            this.targeted_in_future = targeted_in_future;
+        }
+
+        @Override
+        public boolean advance() {
+            if (this.started) {
+                return false;
+            }
+            this.started = true;
+            return true;
+        }
+
+        @Override
+        public List<OpcodeBlock> getSubRegion() {
+            return this.region;
+        }
+
+        @Override
+        public OpcodeBlock getSubRegionReturn() {
+            return this.last;
+        }
+
+        @Override
+        public int getSubRegionBodyStart() {
+            return this.targeted_in_future ? 0 : 1;
+        }
+
+        @Override
+        public void complete(BlockSection section) {
+            this.final_blocks.add(section);
+        }
+
+        @Override
+        public void fail(RuntimeException e) {
+            if (!ConfigManager.getConfig().print_opcodes_on_error) {
+                throw e;
+            }
+            List<String> comment = new ArrayList<>();
+            for (OpcodeBlock op : this.region) {
+                comment.add(op.getDebugHeader());
+                for (AbstractInsnNode insn : op.getOpcodes()) {
+                    comment.add(AstUtil.insnToString(insn));
                 }
-                OpcodeBlock op = blocks.get(end);
-                if (targeted_in_future && op instanceof GotoOpcodeBlock) {
-                    comment.add(op.getDebugHeader());
-                    for (AbstractInsnNode insn : op.getOpcodes()) {
-                        comment.add(AstUtil.insnToString(insn));
-                    }
+            }
+            OpcodeBlock op = this.blocks.get(this.end);
+            if (this.targeted_in_future && op instanceof GotoOpcodeBlock) {
+                comment.add(op.getDebugHeader());
+                for (AbstractInsnNode insn : op.getOpcodes()) {
+                    comment.add(AstUtil.insnToString(insn));
                 }
-                final_blocks.add(new CommentBlockSection(comment));
-                System.err.println("Error decompiling subregion of " + partial.getEntry());
-                e.printStackTrace();
-            } else {
-                throw e;
             }
+            this.final_blocks.add(new CommentBlockSection(comment));
+            System.err.println("Error decompiling subregion of " + this.partial.getEntry());
+            e.printStackTrace();
         }
 
-        if (targeted_in_future && blocks.get(end) instanceof GotoOpcodeBlock) {
-            return end;
+        @Override
+        public int getResult() {
+            if (this.targeted_in_future && this.blocks.get(this.end) instanceof GotoOpcodeBlock) {
+                return this.end;
+            }
+            return this.end - 1;
         }
-        return end - 1;
+
     }
 
 }
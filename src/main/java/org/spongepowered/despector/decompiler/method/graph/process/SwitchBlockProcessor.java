@@ -33,6 +33,7 @@ import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.spongepowered.despector.config.ConfigManager;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphProcessor;
+import org.spongepowered.despector.decompiler.method.graph.GraphScan;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.CommentBlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.SwitchBlockSection;
@@ -53,9 +54,19 @@ import java.util.Map;
  */
 public class SwitchBlockProcessor implements GraphProcessor {
 
-    @SuppressWarnings("unchecked")
     @Override
     public int process(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
+        GraphScan scan = scan(partial, blocks, region_start, final_blocks);
+        if (scan == null) {
+            return -1;
+        }
+        partial.getDecompiler().runScan(partial, scan);
+        return scan.getResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public GraphScan scan(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
         if (region_start instanceof SwitchOpcodeBlock) {
             SwitchOpcodeBlock sblock = (SwitchOpcodeBlock) region_start;
             List<LabelNode> labels = null;
@@ -77,124 +88,177 @@ public class SwitchBlockProcessor implements GraphProcessor {
             }
             SwitchBlockSection sswitch = new SwitchBlockSection(region_start);
             final_blocks.add(sswitch);
-            Map<Label, SwitchCaseBlockSection> cases = new HashMap<>();
-            int index = 0;
-            OpcodeBlock end = null;
-            OpcodeBlock fartherst = null;
-            int farthest_break = 0;
-            boolean all_return = true;
-            for (LabelNode l : labels) {
-                SwitchCaseBlockSection cs = cases.get(l.getLabel());
+            return new SwitchScan(blocks, sblock, sswitch, labels, keys, dflt);
+        }
+        return null;
+    }
+
+    /**
+     * The progress through the cases of a switch, waiting on the body of
+     * each case to be flattened.
+     */
+    private static class SwitchScan implements GraphScan {
+
+        private final List<OpcodeBlock> blocks;
+        private final SwitchOpcodeBlock sblock;
+        private final SwitchBlockSection sswitch;
+        private final List<LabelNode> labels;
+        private final List<Integer> keys;
+        private final LabelNode dflt;
+
+        private final Map<Label, SwitchCaseBlockSection> cases = new HashMap<>();
+        private int label;
+        private int index;
+        private boolean default_done;
+        private OpcodeBlock end;
+        private OpcodeBlock fartherst;
+        private int farthest_break;
+        private boolean all_return = true;
+
+        private SwitchCaseBlockSection case_section;
+        private List<OpcodeBlock> case_region;
+
+        public SwitchScan(List<OpcodeBlock> blocks, SwitchOpcodeBlock sblock, SwitchBlockSection sswitch, List<LabelNode> labels,
+                List<Integer> keys, LabelNode dflt) {
+            this.blocks = blocks;
+            this.sblock = sblock;
+            this.sswitch = sswitch;
+            this.labels = labels;
+            this.keys = keys;
+            this.dflt = dflt;
+        }
+
+        private List<OpcodeBlock> getCaseRegion(LabelNode l) {
+            List<OpcodeBlock> case_region = new ArrayList<>();
+            OpcodeBlock block = this.sblock.getAdditionalTargets().get(l.getLabel());
+            case_region.add(block);
+            int start = OpcodeBlock.indexOf(this.blocks, block) + 1;
+            if (start < this.blocks.size()) {
+                block = this.blocks.get(start);
+                while (!this.sblock.getAdditionalTargets().containsValue(block) && block != this.end) {
+                    case_region.add(block);
+                    start++;
+                    if (start >= this.blocks.size()) {
+                        break;
+                    }
+                    block = this.blocks.get(start);
+                }
+            }
+            if (case_region.contains(this.sblock)) {
+                // the case would find this switch again every time it is
+                // flattened
+                throw new IllegalStateException("Switch case contains its own switch");
+            }
+            OpcodeBlock last = case_region.get(case_region.size() - 1);
+            if (last.getBreakpoint() > this.farthest_break) {
+                this.fartherst = last;
+                this.farthest_break = last.getBreakpoint();
+            }
+            return case_region;
+        }
+
+        @Override
+        public boolean advance() {
+            while (this.label < this.labels.size()) {
+                LabelNode l = this.labels.get(this.label++);
+                SwitchCaseBlockSection cs = this.cases.get(l.getLabel());
                 if (cs != null) {
-                    cs.getTargets().add(keys.get(index++));
+                    cs.getTargets().add(this.keys.get(this.index++));
                     continue;
                 }
-                cs = sswitch.new SwitchCaseBlockSection();
-                sswitch.addCase(cs);
-                cases.put(l.getLabel(), cs);
-                cs.getTargets().add(keys.get(index++));
-                List<OpcodeBlock> case_region = new ArrayList<>();
-                OpcodeBlock block = sblock.getAdditionalTargets().get(l.getLabel());
-                case_region.add(block);
-                int start = blocks.indexOf(block) + 1;
-                if (start < blocks.size()) {
-                    block = blocks.get(start);
-                    while (!sblock.getAdditionalTargets().containsValue(block) && block != end) {
-                        case_region.add(block);
-                        start++;
-                        if (start >= blocks.size()) {
-                            break;
-                        }
-                        block = blocks.get(start);
-                    }
-                }
+                cs = this.sswitch.new SwitchCaseBlockSection();
+                this.sswitch.addCase(cs);
+                this.cases.put(l.getLabel(), cs);
+                cs.getTargets().add(this.keys.get(this.index++));
+                List<OpcodeBlock> case_region = getCaseRegion(l);
 
                 OpcodeBlock last = case_region.get(case_region.size() - 1);
-                if (last.getBreakpoint() > farthest_break) {
-                    fartherst = last;
-                    farthest_break = last.getBreakpoint();
-                }
                 if (last instanceof BodyOpcodeBlock) {
                     int op = AstUtil.getLastOpcode(last.getOpcodes()).getOpcode();
                     if (op < IRETURN || op > RETURN) {
-                        all_return = false;
+                        this.all_return = false;
                     }
                 } else {
-                    all_return = false;
+                    this.all_return = false;
                 }
                 if (last instanceof GotoOpcodeBlock) {
-                    end = last.getTarget();
+                    this.end = last.getTarget();
                     case_region.remove(last);
                     cs.setBreaks(true);
                 }
-                try {
-                    partial.getDecompiler().flattenGraph(partial, case_region, case_region.size(), cs.getBody());
-                } catch (Exception e) {
-                    if (ConfigManager.getConfig().print_opcodes_on_error) {
-                        List<String> comment = new ArrayList<>();
-                        for (OpcodeBlock op : case_region) {
-                            comment.add(op.getDebugHeader());
-                            for (AbstractInsnNode insn : op.getOpcodes()) {
-                                comment.add(AstUtil.insnToString(insn));
-                            }
-                        }
-                        cs.getBody().add(new CommentBlockSection(comment));
-                    } else {
-                        throw e;
-                    }
-                }
+                this.case_section = cs;
+                this.case_region = case_region;
+                return true;
             }
-            SwitchCaseBlockSection cs = cases.get(dflt.getLabel());
-            if (cs != null) {
-                cs.setDefault(true);
-            } else if (!all_return) {
-                cs = sswitch.new SwitchCaseBlockSection();
-                cases.put(dflt.getLabel(), cs);
-                sswitch.addCase(cs);
-                List<OpcodeBlock> case_region = new ArrayList<>();
-                OpcodeBlock block = sblock.getAdditionalTargets().get(dflt.getLabel());
-                case_region.add(block);
-                int start = blocks.indexOf(block) + 1;
-                if (start < blocks.size()) {
-                    block = blocks.get(start);
-                    while (!sblock.getAdditionalTargets().containsValue(block) && block != end) {
-                        case_region.add(block);
-                        start++;
-                        if (start >= blocks.size()) {
-                            break;
-                        }
-                        block = blocks.get(start);
-                    }
-                }
-                OpcodeBlock last = case_region.get(case_region.size() - 1);
-                if (last.getBreakpoint() > farthest_break) {
-                    fartherst = last;
-                    farthest_break = last.getBreakpoint();
+            if (!this.default_done) {
+                this.default_done = true;
+                SwitchCaseBlockSection cs = this.cases.get(this.dflt.getLabel());
+                if (cs != null) {
+                    cs.setDefault(true);
+                } else if (!this.all_return) {
+                    cs = this.sswitch.new SwitchCaseBlockSection();
+                    this.cases.put(this.dflt.getLabel(), cs);
+                    this.sswitch.addCase(cs);
+                    List<OpcodeBlock> case_region = getCaseRegion(this.dflt);
+                    cs.setDefault(true);
+                    this.case_section = cs;
+                    this.case_region = case_region;
+                    return true;
                 }
-                cs.setDefault(true);
-                try {
-                    partial.getDecompiler().flattenGraph(partial, case_region, case_region.size(), cs.getBody());
-                } catch (Exception e) {
-                    if (ConfigManager.getConfig().print_opcodes_on_error) {
-                        List<String> comment = new ArrayList<>();
-                        for (OpcodeBlock op : case_region) {
-                            comment.add(op.getDebugHeader());
-                            for (AbstractInsnNode insn : op.getOpcodes()) {
-                                comment.add(AstUtil.insnToString(insn));
-                            }
-                        }
-                        cs.getBody().add(new CommentBlockSection(comment));
-                    } else {
-                        throw e;
-                    }
+            }
+            return false;
+        }
+
+        @Override
+        public List<OpcodeBlock> getSubRegion() {
+            return this.case_region;
+        }
+
+        @Override
+        public OpcodeBlock getSubRegionReturn() {
+            return null;
+        }
+
+        @Override
+        public int getSubRegionBodyStart() {
+            return 0;
+        }
+
+        @Override
+        public List<BlockSection> getSubRegionOutput() {
+            return this.case_section.getBody();
+        }
+
+        @Override
+        public void complete(BlockSection section) {
+            this.case_section = null;
+            this.case_region = null;
+        }
+
+        @Override
+        public void fail(RuntimeException e) {
+            if (!ConfigManager.getConfig().print_opcodes_on_error) {
+                throw e;
+            }
+            List<String> comment = new ArrayList<>();
+            for (OpcodeBlock op : this.case_region) {
+                comment.add(op.getDebugHeader());
+                for (AbstractInsnNode insn : op.getOpcodes()) {
+                    comment.add(AstUtil.insnToString(insn));
                 }
             }
-            if (end == null) {
-                return blocks.indexOf(fartherst);
+            this.case_section.getBody().add(new CommentBlockSection(comment));
+            complete(null);
+        }
+
+        @Override
+        public int getResult() {
+            if (this.end == null) {
+                return OpcodeBlock.indexOf(this.blocks, this.fartherst);
             }
-            return blocks.indexOf(end) - 1;
+            return OpcodeBlock.indexOf(this.blocks, this.end) - 1;
         }
-        return -1;
+
     }
 
 }
@@ -33,6 +33,7 @@ import org.spongepowered.despector.ast.Locals;
 import org.spongepowered.despector.config.ConfigManager;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphProcessor;
+import org.spongepowered.despector.decompiler.method.graph.GraphScan;
 import org.spongepowered.despector.decompiler.method.graph.data.TryCatchMarkerType;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.CommentBlockSection;
@@ -55,13 +56,23 @@ public class TryCatchBlockProcessor implements GraphProcessor {
 
     @Override
     public int process(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
+        GraphScan scan = scan(partial, blocks, region_start, final_blocks);
+        if (scan == null) {
+            return -1;
+        }
+        partial.getDecompiler().runScan(partial, scan);
+        return scan.getResult();
+    }
+
+    @Override
+    public GraphScan scan(PartialMethod partial, List<OpcodeBlock> blocks, OpcodeBlock region_start, List<BlockSection> final_blocks) {
         if (region_start instanceof TryCatchMarkerOpcodeBlock) {
             TryCatchMarkerOpcodeBlock marker = (TryCatchMarkerOpcodeBlock) region_start;
             checkState(marker.getType() == TryCatchMarkerType.START);
             List<OpcodeBlock> body = new ArrayList<>();
             List<TryCatchMarkerOpcodeBlock> allEnds = new ArrayList<>();
 
-            for (int l = blocks.indexOf(marker.getEndMarker()); l < blocks.size(); l++) {
+            for (int l = OpcodeBlock.indexOf(blocks, marker.getEndMarker()); l < blocks.size(); l++) {
                 OpcodeBlock next_end = blocks.get(l);
                 if (!(next_end instanceof TryCatchMarkerOpcodeBlock)) {
                     break;
@@ -72,17 +83,17 @@ public class TryCatchBlockProcessor implements GraphProcessor {
             }
             TryCatchMarkerOpcodeBlock last_start = allEnds.get(allEnds.size() - 1).getStartMarker();
             TryCatchMarkerOpcodeBlock first_end = allEnds.get(0);
-            for (int end = blocks.indexOf(last_start) + 1; end < blocks.indexOf(first_end); end++) {
+            for (int end = OpcodeBlock.indexOf(blocks, last_start) + 1; end < OpcodeBlock.indexOf(blocks, first_end); end++) {
                 OpcodeBlock next = blocks.get(end);
                 body.add(next);
             }
-            int end = blocks.indexOf(allEnds.get(allEnds.size() - 1)) + 1;
+            int end = OpcodeBlock.indexOf(blocks, allEnds.get(allEnds.size() - 1)) + 1;
             OpcodeBlock next = blocks.get(end);
             OpcodeBlock end_of_catch = null;
             int last_block = -1;
             if (next instanceof GotoOpcodeBlock) {
                 end_of_catch = next.getTarget();
-                last_block = blocks.indexOf(end_of_catch);
+                last_block = OpcodeBlock.indexOf(blocks, end_of_catch);
                 if(last_block > 1) {
                     OpcodeBlock prev = blocks.get(last_block - 1);
                     if (prev instanceof TryCatchMarkerOpcodeBlock && ((TryCatchMarkerOpcodeBlock) prev).getType() == TryCatchMarkerType.START) {
@@ -92,26 +103,59 @@ public class TryCatchBlockProcessor implements GraphProcessor {
             } else {
                 body.add(next);
             }
-            TryCatchBlockSection try_section = new TryCatchBlockSection();
-            try {
-                partial.getDecompiler().flattenGraph(partial, body, body.size(), try_section.getBody());
-            } catch (Exception e) {
-                if (ConfigManager.getConfig().print_opcodes_on_error) {
-                    List<String> comment = new ArrayList<>();
-                    for (OpcodeBlock op : body) {
-                        comment.add(op.getDebugHeader());
-                        for (AbstractInsnNode insn : op.getOpcodes()) {
-                            comment.add(AstUtil.insnToString(insn));
-                        }
-                    }
-                    try_section.getBody().add(new CommentBlockSection(comment));
-                } else {
-                    throw e;
-                }
+            return new TryCatchScan(partial, blocks, final_blocks, body, allEnds, end, end_of_catch, last_block);
+        }
+        return null;
+    }
+
+    /**
+     * The progress through a try-catch block, waiting on the body of the try
+     * block and then the body of each catch block to be flattened.
+     */
+    private static class TryCatchScan implements GraphScan {
+
+        private final PartialMethod partial;
+        private final List<OpcodeBlock> blocks;
+        private final List<BlockSection> final_blocks;
+        private final List<TryCatchMarkerOpcodeBlock> allEnds;
+        private final OpcodeBlock end_of_catch;
+        private final TryCatchBlockSection try_section = new TryCatchBlockSection();
+
+        private int end;
+        private int last_block;
+
+        private List<OpcodeBlock> sub_region;
+        private int stop_index;
+        private List<BlockSection> sub_output;
+        private CatchBlockSection cblock;
+
+        public TryCatchScan(PartialMethod partial, List<OpcodeBlock> blocks, List<BlockSection> final_blocks, List<OpcodeBlock> body,
+                List<TryCatchMarkerOpcodeBlock> allEnds, int end, OpcodeBlock end_of_catch, int last_block) {
+            this.partial = partial;
+            this.blocks = blocks;
+            this.final_blocks = final_blocks;
+            this.allEnds = allEnds;
+            this.end = end;
+            this.end_of_catch = end_of_catch;
+            this.last_block = last_block;
+            // the body of the try block is flattened first
+            this.sub_region = body;
+            this.stop_index = body.size();
+            this.sub_output = this.try_section.getBody();
+        }
+
+        @Override
+        public boolean advance() {
+            if (this.sub_region != null) {
+                return true;
             }
+            List<OpcodeBlock> blocks = this.blocks;
+            List<TryCatchMarkerOpcodeBlock> allEnds = this.allEnds;
+            OpcodeBlock end_of_catch = this.end_of_catch;
+            int end = this.end;
             while (!allEnds.isEmpty()) {
                 end++;
-                next = blocks.get(end);
+                OpcodeBlock next = blocks.get(end);
                 if (next instanceof TryCatchMarkerOpcodeBlock) {
                     TryCatchMarkerOpcodeBlock next_marker = (TryCatchMarkerOpcodeBlock) next;
                     checkState(next_marker.getType() == TryCatchMarkerType.CATCH);
@@ -154,11 +198,11 @@ public class TryCatchBlockProcessor implements GraphProcessor {
                         }
                         k++;
                     }
-                    Locals.LocalInstance local = label_index == -1? null : partial.getLocals().getLocal(local_num).getInstance(label_index);
+                    Locals.LocalInstance local = label_index == -1? null : this.partial.getLocals().getLocal(local_num).getInstance(label_index);
                     List<OpcodeBlock> catch_body = new ArrayList<>();
                     catch_body.add(catch_start);
                     int stop_index = -1;
-                    if (end_of_catch != null && last_block != -1) {
+                    if (end_of_catch != null && this.last_block != -1) {
                         for (int j = end; j < blocks.size(); j++) {
                             OpcodeBlock cnext = blocks.get(j);
                             if (cnext instanceof TryCatchMarkerOpcodeBlock) {
@@ -185,33 +229,78 @@ public class TryCatchBlockProcessor implements GraphProcessor {
                             catch_body.add(cnext);
                         }
 
-                        last_block = blocks.indexOf(catch_body.get(catch_body.size() - 1));
+                        this.last_block = OpcodeBlock.indexOf(blocks, catch_body.get(catch_body.size() - 1));
                         stop_index = catch_body.size();
                     }
-                    CatchBlockSection cblock = new CatchBlockSection(extra_exceptions, local);
-                    try {
-                        partial.getDecompiler().flattenGraph(partial, catch_body, stop_index, cblock.getBody());
-                    } catch (Exception e) {
-                        if (ConfigManager.getConfig().print_opcodes_on_error) {
-                            List<String> comment = new ArrayList<>();
-                            for (OpcodeBlock op : catch_body) {
-                                comment.add(op.getDebugHeader());
-                                for (AbstractInsnNode insn : op.getOpcodes()) {
-                                    comment.add(AstUtil.insnToString(insn));
-                                }
-                            }
-                            cblock.getBody().add(new CommentBlockSection(comment));
-                        } else {
-                            throw e;
-                        }
-                    }
-                    try_section.getCatchBlocks().add(cblock);
+                    this.end = end;
+                    this.cblock = new CatchBlockSection(extra_exceptions, local);
+                    this.sub_region = catch_body;
+                    this.stop_index = stop_index;
+                    this.sub_output = this.cblock.getBody();
+                    return true;
                 }
             }
-            final_blocks.add(try_section);
-            return last_block;
+            this.end = end;
+            this.final_blocks.add(this.try_section);
+            return false;
         }
-        return -1;
+
+        @Override
+        public List<OpcodeBlock> getSubRegion() {
+            return this.sub_region;
+        }
+
+        @Override
+        public OpcodeBlock getSubRegionReturn() {
+            return null;
+        }
+
+        @Override
+        public int getSubRegionBodyStart() {
+            return 0;
+        }
+
+        @Override
+        public List<BlockSection> getSubRegionOutput() {
+            return this.sub_output;
+        }
+
+        @Override
+        public int getSubRegionStopPoint() {
+            return this.stop_index;
+        }
+
+        @Override
+        public void complete(BlockSection section) {
+            if (this.cblock != null) {
+                this.try_section.getCatchBlocks().add(this.cblock);
+                this.cblock = null;
+            }
+            this.sub_region = null;
+            this.sub_output = null;
+        }
+
+        @Override
+        public void fail(RuntimeException e) {
+            if (!ConfigManager.getConfig().print_opcodes_on_error) {
+                throw e;
+            }
+            List<String> comment = new ArrayList<>();
+            for (OpcodeBlock op : this.sub_region) {
+                comment.add(op.getDebugHeader());
+                for (AbstractInsnNode insn : op.getOpcodes()) {
+                    comment.add(AstUtil.insnToString(insn));
+                }
+            }
+            this.sub_output.add(new CommentBlockSection(comment));
+            complete(null);
+        }
+
+        @Override
+        public int getResult() {
+            return this.last_block;
+        }
+
     }
 
 }
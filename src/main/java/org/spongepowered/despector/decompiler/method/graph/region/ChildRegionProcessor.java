@@ -30,6 +30,7 @@ import org.spongepowered.despector.decompiler.method.MethodDecompiler;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.GraphOperation;
 import org.spongepowered.despector.decompiler.method.graph.RegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.RegionScan;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BreakBlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.opcode.BreakMarkerOpcodeBlock;
@@ -43,233 +44,330 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A region processor which checks for sub regions and recursively processes
- * them.
+ * A region processor which checks for sub regions and processes them ahead of
+ * the rest of the region.
  */
 public class ChildRegionProcessor implements RegionProcessor {
 
     @Override
     public BlockSection process(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+        RegionScan scan = scan(partial, region, ret, body_start);
+        partial.getDecompiler().runScan(partial, scan);
+        return scan.getResult();
+    }
 
-        if (partial.getEntry().getName().equals(MethodDecompiler.targeted_breakpoint)) {
-            System.out.println("Searching for child region in range " + region.get(body_start).getBreakpoint() + " to " + ret.getBreakpoint());
-        }
+    @Override
+    public RegionScan scan(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+        return new ChildRegionScan(partial, region, ret, body_start);
+    }
 
-        // The first step is to find any points within the region that are sub
-        // regions (eg. both dominate and post-domintate the rest of the graph
-        // excluding the end point of the current region). These sub-regions are
-        // then processes ahead of time into their own control flow statements
-        // which are then nested inside of this region.
-        int subregion_search_end = 1;
-        boolean is_first_condition = true;
-        OpcodeBlock sstart = region.get(0);
-        if (sstart instanceof SwitchOpcodeBlock) {
-            return null;
-        }
-        if (sstart instanceof GotoOpcodeBlock) {
-            subregion_search_end = region.size() - region.indexOf(sstart.getTarget());
-            is_first_condition = false;
-        }
-        for (int i = body_start; i < region.size() - subregion_search_end; i++) {
-            OpcodeBlock next = region.get(i);
-            if (next instanceof SwitchOpcodeBlock) {
-                int last = i;
-                SwitchOpcodeBlock sswitch = (SwitchOpcodeBlock) next;
-                for (OpcodeBlock b : sswitch.getAdditionalTargets().values()) {
-                    int o = region.indexOf(b);
-                    if (o == -1) {
-                        continue;
-                    }
-                    if (o > last) {
-                        last = o;
-                    }
-                    if (region.get(o - 1) instanceof GotoOpcodeBlock) {
-                        OpcodeBlock end = region.get(o - 1).getTarget();
-                        int j = region.indexOf(end);
-                        if (j > last) {
-                            last = j;
-                        }
-                    }
-                }
+    /**
+     * The progress of the search for sub regions through a region. The search
+     * stops at each sub region until it has been processed and then condenses
+     * it into a single block before moving on.
+     */
+    private static class ChildRegionScan implements RegionScan {
 
-                List<OpcodeBlock> subregion = new ArrayList<>();
-                for (int o = i; o <= last; o++) {
-                    OpcodeBlock n = region.get(o);
-                    subregion.add(n);
-                }
+        private final PartialMethod partial;
+        private final List<OpcodeBlock> region;
+        private final OpcodeBlock ret;
+        private final OpcodeBlock sstart;
+        private final int subregion_search_end;
 
-                OpcodeBlock sub_ret = last >= region.size() ? ret : region.get(last);
-                List<BlockSection> secs = new ArrayList<>();
-                partial.getDecompiler().flattenGraph(partial, subregion, subregion.size() - 1, secs);
-                checkState(secs.size() == 1);
-                // the first block is set to the condensed subregion block and
-                // the rest if the blocks in the subregion are removed.
-                ProcessedOpcodeBlock replacement = new ProcessedOpcodeBlock(region.get(i).getBreakpoint(), secs.get(0));
-                replacement.setTarget(sub_ret);
-                GraphOperation.remap(region, region.get(i), replacement);
-                region.set(i, replacement);
-                for (int o = last - 1; o > i; o--) {
-                    region.remove(o);
-                }
-                continue;
-            } else if (!(next instanceof ConditionalOpcodeBlock) && !(next instanceof GotoOpcodeBlock)) {
-                is_first_condition = false;
-                continue;
+        private boolean done;
+        private boolean is_first_condition = true;
+        private int index;
+
+        private int sub_end;
+        private List<OpcodeBlock> sub_region;
+        private OpcodeBlock sub_ret;
+        private List<BlockSection> sub_sections;
+
+        public ChildRegionScan(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+            this.partial = partial;
+            this.region = region;
+            this.ret = ret;
+            this.index = body_start;
+
+            if (partial.getEntry().getName().equals(MethodDecompiler.targeted_breakpoint)) {
+                System.out.println("Searching for child region in range " + region.get(body_start).getBreakpoint() + " to " + ret.getBreakpoint());
             }
 
-            // The end block is already not included in `region` so we can
-            // simply try and get the region end of any block in this region and
-            // if there is an end defined then we know that it forms a sub
+            // The first step is to find any points within the region that are
+            // sub regions (eg. both dominate and post-domintate the rest of the
+            // graph excluding the end point of the current region). These
+            // sub-regions are then processes ahead of time into their own
+            // control flow statements which are then nested inside of this
             // region.
-            int end = -1;
-            if (next.getTarget() == ret) {
-                end = RegionProcessor.getRegionEnd(region, ret, i);
-                if (end == region.size()) {
-                    OpcodeBlock last = region.get(region.size() - 1);
-                    boolean is_break = false;
-                    if (last instanceof GotoOpcodeBlock) {
-                        GotoOpcodeBlock last_goto = (GotoOpcodeBlock) last;
-                        if (last_goto.getTarget() == sstart) {
-                            // while loop and this is a break;
-                            is_break = true;
-                        } else if (last_goto.getTarget() == next) {
-                            is_first_condition = false;
+            int subregion_search_end = 1;
+            this.sstart = region.get(0);
+            if (this.sstart instanceof SwitchOpcodeBlock) {
+                this.done = true;
+            } else if (this.sstart instanceof GotoOpcodeBlock) {
+                subregion_search_end = region.size() - OpcodeBlock.indexOf(region, this.sstart.getTarget());
+                this.is_first_condition = false;
+            }
+            this.subregion_search_end = subregion_search_end;
+        }
+
+        @Override
+        public boolean advance() {
+            if (this.done) {
+                return false;
+            }
+            List<OpcodeBlock> region = this.region;
+            OpcodeBlock ret = this.ret;
+            OpcodeBlock sstart = this.sstart;
+            int subregion_search_end = this.subregion_search_end;
+            boolean is_first_condition = this.is_first_condition;
+            for (int i = this.index; i < region.size() - subregion_search_end; i++) {
+                OpcodeBlock next = region.get(i);
+                if (next instanceof SwitchOpcodeBlock) {
+                    int last = i;
+                    SwitchOpcodeBlock sswitch = (SwitchOpcodeBlock) next;
+                    for (OpcodeBlock b : sswitch.getAdditionalTargets().values()) {
+                        int o = OpcodeBlock.indexOf(region, b);
+                        if (o == -1) {
+                            continue;
                         }
-                    } else if (last instanceof ConditionalOpcodeBlock) {
-                        ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) last;
-                        if (cond.getTarget() == sstart) {
-                            is_break = true;
+                        if (o > last) {
+                            last = o;
                         }
-                        boolean is_condition_part = true;
-                        for (int j = i + 1; j < region.size() - 1; j++) {
-                            if (!(region.get(i) instanceof ConditionalOpcodeBlock)) {
-                                is_condition_part = false;
-                                break;
+                        if (region.get(o - 1) instanceof GotoOpcodeBlock) {
+                            OpcodeBlock end = region.get(o - 1).getTarget();
+                            int j = OpcodeBlock.indexOf(region, end);
+                            if (j > last) {
+                                last = j;
                             }
                         }
-                        if (is_condition_part) {
-                            continue;
-                        }
                     }
-                    if (is_break) {
-                        BreakBlockSection sec = null;
-                        OpcodeBlock prev = region.get(i - 1);
-                        if (prev instanceof ProcessedOpcodeBlock) {
-                            BlockSection compiled = ((ProcessedOpcodeBlock) prev).getPrecompiledSection();
-                            if (compiled instanceof BreakBlockSection) {
-                                sec = (BreakBlockSection) compiled;
+
+                    List<OpcodeBlock> subregion = new ArrayList<>();
+                    for (int o = i; o <= last; o++) {
+                        OpcodeBlock n = region.get(o);
+                        subregion.add(n);
+                    }
+
+                    // the switch is flattened into a single section
+                    this.index = i;
+                    this.is_first_condition = is_first_condition;
+                    this.sub_end = last;
+                    this.sub_region = subregion;
+                    this.sub_ret = last >= region.size() ? ret : region.get(last);
+                    this.sub_sections = new ArrayList<>();
+                    return true;
+                } else if (!(next instanceof ConditionalOpcodeBlock) && !(next instanceof GotoOpcodeBlock)) {
+                    is_first_condition = false;
+                    continue;
+                }
+
+                // The end block is already not included in `region` so we can
+                // simply try and get the region end of any block in this region and
+                // if there is an end defined then we know that it forms a sub
+                // region.
+                int end = -1;
+                if (next.getTarget() == ret) {
+                    end = RegionProcessor.getRegionEnd(region, ret, i, this.partial.getDominatorTree());
+                    if (end == region.size()) {
+                        OpcodeBlock last = region.get(region.size() - 1);
+                        boolean is_break = false;
+                        if (last instanceof GotoOpcodeBlock) {
+                            GotoOpcodeBlock last_goto = (GotoOpcodeBlock) last;
+                            if (last_goto.getTarget() == sstart) {
+                                // while loop and this is a break;
+                                is_break = true;
+                            } else if (last_goto.getTarget() == next) {
+                                is_first_condition = false;
+                            }
+                        } else if (last instanceof ConditionalOpcodeBlock) {
+                            ConditionalOpcodeBlock cond = (ConditionalOpcodeBlock) last;
+                            if (cond.getTarget() == sstart) {
+                                is_break = true;
+                            }
+                            boolean is_condition_part = true;
+                            for (int j = i + 1; j < region.size() - 1; j++) {
+                                if (!(region.get(i) instanceof ConditionalOpcodeBlock)) {
+                                    is_condition_part = false;
+                                    break;
+                                }
+                            }
+                            if (is_condition_part) {
+                                continue;
+                            }
+                        }
+                        if (is_break) {
+                            BreakBlockSection sec = null;
+                            OpcodeBlock prev = region.get(i - 1);
+                            if (prev instanceof ProcessedOpcodeBlock) {
+                                BlockSection compiled = ((ProcessedOpcodeBlock) prev).getPrecompiledSection();
+                                if (compiled instanceof BreakBlockSection) {
+                                    sec = (BreakBlockSection) compiled;
+                                }
+                            } else if (is_first_condition) {
+                                continue;
+                            }
+                            if (sec == null) {
+                                sec = new BreakBlockSection(new BreakMarkerOpcodeBlock(next.getBreakpoint(), BreakMarkerOpcodeBlock.MarkerType.BREAK),
+                                        BreakMarkerOpcodeBlock.MarkerType.BREAK);
+                                sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
+                                OpcodeBlock replace = new ProcessedOpcodeBlock(next.getBreakpoint(), sec);
+                                replace.setIndex(next.getIndex());
+                                region.set(i, replace);
+                                GraphOperation.remap(region, next, replace);
+                            } else {
+                                sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
+                                region.remove(i);
+                                i--;
                             }
-                        } else if (is_first_condition) {
                             continue;
                         }
-                        if (sec == null) {
-                            sec = new BreakBlockSection(new BreakMarkerOpcodeBlock(next.getBreakpoint(), BreakMarkerOpcodeBlock.MarkerType.BREAK),
-                                    BreakMarkerOpcodeBlock.MarkerType.BREAK);
-                            sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
-                            OpcodeBlock replace = new ProcessedOpcodeBlock(next.getBreakpoint(), sec);
-                            region.set(i, replace);
-                            GraphOperation.remap(region, next, replace);
-                        } else {
-                            sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
-                            region.remove(i);
-                            i--;
+                    } else if (end == -1 && next instanceof ConditionalOpcodeBlock) {
+                        OpcodeBlock pos = null;
+                        for (OpcodeBlock targeting : ret.getTargettedBy()) {
+                            if (targeting instanceof GotoOpcodeBlock) {
+                                GotoOpcodeBlock ggoto = (GotoOpcodeBlock) targeting;
+                                if (ggoto.getBreakpoint() < sstart.getTarget().getBreakpoint() && ggoto.getBreakpoint() > next.getBreakpoint()
+                                        && (pos == null || ggoto.getBreakpoint() < pos.getBreakpoint())) {
+                                    pos = ggoto;
+                                }
+                            } else if (targeting instanceof BreakMarkerOpcodeBlock) {
+                                BreakMarkerOpcodeBlock bbreak = (BreakMarkerOpcodeBlock) targeting;
+                                if (bbreak.getBreakpoint() < sstart.getTarget().getBreakpoint() && bbreak.getBreakpoint() > next.getBreakpoint()
+                                        && (pos == null || bbreak.getBreakpoint() < pos.getBreakpoint())) {
+                                    pos = bbreak;
+                                }
+                            }
+                        }
+                        if (pos != null) {
+                            next.setTarget(pos);
+                            this.partial.getDominatorTree().addEntry(pos);
+                            end = OpcodeBlock.indexOf(region, pos);
                         }
-                        continue;
                     }
-                } else if (end == -1 && next instanceof ConditionalOpcodeBlock) {
-                    OpcodeBlock pos = null;
-                    for (OpcodeBlock targeting : ret.getTargettedBy()) {
-                        if (targeting instanceof GotoOpcodeBlock) {
-                            GotoOpcodeBlock ggoto = (GotoOpcodeBlock) targeting;
-                            if (ggoto.getBreakpoint() < sstart.getTarget().getBreakpoint() && ggoto.getBreakpoint() > next.getBreakpoint()
-                                    && (pos == null || ggoto.getBreakpoint() < pos.getBreakpoint())) {
-                                pos = ggoto;
-                            }
-                        } else if (targeting instanceof BreakMarkerOpcodeBlock) {
-                            BreakMarkerOpcodeBlock bbreak = (BreakMarkerOpcodeBlock) targeting;
-                            if (bbreak.getBreakpoint() < sstart.getTarget().getBreakpoint() && bbreak.getBreakpoint() > next.getBreakpoint()
-                                    && (pos == null || bbreak.getBreakpoint() < pos.getBreakpoint())) {
-                                pos = bbreak;
+                } else if (next.getTarget() == sstart) {
+                    // this is a continue statement
+                    boolean part_of_end = true;
+                    for (int o = i + 1; o < region.size() - subregion_search_end; o++) {
+                        OpcodeBlock n = region.get(o);
+                        if (n instanceof ConditionalOpcodeBlock) {
+                            if (n.getTarget() == sstart || n.getTarget() == ret) {
+                                continue;
                             }
                         }
+                        part_of_end = false;
+                        break;
                     }
-                    if (pos != null) {
-                        next.setTarget(pos);
-                        end = region.indexOf(pos);
+                    if (part_of_end) {
+                        this.done = true;
+                        return false;
                     }
-                }
-            } else if (next.getTarget() == sstart) {
-                // this is a continue statement
-                boolean part_of_end = true;
-                for (int o = i + 1; o < region.size() - subregion_search_end; o++) {
-                    OpcodeBlock n = region.get(o);
-                    if (n instanceof ConditionalOpcodeBlock) {
-                        if (n.getTarget() == sstart || n.getTarget() == ret) {
-                            continue;
+                    BreakBlockSection sec = null;
+                    if (region.get(i - 1) instanceof ProcessedOpcodeBlock) {
+                        BlockSection compiled = ((ProcessedOpcodeBlock) region.get(i - 1)).getPrecompiledSection();
+                        if (compiled instanceof BreakBlockSection) {
+                            sec = (BreakBlockSection) compiled;
                         }
                     }
-                    part_of_end = false;
-                    break;
-                }
-                if (part_of_end) {
-                    return null;
-                }
-                BreakBlockSection sec = null;
-                if (region.get(i - 1) instanceof ProcessedOpcodeBlock) {
-                    BlockSection compiled = ((ProcessedOpcodeBlock) region.get(i - 1)).getPrecompiledSection();
-                    if (compiled instanceof BreakBlockSection) {
-                        sec = (BreakBlockSection) compiled;
+                    if (sec == null) {
+                        sec = new BreakBlockSection(new BreakMarkerOpcodeBlock(next.getBreakpoint(), BreakMarkerOpcodeBlock.MarkerType.CONTINUE),
+                                BreakMarkerOpcodeBlock.MarkerType.CONTINUE);
+                        sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
+                        OpcodeBlock replace = new ProcessedOpcodeBlock(next.getBreakpoint(), sec);
+                        replace.setIndex(next.getIndex());
+                        region.set(i, replace);
+                        GraphOperation.remap(region, next, replace);
+                    } else {
+                        sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
+                        region.remove(i);
+                        i--;
                     }
-                }
-                if (sec == null) {
-                    sec = new BreakBlockSection(new BreakMarkerOpcodeBlock(next.getBreakpoint(), BreakMarkerOpcodeBlock.MarkerType.CONTINUE),
-                            BreakMarkerOpcodeBlock.MarkerType.CONTINUE);
-                    sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
-                    OpcodeBlock replace = new ProcessedOpcodeBlock(next.getBreakpoint(), sec);
-                    region.set(i, replace);
-                    GraphOperation.remap(region, next, replace);
+                    OpcodeBlock last = region.get(region.size() - 1);
+                    if (!(last instanceof GotoOpcodeBlock) && sstart instanceof ConditionalOpcodeBlock) {
+                        GotoOpcodeBlock fakeLoop = new GotoOpcodeBlock(last.getBreakpoint());
+                        fakeLoop.setTarget(sstart);
+                        fakeLoop.setIndex(last.getIndex());
+                        region.add(fakeLoop);
+                    }
+                    continue;
                 } else {
-                    sec.getInlinedConditions().add((ConditionalOpcodeBlock) next);
-                    region.remove(i);
-                    i--;
+                    end = RegionProcessor.getRegionEnd(region, ret, i, this.partial.getDominatorTree());
                 }
-                OpcodeBlock last = region.get(region.size() - 1);
-                if (!(last instanceof GotoOpcodeBlock) && sstart instanceof ConditionalOpcodeBlock) {
-                    GotoOpcodeBlock fakeLoop = new GotoOpcodeBlock(last.getBreakpoint());
-                    fakeLoop.setTarget(sstart);
-                    region.add(fakeLoop);
+
+                if (end != -1) {
+                    if (this.partial.getEntry().getName().equals(MethodDecompiler.targeted_breakpoint)) {
+                        System.out.println("Child region found from " + next.getBreakpoint() + " to " + region.get(end - 1).getBreakpoint());
+                    }
+
+                    List<OpcodeBlock> subregion = new ArrayList<>();
+                    for (int o = i; o < end; o++) {
+                        OpcodeBlock n = region.get(o);
+                        subregion.add(n);
+                    }
+
+                    this.index = i;
+                    this.is_first_condition = is_first_condition;
+                    this.sub_end = end;
+                    this.sub_region = subregion;
+                    this.sub_ret = end >= region.size() ? ret : region.get(end);
+                    return true;
                 }
-                continue;
-            } else {
-                end = RegionProcessor.getRegionEnd(region, ret, i);
             }
+            this.done = true;
+            return false;
+        }
 
-            if (end != -1) {
-                if (partial.getEntry().getName().equals(MethodDecompiler.targeted_breakpoint)) {
-                    System.out.println("Child region found from " + next.getBreakpoint() + " to " + region.get(end - 1).getBreakpoint());
-                }
+        @Override
+        public List<OpcodeBlock> getSubRegion() {
+            return this.sub_region;
+        }
 
-                List<OpcodeBlock> subregion = new ArrayList<>();
-                for (int o = i; o < end; o++) {
-                    OpcodeBlock n = region.get(o);
-                    subregion.add(n);
-                }
+        @Override
+        public OpcodeBlock getSubRegionReturn() {
+            return this.sub_ret;
+        }
 
-                OpcodeBlock sub_ret = end >= region.size() ? ret : region.get(end);
-                BlockSection s = partial.getDecompiler().processRegion(partial, subregion, sub_ret, 1);
+        @Override
+        public int getSubRegionBodyStart() {
+            return 1;
+        }
 
-                // the first block is set to the condensed subregion block and
-                // the rest if the blocks in the subregion are removed.
-                ProcessedOpcodeBlock replacement = new ProcessedOpcodeBlock(region.get(i).getBreakpoint(), s);
-                replacement.setTarget(sub_ret);
-                GraphOperation.remap(region, region.get(i), replacement);
-                region.set(i, replacement);
-                for (int o = end - 1; o > i; o--) {
-                    region.remove(o);
-                }
+        @Override
+        public List<BlockSection> getSubRegionOutput() {
+            return this.sub_sections;
+        }
+
+        @Override
+        public int getSubRegionStopPoint() {
+            return this.sub_region.size() - 1;
+        }
+
+        @Override
+        public void complete(BlockSection section) {
+            if (this.sub_sections != null) {
+                checkState(this.sub_sections.size() == 1);
+                section = this.sub_sections.get(0);
+                this.sub_sections = null;
             }
+            List<OpcodeBlock> region = this.region;
+            int i = this.index;
+            // the first block is set to the condensed subregion block and the
+            // rest if the blocks in the subregion are removed.
+            ProcessedOpcodeBlock replacement = new ProcessedOpcodeBlock(region.get(i).getBreakpoint(), section);
+            replacement.setTarget(this.sub_ret);
+            replacement.setIndex(region.get(i).getIndex());
+            GraphOperation.remap(region, region.get(i), replacement);
+            region.set(i, replacement);
+            region.subList(i + 1, this.sub_end).clear();
+            this.index = i + 1;
+            this.sub_region = null;
+            this.sub_ret = null;
         }
-        return null;
+
+        @Override
+        public BlockSection getResult() {
+            return null;
+        }
+
     }
 
 }
@@ -28,6 +28,7 @@ import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
 import org.spongepowered.despector.decompiler.method.ConditionBuilder;
 import org.spongepowered.despector.decompiler.method.PartialMethod;
 import org.spongepowered.despector.decompiler.method.graph.RegionProcessor;
+import org.spongepowered.despector.decompiler.method.graph.RegionScan;
 import org.spongepowered.despector.decompiler.method.graph.data.block.BlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.IfBlockSection;
 import org.spongepowered.despector.decompiler.method.graph.data.block.IfBlockSection.ElifBlockSection;
@@ -48,110 +49,197 @@ public class IfBlockRegionProcessor implements RegionProcessor {
 
     @Override
     public BlockSection process(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
-        OpcodeBlock start = region.get(0);
-        // split the region into the condition and the body
-        body_start = 1;
-        List<ConditionalOpcodeBlock> condition_blocks = new ArrayList<>();
-        OpcodeBlock next = region.get(body_start);
-        condition_blocks.add((ConditionalOpcodeBlock) start);
-        while (next instanceof ConditionalOpcodeBlock) {
-            condition_blocks.add((ConditionalOpcodeBlock) next);
-            body_start++;
-            next = region.get(body_start);
-        }
-        OpcodeBlock body = region.get(body_start);
-        OpcodeBlock cond_ret = ret;
-        for (OpcodeBlock c : condition_blocks) {
-            if (c.getTarget() != body && !condition_blocks.contains(c.getTarget())) {
-                cond_ret = c.getTarget();
-                break;
-            }
-        }
+        RegionScan scan = scan(partial, region, ret, body_start);
+        partial.getDecompiler().runScan(partial, scan);
+        return scan.getResult();
+    }
+
+    @Override
+    public RegionScan scan(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret, int body_start) {
+        return new IfRegionScan(partial, region, ret);
+    }
 
-        // form the condition from the header
-        Condition cond = ConditionBuilder.makeCondition(condition_blocks, partial.getLocals(), body, cond_ret);
-        int else_start = region.size();
-        if (cond_ret != ret && region.contains(cond_ret)) {
-            else_start = region.indexOf(cond_ret);
+    /**
+     * The progress through an if block, waiting on a conditional nested at
+     * the end of the body of the if block to be processed.
+     */
+    private static class IfRegionScan implements RegionScan {
+
+        private final PartialMethod partial;
+        private final List<OpcodeBlock> region;
+        private final OpcodeBlock ret;
+
+        private boolean started;
+        private int body_start;
+        private OpcodeBlock cond_ret;
+        private IfBlockSection section;
+        private BlockSection result;
+
+        private List<OpcodeBlock> sub_region;
+        private OpcodeBlock sub_ret;
+
+        public IfRegionScan(PartialMethod partial, List<OpcodeBlock> region, OpcodeBlock ret) {
+            this.partial = partial;
+            this.region = region;
+            this.ret = ret;
         }
 
-        OpcodeBlock body_end = region.get(else_start - 1);
-        if (body_end instanceof GotoOpcodeBlock && body_end.getTarget() == start) {
-            // we've got ourselves an inverse while/for loop
-            WhileBlockSection section = new WhileBlockSection(cond);
-            for (int i = body_start; i < else_start - 1; i++) {
-                next = region.get(i);
-                section.appendBody(next.toBlockSection());
+        @Override
+        public boolean advance() {
+            if (this.started) {
+                appendElse();
+                return false;
+            }
+            this.started = true;
+            PartialMethod partial = this.partial;
+            List<OpcodeBlock> region = this.region;
+            OpcodeBlock ret = this.ret;
+            OpcodeBlock start = region.get(0);
+            // split the region into the condition and the body
+            int body_start = 1;
+            List<ConditionalOpcodeBlock> condition_blocks = new ArrayList<>();
+            OpcodeBlock next = region.get(body_start);
+            condition_blocks.add((ConditionalOpcodeBlock) start);
+            while (next instanceof ConditionalOpcodeBlock) {
+                condition_blocks.add((ConditionalOpcodeBlock) next);
+                body_start++;
+                next = region.get(body_start);
+            }
+            OpcodeBlock body = region.get(body_start);
+            OpcodeBlock cond_ret = ret;
+            for (OpcodeBlock c : condition_blocks) {
+                if (c.getTarget() != body && !condition_blocks.contains(c.getTarget())) {
+                    cond_ret = c.getTarget();
+                    break;
+                }
             }
-            return section;
-        }
-        if (body_end instanceof GotoOpcodeBlock) {
-            else_start--;
-        }
 
-        IfBlockSection section = new IfBlockSection(cond);
-        // Append the body
-        for (int i = body_start; i < else_start; i++) {
-            next = region.get(i);
-            if (next instanceof ConditionalOpcodeBlock) {
-                List<OpcodeBlock> subregion = new ArrayList<>();
-                for (int o = i; o < else_start; o++) {
-                    OpcodeBlock n = region.get(o);
-                    subregion.add(n);
+            // form the condition from the header
+            Condition cond = ConditionBuilder.makeCondition(condition_blocks, partial.getLocals(), body, cond_ret);
+            int else_start = region.size();
+            if (cond_ret != ret && OpcodeBlock.indexOf(region, cond_ret) != -1) {
+                else_start = OpcodeBlock.indexOf(region, cond_ret);
+            }
+
+            OpcodeBlock body_end = region.get(else_start - 1);
+            if (body_end instanceof GotoOpcodeBlock && body_end.getTarget() == start) {
+                // we've got ourselves an inverse while/for loop
+                WhileBlockSection section = new WhileBlockSection(cond);
+                for (int i = body_start; i < else_start - 1; i++) {
+                    next = region.get(i);
+                    section.appendBody(next.toBlockSection());
                 }
+                this.result = section;
+                return false;
+            }
+            if (body_end instanceof GotoOpcodeBlock) {
+                else_start--;
+            }
+
+            IfBlockSection section = new IfBlockSection(cond);
+            this.section = section;
+            this.body_start = body_start;
+            this.cond_ret = cond_ret;
+            // Append the body
+            for (int i = body_start; i < else_start; i++) {
+                next = region.get(i);
+                if (next instanceof ConditionalOpcodeBlock) {
+                    List<OpcodeBlock> subregion = new ArrayList<>();
+                    for (int o = i; o < else_start; o++) {
+                        OpcodeBlock n = region.get(o);
+                        subregion.add(n);
+                    }
 
-                OpcodeBlock sub_ret = else_start >= region.size() ? ret : region.get(else_start);
-                BlockSection s = partial.getDecompiler().processRegion(partial, subregion, sub_ret, 1);
-                section.appendBody(s);
-                break;
+                    this.sub_region = subregion;
+                    this.sub_ret = else_start >= region.size() ? ret : region.get(else_start);
+                    return true;
+                }
+                section.appendBody(next.toBlockSection());
             }
-            section.appendBody(next.toBlockSection());
+            appendElse();
+            return false;
         }
 
-        while (region.contains(cond_ret)) {
-            if (cond_ret instanceof ConditionalOpcodeBlock) {
-                List<ConditionalOpcodeBlock> elif_condition = new ArrayList<>();
-                next = region.get(body_start);
-                elif_condition.add((ConditionalOpcodeBlock) cond_ret);
-                body_start = region.indexOf(cond_ret) + 1;
-                while (next instanceof ConditionalOpcodeBlock) {
-                    elif_condition.add((ConditionalOpcodeBlock) next);
-                    body_start++;
+        private void appendElse() {
+            PartialMethod partial = this.partial;
+            List<OpcodeBlock> region = this.region;
+            OpcodeBlock ret = this.ret;
+            IfBlockSection section = this.section;
+            OpcodeBlock cond_ret = this.cond_ret;
+            int body_start = this.body_start;
+            OpcodeBlock next;
+            while (OpcodeBlock.indexOf(region, cond_ret) != -1) {
+                if (cond_ret instanceof ConditionalOpcodeBlock) {
+                    List<ConditionalOpcodeBlock> elif_condition = new ArrayList<>();
                     next = region.get(body_start);
-                }
-                OpcodeBlock elif_body = region.get(body_start);
-                cond_ret = ret;
-                for (OpcodeBlock c : elif_condition) {
-                    if (c.getTarget() != elif_body && !elif_condition.contains(c.getTarget())) {
-                        cond_ret = c.getTarget();
-                        break;
+                    elif_condition.add((ConditionalOpcodeBlock) cond_ret);
+                    body_start = OpcodeBlock.indexOf(region, cond_ret) + 1;
+                    while (next instanceof ConditionalOpcodeBlock) {
+                        elif_condition.add((ConditionalOpcodeBlock) next);
+                        body_start++;
+                        next = region.get(body_start);
                     }
+                    OpcodeBlock elif_body = region.get(body_start);
+                    cond_ret = ret;
+                    for (OpcodeBlock c : elif_condition) {
+                        if (c.getTarget() != elif_body && !elif_condition.contains(c.getTarget())) {
+                            cond_ret = c.getTarget();
+                            break;
+                        }
+                    }
+                    Condition elif_cond = ConditionBuilder.makeCondition(elif_condition, partial.getLocals(), elif_body, cond_ret);
+                    ElifBlockSection elif = section.new ElifBlockSection(elif_cond);
+                    int elif_end = region.size();
+                    if (cond_ret != ret) {
+                        elif_end = OpcodeBlock.indexOf(region, cond_ret);
+                    }
+                    if (region.get(elif_end - 1) instanceof GotoOpcodeBlock) {
+                        elif_end--;
+                    }
+                    // Append the body
+                    for (int i = body_start; i < elif_end; i++) {
+                        next = region.get(i);
+                        elif.append(next.toBlockSection());
+                    }
+                } else {
+                    int else_start = OpcodeBlock.indexOf(region, cond_ret);
+                    for (int i = else_start; i < region.size(); i++) {
+                        next = region.get(i);
+                        section.appendElseBody(next.toBlockSection());
+                    }
+                    break;
                 }
-                Condition elif_cond = ConditionBuilder.makeCondition(elif_condition, partial.getLocals(), elif_body, cond_ret);
-                ElifBlockSection elif = section.new ElifBlockSection(elif_cond);
-                int elif_end = region.size();
-                if (cond_ret != ret) {
-                    elif_end = region.indexOf(cond_ret);
-                }
-                if (region.get(elif_end - 1) instanceof GotoOpcodeBlock) {
-                    elif_end--;
-                }
-                // Append the body
-                for (int i = body_start; i < elif_end; i++) {
-                    next = region.get(i);
-                    elif.append(next.toBlockSection());
-                }
-            } else {
-                else_start = region.indexOf(cond_ret);
-                for (int i = else_start; i < region.size(); i++) {
-                    next = region.get(i);
-                    section.appendElseBody(next.toBlockSection());
-                }
-                break;
             }
+            this.result = section;
+        }
+
+        @Override
+        public List<OpcodeBlock> getSubRegion() {
+            return this.sub_region;
+        }
+
+        @Override
+        public OpcodeBlock getSubRegionReturn() {
+            return this.sub_ret;
+        }
+
+        @Override
+        public int getSubRegionBodyStart() {
+            return 1;
+        }
+
+        @Override
+        public void complete(BlockSection section) {
+            this.section.appendBody(section);
+            this.sub_region = null;
+            this.sub_ret = null;
+        }
+
+        @Override
+        public BlockSection getResult() {
+            return this.result;
         }
 
-        return section;
     }
 
 }
@@ -58,7 +58,7 @@ public class WhileRegionProcessor implements RegionProcessor {
         if (start instanceof GotoOpcodeBlock) {
             List<ConditionalOpcodeBlock> condition_blocks = new ArrayList<>();
             OpcodeBlock next = start.getTarget();
-            int pos = region.indexOf(next);
+            int pos = OpcodeBlock.indexOf(region, next);
             int cond_start = pos;
             while (next instanceof ConditionalOpcodeBlock) {
                 condition_blocks.add((ConditionalOpcodeBlock) next);
@@ -27,19 +27,10 @@ package org.spongepowered.despector.decompiler.method.postprocess;
 import org.spongepowered.despector.ast.Locals.LocalInstance;
 import org.spongepowered.despector.ast.generic.ClassTypeSignature;
 import org.spongepowered.despector.ast.members.insn.Statement;
-import org.spongepowered.despector.ast.members.insn.StatementBlock;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
 import org.spongepowered.despector.ast.members.insn.assign.LocalAssignment;
-import org.spongepowered.despector.ast.members.insn.branch.DoWhile;
 import org.spongepowered.despector.ast.members.insn.branch.For;
 import org.spongepowered.despector.ast.members.insn.branch.ForEach;
-import org.spongepowered.despector.ast.members.insn.branch.If;
-import org.spongepowered.despector.ast.members.insn.branch.If.Elif;
-import org.spongepowered.despector.ast.members.insn.branch.Switch;
-import org.spongepowered.despector.ast.members.insn.branch.Switch.Case;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch.CatchBlock;
-import org.spongepowered.despector.ast.members.insn.branch.While;
 import org.spongepowered.despector.ast.members.insn.function.InstanceMethodInvoke;
 import org.spongepowered.despector.transform.matcher.ConditionMatcher;
 import org.spongepowered.despector.transform.matcher.InstructionMatcher;
@@ -47,9 +38,6 @@ import org.spongepowered.despector.transform.matcher.MatchContext;
 import org.spongepowered.despector.transform.matcher.StatementMatcher;
 import org.spongepowered.despector.util.AstUtil;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ForEachPostProcessor implements StatementPostProcessor {
 
     private static final StatementMatcher<For> LIST_ITERATOR = StatementMatcher.forloop()
@@ -110,48 +98,15 @@ public class ForEachPostProcessor implements StatementPostProcessor {
             .build();
 
     @Override
-    public void postprocess(StatementBlock block) {
-        List<Statement> to_remove = new ArrayList<>();
-        for (Statement stmt : block.getStatements()) {
-            if (stmt instanceof If) {
-                If iif = (If) stmt;
-                postprocess(iif.getIfBody());
-                for (Elif elif : iif.getElifBlocks()) {
-                    postprocess(elif.getBody());
-                }
-                if (iif.getElseBlock() != null) {
-                    postprocess(iif.getElseBlock().getElseBody());
-                }
-            } else if (stmt instanceof While) {
-                While wwhile = (While) stmt;
-                postprocess(wwhile.getBody());
-            } else if (stmt instanceof DoWhile) {
-                DoWhile dowhile = (DoWhile) stmt;
-                postprocess(dowhile.getBody());
-            } else if (stmt instanceof For) {
-                if (!checkIterator(block, (For) stmt)) {
-                    checkArray(block, (For) stmt, to_remove);
-                }
-                postprocess(((For) stmt).getBody());
-            } else if (stmt instanceof Switch) {
-                Switch sswitch = (Switch) stmt;
-                for (Case cs : sswitch.getCases()) {
-                    postprocess(cs.getBody());
-                }
-            } else if (stmt instanceof TryCatch) {
-                TryCatch trycatch = (TryCatch) stmt;
-                postprocess(trycatch.getTryBlock());
-                for (CatchBlock ccatch : trycatch.getCatchBlocks()) {
-                    postprocess(ccatch.getBlock());
-                }
+    public void register(PostProcessPass pass) {
+        pass.on(For.class, (ctx, ffor) -> {
+            if (!checkIterator(ctx, ffor)) {
+                checkArray(ctx, ffor);
             }
-        }
-        for (Statement stmt : to_remove) {
-            block.getStatements().remove(stmt);
-        }
+        });
     }
 
-    public boolean checkIterator(StatementBlock block, For ffor) {
+    public static boolean checkIterator(PostProcessContext ctx, For ffor) {
         if (!LIST_ITERATOR.matches(MatchContext.create(), ffor)) {
             return false;
         }
@@ -168,52 +123,52 @@ public class ForEachPostProcessor implements StatementPostProcessor {
         ffor.getBody().getStatements().remove(0);
 
         ForEach foreach = new ForEach(list, next_assign, ffor.getBody());
-        block.getStatements().set(block.getStatements().indexOf(ffor), foreach);
+        ctx.replace(foreach);
 
         return true;
     }
 
-    public boolean checkArray(StatementBlock block, For ffor, List<Statement> to_remove) {
-        int i = block.getStatements().indexOf(ffor);
-        if (i < 2) {
+    public static boolean checkArray(PostProcessContext ctx, For ffor) {
+        Statement array_stmt = ctx.getPrevious(2);
+        if (array_stmt == null) {
             return false;
         }
+        Statement size_stmt = ctx.getPrevious(1);
         if (ffor.getBody().getStatementCount() < 1) {
             return false;
         }
-        MatchContext ctx = MatchContext.create();
+        MatchContext match = MatchContext.create();
 
-        if (!ARRAY_ITERATOR_ASSIGN.matches(ctx, block.getStatement(i - 2))) {
+        if (!ARRAY_ITERATOR_ASSIGN.matches(match, array_stmt)) {
             return false;
         }
-        LocalAssignment array_assign = (LocalAssignment) block.getStatement(i - 2);
+        LocalAssignment array_assign = (LocalAssignment) array_stmt;
         LocalInstance array = array_assign.getLocal();
         if (!array.getType().isArray()) {
             return false;
         }
-        if (!ARRAY_ITERATOR_SIZE.matches(ctx, block.getStatement(i - 1))) {
+        if (!ARRAY_ITERATOR_SIZE.matches(match, size_stmt)) {
             return false;
         }
 
-        if (!ARRAY_ITERATOR.matches(ctx, ffor)) {
+        if (!ARRAY_ITERATOR.matches(match, ffor)) {
             return false;
         }
 
         for (int o = 1; o < ffor.getBody().getStatementCount(); o++) {
             Statement stmt = ffor.getBody().getStatement(o);
             if (AstUtil.references(stmt, ((LocalAssignment) ffor.getInit()).getLocal())
-                    || AstUtil.references(stmt, ((LocalAssignment) block.getStatement(i - 1)).getLocal())) {
+                    || AstUtil.references(stmt, ((LocalAssignment) size_stmt).getLocal())) {
                 return false;
             }
         }
 
-        to_remove.add(block.getStatement(i - 2));
-        to_remove.add(block.getStatement(i - 1));
         LocalInstance local = ((LocalAssignment) ffor.getBody().getStatement(0)).getLocal();
         ffor.getBody().getStatements().remove(0);
 
         ForEach foreach = new ForEach(array_assign.getValue(), local, ffor.getBody());
-        block.getStatements().set(block.getStatements().indexOf(ffor), foreach);
+        ctx.removePrevious(2);
+        ctx.replace(foreach);
 
         return true;
     }
@@ -29,14 +29,7 @@ import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
 import org.spongepowered.despector.ast.members.insn.assign.LocalAssignment;
 import org.spongepowered.despector.ast.members.insn.branch.Break;
-import org.spongepowered.despector.ast.members.insn.branch.DoWhile;
 import org.spongepowered.despector.ast.members.insn.branch.For;
-import org.spongepowered.despector.ast.members.insn.branch.If;
-import org.spongepowered.despector.ast.members.insn.branch.If.Elif;
-import org.spongepowered.despector.ast.members.insn.branch.Switch;
-import org.spongepowered.despector.ast.members.insn.branch.Switch.Case;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch.CatchBlock;
 import org.spongepowered.despector.ast.members.insn.branch.While;
 import org.spongepowered.despector.ast.members.insn.misc.Increment;
 import org.spongepowered.despector.transform.matcher.ConditionMatcher;
@@ -44,9 +37,6 @@ import org.spongepowered.despector.transform.matcher.MatchContext;
 import org.spongepowered.despector.transform.matcher.StatementMatcher;
 import org.spongepowered.despector.util.AstUtil;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ForFromWhilePostProcessor implements StatementPostProcessor {
 
     private static final StatementMatcher<?> STORE = MatchContext.storeLocal("loop_val", StatementMatcher.localassign()
@@ -56,61 +46,25 @@ public class ForFromWhilePostProcessor implements StatementPostProcessor {
             .build();
 
     @Override
-    public void postprocess(StatementBlock block) {
-        List<Statement> to_remove = new ArrayList<>();
-        for (Statement stmt : block.getStatements()) {
-            if (stmt instanceof If) {
-                If iif = (If) stmt;
-                postprocess(iif.getIfBody());
-                for (Elif elif : iif.getElifBlocks()) {
-                    postprocess(elif.getBody());
-                }
-                if (iif.getElseBlock() != null) {
-                    postprocess(iif.getElseBlock().getElseBody());
-                }
-            } else if (stmt instanceof While) {
-                While wwhile = (While) stmt;
-                checkWhile(block, wwhile, to_remove);
-                postprocess(wwhile.getBody());
-            } else if (stmt instanceof DoWhile) {
-                DoWhile dowhile = (DoWhile) stmt;
-                postprocess(dowhile.getBody());
-            } else if (stmt instanceof For) {
-                For ffor = (For) stmt;
-                postprocess(ffor.getBody());
-            } else if (stmt instanceof Switch) {
-                Switch sswitch = (Switch) stmt;
-                for (Case cs : sswitch.getCases()) {
-                    postprocess(cs.getBody());
-                }
-            } else if (stmt instanceof TryCatch) {
-                TryCatch trycatch = (TryCatch) stmt;
-                postprocess(trycatch.getTryBlock());
-                for (CatchBlock ccatch : trycatch.getCatchBlocks()) {
-                    postprocess(ccatch.getBlock());
-                }
-            }
-        }
-        for (Statement stmt : to_remove) {
-            block.getStatements().remove(stmt);
-        }
+    public void register(PostProcessPass pass) {
+        pass.on(While.class, ForFromWhilePostProcessor::checkWhile);
     }
 
-    private void checkWhile(StatementBlock block, While wwhile, List<Statement> to_remove) {
-        int i = block.getStatements().indexOf(wwhile);
-        if (i == 0) {
+    private static void checkWhile(PostProcessContext ctx, While wwhile) {
+        Statement last = ctx.getPrevious(1);
+        if (last == null) {
             return;
         }
-        Statement last = block.getStatement(i - 1);
-        MatchContext ctx = MatchContext.create();
-        if (!STORE.matches(ctx, last)) {
+        MatchContext match = MatchContext.create();
+        if (!STORE.matches(match, last)) {
             return;
         }
-        if (!LOOP.matches(ctx, wwhile)) {
+        if (!LOOP.matches(match, wwhile)) {
             return;
         }
-        LocalInstance loop_val = ctx.getLocal("loop_val");
-        for (int o = i + 1; o < block.getStatementCount(); o++) {
+        LocalInstance loop_val = match.getLocal("loop_val");
+        StatementBlock block = ctx.getBlock();
+        for (int o = ctx.getIndex() + 1; o < block.getStatementCount(); o++) {
             Statement n = block.getStatement(o);
             if (n instanceof LocalAssignment) {
                 if (((LocalAssignment) n).getLocal() == loop_val) {
@@ -136,8 +90,8 @@ public class ForFromWhilePostProcessor implements StatementPostProcessor {
         for (Break bbreak : wwhile.getBreaks()) {
             bbreak.setLoop(ffor);
         }
-        to_remove.add(last);
-        block.getStatements().set(i, ffor);
+        ctx.removePrevious(1);
+        ctx.replace(ffor);
     }
 
 }
@@ -26,49 +26,18 @@ package org.spongepowered.despector.decompiler.method.postprocess;
 
 import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
-import org.spongepowered.despector.ast.members.insn.branch.DoWhile;
-import org.spongepowered.despector.ast.members.insn.branch.For;
 import org.spongepowered.despector.ast.members.insn.branch.If;
 import org.spongepowered.despector.ast.members.insn.branch.If.Elif;
-import org.spongepowered.despector.ast.members.insn.branch.Switch;
-import org.spongepowered.despector.ast.members.insn.branch.Switch.Case;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch.CatchBlock;
-import org.spongepowered.despector.ast.members.insn.branch.While;
 import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
 
 public class IfCombiningPostProcessor implements StatementPostProcessor {
 
     @Override
-    public void postprocess(StatementBlock block) {
-        for (Statement stmt : block.getStatements()) {
-            if (stmt instanceof If) {
-                check((If) stmt);
-            } else if (stmt instanceof While) {
-                While wwhile = (While) stmt;
-                postprocess(wwhile.getBody());
-            } else if (stmt instanceof DoWhile) {
-                DoWhile dowhile = (DoWhile) stmt;
-                postprocess(dowhile.getBody());
-            } else if (stmt instanceof For) {
-                For ffor = (For) stmt;
-                postprocess(ffor.getBody());
-            } else if (stmt instanceof Switch) {
-                Switch sswitch = (Switch) stmt;
-                for (Case cs : sswitch.getCases()) {
-                    postprocess(cs.getBody());
-                }
-            } else if (stmt instanceof TryCatch) {
-                TryCatch trycatch = (TryCatch) stmt;
-                postprocess(trycatch.getTryBlock());
-                for (CatchBlock ccatch : trycatch.getCatchBlocks()) {
-                    postprocess(ccatch.getBlock());
-                }
-            }
-        }
+    public void register(PostProcessPass pass) {
+        pass.on(If.class, (ctx, iif) -> check(iif));
     }
 
-    public void check(If ifblock) {
+    public static void check(If ifblock) {
         if (ifblock.getElifBlocks().isEmpty() && ifblock.getElseBlock() == null) {
             StatementBlock block = ifblock.getIfBody();
             if (block.getStatementCount() == 1 && block.getStatement(0) instanceof If) {
@@ -83,11 +52,7 @@ public class IfCombiningPostProcessor implements StatementPostProcessor {
                 }
             }
         }
-        postprocess(ifblock.getIfBody());
         if (!ifblock.getElifBlocks().isEmpty()) {
-            for (int i = 0; i < ifblock.getElifBlocks().size() - 1; i++) {
-                postprocess(ifblock.getElifBlocks().get(i).getBody());
-            }
             Elif last_elif = ifblock.getElifBlocks().get(ifblock.getElifBlocks().size() - 1);
             StatementBlock block = last_elif.getBody();
             if (ifblock.getElseBlock() == null) {
@@ -102,17 +67,14 @@ public class IfCombiningPostProcessor implements StatementPostProcessor {
                     }
                 }
             }
-            postprocess(block);
         }
         if (ifblock.getElseBlock() != null) {
             StatementBlock block = ifblock.getElseBlock().getElseBody();
             if (block.getStatementCount() == 1 && block.getStatement(0) instanceof If) {
                 If inner = (If) block.getStatement(0);
                 ifblock.new Elif(inner.getCondition(), inner.getIfBody());
-                postprocess(inner.getIfBody());
                 for (int i = 0; i < inner.getElifBlocks().size(); i++) {
                     Elif elif = inner.getElifBlocks().get(i);
-                    postprocess(elif.getBody());
                     ifblock.new Elif(elif.getCondition(), elif.getBody());
                 }
                 block.getStatements().clear();
@@ -121,8 +83,6 @@ public class IfCombiningPostProcessor implements StatementPostProcessor {
                 } else {
                     ifblock.setElseBlock(null);
                 }
-            } else {
-                postprocess(block);
             }
         }
 
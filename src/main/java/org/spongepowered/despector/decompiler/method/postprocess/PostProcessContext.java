@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method.postprocess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+
+import javax.annotation.Nullable;
+
+/**
+ * The position of the statement currently being visited by a
+ * {@link PostProcessPass}.
+ * 
+ * <p>The context is reused for every statement of a pass and should not be
+ * held by a callback once it returns.</p>
+ */
+public class PostProcessContext {
+
+    private StatementBlock block;
+    private int index;
+
+    void set(StatementBlock block, int index) {
+        this.block = block;
+        this.index = index;
+    }
+
+    /**
+     * Gets the block containing the current statement.
+     */
+    public StatementBlock getBlock() {
+        return this.block;
+    }
+
+    /**
+     * Gets the index of the current statement within its block.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Gets the current statement.
+     */
+    public Statement getStatement() {
+        return this.block.getStatement(this.index);
+    }
+
+    /**
+     * Gets the statement the given distance before the current statement, or
+     * null if the block does not have that many statements before it.
+     */
+    @Nullable
+    public Statement getPrevious(int distance) {
+        int i = this.index - distance;
+        if (i < 0) {
+            return null;
+        }
+        return this.block.getStatement(i);
+    }
+
+    /**
+     * Replaces the current statement with the given statement. The
+     * replacement is visited by the callbacks registered for its type.
+     */
+    public void replace(Statement stmt) {
+        this.block.getStatements().set(this.index, stmt);
+    }
+
+    /**
+     * Removes the given number of statements immediately before the current
+     * statement.
+     */
+    public void removePrevious(int count) {
+        checkArgument(count <= this.index, "Cannot remove more statements than precede the current statement");
+        this.block.getStatements().subList(this.index - count, this.index).clear();
+        this.index -= count;
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.decompiler.method.postprocess;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.branch.DoWhile;
+import org.spongepowered.despector.ast.members.insn.branch.For;
+import org.spongepowered.despector.ast.members.insn.branch.ForEach;
+import org.spongepowered.despector.ast.members.insn.branch.If;
+import org.spongepowered.despector.ast.members.insn.branch.If.Elif;
+import org.spongepowered.despector.ast.members.insn.branch.Switch;
+import org.spongepowered.despector.ast.members.insn.branch.Switch.Case;
+import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
+import org.spongepowered.despector.ast.members.insn.branch.TryCatch.CatchBlock;
+import org.spongepowered.despector.ast.members.insn.branch.While;
+import org.spongepowered.despector.decompiler.method.MethodBudgetExceededException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs the callbacks of a set of {@link StatementPostProcessor}s in a single
+ * traversal of a method body.
+ * 
+ * <p>Each statement is visited once, in order, by every callback registered
+ * for its type in the order the post processors were added. A statement is
+ * visited before the blocks nested within it. If a callback replaces the
+ * current statement the replacement is visited in turn, so a later post
+ * processor sees the output of an earlier one.</p>
+ */
+public class PostProcessPass {
+
+    private final List<StatementPostProcessor> processors = new ArrayList<>();
+    private final Map<Class<?>, List<Registration<?>>> callbacks = new HashMap<>();
+    @Nullable private StatementPostProcessor registering;
+
+    /**
+     * Adds the given post processor to this pass.
+     */
+    public void add(StatementPostProcessor post) {
+        this.processors.add(post);
+        this.registering = post;
+        try {
+            post.register(this);
+        } finally {
+            this.registering = null;
+        }
+    }
+
+    /**
+     * Gets the post processors of this pass.
+     */
+    public List<StatementPostProcessor> getProcessors() {
+        return Collections.unmodifiableList(this.processors);
+    }
+
+    /**
+     * Registers a callback for statements of the given type. This may only be
+     * called by a post processor while it is being added to this pass.
+     */
+    public <T extends Statement> void on(Class<T> type, StatementCallback<? super T> callback) {
+        checkState(this.registering != null, "Callbacks may only be registered while adding a post processor");
+        List<Registration<?>> list = this.callbacks.get(type);
+        if (list == null) {
+            list = new ArrayList<>();
+            this.callbacks.put(type, list);
+        }
+        list.add(new Registration<>(this.registering, callback));
+    }
+
+    /**
+     * Runs all registered callbacks over the given block and every block
+     * nested within it.
+     * 
+     * <p>If a callback throws an exception its post processor is skipped for
+     * the rest of the block. The post processors which failed are returned.</p>
+     */
+    public Set<StatementPostProcessor> run(StatementBlock root) {
+        Set<StatementPostProcessor> failed = Collections.emptySet();
+        if (this.callbacks.isEmpty()) {
+            return failed;
+        }
+        PostProcessContext ctx = new PostProcessContext();
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(new Frame(root));
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            if (frame.index >= frame.block.getStatementCount()) {
+                frames.pop();
+                continue;
+            }
+            ctx.set(frame.block, frame.index);
+            Statement stmt = frame.block.getStatement(frame.index);
+            List<Registration<?>> list = this.callbacks.get(stmt.getClass());
+            for (int i = 0; list != null && i < list.size(); i++) {
+                Registration<?> reg = list.get(i);
+                if (failed.contains(reg.owner)) {
+                    continue;
+                }
+                try {
+                    reg.visit(ctx, stmt);
+                } catch (MethodBudgetExceededException e) {
+                    throw e;
+                } catch (Exception e) {
+                    System.err.println("Failed to apply post processor: " + reg.owner.getClass().getSimpleName());
+                    e.printStackTrace();
+                    if (failed.isEmpty()) {
+                        failed = new LinkedHashSet<>();
+                    }
+                    failed.add(reg.owner);
+                }
+                Statement current = ctx.getStatement();
+                if (current != stmt) {
+                    // the statement was replaced so the callbacks for the
+                    // type of its replacement are run from the start
+                    stmt = current;
+                    list = this.callbacks.get(stmt.getClass());
+                    i = -1;
+                }
+            }
+            frame.index = ctx.getIndex() + 1;
+            pushChildren(frames, stmt);
+        }
+        return failed;
+    }
+
+    /**
+     * Pushes the blocks nested within the given statement so that they are
+     * visited in order before the statements which follow it.
+     */
+    private static void pushChildren(Deque<Frame> frames, Statement stmt) {
+        if (stmt instanceof If) {
+            If iif = (If) stmt;
+            if (iif.getElseBlock() != null) {
+                frames.push(new Frame(iif.getElseBlock().getElseBody()));
+            }
+            List<Elif> elifs = iif.getElifBlocks();
+            for (int i = elifs.size() - 1; i >= 0; i--) {
+                frames.push(new Frame(elifs.get(i).getBody()));
+            }
+            frames.push(new Frame(iif.getIfBody()));
+        } else if (stmt instanceof While) {
+            frames.push(new Frame(((While) stmt).getBody()));
+        } else if (stmt instanceof DoWhile) {
+            frames.push(new Frame(((DoWhile) stmt).getBody()));
+        } else if (stmt instanceof For) {
+            frames.push(new Frame(((For) stmt).getBody()));
+        } else if (stmt instanceof ForEach) {
+            frames.push(new Frame(((ForEach) stmt).getBody()));
+        } else if (stmt instanceof Switch) {
+            List<Case> cases = ((Switch) stmt).getCases();
+            for (int i = cases.size() - 1; i >= 0; i--) {
+                frames.push(new Frame(cases.get(i).getBody()));
+            }
+        } else if (stmt instanceof TryCatch) {
+            TryCatch trycatch = (TryCatch) stmt;
+            List<CatchBlock> catches = trycatch.getCatchBlocks();
+            for (int i = catches.size() - 1; i >= 0; i--) {
+                frames.push(new Frame(catches.get(i).getBlock()));
+            }
+            frames.push(new Frame(trycatch.getTryBlock()));
+        }
+    }
+
+    /**
+     * A callback registered for a statement type along with the post
+     * processor which registered it.
+     */
+    private static class Registration<T extends Statement> {
+
+        final StatementPostProcessor owner;
+        final StatementCallback<? super T> callback;
+
+        Registration(StatementPostProcessor owner, StatementCallback<? super T> callback) {
+            this.owner = owner;
+            this.callback = callback;
+        }
+
+        @SuppressWarnings("unchecked")
+        void visit(PostProcessContext ctx, Statement stmt) {
+            this.callback.visit(ctx, (T) stmt);
+        }
+
+    }
+
+    /**
+     * A block being visited and the index of the next statement to visit
+     * within it.
+     */
+    private static class Frame {
+
+        final StatementBlock block;
+        int index;
+
+        Frame(StatementBlock block) {
+            this.block = block;
+        }
+
+    }
+
+}
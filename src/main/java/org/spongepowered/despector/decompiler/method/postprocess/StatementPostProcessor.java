@@ -24,10 +24,16 @@
  */
 package org.spongepowered.despector.decompiler.method.postprocess;
 
-import org.spongepowered.despector.ast.members.insn.StatementBlock;
-
+/**
+ * A post processor which is run over the statements of a decompiled method
+ * once the method body has been formed.
+ */
 public interface StatementPostProcessor {
 
-    void postprocess(StatementBlock block);
+    /**
+     * Registers the callbacks of this post processor for the statement types
+     * it is interested in with the given pass.
+     */
+    void register(PostProcessPass pass);
 
 }
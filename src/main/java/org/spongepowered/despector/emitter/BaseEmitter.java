@@ -25,22 +25,44 @@
 package org.spongepowered.despector.emitter;
 
 import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.LibraryConfiguration;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
 
 public class BaseEmitter implements Emitter {
 
     private final EmitterSet set;
+    private final boolean semicolons;
 
     public BaseEmitter(EmitterSet set) {
+        this(set, set != Emitters.KOTLIN_SET);
+    }
+
+    /**
+     * Creates a new emitter for the given emitter set, which emits statements
+     * with or without trailing semicolons.
+     */
+    public BaseEmitter(EmitterSet set, boolean semicolons) {
         this.set = set;
+        this.semicolons = semicolons;
     }
 
     @Override
     public void emit(EmitterContext ctx, TypeEntry type) {
-        if(this.set == Emitters.KOTLIN_SET) {
+        if (!this.semicolons) {
             ctx.setSemicolons(false);
         }
         ctx.setEmitterSet(this.set);
-        ctx.emitOuterType(type);
+        MetricsSink metrics = LibraryConfiguration.getMetrics();
+        long start = System.nanoTime();
+        try {
+            ctx.emitOuterType(type);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Phase.EMIT, type.getName());
+            throw e;
+        } finally {
+            metrics.recordPhase(Phase.EMIT, System.nanoTime() - start);
+        }
     }
 
 }
@@ -155,112 +155,127 @@ import java.util.EnumMap;
 
 public class Emitters {
 
-    public static final EmitterSet JAVA_SET = new EmitterSet();
-    public static final EmitterSet KOTLIN_SET = new EmitterSet();
+    public static final EmitterSet JAVA_SET = createJavaSet();
+    public static final EmitterSet KOTLIN_SET = createKotlinSet(JAVA_SET);
 
-    public static final Emitter JAVA = new BaseEmitter(JAVA_SET);
-    public static final Emitter KOTLIN = new BaseEmitter(KOTLIN_SET);
-    public static final Emitter WILD = new WildEmitter();
+    public static final Emitter JAVA = new BaseEmitter(JAVA_SET, true);
+    public static final Emitter KOTLIN = new BaseEmitter(KOTLIN_SET, false);
+    public static final Emitter WILD = new WildEmitter(JAVA, KOTLIN);
 
     private static final EnumMap<Language, Emitter> EMITTERS = new EnumMap<>(Language.class);
 
     static {
+        EMITTERS.put(Language.JAVA, JAVA);
+        EMITTERS.put(Language.KOTLIN, KOTLIN);
+        EMITTERS.put(Language.ANY, WILD);
+    }
 
-        JAVA_SET.setSpecialEmitter(AnnotationEmitter.class, new AnnotationEmitter());
-        JAVA_SET.setSpecialEmitter(GenericsEmitter.class, new GenericsEmitter());
-        JAVA_SET.setSpecialEmitter(AnonymousClassEmitter.class, new AnonymousClassEmitter());
-        JAVA_SET.setSpecialEmitter(PackageInfoEmitter.class, new PackageInfoEmitter());
-        JAVA_SET.setSpecialEmitter(PackageEmitter.class, new PackageEmitter());
+    /**
+     * Creates a new emitter set with the default java emitters.
+     */
+    public static EmitterSet createJavaSet() {
+        EmitterSet set = new EmitterSet();
+        set.setSpecialEmitter(AnnotationEmitter.class, new AnnotationEmitter());
+        set.setSpecialEmitter(GenericsEmitter.class, new GenericsEmitter());
+        set.setSpecialEmitter(AnonymousClassEmitter.class, new AnonymousClassEmitter());
+        set.setSpecialEmitter(PackageInfoEmitter.class, new PackageInfoEmitter());
+        set.setSpecialEmitter(PackageEmitter.class, new PackageEmitter());
 
-        JAVA_SET.setAstEmitter(ClassEntry.class, new ClassEntryEmitter());
-        JAVA_SET.setAstEmitter(EnumEntry.class, new EnumEntryEmitter());
-        JAVA_SET.setAstEmitter(InterfaceEntry.class, new InterfaceEntryEmitter());
+        set.setAstEmitter(ClassEntry.class, new ClassEntryEmitter());
+        set.setAstEmitter(EnumEntry.class, new EnumEntryEmitter());
+        set.setAstEmitter(InterfaceEntry.class, new InterfaceEntryEmitter());
 
-        JAVA_SET.setAstEmitter(FieldEntry.class, new FieldEntryEmitter());
-        JAVA_SET.setAstEmitter(MethodEntry.class, new MethodEntryEmitter());
+        set.setAstEmitter(FieldEntry.class, new FieldEntryEmitter());
+        set.setAstEmitter(MethodEntry.class, new MethodEntryEmitter());
 
-        JAVA_SET.setStatementEmitter(ArrayAssignment.class, new ArrayAssignmentEmitter());
-        JAVA_SET.setStatementEmitter(Break.class, new BreakEmitter());
-        JAVA_SET.setStatementEmitter(Comment.class, new CommentEmitter());
-        JAVA_SET.setStatementEmitter(DoWhile.class, new DoWhileEmitter());
+        set.setStatementEmitter(ArrayAssignment.class, new ArrayAssignmentEmitter());
+        set.setStatementEmitter(Break.class, new BreakEmitter());
+        set.setStatementEmitter(Comment.class, new CommentEmitter());
+        set.setStatementEmitter(DoWhile.class, new DoWhileEmitter());
         FieldAssignmentEmitter fld_assign = new FieldAssignmentEmitter();
-        JAVA_SET.setStatementEmitter(FieldAssignment.class, fld_assign);
-        JAVA_SET.setStatementEmitter(InstanceFieldAssignment.class, fld_assign);
-        JAVA_SET.setStatementEmitter(StaticFieldAssignment.class, fld_assign);
-        JAVA_SET.setStatementEmitter(For.class, new ForEmitter());
-        JAVA_SET.setStatementEmitter(ForEach.class, new ForEachEmitter());
-        JAVA_SET.setStatementEmitter(If.class, new IfEmitter());
-        JAVA_SET.setStatementEmitter(Increment.class, new IncrementEmitter());
-        JAVA_SET.setStatementEmitter(InvokeStatement.class, new InvokeEmitter());
-        JAVA_SET.setStatementEmitter(LocalAssignment.class, new LocalAssignmentEmitter());
-        JAVA_SET.setStatementEmitter(Return.class, new ReturnEmitter());
-        JAVA_SET.setStatementEmitter(Switch.class, new SwitchEmitter());
-        JAVA_SET.setStatementEmitter(Throw.class, new ThrowEmitter());
-        JAVA_SET.setStatementEmitter(TryCatch.class, new TryCatchEmitter());
-        JAVA_SET.setStatementEmitter(While.class, new WhileEmitter());
+        set.setStatementEmitter(FieldAssignment.class, fld_assign);
+        set.setStatementEmitter(InstanceFieldAssignment.class, fld_assign);
+        set.setStatementEmitter(StaticFieldAssignment.class, fld_assign);
+        set.setStatementEmitter(For.class, new ForEmitter());
+        set.setStatementEmitter(ForEach.class, new ForEachEmitter());
+        set.setStatementEmitter(If.class, new IfEmitter());
+        set.setStatementEmitter(Increment.class, new IncrementEmitter());
+        set.setStatementEmitter(InvokeStatement.class, new InvokeEmitter());
+        set.setStatementEmitter(LocalAssignment.class, new LocalAssignmentEmitter());
+        set.setStatementEmitter(Return.class, new ReturnEmitter());
+        set.setStatementEmitter(Switch.class, new SwitchEmitter());
+        set.setStatementEmitter(Throw.class, new ThrowEmitter());
+        set.setStatementEmitter(TryCatch.class, new TryCatchEmitter());
+        set.setStatementEmitter(While.class, new WhileEmitter());
 
-        JAVA_SET.setInstructionEmitter(ArrayAccess.class, new ArrayLoadEmitter());
-        JAVA_SET.setInstructionEmitter(Cast.class, new CastEmitter());
-        JAVA_SET.setInstructionEmitter(NumberCompare.class, new CompareEmitter());
-        JAVA_SET.setInstructionEmitter(DoubleConstant.class, new DoubleConstantEmitter());
+        set.setInstructionEmitter(ArrayAccess.class, new ArrayLoadEmitter());
+        set.setInstructionEmitter(Cast.class, new CastEmitter());
+        set.setInstructionEmitter(NumberCompare.class, new CompareEmitter());
+        set.setInstructionEmitter(DoubleConstant.class, new DoubleConstantEmitter());
         FieldEmitter fld = new FieldEmitter();
-        JAVA_SET.setInstructionEmitter(InstanceFieldAccess.class, fld);
-        JAVA_SET.setInstructionEmitter(FloatConstant.class, new FloatConstantEmitter());
-        JAVA_SET.setInstructionEmitter(InstanceMethodInvoke.class, new InstanceMethodInvokeEmitter());
-        JAVA_SET.setInstructionEmitter(InstanceOf.class, new InstanceOfEmitter());
-        JAVA_SET.setInstructionEmitter(IntConstant.class, new IntConstantEmitter());
-        JAVA_SET.setInstructionEmitter(LocalAccess.class, new LocalEmitter());
-        JAVA_SET.setInstructionEmitter(LongConstant.class, new LongConstantEmitter());
-        JAVA_SET.setInstructionEmitter(NegativeOperator.class, new NegativeEmitter());
-        JAVA_SET.setInstructionEmitter(NewArray.class, new NewArrayEmitter());
-        JAVA_SET.setInstructionEmitter(New.class, new NewEmitter());
-        JAVA_SET.setInstructionEmitter(NullConstant.class, new NullConstantEmitter());
+        set.setInstructionEmitter(InstanceFieldAccess.class, fld);
+        set.setInstructionEmitter(FloatConstant.class, new FloatConstantEmitter());
+        set.setInstructionEmitter(InstanceMethodInvoke.class, new InstanceMethodInvokeEmitter());
+        set.setInstructionEmitter(InstanceOf.class, new InstanceOfEmitter());
+        set.setInstructionEmitter(IntConstant.class, new IntConstantEmitter());
+        set.setInstructionEmitter(LocalAccess.class, new LocalEmitter());
+        set.setInstructionEmitter(LongConstant.class, new LongConstantEmitter());
+        set.setInstructionEmitter(NegativeOperator.class, new NegativeEmitter());
+        set.setInstructionEmitter(NewArray.class, new NewArrayEmitter());
+        set.setInstructionEmitter(New.class, new NewEmitter());
+        set.setInstructionEmitter(NullConstant.class, new NullConstantEmitter());
         OperatorEmitter op = new OperatorEmitter();
-        JAVA_SET.setInstructionEmitter(Operator.class, op);
-        JAVA_SET.setInstructionEmitter(StaticMethodInvoke.class, new StaticMethodInvokeEmitter());
-        JAVA_SET.setInstructionEmitter(StringConstant.class, new StringConstantEmitter());
-        JAVA_SET.setInstructionEmitter(Ternary.class, new TernaryEmitter());
-        JAVA_SET.setInstructionEmitter(TypeConstant.class, new TypeConstantEmitter());
-        JAVA_SET.setInstructionEmitter(StaticFieldAccess.class, fld);
-        JAVA_SET.setInstructionEmitter(DynamicInvokeHandle.class, new DynamicInvokeEmitter());
+        set.setInstructionEmitter(Operator.class, op);
+        set.setInstructionEmitter(StaticMethodInvoke.class, new StaticMethodInvokeEmitter());
+        set.setInstructionEmitter(StringConstant.class, new StringConstantEmitter());
+        set.setInstructionEmitter(Ternary.class, new TernaryEmitter());
+        set.setInstructionEmitter(TypeConstant.class, new TypeConstantEmitter());
+        set.setInstructionEmitter(StaticFieldAccess.class, fld);
+        set.setInstructionEmitter(DynamicInvokeHandle.class, new DynamicInvokeEmitter());
 
-        JAVA_SET.setConditionEmitter(AndCondition.class, new AndConditionEmitter());
-        JAVA_SET.setConditionEmitter(OrCondition.class, new OrConditionEmitter());
-        JAVA_SET.setConditionEmitter(InverseCondition.class, new InverseConditionEmitter());
-        JAVA_SET.setConditionEmitter(CompareCondition.class, new CompareConditionEmitter());
-        JAVA_SET.setConditionEmitter(BooleanCondition.class, new BooleanConditionEmitter());
+        set.setConditionEmitter(AndCondition.class, new AndConditionEmitter());
+        set.setConditionEmitter(OrCondition.class, new OrConditionEmitter());
+        set.setConditionEmitter(InverseCondition.class, new InverseConditionEmitter());
+        set.setConditionEmitter(CompareCondition.class, new CompareConditionEmitter());
+        set.setConditionEmitter(BooleanCondition.class, new BooleanConditionEmitter());
 
-        KOTLIN_SET.clone(JAVA_SET);
+        return set;
+    }
 
-        KOTLIN_SET.setAstEmitter(ClassEntry.class, new KotlinClassEntryEmitter());
-        KOTLIN_SET.setAstEmitter(EnumEntry.class, new KotlinEnumEntryEmitter());
-        KOTLIN_SET.setAstEmitter(MethodEntry.class, new KotlinMethodEntryEmitter());
+    /**
+     * Creates a new emitter set with the default kotlin emitters, falling back
+     * to the emitters of the given java set.
+     */
+    public static EmitterSet createKotlinSet(EmitterSet java) {
+        EmitterSet set = new EmitterSet();
+        set.clone(java);
+        set.setAstEmitter(ClassEntry.class, new KotlinClassEntryEmitter());
+        set.setAstEmitter(EnumEntry.class, new KotlinEnumEntryEmitter());
+        set.setAstEmitter(MethodEntry.class, new KotlinMethodEntryEmitter());
 
-        KOTLIN_SET.setSpecialEmitter(KotlinDataClassEmitter.class, new KotlinDataClassEmitter());
-        KOTLIN_SET.setSpecialEmitter(KotlinCompanionClassEmitter.class, new KotlinCompanionClassEmitter());
-        KOTLIN_SET.setSpecialEmitter(PackageEmitter.class, new KotlinPackageEmitter());
-        KOTLIN_SET.setSpecialEmitter(GenericsEmitter.class, new KotlinGenericsEmitter());
+        set.setSpecialEmitter(KotlinDataClassEmitter.class, new KotlinDataClassEmitter());
+        set.setSpecialEmitter(KotlinCompanionClassEmitter.class, new KotlinCompanionClassEmitter());
+        set.setSpecialEmitter(PackageEmitter.class, new KotlinPackageEmitter());
+        set.setSpecialEmitter(GenericsEmitter.class, new KotlinGenericsEmitter());
 
-        KOTLIN_SET.setStatementEmitter(InvokeStatement.class, new KotlinInvokeEmitter());
-        KOTLIN_SET.setStatementEmitter(LocalAssignment.class, new KotlinLocalAssignmentEmitter());
-        KOTLIN_SET.setStatementEmitter(ForEach.class, new KotlinForEachEmitter());
-        KOTLIN_SET.setStatementEmitter(For.class, new KotlinForEmitter());
+        set.setStatementEmitter(InvokeStatement.class, new KotlinInvokeEmitter());
+        set.setStatementEmitter(LocalAssignment.class, new KotlinLocalAssignmentEmitter());
+        set.setStatementEmitter(ForEach.class, new KotlinForEachEmitter());
+        set.setStatementEmitter(For.class, new KotlinForEmitter());
 
-        KOTLIN_SET.setInstructionEmitter(InstanceMethodInvoke.class, new KotlinInstanceMethodInvokeEmitter());
-        KOTLIN_SET.setInstructionEmitter(StaticMethodInvoke.class, new KotlinStaticMethodInvokeEmitter());
-        KOTLIN_SET.setInstructionEmitter(Ternary.class, new KotlinTernaryEmitter());
-        KOTLIN_SET.setInstructionEmitter(InstanceOf.class, new KotlinInstanceOfEmitter());
-        KOTLIN_SET.setInstructionEmitter(Cast.class, new KotlinCastEmitter());
-        KOTLIN_SET.setInstructionEmitter(Elvis.class, new ElvisEmitter());
-        KOTLIN_SET.setInstructionEmitter(When.class, new WhenEmitter());
-        KOTLIN_SET.setInstructionEmitter(Operator.class, new KotlinOperatorEmitter());
+        set.setInstructionEmitter(InstanceMethodInvoke.class, new KotlinInstanceMethodInvokeEmitter());
+        set.setInstructionEmitter(StaticMethodInvoke.class, new KotlinStaticMethodInvokeEmitter());
+        set.setInstructionEmitter(Ternary.class, new KotlinTernaryEmitter());
+        set.setInstructionEmitter(InstanceOf.class, new KotlinInstanceOfEmitter());
+        set.setInstructionEmitter(Cast.class, new KotlinCastEmitter());
+        set.setInstructionEmitter(Elvis.class, new ElvisEmitter());
+        set.setInstructionEmitter(When.class, new WhenEmitter());
+        set.setInstructionEmitter(Operator.class, new KotlinOperatorEmitter());
 
-        KOTLIN_SET.setConditionEmitter(BooleanCondition.class, new KotlinBooleanConditionEmitter());
-        KOTLIN_SET.setConditionEmitter(CompareCondition.class, new KotlinCompareConditionEmitter());
+        set.setConditionEmitter(BooleanCondition.class, new KotlinBooleanConditionEmitter());
+        set.setConditionEmitter(CompareCondition.class, new KotlinCompareConditionEmitter());
 
-        EMITTERS.put(Language.JAVA, JAVA);
-        EMITTERS.put(Language.KOTLIN, KOTLIN);
-        EMITTERS.put(Language.ANY, WILD);
+        return set;
     }
 
     public static Emitter get(Language lang) {
@@ -29,12 +29,28 @@ import org.spongepowered.despector.ast.type.TypeEntry;
 
 public class WildEmitter implements Emitter {
 
+    private final Emitter java;
+    private final Emitter kotlin;
+
+    public WildEmitter() {
+        this(Emitters.JAVA, Emitters.KOTLIN);
+    }
+
+    /**
+     * Creates a new emitter which emits kotlin types with the given kotlin
+     * emitter and all types with the given java emitter.
+     */
+    public WildEmitter(Emitter java, Emitter kotlin) {
+        this.java = java;
+        this.kotlin = kotlin;
+    }
+
     @Override
     public void emit(EmitterContext ctx, TypeEntry type) {
         if(type.getLanguage() == Language.KOTLIN) {
-            Emitters.KOTLIN.emit(ctx, type);
+            this.kotlin.emit(ctx, type);
         }
-        Emitters.JAVA.emit(ctx, type);
+        this.java.emit(ctx, type);
     }
 
 }
@@ -60,6 +60,16 @@ public class DynamicInvokeEmitter implements InstructionEmitter<DynamicInvokeHan
         }
 
         ctx.printString(") -> ");
+        if (block == null) {
+            // the lambda body failed to decompile or its type has already been
+            // emitted and released
+            ctx.printString("{");
+            ctx.newLine().indent().printIndentation();
+            ctx.printString("// Error decompiling block");
+            ctx.newLine().dedent().printIndentation();
+            ctx.printString("}");
+            return;
+        }
         if (block.getStatementCount() == 1) {
             Return ret = (Return) block.getStatement(0);
             ctx.emit(ret.getValue().get(), method.getReturnType());
@@ -27,6 +27,7 @@ package org.spongepowered.despector.emitter.instruction;
 import org.spongepowered.despector.ast.generic.ClassTypeSignature;
 import org.spongepowered.despector.ast.generic.TypeSignature;
 import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
 import org.spongepowered.despector.ast.members.insn.arg.NewArray;
 import org.spongepowered.despector.ast.members.insn.arg.field.FieldAccess;
@@ -89,9 +90,18 @@ public class StaticMethodInvokeEmitter implements InstructionEmitter<StaticMetho
         TypeEntry owner_type = ctx.getType().getSource().get(owner);
         if (owner_type != null) {
             MethodEntry accessor = owner_type.getStaticMethod(arg.getMethodName());
+            // the body of the accessor may be missing if it failed to
+            // decompile or if its type has already been emitted and released
+            if (accessor == null || accessor.getInstructions() == null || accessor.getInstructions().getStatementCount() == 0) {
+                return false;
+            }
+            Statement first = accessor.getInstructions().getStatement(0);
             if (accessor.getReturnType().equals("V")) {
                 // setter
-                FieldAssignment assign = (FieldAssignment) accessor.getInstructions().getStatements().get(0);
+                if (!(first instanceof FieldAssignment)) {
+                    return false;
+                }
+                FieldAssignment assign = (FieldAssignment) first;
                 FieldAssignment replacement = null;
                 if (arg.getParams().length == 2) {
                     replacement = new InstanceFieldAssignment(assign.getFieldName(), assign.getFieldDescription(), assign.getOwnerType(),
@@ -104,8 +114,10 @@ public class StaticMethodInvokeEmitter implements InstructionEmitter<StaticMetho
                 return true;
             }
             // getter
-            Return ret = (Return) accessor.getInstructions().getStatements().get(0);
-            FieldAccess getter = (FieldAccess) ret.getValue().get();
+            if (!(first instanceof Return) || !(((Return) first).getValue().orElse(null) instanceof FieldAccess)) {
+                return false;
+            }
+            FieldAccess getter = (FieldAccess) ((Return) first).getValue().get();
             FieldAccess replacement = null;
             if (arg.getParams().length == 1) {
                 replacement = new InstanceFieldAccess(getter.getFieldName(), getter.getTypeDescriptor(), getter.getOwnerType(), arg.getParams()[0]);
@@ -24,21 +24,15 @@
  */
 package org.spongepowered.despector.emitter.statement;
 
-import com.google.common.collect.Maps;
+import org.spongepowered.despector.ast.SwitchMapCache;
 import org.spongepowered.despector.ast.generic.ClassTypeSignature;
 import org.spongepowered.despector.ast.members.MethodEntry;
-import org.spongepowered.despector.ast.members.insn.Statement;
-import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstant;
 import org.spongepowered.despector.ast.members.insn.arg.field.ArrayAccess;
-import org.spongepowered.despector.ast.members.insn.arg.field.FieldAccess;
 import org.spongepowered.despector.ast.members.insn.arg.field.StaticFieldAccess;
-import org.spongepowered.despector.ast.members.insn.assign.ArrayAssignment;
 import org.spongepowered.despector.ast.members.insn.branch.Switch;
 import org.spongepowered.despector.ast.members.insn.branch.Switch.Case;
-import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
 import org.spongepowered.despector.ast.members.insn.function.InstanceMethodInvoke;
 import org.spongepowered.despector.ast.members.insn.function.StaticMethodInvoke;
-import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.emitter.EmitterContext;
 import org.spongepowered.despector.emitter.StatementEmitter;
 
@@ -46,55 +40,43 @@ import java.util.Map;
 
 public class SwitchEmitter implements StatementEmitter<Switch> {
 
-    private Map<Integer, String> buildSwitchTable(MethodEntry mth, String field) {
-        Map<Integer, String> table = Maps.newHashMap();
-
-        for (Statement stmt : mth.getInstructions().getStatements()) {
-            if (stmt instanceof TryCatch) {
-                TryCatch next = (TryCatch) stmt;
-                ArrayAssignment assign = (ArrayAssignment) next.getTryBlock().getStatements().get(0);
-                int jump_index = ((IntConstant) assign.getValue()).getConstant();
-                InstanceMethodInvoke ordinal = (InstanceMethodInvoke) assign.getIndex();
-                StaticFieldAccess callee = (StaticFieldAccess) ordinal.getCallee();
-                if (field == null) {
-                    table.put(jump_index, callee.getFieldName());
-                } else {
-                    FieldAccess fld = (FieldAccess) assign.getArray();
-                    if (fld.getFieldName().equals(field)) {
-                        table.put(jump_index, callee.getFieldName());
-                    }
-                }
-            }
-        }
-
-        return table;
-    }
-
     @Override
     public void emit(EmitterContext ctx, Switch tswitch, boolean semicolon) {
         Map<Integer, String> table = null;
         ctx.printString("switch (");
         boolean synthetic = false;
-        if (tswitch.getSwitchVar() instanceof ArrayAccess) {
+        if (tswitch.getSwitchVar() instanceof ArrayAccess && ctx.getType() != null) {
             ArrayAccess var = (ArrayAccess) tswitch.getSwitchVar();
+            SwitchMapCache switch_maps = ctx.getType().getSource().getSwitchMaps();
             if (var.getArrayVar() instanceof StaticMethodInvoke) {
                 StaticMethodInvoke arg = (StaticMethodInvoke) var.getArrayVar();
-                if (arg.getMethodName().contains("$SWITCH_TABLE$") && ctx.getType() != null) {
-                    MethodEntry mth = ctx.getType().getStaticMethod(arg.getMethodName(), arg.getMethodDescription());
-                    table = buildSwitchTable(mth, null);
-                    String enum_type = arg.getMethodName().substring("$SWITCH_TABLE$".length()).replace('$', '/');
-                    ctx.emit(((InstanceMethodInvoke) var.getIndex()).getCallee(), ClassTypeSignature.of("L" + enum_type + ";"));
-                    synthetic = true;
+                if (arg.getMethodName().contains("$SWITCH_TABLE$")) {
+                    MethodEntry mth = ctx.getType().getStaticMethodSafe(arg.getMethodName(), arg.getMethodDescription());
+                    table = mth == null ? null : switch_maps.getMethodTable(mth);
+                    if (table != null) {
+                        String enum_type = arg.getMethodName().substring("$SWITCH_TABLE$".length()).replace('$', '/');
+                        ctx.emit(((InstanceMethodInvoke) var.getIndex()).getCallee(), ClassTypeSignature.of("L" + enum_type + ";"));
+                        synthetic = true;
+                    }
                 }
             } else if (var.getArrayVar() instanceof StaticFieldAccess) {
                 StaticFieldAccess arg = (StaticFieldAccess) var.getArrayVar();
-                if (arg.getFieldName().startsWith("$SwitchMap") && ctx.getType() != null) {
-                    TypeEntry owner = ctx.getType().getSource().get(arg.getOwnerName());
-                    MethodEntry mth = owner.getStaticMethod("<clinit>");
-                    table = buildSwitchTable(mth, arg.getFieldName());
-                    String enum_type = arg.getFieldName().substring("$SwitchMap/".length()).replace('$', '/');
-                    ctx.emit(((InstanceMethodInvoke) var.getIndex()).getCallee(), ClassTypeSignature.of("L" + enum_type + ";"));
-                    synthetic = true;
+                if (arg.getFieldName().startsWith("$SwitchMap")) {
+                    table = switch_maps.getFieldTable(arg.getOwnerName(), arg.getFieldName());
+                    if (table != null) {
+                        String enum_type = arg.getFieldName().substring("$SwitchMap/".length()).replace('$', '/');
+                        ctx.emit(((InstanceMethodInvoke) var.getIndex()).getCallee(), ClassTypeSignature.of("L" + enum_type + ";"));
+                        synthetic = true;
+                    }
+                } else if (arg.getFieldName().startsWith("$EnumSwitchMapping$") && var.getIndex() instanceof InstanceMethodInvoke) {
+                    // kotlin numbers its mappings so the enum type is taken
+                    // from the ordinal call instead of the field name
+                    table = switch_maps.getFieldTable(arg.getOwnerName(), arg.getFieldName());
+                    if (table != null) {
+                        InstanceMethodInvoke ordinal = (InstanceMethodInvoke) var.getIndex();
+                        ctx.emit(ordinal.getCallee(), ClassTypeSignature.of(ordinal.getOwner()));
+                        synthetic = true;
+                    }
                 }
             }
         }
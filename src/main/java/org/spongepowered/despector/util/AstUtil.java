@@ -40,11 +40,14 @@ import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
 import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.decompiler.method.OpcodeTable;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 /**
  * Various utilities for working with AST elements.
  */
@@ -542,10 +545,18 @@ public final class AstUtil {
     }
 
     public static boolean hasStartingRequirement(List<AbstractInsnNode> opcodes) {
+        return hasStartingRequirement(opcodes, null);
+    }
+
+    /**
+     * Gets if the given opcodes require values on the stack before they
+     * start, reading the stack deltas from the given table if it is present.
+     */
+    public static boolean hasStartingRequirement(List<AbstractInsnNode> opcodes, @Nullable OpcodeTable table) {
         int size = 0;
         for (int i = 0; i < opcodes.size(); i++) {
             AbstractInsnNode next = opcodes.get(i);
-            size += getStackDelta(next);
+            size += table == null ? getStackDelta(next) : table.getStackDelta(next);
             if (size < 0) {
                 return true;
             }
@@ -558,7 +569,17 @@ public final class AstUtil {
      * in the given list of opcodes.
      */
     public static int findStartLastStatement(List<AbstractInsnNode> opcodes) {
-        int required_stack = getStackDelta(opcodes.get(opcodes.size() - 1));
+        return findStartLastStatement(opcodes, null);
+    }
+
+    /**
+     * Returns the index of the opcode that is the start of the last statement
+     * in the given list of opcodes, reading the stack deltas from the given
+     * table if it is present.
+     */
+    public static int findStartLastStatement(List<AbstractInsnNode> opcodes, @Nullable OpcodeTable table) {
+        AbstractInsnNode last = opcodes.get(opcodes.size() - 1);
+        int required_stack = table == null ? getStackDelta(last) : table.getStackDelta(last);
         for (int index = opcodes.size() - 2; index >= 0; index--) {
             if (required_stack == 0) {
                 return index + 1;
@@ -571,7 +592,7 @@ public final class AstUtil {
             } else if (next instanceof LineNumberNode) {
                 continue;
             }
-            required_stack += getStackDelta(next);
+            required_stack += table == null ? getStackDelta(next) : table.getStackDelta(next);
 //            System.out.println(AstUtil.insnToString(next) + " now " + required_stack);
         }
         return 0;
@@ -24,20 +24,24 @@
  */
 package org.spongepowered.despector.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.InverseCondition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
+import org.spongepowered.despector.decompiler.method.MethodBudget;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 public class ConditionUtil {
 
     /**
@@ -86,30 +90,27 @@ public class ConditionUtil {
         return false;
     }
 
-    private static int getMapping(Map<Condition, Integer> mapping, Condition condition) {
-        if (mapping.containsKey(condition)) {
-            return mapping.get(condition);
+    private static int getMapping(Mapping mapping, Condition condition) {
+        Integer value = mapping.ids.get(condition);
+        if (value != null) {
+            return value;
         }
-        int highest = 1;
-        for (Condition key : mapping.keySet()) {
-            int kvalue = mapping.get(key);
-            if (isInverse(condition, key)) {
-                mapping.put(condition, -kvalue);
-                return -kvalue;
-            }
-            if (condition.equals(key)) {
-                mapping.put(condition, kvalue);
-                return kvalue;
-            }
-            if (kvalue >= highest) {
-                highest = kvalue + 1;
+        if (condition instanceof BooleanCondition || condition instanceof CompareCondition) {
+            // these are the conditions for which isInverse can be true, and
+            // for which the inverse of the condition is equal to the condition
+            // it is an inverse of
+            Integer inverse = mapping.ids.get(inverse(condition));
+            if (inverse != null) {
+                mapping.put(condition, -inverse);
+                return -inverse;
             }
         }
-        mapping.put(condition, highest);
-        return highest;
+        int next = ++mapping.highest;
+        mapping.put(condition, next);
+        return next;
     }
 
-    private static int[] encode(AndCondition and, Map<Condition, Integer> mapping) {
+    private static int[] encode(AndCondition and, Mapping mapping) {
         int[] encoding = new int[and.getOperands().size()];
         int i = 0;
         for (Condition c : and.getOperands()) {
@@ -119,22 +120,6 @@ public class ConditionUtil {
         return encoding;
     }
 
-    /**
-     * Gets is the first param contains the inverse of the second param.
-     */
-    private static boolean containsInverse(int[] a, int[] b) {
-        outer: for (int i = 0; i < b.length; i++) {
-            int next = b[i];
-            for (int o = 0; o < a.length; o++) {
-                if (a[o] == -next) {
-                    continue outer;
-                }
-            }
-            return false;
-        }
-        return true;
-    }
-
     /**
      * Gets is the first param contains the second param.
      */
@@ -199,76 +184,17 @@ public class ConditionUtil {
         return Arrays.copyOf(common, common_length);
     }
 
-    private static Pair<int[], int[]> simplifyCommonSubparts(int[] a, int[] b, List<int[]> encodings) {
-        if (a.length < b.length) {
-            return null;
-        }
-
-        int[] common = findCommonSubpart(a, b);
-        if (common == null) {
-            return null;
-        }
-        int common_length = common.length;
-
-        int[] remaining_a = remove(a, common);
-        int[] remaining_b = remove(b, common);
-
-        if (containsInverse(remaining_a, remaining_b)) {
-            if (remaining_a.length == remaining_b.length) {
-                return new Pair<>(common, null);
-            }
-            int[] new_m = new int[a.length - remaining_b.length];
-            int d = 0;
-            outer: for (int j = 0; j < a.length; j++) {
-                for (int v = 0; v < remaining_b.length; v++) {
-                    if (a[j] == -remaining_b[v]) {
-                        continue outer;
-                    }
-                }
-                new_m[d++] = a[j];
-            }
-            return new Pair<>(new_m, null);
-        } else if (remaining_a.length == remaining_b.length && remaining_a.length == 1) {
-            int[] new_m = new int[common_length];
-            for (int i = 0; i < common_length; i++) {
-                new_m[i] = common[i];
-            }
-
-            int[] dm = new int[] {-remaining_a[0], -remaining_b[0]};
-
-            for (int i = 0; i < encodings.size(); i++) {
-                int[] n = encodings.get(i);
-                if (n == a || n == b) {
-                    continue;
-                }
-                if (n.length == 2 && contains(n, dm)) {
-                    return new Pair<>(null, new_m);
-                }
-            }
-
-        }
-        return null;
-    }
-
-    private static Condition reverse(Map<Condition, Integer> mapping, int val) {
-        for (Map.Entry<Condition, Integer> e : mapping.entrySet()) {
-            if (e.getValue() == val) {
-                return e.getKey();
-            }
-        }
-        return null;
-    }
-
-    private static Condition decode(int[] next, Map<Condition, Integer> mapping) {
+    private static Condition decode(int[] next, Mapping mapping) {
         List<Condition> partial = new ArrayList<>();
         for (int o = 0; o < next.length; o++) {
             int val = next[o];
-            Condition p = reverse(mapping, val);
+            Condition p = mapping.conditions.get(val);
             if (p == null) {
-                p = inverse(reverse(mapping, -val));
+                p = mapping.conditions.get(-val);
                 if (p == null) {
                     throw new IllegalStateException();
                 }
+                p = inverse(p);
             }
             partial.add(p);
         }
@@ -278,7 +204,7 @@ public class ConditionUtil {
         return new AndCondition(partial);
     }
 
-    private static List<Condition> decode(List<int[]> encodings, Map<Condition, Integer> mapping) {
+    private static List<Condition> decode(List<int[]> encodings, Mapping mapping) {
         List<Condition> reverse = new ArrayList<>();
         for (int i = 0; i < encodings.size(); i++) {
             int[] next = encodings.get(i);
@@ -287,6 +213,18 @@ public class ConditionUtil {
         return reverse;
     }
 
+    private static boolean isConstant(List<int[]> encodings) {
+        if (encodings.isEmpty()) {
+            return true;
+        }
+        for (int[] next : encodings) {
+            if (next.length == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static int countOccurances(List<int[]> encodings, int value) {
         int count = 0;
         for (int[] next : encodings) {
@@ -438,7 +376,7 @@ public class ConditionUtil {
         return new BisectionResult(min_a, b, group1, remaining2);
     }
 
-    private static Condition postsimplify(List<int[]> encodings, Map<Condition, Integer> mapping) {
+    private static Condition postsimplify(List<int[]> encodings, Mapping mapping) {
         BisectionResult bisection = findBiscection(encodings);
         if (bisection != null) {
             if (bisection.second == null) {
@@ -511,17 +449,57 @@ public class ConditionUtil {
         return null;
     }
 
+    /**
+     * The maximum number of minimized covers kept in the cache.
+     */
+    public static final int SIMPLIFICATION_CACHE_SIZE = 4096;
+
+    // The same guards appear many times across a jar, such as null checks
+    // and instanceof chains. As conditions are encoded with literals numbered
+    // in the order they first appear, conditions of the same shape have equal
+    // encodings and may share the minimized cover. The cached covers must
+    // not be modified.
+    private static final Cache<Cover, List<int[]>> MINIMIZED_COVERS = CacheBuilder.newBuilder()
+            .maximumSize(SIMPLIFICATION_CACHE_SIZE)
+            .build();
+
+    @Nullable
+    private static List<int[]> minimize(List<int[]> encodings) {
+        Cover key = new Cover(encodings);
+        List<int[]> minimized = MINIMIZED_COVERS.getIfPresent(key);
+        if (minimized == null) {
+            minimized = CoverMinimizer.minimize(encodings);
+            if (minimized == null) {
+                return null;
+            }
+            MINIMIZED_COVERS.put(key, minimized);
+        }
+        return minimized;
+    }
+
     private static final boolean DEBUG_SIMPLIFICATION = Boolean.getBoolean("despect.debug.simplification");
 
+    private static void printEncodings(List<int[]> encodings) {
+        System.out.print("Exp: ");
+        for (int[] e : encodings) {
+            for (int i = 0; i < e.length; i++) {
+                System.out.print(e[i]);
+            }
+            System.out.print(" | ");
+        }
+        System.out.println();
+    }
+
     /**
      * Attempts to simplify the given condition.
      */
     public static Condition simplifyCondition(Condition condition) {
-        // A brute force simplification of sum-of-products expressions
+        // A heuristic minimization of sum-of-products expressions
         if (condition instanceof OrCondition) {
             OrCondition or = (OrCondition) condition;
+            MethodBudget.checkConditionTerms(or.getOperands().size());
             List<int[]> encodings = new ArrayList<>(or.getOperands().size());
-            Map<Condition, Integer> mapping = new HashMap<>();
+            Mapping mapping = new Mapping();
             // Each of the conditions is encoded into an integer array, every
             // condition is inserted into a map to track an integer value for
             // each condition. Conditions that are equivalent are given the same
@@ -531,15 +509,6 @@ public class ConditionUtil {
             // This encoding allows very quick and easy comparisons of
             // whether conditions are equal or inverses of each other.
 
-            // This simplification method is a massive fucking hack in an
-            // attempt to more easily handle more than a small number of
-            // conditions. The problem of minimizing boolean functions is
-            // NP-hard and traditional solutions such as the Quine–McCluskey
-            // algorithm start to require a prohibative amount of memory and
-            // time with even a seemingly small number of conditions.
-
-            // TODO: The Espresso heuristic logic minimizer may be worth looking
-            // into
             for (int i = 0; i < or.getOperands().size(); i++) {
                 Condition c = or.getOperands().get(i);
                 if (c instanceof AndCondition) {
@@ -549,114 +518,25 @@ public class ConditionUtil {
                 }
             }
             if (DEBUG_SIMPLIFICATION) {
-                for (Map.Entry<Condition, Integer> e : mapping.entrySet()) {
+                for (Map.Entry<Condition, Integer> e : mapping.ids.entrySet()) {
                     System.out.println(e.getKey() + " : " + e.getValue());
                 }
-                System.out.print("Exp: ");
-                for (int[] e : encodings) {
-                    for (int i = 0; i < e.length; i++) {
-                        System.out.print(e[i]);
-                    }
-                    System.out.print(" | ");
+                printEncodings(encodings);
+            }
+            // The terms are reduced to an irredundant set of prime implicants,
+            // see CoverMinimizer for details. If there are more distinct
+            // conditions than the minimizer supports then the terms are left
+            // as they are.
+            List<int[]> minimized = minimize(encodings);
+            if (minimized != null) {
+                if (isConstant(minimized)) {
+                    // the condition is constant, which we have no way of
+                    // representing
+                    return condition;
                 }
-                System.out.println();
-            }
-            for (int j = 0; j < encodings.size(); j++) {
-                for (int k = 0; k < encodings.size(); k++) {
-                    int[] n = encodings.get(k);
-                    for (Iterator<int[]> it = encodings.iterator(); it.hasNext();) {
-                        int[] m = it.next();
-                        if (m == n || m.length < n.length) {
-                            continue;
-                        }
-                        // if m contains n either in whole or part then it can
-                        // be removed as any time n is true, m will also be true
-                        if (contains(m, n)) {
-                            it.remove();
-                            if (DEBUG_SIMPLIFICATION) {
-                                System.out.println("Removed expression containing other expression");
-                                System.out.print("Exp: ");
-                                for (int[] e : encodings) {
-                                    for (int i = 0; i < e.length; i++) {
-                                        System.out.print(e[i]);
-                                    }
-                                    System.out.print(" | ");
-                                }
-                                System.out.println();
-                            }
-                        }
-                    }
-                    for (int l = 0; l < encodings.size(); l++) {
-                        if (l == k) {
-                            continue;
-                        }
-                        int[] m = encodings.get(l);
-                        if (m.length < n.length) {
-                            continue;
-                        }
-                        // if m contains the inverse of n then those parts
-                        // corresponding to n can be removed from m
-                        if (containsInverse(m, n)) {
-                            int[] new_m = new int[m.length - n.length];
-                            int d = 0;
-                            outer: for (int u = 0; u < m.length; u++) {
-                                for (int v = 0; v < n.length; v++) {
-                                    if (m[u] == -n[v]) {
-                                        continue outer;
-                                    }
-                                }
-                                new_m[d++] = m[u];
-                            }
-                            encodings.set(l, new_m);
-                            if (DEBUG_SIMPLIFICATION) {
-                                System.out.println("Removed inverse of other expression from expression");
-                                System.out.print("Exp: ");
-                                for (int[] e : encodings) {
-                                    for (int i = 0; i < e.length; i++) {
-                                        System.out.print(e[i]);
-                                    }
-                                    System.out.print(" | ");
-                                }
-                                System.out.println();
-                            }
-                        } else {
-                            // this extracts common subparts from m and n and
-                            // then performs a few simplifications ont he
-                            // remaining pieces.
-                            Pair<int[], int[]> s = simplifyCommonSubparts(m, n, encodings);
-                            if (s != null) {
-                                if (s.getFirst() != null) {
-                                    encodings.set(l, s.getFirst());
-                                    if (DEBUG_SIMPLIFICATION) {
-                                        System.out.println("Applied inverse removal to common sub part");
-                                        System.out.print("Exp: ");
-                                        for (int[] e : encodings) {
-                                            for (int i = 0; i < e.length; i++) {
-                                                System.out.print(e[i]);
-                                            }
-                                            System.out.print(" | ");
-                                        }
-                                        System.out.println();
-                                    }
-                                } else {
-                                    encodings.set(k, s.getSecond());
-                                    encodings.remove(l);
-                                    if (DEBUG_SIMPLIFICATION) {
-                                        System.out.println("Applied De Morgans law to common sub part");
-                                        System.out.print("Exp: ");
-                                        for (int[] e : encodings) {
-                                            for (int i = 0; i < e.length; i++) {
-                                                System.out.print(e[i]);
-                                            }
-                                            System.out.print(" | ");
-                                        }
-                                        System.out.println();
-                                    }
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                encodings = minimized;
+                if (DEBUG_SIMPLIFICATION) {
+                    printEncodings(encodings);
                 }
             }
             // postsimplify looks for common patterns and breaks them out
@@ -689,6 +569,58 @@ public class ConditionUtil {
 
     }
 
+    /**
+     * A mapping between conditions and the literals which represent them in
+     * the encoded terms.
+     */
+    private static class Mapping {
+
+        final Map<Condition, Integer> ids = new HashMap<>();
+        final Map<Integer, Condition> conditions = new HashMap<>();
+        int highest = 0;
+
+        Mapping() {
+        }
+
+        void put(Condition condition, int id) {
+            this.ids.put(condition, id);
+            this.conditions.putIfAbsent(id, condition);
+        }
+
+    }
+
+    /**
+     * An encoded cover used as a key in the cache of minimized covers.
+     */
+    private static class Cover {
+
+        private final int[][] terms;
+        private final int hash;
+
+        Cover(List<int[]> terms) {
+            this.terms = terms.toArray(new int[terms.size()][]);
+            this.hash = Arrays.deepHashCode(this.terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Cover)) {
+                return false;
+            }
+            Cover cover = (Cover) o;
+            return this.hash == cover.hash && Arrays.deepEquals(this.terms, cover.terms);
+        }
+
+    }
+
     private ConditionUtil() {
     }
 }
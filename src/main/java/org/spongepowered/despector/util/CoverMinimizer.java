@@ -0,0 +1,320 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util;
+
+import org.spongepowered.despector.decompiler.method.MethodBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A heuristic minimizer for sum-of-products boolean expressions in the style
+ * of the Espresso logic minimizer.
+ * 
+ * <p>The expression is given as a cover of terms where each term is an array
+ * of non zero literals, a negative literal being the inverse of the positive
+ * literal of the same magnitude. Each term is first expanded to a prime
+ * implicant by removing any literals which are not needed, then any terms
+ * which are covered by the remaining terms are removed. Both steps rest on
+ * checking whether a term is contained in the cover, which is done with a
+ * recursive tautology check over the cofactors of the cover.</p>
+ * 
+ * <p>The tautology check is exponential in the worst case so the total work
+ * spent on a cover is bounded, once the bound is reached the cover is
+ * returned as it stands. Every step keeps the cover equivalent to the input
+ * so an early stop only costs compactness.</p>
+ */
+public class CoverMinimizer {
+
+    /**
+     * The maximum number of literals supported, a literal is stored as a bit
+     * in a long.
+     */
+    public static final int MAX_LITERALS = 64;
+
+    private static final int DEFAULT_WORK_LIMIT = 100000;
+
+    /**
+     * Minimizes the given cover. The literals within each term keep their
+     * original order. Returns null if the cover uses a literal with a
+     * magnitude greater than {@link #MAX_LITERALS}.
+     */
+    @Nullable
+    public static List<int[]> minimize(List<int[]> cover) {
+        return minimize(cover, DEFAULT_WORK_LIMIT);
+    }
+
+    /**
+     * Minimizes the given cover, spending no more than the given number of
+     * steps in tautology checks. The literals within each term keep their
+     * original order. Returns null if the cover uses a literal with a
+     * magnitude greater than {@link #MAX_LITERALS}.
+     */
+    @Nullable
+    public static List<int[]> minimize(List<int[]> cover, int work_limit) {
+        List<Term> terms = new ArrayList<>(cover.size());
+        for (int[] literals : cover) {
+            Term term = Term.of(literals);
+            if (term == null) {
+                return null;
+            }
+            // a term containing a literal and its inverse is never true
+            if ((term.pos & term.neg) == 0) {
+                terms.add(term);
+            }
+        }
+        CoverMinimizer minimizer = new CoverMinimizer(terms, work_limit);
+        minimizer.removeContained();
+        minimizer.expand();
+        minimizer.removeContained();
+        minimizer.irredundant();
+        List<int[]> result = new ArrayList<>(minimizer.terms.size());
+        for (Term term : minimizer.terms) {
+            result.add(term.literals);
+        }
+        return result;
+    }
+
+    private final List<Term> terms;
+    private int work;
+
+    private CoverMinimizer(List<Term> terms, int work_limit) {
+        this.terms = terms;
+        this.work = work_limit;
+    }
+
+    /**
+     * Removes any terms which are contained in a single other term.
+     */
+    private void removeContained() {
+        for (int i = 0; i < this.terms.size(); i++) {
+            Term a = this.terms.get(i);
+            for (int j = this.terms.size() - 1; j >= 0; j--) {
+                if (j == i) {
+                    continue;
+                }
+                Term b = this.terms.get(j);
+                if (a.contains(b)) {
+                    this.terms.remove(j);
+                    if (j < i) {
+                        i--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands each term to a prime implicant by removing each literal whose
+     * removal leaves the term contained in the cover.
+     */
+    private void expand() {
+        for (int i = 0; i < this.terms.size(); i++) {
+            Term term = this.terms.get(i);
+            int[] literals = term.literals;
+            for (int j = 0; j < literals.length && literals.length > 1; j++) {
+                MethodBudget.checkTime();
+                Term expanded = Term.of(remove(literals, j));
+                if (expanded == null) {
+                    break;
+                }
+                if (isCovered(expanded, this.terms, -1)) {
+                    literals = expanded.literals;
+                    term = expanded;
+                    j--;
+                }
+            }
+            this.terms.set(i, term);
+        }
+    }
+
+    /**
+     * Removes terms which are covered by the remaining terms, trying the
+     * terms with the most literals first.
+     */
+    private void irredundant() {
+        int max = 0;
+        for (Term term : this.terms) {
+            max = Math.max(max, term.literals.length);
+        }
+        for (int size = max; size > 0; size--) {
+            for (int i = this.terms.size() - 1; i >= 0; i--) {
+                Term term = this.terms.get(i);
+                if (term.literals.length != size) {
+                    continue;
+                }
+                MethodBudget.checkTime();
+                if (isCovered(term, this.terms, i)) {
+                    this.terms.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets if the given term is contained in the given cover, ignoring the
+     * term of the cover at the given index. Returns false if the work limit
+     * has been reached.
+     */
+    private boolean isCovered(Term term, List<Term> cover, int ignore) {
+        int size = cover.size();
+        long[] pos = new long[size];
+        long[] neg = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == ignore) {
+                continue;
+            }
+            Term next = cover.get(i);
+            // cofactor the cover with respect to the term
+            if ((next.pos & term.neg) != 0 || (next.neg & term.pos) != 0) {
+                continue;
+            }
+            pos[count] = next.pos & ~term.pos;
+            neg[count] = next.neg & ~term.neg;
+            count++;
+        }
+        return isTautology(pos, neg, count);
+    }
+
+    private boolean isTautology(long[] pos, long[] neg, int count) {
+        if (this.work-- <= 0) {
+            return false;
+        }
+        long pos_union = 0;
+        long neg_union = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos[i] == 0 && neg[i] == 0) {
+                // an empty term is always true
+                return true;
+            }
+            pos_union |= pos[i];
+            neg_union |= neg[i];
+        }
+        long binate = pos_union & neg_union;
+        if (binate == 0) {
+            // a cover which is unate in every literal is only a tautology if
+            // it has an empty term
+            return false;
+        }
+        // split on the binate literal appearing in the most terms
+        long split = 0;
+        int best = -1;
+        for (long rest = binate; rest != 0; rest &= rest - 1) {
+            long bit = Long.lowestOneBit(rest);
+            int occurrences = 0;
+            for (int i = 0; i < count; i++) {
+                if (((pos[i] | neg[i]) & bit) != 0) {
+                    occurrences++;
+                }
+            }
+            if (occurrences > best) {
+                best = occurrences;
+                split = bit;
+            }
+        }
+        return isTautology(pos, neg, count, split, true) && isTautology(pos, neg, count, split, false);
+    }
+
+    /**
+     * Checks if the cofactor of the cover with respect to the given literal
+     * taking the given value is a tautology.
+     */
+    private boolean isTautology(long[] pos, long[] neg, int count, long split, boolean value) {
+        long[] cpos = new long[count];
+        long[] cneg = new long[count];
+        int ccount = 0;
+        for (int i = 0; i < count; i++) {
+            if (((value ? neg[i] : pos[i]) & split) != 0) {
+                continue;
+            }
+            cpos[ccount] = pos[i] & ~split;
+            cneg[ccount] = neg[i] & ~split;
+            ccount++;
+        }
+        return isTautology(cpos, cneg, ccount);
+    }
+
+    private static int[] remove(int[] literals, int index) {
+        int[] result = new int[literals.length - 1];
+        System.arraycopy(literals, 0, result, 0, index);
+        System.arraycopy(literals, index + 1, result, index, literals.length - index - 1);
+        return result;
+    }
+
+    /**
+     * A term of the cover, the literals are kept in their original order
+     * alongside bitsets of the positive and negative literals.
+     */
+    private static class Term {
+
+        @Nullable
+        static Term of(int[] literals) {
+            long pos = 0;
+            long neg = 0;
+            int[] unique = new int[literals.length];
+            int count = 0;
+            for (int literal : literals) {
+                int index = Math.abs(literal) - 1;
+                if (index < 0 || index >= MAX_LITERALS) {
+                    return null;
+                }
+                long bit = 1L << index;
+                if (((literal > 0 ? pos : neg) & bit) != 0) {
+                    continue;
+                }
+                if (literal > 0) {
+                    pos |= bit;
+                } else {
+                    neg |= bit;
+                }
+                unique[count++] = literal;
+            }
+            return new Term(count == literals.length ? literals : Arrays.copyOf(unique, count), pos, neg);
+        }
+
+        final int[] literals;
+        final long pos;
+        final long neg;
+
+        Term(int[] literals, long pos, long neg) {
+            this.literals = literals;
+            this.pos = pos;
+            this.neg = neg;
+        }
+
+        /**
+         * Gets if every assignment satisfying the other term satisfies this
+         * term.
+         */
+        boolean contains(Term other) {
+            return (this.pos & ~other.pos) == 0 && (this.neg & ~other.neg) == 0;
+        }
+
+    }
+}
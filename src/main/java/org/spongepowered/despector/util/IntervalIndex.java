@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * An immutable index over a list of inclusive integer ranges which finds the
+ * range containing a point in logarithmic time.
+ *
+ * <p>The bounds of the ranges split the integers into segments which are each
+ * contained by the same set of ranges. The range which came first in the
+ * original list is found for every segment once when the index is created,
+ * by marking each range over the segments it spans in a segment tree, so a
+ * lookup is a single binary search over the segment starts.</p>
+ */
+public final class IntervalIndex {
+
+    /**
+     * An index with no ranges.
+     */
+    public static final IntervalIndex EMPTY = new IntervalIndex(new int[0], new int[0]);
+
+    private final int size;
+    // the first point of each segment in ascending order, as longs so that the
+    // end of a range reaching Integer.MAX_VALUE is still representable
+    private final long[] starts;
+    // the position in the original list of the range found for each segment
+    private final int[] found;
+
+    /**
+     * Creates a new index over the ranges {@code [lows[i], highs[i]]}.
+     */
+    public IntervalIndex(int[] lows, int[] highs) {
+        checkArgument(lows.length == highs.length, "Mismatched range bounds");
+        this.size = lows.length;
+        long[] bounds = new long[this.size * 2];
+        for (int i = 0; i < this.size; i++) {
+            bounds[i * 2] = lows[i];
+            bounds[i * 2 + 1] = highs[i] + 1L;
+        }
+        Arrays.sort(bounds);
+        int count = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (count == 0 || bounds[i] != bounds[count - 1]) {
+                bounds[count++] = bounds[i];
+            }
+        }
+        this.starts = Arrays.copyOf(bounds, count);
+        // a segment tree with the leaves at [count, count * 2), each node holds
+        // the first range spanning every segment beneath it
+        int[] tree = new int[count * 2];
+        Arrays.fill(tree, Integer.MAX_VALUE);
+        for (int i = 0; i < this.size; i++) {
+            if (highs[i] < lows[i]) {
+                continue;
+            }
+            int l = Arrays.binarySearch(this.starts, lows[i]) + count;
+            int r = Arrays.binarySearch(this.starts, highs[i] + 1L) + count;
+            for (; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) != 0) {
+                    tree[l] = Math.min(tree[l], i);
+                    l++;
+                }
+                if ((r & 1) != 0) {
+                    r--;
+                    tree[r] = Math.min(tree[r], i);
+                }
+            }
+        }
+        // push each node down so the leaves hold the final result
+        for (int i = 1; i < count; i++) {
+            tree[i * 2] = Math.min(tree[i * 2], tree[i]);
+            tree[i * 2 + 1] = Math.min(tree[i * 2 + 1], tree[i]);
+        }
+        this.found = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = tree[i + count];
+            this.found[i] = index == Integer.MAX_VALUE ? -1 : index;
+        }
+    }
+
+    /**
+     * Gets the number of ranges in this index.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Finds the range containing the given point. If several ranges contain
+     * the point then the one which came first in the original list is
+     * returned.
+     *
+     * @return The position of the range in the original list, or -1 if no
+     *     range contains the point
+     */
+    public int find(int point) {
+        int segment = Arrays.binarySearch(this.starts, point);
+        if (segment < 0) {
+            // the segment starting before the point
+            segment = -segment - 2;
+            if (segment < 0) {
+                return -1;
+            }
+        }
+        return this.found[segment];
+    }
+
+}
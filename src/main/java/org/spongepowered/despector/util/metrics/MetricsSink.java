@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util.metrics;
+
+/**
+ * Receives timings and counts while decompiling and emitting. Methods may be
+ * called concurrently when decompiling with multiple threads and should be
+ * cheap as they are called for every method.
+ */
+public interface MetricsSink {
+
+    /**
+     * A sink which discards everything.
+     */
+    static final MetricsSink NONE = new MetricsSink() {
+    };
+
+    /**
+     * Records the time in nanoseconds spent in a phase.
+     */
+    default void recordPhase(Phase phase, long nanos) {
+    }
+
+    /**
+     * Records a failure during a phase. The name is the type or method which
+     * failed, followed by the failing processor in parentheses for failures
+     * of the {@link Phase#POST_PROCESS post process phase}.
+     */
+    default void recordFailure(Phase phase, String name) {
+    }
+
+    /**
+     * Records the time in nanoseconds taken to decompile a class, excluding
+     * parsing the class file.
+     */
+    default void recordClass(String name, long nanos, boolean failed) {
+    }
+
+    /**
+     * Records the time in nanoseconds taken to decompile a method body along
+     * with the number of blocks in its graph and the number of top level
+     * statements in its body. Methods which fail to decompile are recorded as
+     * a failure of the phase they failed in instead.
+     */
+    default void recordMethod(String owner, String name, String desc, long nanos, int blocks, int statements) {
+    }
+
+}
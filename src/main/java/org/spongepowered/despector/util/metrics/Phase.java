@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util.metrics;
+
+/**
+ * The phases of decompiling and emitting which are timed separately.
+ */
+public enum Phase {
+
+    /**
+     * Reading class files into asm class nodes.
+     */
+    PARSE,
+    /**
+     * Building the opcode block graph of a method.
+     */
+    GRAPH,
+    /**
+     * Applying the cleanup operations to the graph of a method.
+     */
+    CLEANUP,
+    /**
+     * Flattening the graph of a method into statements with the graph and
+     * region processors.
+     */
+    FLATTEN,
+    /**
+     * Applying the statement post processors to a method.
+     */
+    POST_PROCESS,
+    /**
+     * Applying type transformers to decompiled types.
+     */
+    TRANSFORM,
+    /**
+     * Emitting the source of a type.
+     */
+    EMIT;
+
+    private final String display_name;
+
+    Phase() {
+        this.display_name = name().toLowerCase().replace('_', ' ');
+    }
+
+    public String getDisplayName() {
+        return this.display_name;
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A metrics sink which totals the time spent in each phase and keeps the
+ * slowest methods, for printing a summary at the end of a run.
+ */
+public class SummaryMetricsSink implements MetricsSink {
+
+    private static final Comparator<MethodTiming> BY_TIME = Comparator.comparingLong(MethodTiming::getTime);
+
+    private final int slowest_count;
+
+    private final LongAdder[] phase_times = new LongAdder[Phase.values().length];
+    private final LongAdder[] phase_failures = new LongAdder[Phase.values().length];
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder failed_classes = new LongAdder();
+    private final LongAdder class_time = new LongAdder();
+    private final LongAdder methods = new LongAdder();
+    private final LongAdder method_time = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+
+    // a min heap so the fastest of the slowest methods is replaced first
+    private final PriorityQueue<MethodTiming> slowest = new PriorityQueue<>(BY_TIME);
+
+    /**
+     * Creates a new sink which keeps the given number of slowest methods.
+     */
+    public SummaryMetricsSink(int slowest_count) {
+        this.slowest_count = slowest_count;
+        for (int i = 0; i < this.phase_times.length; i++) {
+            this.phase_times[i] = new LongAdder();
+            this.phase_failures[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void recordPhase(Phase phase, long nanos) {
+        this.phase_times[phase.ordinal()].add(nanos);
+    }
+
+    @Override
+    public void recordFailure(Phase phase, String name) {
+        this.phase_failures[phase.ordinal()].increment();
+    }
+
+    @Override
+    public void recordClass(String name, long nanos, boolean failed) {
+        this.classes.increment();
+        this.class_time.add(nanos);
+        if (failed) {
+            this.failed_classes.increment();
+        }
+    }
+
+    @Override
+    public void recordMethod(String owner, String name, String desc, long nanos, int blocks, int statements) {
+        this.methods.increment();
+        this.method_time.add(nanos);
+        this.blocks.add(blocks);
+        this.statements.add(statements);
+        if (this.slowest_count <= 0) {
+            return;
+        }
+        synchronized (this.slowest) {
+            if (this.slowest.size() < this.slowest_count) {
+                this.slowest.add(new MethodTiming(owner, name, desc, nanos, blocks, statements));
+            } else if (this.slowest.peek().getTime() < nanos) {
+                this.slowest.poll();
+                this.slowest.add(new MethodTiming(owner, name, desc, nanos, blocks, statements));
+            }
+        }
+    }
+
+    /**
+     * Gets the total time in nanoseconds spent in the given phase.
+     */
+    public long getPhaseTime(Phase phase) {
+        return this.phase_times[phase.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of failures during the given phase.
+     */
+    public long getFailures(Phase phase) {
+        return this.phase_failures[phase.ordinal()].sum();
+    }
+
+    public long getClassCount() {
+        return this.classes.sum();
+    }
+
+    public long getFailedClassCount() {
+        return this.failed_classes.sum();
+    }
+
+    public long getMethodCount() {
+        return this.methods.sum();
+    }
+
+    public long getBlockCount() {
+        return this.blocks.sum();
+    }
+
+    public long getStatementCount() {
+        return this.statements.sum();
+    }
+
+    /**
+     * Gets the slowest methods, slowest first.
+     */
+    public List<MethodTiming> getSlowestMethods() {
+        List<MethodTiming> result;
+        synchronized (this.slowest) {
+            result = new ArrayList<>(this.slowest);
+        }
+        result.sort(BY_TIME.reversed());
+        return result;
+    }
+
+    /**
+     * Prints the time spent in each phase and the slowest methods.
+     */
+    public void printSummary(PrintStream out) {
+        out.println("Phase summary:");
+        for (Phase phase : Phase.values()) {
+            out.printf("  %-14s %10.1f ms %6d failed%n", phase.getDisplayName(), millis(getPhaseTime(phase)), getFailures(phase));
+        }
+        out.printf("Classes: %d (%d failed) in %.1f ms%n", getClassCount(), getFailedClassCount(), millis(this.class_time.sum()));
+        out.printf("Methods: %d in %.1f ms, %d blocks, %d statements%n", getMethodCount(), millis(this.method_time.sum()), getBlockCount(),
+                getStatementCount());
+        List<MethodTiming> slowest = getSlowestMethods();
+        if (!slowest.isEmpty()) {
+            out.println("Slowest methods:");
+            for (MethodTiming method : slowest) {
+                out.printf("  %10.1f ms  %s.%s%s (%d blocks, %d statements)%n", millis(method.getTime()), method.getOwner(), method.getName(),
+                        method.getDescription(), method.getBlockCount(), method.getStatementCount());
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    /**
+     * The time taken to decompile a method.
+     */
+    public static class MethodTiming {
+
+        private final String owner;
+        private final String name;
+        private final String desc;
+        private final long nanos;
+        private final int blocks;
+        private final int statements;
+
+        public MethodTiming(String owner, String name, String desc, long nanos, int blocks, int statements) {
+            this.owner = owner;
+            this.name = name;
+            this.desc = desc;
+            this.nanos = nanos;
+            this.blocks = blocks;
+            this.statements = statements;
+        }
+
+        public String getOwner() {
+            return this.owner;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getDescription() {
+            return this.desc;
+        }
+
+        /**
+         * Gets the time in nanoseconds taken to decompile the method.
+         */
+        public long getTime() {
+            return this.nanos;
+        }
+
+        public int getBlockCount() {
+            return this.blocks;
+        }
+
+        public int getStatementCount() {
+            return this.statements;
+        }
+
+    }
+
+}
@@ -0,0 +1,1193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util.serialization;
+
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+
+import org.objectweb.asm.Type;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.AccessModifier;
+import org.spongepowered.despector.ast.Annotation;
+import org.spongepowered.despector.ast.AnnotationType;
+import org.spongepowered.despector.ast.Locals;
+import org.spongepowered.despector.ast.Locals.Local;
+import org.spongepowered.despector.ast.Locals.LocalInstance;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.generic.ClassSignature;
+import org.spongepowered.despector.ast.generic.ClassTypeSignature;
+import org.spongepowered.despector.ast.generic.MethodSignature;
+import org.spongepowered.despector.ast.generic.TypeArgument;
+import org.spongepowered.despector.ast.generic.TypeParameter;
+import org.spongepowered.despector.ast.generic.TypeSignature;
+import org.spongepowered.despector.ast.generic.TypeVariableSignature;
+import org.spongepowered.despector.ast.generic.VoidTypeSignature;
+import org.spongepowered.despector.ast.generic.WildcardType;
+import org.spongepowered.despector.ast.kotlin.Elvis;
+import org.spongepowered.despector.ast.kotlin.When;
+import org.spongepowered.despector.ast.members.FieldEntry;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.Comment;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.Cast;
+import org.spongepowered.despector.ast.members.insn.arg.InstanceOf;
+import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.NewArray;
+import org.spongepowered.despector.ast.members.insn.arg.NumberCompare;
+import org.spongepowered.despector.ast.members.insn.arg.cst.DoubleConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.FloatConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.LongConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.NullConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.StringConstant;
+import org.spongepowered.despector.ast.members.insn.arg.cst.TypeConstant;
+import org.spongepowered.despector.ast.members.insn.arg.field.ArrayAccess;
+import org.spongepowered.despector.ast.members.insn.arg.field.InstanceFieldAccess;
+import org.spongepowered.despector.ast.members.insn.arg.field.LocalAccess;
+import org.spongepowered.despector.ast.members.insn.arg.field.StaticFieldAccess;
+import org.spongepowered.despector.ast.members.insn.arg.operator.NegativeOperator;
+import org.spongepowered.despector.ast.members.insn.arg.operator.Operator;
+import org.spongepowered.despector.ast.members.insn.arg.operator.OperatorType;
+import org.spongepowered.despector.ast.members.insn.assign.ArrayAssignment;
+import org.spongepowered.despector.ast.members.insn.assign.InstanceFieldAssignment;
+import org.spongepowered.despector.ast.members.insn.assign.LocalAssignment;
+import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssignment;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Break.Breakable;
+import org.spongepowered.despector.ast.members.insn.branch.DoWhile;
+import org.spongepowered.despector.ast.members.insn.branch.For;
+import org.spongepowered.despector.ast.members.insn.branch.ForEach;
+import org.spongepowered.despector.ast.members.insn.branch.If;
+import org.spongepowered.despector.ast.members.insn.branch.Switch;
+import org.spongepowered.despector.ast.members.insn.branch.Ternary;
+import org.spongepowered.despector.ast.members.insn.branch.TryCatch;
+import org.spongepowered.despector.ast.members.insn.branch.While;
+import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition.CompareOperator;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.InverseCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
+import org.spongepowered.despector.ast.members.insn.function.DynamicInvokeHandle;
+import org.spongepowered.despector.ast.members.insn.function.InstanceMethodInvoke;
+import org.spongepowered.despector.ast.members.insn.function.InvokeStatement;
+import org.spongepowered.despector.ast.members.insn.function.New;
+import org.spongepowered.despector.ast.members.insn.function.StaticMethodInvoke;
+import org.spongepowered.despector.ast.members.insn.misc.Increment;
+import org.spongepowered.despector.ast.members.insn.misc.Return;
+import org.spongepowered.despector.ast.members.insn.misc.Throw;
+import org.spongepowered.despector.ast.type.ArrayTypeEntry;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds an ast from the messagepack form written by
+ * {@link SourceSet#writeTo(MessagePacker)}.
+ */
+public class AstDeserializer {
+
+    /**
+     * Reads a serialized source set from the given stream into a new
+     * {@link SourceSet}.
+     */
+    public static SourceSet deserialize(InputStream in) throws IOException {
+        SourceSet set = new SourceSet();
+        deserialize(in, set);
+        return set;
+    }
+
+    /**
+     * Reads a serialized source set from the given stream and adds all types
+     * to the given source set.
+     */
+    public static void deserialize(InputStream in, SourceSet set) throws IOException {
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in);
+        }
+        new AstDeserializer(set, new MessageUnpacker(in)).readSourceSet();
+    }
+
+    private final SourceSet set;
+    private final MessageUnpacker unpack;
+
+    private Locals locals;
+    private final Map<Integer, Break> breaks = new HashMap<>();
+
+    public AstDeserializer(SourceSet set, MessageUnpacker unpack) {
+        this.set = set;
+        this.unpack = unpack;
+    }
+
+    private void key(String expected) throws IOException {
+        String key = this.unpack.readString();
+        if (!expected.equals(key)) {
+            throw new IllegalStateException("Expected key " + expected + " but found " + key);
+        }
+    }
+
+    private boolean readNil() throws IOException {
+        if (this.unpack.peekType() == MessageType.NIL) {
+            this.unpack.readNil();
+            return true;
+        }
+        return false;
+    }
+
+    private String readNullableString() throws IOException {
+        if (readNil()) {
+            return null;
+        }
+        return this.unpack.readString();
+    }
+
+    private List<String> readStringList() throws IOException {
+        int len = this.unpack.readArray();
+        List<String> list = new ArrayList<>(len);
+        for (int i = 0; i < len; i++) {
+            list.add(this.unpack.readString());
+        }
+        return list;
+    }
+
+    /**
+     * Reads a full source set and adds all of its types to the target source
+     * set.
+     */
+    public void readSourceSet() throws IOException {
+        this.unpack.readMap();
+        key("version");
+        int version = this.unpack.readInt();
+        if (version != AstSerializer.VERSION) {
+            throw new IllegalStateException("Unsupported ast version " + version + ", expected " + AstSerializer.VERSION);
+        }
+        key("classes");
+        int len = this.unpack.readArray();
+        for (int i = 0; i < len; i++) {
+            this.set.add(readType());
+        }
+    }
+
+    /**
+     * Reads a single type entry.
+     */
+    public TypeEntry readType() throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        int id = this.unpack.readInt();
+        key("language");
+        Language lang = Language.values()[this.unpack.readInt()];
+        key("access");
+        AccessModifier access = AccessModifier.values()[this.unpack.readInt()];
+        key("synthetic");
+        boolean synthetic = this.unpack.readBool();
+        key("final");
+        boolean is_final = this.unpack.readBool();
+        key("innerclass");
+        this.unpack.readBool();
+        key("name");
+        String name = this.unpack.readString();
+
+        TypeEntry entry = null;
+        int extra = 1;
+        if (id == AstSerializer.ENTRY_ID_CLASS) {
+            entry = new ClassEntry(this.set, lang, name);
+        } else if (id == AstSerializer.ENTRY_ID_ENUM) {
+            entry = new EnumEntry(this.set, lang, name);
+        } else if (id == AstSerializer.ENTRY_ID_INTERFACE) {
+            entry = new InterfaceEntry(this.set, lang, name);
+            extra = 0;
+        } else if (id == AstSerializer.ENTRY_ID_ARRAY) {
+            entry = new ArrayTypeEntry(this.set, lang, name.substring(0, name.length() - 2));
+        } else {
+            throw new IllegalStateException("Unknown type entry id 0x" + Integer.toHexString(id));
+        }
+        entry.setAccessModifier(access);
+        entry.setSynthetic(synthetic);
+        entry.setFinal(is_final);
+
+        key("interfaces");
+        for (String inter : readStringList()) {
+            entry.addInterface(inter);
+        }
+        key("staticfields");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            entry.addField(readField(entry));
+        }
+        key("fields");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            entry.addField(readField(entry));
+        }
+        key("staticmethods");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            entry.addMethod(readMethod());
+        }
+        key("methods");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            entry.addMethod(readMethod());
+        }
+        if (len > 15 + extra) {
+            key("signature");
+            entry.setSignature(readClassSignature());
+        }
+        key("annotations");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            entry.addAnnotation(readAnnotation());
+        }
+        key("inner_classes");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            readInnerClass(entry);
+        }
+
+        if (id == AstSerializer.ENTRY_ID_CLASS) {
+            key("supername");
+            ((ClassEntry) entry).setSuperclass(this.unpack.readString());
+        } else if (id == AstSerializer.ENTRY_ID_ENUM) {
+            key("enumconstants");
+            for (String cst : readStringList()) {
+                ((EnumEntry) entry).addEnumConstant(cst);
+            }
+        } else if (id == AstSerializer.ENTRY_ID_ARRAY) {
+            key("component_type");
+            this.unpack.readString();
+        }
+        return entry;
+    }
+
+    private void readInnerClass(TypeEntry entry) throws IOException {
+        this.unpack.readMap();
+        key("name");
+        String name = this.unpack.readString();
+        key("simple_name");
+        String simple = readNullableString();
+        key("outer_name");
+        String outer = readNullableString();
+        int acc = 0;
+        key("static");
+        if (this.unpack.readBool()) {
+            acc |= ACC_STATIC;
+        }
+        key("final");
+        if (this.unpack.readBool()) {
+            acc |= ACC_FINAL;
+        }
+        key("abstract");
+        if (this.unpack.readBool()) {
+            acc |= ACC_ABSTRACT;
+        }
+        key("synthetic");
+        if (this.unpack.readBool()) {
+            acc |= ACC_SYNTHETIC;
+        }
+        key("access");
+        AccessModifier access = AccessModifier.values()[this.unpack.readInt()];
+        if (access == AccessModifier.PUBLIC) {
+            acc |= ACC_PUBLIC;
+        } else if (access == AccessModifier.PROTECTED) {
+            acc |= ACC_PROTECTED;
+        } else if (access == AccessModifier.PRIVATE) {
+            acc |= ACC_PRIVATE;
+        }
+        entry.addInnerClass(name, simple, outer, acc);
+    }
+
+    private FieldEntry readField(TypeEntry owner) throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        FieldEntry fld = new FieldEntry(this.set);
+        fld.setOwner(owner.getName());
+        key("access");
+        fld.setAccessModifier(AccessModifier.values()[this.unpack.readInt()]);
+        key("name");
+        fld.setName(this.unpack.readString());
+        key("type");
+        fld.setType(readTypeSignature());
+        key("final");
+        fld.setFinal(this.unpack.readBool());
+        key("static");
+        fld.setStatic(this.unpack.readBool());
+        key("synthetic");
+        fld.setSynthetic(this.unpack.readBool());
+        if (len > 8) {
+            key("initializer");
+            this.locals = new Locals();
+            fld.setInitializer(readInstruction());
+            this.locals = null;
+        }
+        key("annotations");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            fld.addAnnotation(readAnnotation());
+        }
+        return fld;
+    }
+
+    private MethodEntry readMethod() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        MethodEntry mth = new MethodEntry(this.set);
+        key("access");
+        mth.setAccessModifier(AccessModifier.values()[this.unpack.readInt()]);
+        key("owner");
+        mth.setOwner(this.unpack.readString());
+        key("name");
+        mth.setName(this.unpack.readString());
+        key("signature");
+        // the return and parameter types are derived from the descriptor
+        mth.setSignature(this.unpack.readString());
+        key("abstract");
+        mth.setAbstract(this.unpack.readBool());
+        key("final");
+        mth.setFinal(this.unpack.readBool());
+        key("static");
+        mth.setStatic(this.unpack.readBool());
+        key("synthetic");
+        mth.setSynthetic(this.unpack.readBool());
+        key("bridge");
+        mth.setBridge(this.unpack.readBool());
+        key("returntype");
+        readTypeSignature();
+        key("paramtypes");
+        readStringList();
+        key("methodsignature");
+        if (!readNil()) {
+            mth.setMethodSignature(readMethodSignature());
+        }
+        key("instructions");
+        if (!readNil()) {
+            this.breaks.clear();
+            mth.setInstructions(readStatementBlock());
+            this.locals = null;
+        }
+        key("annotations");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            mth.addAnnotation(readAnnotation());
+        }
+        return mth;
+    }
+
+    private Annotation readAnnotation() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        key("typename");
+        AnnotationType type = this.set.getAnnotationType(this.unpack.readString());
+        Annotation anno = new Annotation(type);
+        key("values");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            this.unpack.readMap();
+            key("name");
+            String name = this.unpack.readString();
+            key("type");
+            Class<?> value_type;
+            try {
+                value_type = Class.forName(this.unpack.readString());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Unknown annotation value type", e);
+            }
+            if (type.getType(name) == null && !type.isComplete()) {
+                type.setType(name, value_type);
+            }
+            key("default");
+            Object def = readAnnotationValue(value_type);
+            if (def != null && type.getDefaultValue(name) == null) {
+                type.setDefault(name, def);
+            }
+            key("value");
+            anno.setValue(name, readAnnotationValue(value_type));
+        }
+        key("runtime");
+        type.setRuntimeVisible(this.unpack.readBool());
+        return anno;
+    }
+
+    private Object readAnnotationValue(Class<?> type) throws IOException {
+        if (readNil()) {
+            return null;
+        }
+        if (type == Integer.class) {
+            return this.unpack.readInt();
+        } else if (type == Byte.class) {
+            return (byte) this.unpack.readInt();
+        } else if (type == Short.class) {
+            return (short) this.unpack.readInt();
+        } else if (type == Character.class) {
+            return (char) this.unpack.readInt();
+        } else if (type == Long.class) {
+            return this.unpack.readLong();
+        } else if (type == Float.class) {
+            return this.unpack.readFloat();
+        } else if (type == Double.class) {
+            return this.unpack.readDouble();
+        } else if (type == Boolean.class) {
+            return this.unpack.readBool();
+        } else if (type == String.class) {
+            return this.unpack.readString();
+        } else if (type == Type.class) {
+            this.unpack.readMap();
+            key("id");
+            this.unpack.readInt();
+            key("class");
+            return Type.getType(this.unpack.readString());
+        } else if (type == String[].class) {
+            return readStringList().toArray(new String[0]);
+        } else if (List.class.isAssignableFrom(type)) {
+            int len = this.unpack.readArray();
+            List<Object> list = new ArrayList<>(len);
+            for (int i = 0; i < len; i++) {
+                MessageType next = this.unpack.peekType();
+                if (next == MessageType.BOOL) {
+                    list.add(readAnnotationValue(Boolean.class));
+                } else if (next == MessageType.INT) {
+                    list.add(readAnnotationValue(Integer.class));
+                } else if (next == MessageType.FLOAT) {
+                    list.add(readAnnotationValue(Float.class));
+                } else if (next == MessageType.DOUBLE) {
+                    list.add(readAnnotationValue(Double.class));
+                } else if (next == MessageType.STRING) {
+                    list.add(readAnnotationValue(String.class));
+                } else if (next == MessageType.MAP) {
+                    list.add(readAnnotationValue(Type.class));
+                } else {
+                    list.add(readAnnotationValue(String[].class));
+                }
+            }
+            return list;
+        }
+        throw new IllegalStateException("Cannot unpack annotation value of type " + type.getName());
+    }
+
+    // Signatures
+
+    private TypeSignature readTypeSignature() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        int id = this.unpack.readInt();
+        if (id == AstSerializer.SIGNATURE_ID_TYPEVOID) {
+            return VoidTypeSignature.VOID;
+        } else if (id == AstSerializer.SIGNATURE_ID_TYPEVAR) {
+            key("identifier");
+            return new TypeVariableSignature(this.unpack.readString());
+        } else if (id == AstSerializer.SIGNATURE_ID_TYPECLASS) {
+            return readClassTypeSignatureBody();
+        }
+        throw new IllegalStateException("Unknown type signature id 0x" + Integer.toHexString(id));
+    }
+
+    private ClassTypeSignature readClassTypeSignature() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        return readClassTypeSignatureBody();
+    }
+
+    private ClassTypeSignature readClassTypeSignatureBody() throws IOException {
+        key("type");
+        String type = this.unpack.readString();
+        key("args");
+        int count = this.unpack.readArray();
+        if (count == 0) {
+            return ClassTypeSignature.of(type);
+        }
+        ClassTypeSignature sig = ClassTypeSignature.of(type, true);
+        for (int i = 0; i < count; i++) {
+            sig.getArguments().add(readTypeArgument());
+        }
+        return sig;
+    }
+
+    private TypeArgument readTypeArgument() throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        key("wildcard");
+        WildcardType wildcard = WildcardType.values()[this.unpack.readInt()];
+        TypeSignature sig = null;
+        if (len > 2) {
+            key("signature");
+            sig = readTypeSignature();
+        }
+        return new TypeArgument(wildcard, sig);
+    }
+
+    private TypeParameter readTypeParameter() throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        key("identifier");
+        String identifier = this.unpack.readString();
+        TypeSignature class_bound = null;
+        if (len > 3) {
+            key("classbound");
+            class_bound = readTypeSignature();
+        }
+        TypeParameter param = new TypeParameter(identifier, class_bound);
+        key("interfacebounds");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            param.getInterfaceBounds().add(readTypeSignature());
+        }
+        return param;
+    }
+
+    private ClassSignature readClassSignature() throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        ClassSignature sig = new ClassSignature();
+        key("parameters");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            sig.getParameters().add(readTypeParameter());
+        }
+        if (len > 3) {
+            key("superclass");
+            sig.setSuperclassSignature(readClassTypeSignature());
+        }
+        key("interfaces");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            sig.getInterfaceSignatures().add(readClassTypeSignature());
+        }
+        return sig;
+    }
+
+    private MethodSignature readMethodSignature() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        MethodSignature sig = new MethodSignature();
+        key("type_parameters");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            sig.getTypeParameters().add(readTypeParameter());
+        }
+        key("parameters");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            sig.getParameters().add(readTypeSignature());
+        }
+        key("exceptions");
+        count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            sig.getThrowsSignature().add(readTypeSignature());
+        }
+        key("returntype");
+        sig.setReturnType(readTypeSignature());
+        return sig;
+    }
+
+    // Locals
+
+    private Locals readLocals() throws IOException {
+        Locals locals = new Locals();
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            int len = this.unpack.readMap();
+            key("index");
+            Local local = locals.getLocal(this.unpack.readInt());
+            key("parameter");
+            if (this.unpack.readBool()) {
+                local.setAsParameter();
+            }
+            if (len > 3) {
+                key("parameter_instance");
+                local.setParameterInstance(readLocalInstance(local));
+            }
+            key("instances");
+            int insn_count = this.unpack.readArray();
+            for (int j = 0; j < insn_count; j++) {
+                local.addInstance(readLocalInstance(local));
+            }
+        }
+        return locals;
+    }
+
+    private LocalInstance readLocalInstance(Local local) throws IOException {
+        this.unpack.readMap();
+        key("name");
+        String name = this.unpack.readString();
+        key("type");
+        TypeSignature type = null;
+        if (!readNil()) {
+            type = readTypeSignature();
+        }
+        key("start");
+        int start = this.unpack.readInt();
+        key("end");
+        int end = this.unpack.readInt();
+        LocalInstance insn = new LocalInstance(local, null, name, type, start, end);
+        key("final");
+        insn.setEffectivelyFinal(this.unpack.readBool());
+        key("annotations");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            insn.getAnnotations().add(readAnnotation());
+        }
+        return insn;
+    }
+
+    /**
+     * Reads a reference to a local instance written by
+     * {@link LocalInstance#writeToSimple(MessagePacker)} and resolves it
+     * against the locals of the current method.
+     */
+    private LocalInstance readLocalRef() throws IOException {
+        this.unpack.readMap();
+        key("local");
+        Local local = this.locals.getLocal(this.unpack.readInt());
+        key("start");
+        int start = this.unpack.readInt();
+        key("end");
+        int end = this.unpack.readInt();
+        if (start == -1 && end == -1 && local.getParameterInstance() != null) {
+            return local.getParameterInstance();
+        }
+        for (LocalInstance insn : local.getInstances()) {
+            if (insn.getStart() == start && insn.getEnd() == end) {
+                return insn;
+            }
+        }
+        LocalInstance insn = new LocalInstance(local, null, "local" + local.getIndex(), null, start, end);
+        local.addInstance(insn);
+        return insn;
+    }
+
+    // Statements
+
+    private StatementBlock readStatementBlock() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        this.unpack.readInt();
+        key("type");
+        StatementBlock.Type type = StatementBlock.Type.values()[this.unpack.readInt()];
+        if (type == StatementBlock.Type.METHOD) {
+            key("locals");
+            this.locals = readLocals();
+        } else if (this.locals == null) {
+            this.locals = new Locals();
+        }
+        StatementBlock block = new StatementBlock(type, this.locals);
+        key("instructions");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            block.append(readStatement());
+        }
+        return block;
+    }
+
+    private void readBreakpoints(Breakable loop) throws IOException {
+        key("breakpoints");
+        int count = this.unpack.readArray();
+        for (int i = 0; i < count; i++) {
+            Break br = this.breaks.get(this.unpack.readInt());
+            if (br != null) {
+                br.setLoop(loop);
+                loop.getBreaks().add(br);
+            }
+        }
+    }
+
+    private Instruction[] readInstructionArray() throws IOException {
+        int count = this.unpack.readArray();
+        Instruction[] insns = new Instruction[count];
+        for (int i = 0; i < count; i++) {
+            insns[i] = readInstruction();
+        }
+        return insns;
+    }
+
+    private Statement readNullableStatement() throws IOException {
+        if (readNil()) {
+            return null;
+        }
+        return readStatement();
+    }
+
+    /**
+     * Reads a single statement.
+     */
+    public Statement readStatement() throws IOException {
+        int len = this.unpack.readMap();
+        key("id");
+        int id = this.unpack.readInt();
+        switch (id) {
+        case AstSerializer.STATEMENT_ID_COMMENT: {
+            key("comment");
+            return new Comment(readStringList());
+        }
+        case AstSerializer.STATEMENT_ID_INCREMENT: {
+            key("local");
+            LocalInstance local = readLocalRef();
+            key("increment");
+            return new Increment(local, this.unpack.readInt());
+        }
+        case AstSerializer.STATEMENT_ID_RETURN: {
+            if (len > 1) {
+                key("value");
+                return new Return(readInstruction());
+            }
+            return new Return();
+        }
+        case AstSerializer.STATEMENT_ID_THROW: {
+            key("ex");
+            return new Throw(readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_INVOKE: {
+            key("inner");
+            return new InvokeStatement(readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_IF: {
+            key("condition");
+            Condition cond = readCondition();
+            key("body");
+            If iff = new If(cond, readStatementBlock());
+            key("elif");
+            int count = this.unpack.readArray();
+            for (int i = 0; i < count; i++) {
+                this.unpack.readMap();
+                key("condition");
+                Condition elif_cond = readCondition();
+                key("body");
+                iff.new Elif(elif_cond, readStatementBlock());
+            }
+            if (len > 4) {
+                key("else");
+                iff.new Else(readStatementBlock());
+            }
+            return iff;
+        }
+        case AstSerializer.STATEMENT_ID_DO_WHILE: {
+            key("condition");
+            Condition cond = readCondition();
+            key("body");
+            DoWhile loop = new DoWhile(cond, readStatementBlock());
+            readBreakpoints(loop);
+            return loop;
+        }
+        case AstSerializer.STATEMENT_ID_WHILE: {
+            key("condition");
+            Condition cond = readCondition();
+            key("body");
+            While loop = new While(cond, readStatementBlock());
+            readBreakpoints(loop);
+            return loop;
+        }
+        case AstSerializer.STATEMENT_ID_FOR: {
+            key("init");
+            Statement init = readNullableStatement();
+            key("condition");
+            Condition cond = readCondition();
+            key("incr");
+            Statement incr = readNullableStatement();
+            key("body");
+            For loop = new For(init, cond, incr, readStatementBlock());
+            readBreakpoints(loop);
+            return loop;
+        }
+        case AstSerializer.STATEMENT_ID_FOREACH: {
+            key("local");
+            LocalInstance local = readLocalRef();
+            key("collection");
+            Instruction collection = readInstruction();
+            key("body");
+            ForEach loop = new ForEach(collection, local, readStatementBlock());
+            readBreakpoints(loop);
+            return loop;
+        }
+        case AstSerializer.STATEMENT_ID_SWITCH: {
+            key("var");
+            Switch sw = new Switch(readInstruction());
+            key("cases");
+            int count = this.unpack.readArray();
+            for (int i = 0; i < count; i++) {
+                this.unpack.readMap();
+                key("body");
+                StatementBlock body = readStatementBlock();
+                key("breaks");
+                boolean br = this.unpack.readBool();
+                key("default");
+                boolean def = this.unpack.readBool();
+                key("indices");
+                int index_count = this.unpack.readArray();
+                List<Integer> indices = new ArrayList<>(index_count);
+                for (int j = 0; j < index_count; j++) {
+                    indices.add(this.unpack.readInt());
+                }
+                sw.new Case(body, br, def, indices);
+            }
+            return sw;
+        }
+        case AstSerializer.STATEMENT_ID_TRY_CATCH: {
+            key("body");
+            TryCatch tr = new TryCatch(readStatementBlock());
+            key("catch");
+            int count = this.unpack.readArray();
+            for (int i = 0; i < count; i++) {
+                this.unpack.readMap();
+                key("exceptions");
+                List<String> exceptions = readStringList();
+                key("block");
+                StatementBlock block = readStatementBlock();
+                String key = this.unpack.readString();
+                if ("local".equals(key)) {
+                    tr.new CatchBlock(readLocalRef(), exceptions, block);
+                } else {
+                    tr.new CatchBlock(this.unpack.readString(), exceptions, block);
+                }
+            }
+            return tr;
+        }
+        case AstSerializer.STATEMENT_ID_ARRAY_ASSIGN: {
+            key("array");
+            Instruction array = readInstruction();
+            key("index");
+            Instruction index = readInstruction();
+            key("val");
+            return new ArrayAssignment(array, index, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_INSTANCE_FIELD_ASSIGN: {
+            key("name");
+            String name = this.unpack.readString();
+            key("type");
+            String type = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("owner_val");
+            Instruction owner_val = readInstruction();
+            key("val");
+            return new InstanceFieldAssignment(name, type, owner, owner_val, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_STATIC_FIELD_ASSIGN: {
+            key("name");
+            String name = this.unpack.readString();
+            key("type");
+            String type = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("val");
+            return new StaticFieldAssignment(name, type, owner, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_LOCAL_ASSIGN: {
+            key("local");
+            LocalInstance local = readLocalRef();
+            key("val");
+            return new LocalAssignment(local, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_BREAK: {
+            key("type");
+            Break.Type type = Break.Type.values()[this.unpack.readInt()];
+            key("nested");
+            boolean nested = this.unpack.readBool();
+            key("break_id");
+            Break br = new Break(null, type, nested);
+            this.breaks.put(this.unpack.readInt(), br);
+            return br;
+        }
+        default:
+            throw new IllegalStateException("Unknown statement id 0x" + Integer.toHexString(id));
+        }
+    }
+
+    /**
+     * Reads a single instruction.
+     */
+    public Instruction readInstruction() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        int id = this.unpack.readInt();
+        switch (id) {
+        case AstSerializer.STATEMENT_ID_CAST: {
+            key("value");
+            Instruction val = readInstruction();
+            key("type");
+            return new Cast(readTypeSignature(), val);
+        }
+        case AstSerializer.STATEMENT_ID_INSTANCE_OF: {
+            key("val");
+            Instruction val = readInstruction();
+            key("type");
+            return new InstanceOf(val, this.unpack.readString());
+        }
+        case AstSerializer.STATEMENT_ID_NEW_ARRAY: {
+            key("type");
+            String type = this.unpack.readString();
+            key("size");
+            Instruction size = readInstruction();
+            key("values");
+            Instruction[] values = null;
+            if (!readNil()) {
+                values = readInstructionArray();
+            }
+            return new NewArray(type, size, values);
+        }
+        case AstSerializer.STATEMENT_ID_NUMBER_COMPARE: {
+            key("left");
+            Instruction left = readInstruction();
+            key("right");
+            return new NumberCompare(left, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_DOUBLE_CONSTANT: {
+            key("cst");
+            return new DoubleConstant(this.unpack.readDouble());
+        }
+        case AstSerializer.STATEMENT_ID_FLOAT_CONSTANT: {
+            key("cst");
+            return new FloatConstant(this.unpack.readFloat());
+        }
+        case AstSerializer.STATEMENT_ID_INT_CONSTANT: {
+            key("cst");
+            return new IntConstant(this.unpack.readInt());
+        }
+        case AstSerializer.STATEMENT_ID_LONG_CONSTANT: {
+            key("cst");
+            return new LongConstant(this.unpack.readLong());
+        }
+        case AstSerializer.STATEMENT_ID_NULL_CONSTANT:
+            return NullConstant.NULL;
+        case AstSerializer.STATEMENT_ID_STRING_CONSTANT: {
+            key("cst");
+            return new StringConstant(this.unpack.readString());
+        }
+        case AstSerializer.STATEMENT_ID_TYPE_CONSTANT: {
+            key("cst");
+            return new TypeConstant(Type.getType(this.unpack.readString()));
+        }
+        case AstSerializer.STATEMENT_ID_ARRAY_ACCESS: {
+            key("array");
+            Instruction array = readInstruction();
+            key("index");
+            Instruction index = readInstruction();
+            // the signature is inferred from the array
+            key("signature");
+            readTypeSignature();
+            return new ArrayAccess(array, index);
+        }
+        case AstSerializer.STATEMENT_ID_INSTANCE_FIELD_ACCESS: {
+            key("name");
+            String name = this.unpack.readString();
+            key("desc");
+            String desc = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("owner_val");
+            Instruction owner_val = readInstruction();
+            key("signature");
+            readTypeSignature();
+            return new InstanceFieldAccess(name, desc, owner, owner_val);
+        }
+        case AstSerializer.STATEMENT_ID_STATIC_FIELD_ACCESS: {
+            key("name");
+            String name = this.unpack.readString();
+            key("desc");
+            String desc = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("signature");
+            readTypeSignature();
+            return new StaticFieldAccess(name, desc, owner);
+        }
+        case AstSerializer.STATEMENT_ID_LOCAL_ACCESS: {
+            key("local");
+            return new LocalAccess(readLocalRef());
+        }
+        case AstSerializer.STATEMENT_ID_NEGATIVE_OPERATOR: {
+            key("val");
+            return new NegativeOperator(readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_OPERATOR: {
+            key("left");
+            Instruction left = readInstruction();
+            key("right");
+            Instruction right = readInstruction();
+            key("operator");
+            return new Operator(OperatorType.values()[this.unpack.readInt()], left, right);
+        }
+        case AstSerializer.STATEMENT_ID_TERNARY: {
+            key("condition");
+            Condition cond = readCondition();
+            key("true");
+            Instruction true_val = readInstruction();
+            key("false");
+            return new Ternary(cond, true_val, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_DYNAMIC_INVOKE: {
+            key("type");
+            TypeSignature type = readTypeSignature();
+            key("name");
+            String name = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("method");
+            String method = this.unpack.readString();
+            key("desc");
+            return new DynamicInvokeHandle(owner, method, this.unpack.readString(), type, name);
+        }
+        case AstSerializer.STATEMENT_ID_INSTANCE_INVOKE: {
+            key("name");
+            String name = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("desc");
+            String desc = this.unpack.readString();
+            key("params");
+            Instruction[] params = readInstructionArray();
+            key("callee");
+            return new InstanceMethodInvoke(name, desc, owner, params, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_STATIC_INVOKE: {
+            key("name");
+            String name = this.unpack.readString();
+            key("owner");
+            String owner = this.unpack.readString();
+            key("desc");
+            String desc = this.unpack.readString();
+            key("params");
+            return new StaticMethodInvoke(name, desc, owner, readInstructionArray());
+        }
+        case AstSerializer.STATEMENT_ID_NEW: {
+            key("type");
+            TypeSignature type = readTypeSignature();
+            key("ctor");
+            String ctor = this.unpack.readString();
+            key("params");
+            return new New(type, ctor, readInstructionArray());
+        }
+        case AstSerializer.STATEMENT_ID_ELVIS: {
+            key("left");
+            Instruction left = readInstruction();
+            key("else");
+            return new Elvis(left, readInstruction());
+        }
+        case AstSerializer.STATEMENT_ID_WHEN: {
+            key("local");
+            LocalInstance local = readLocalRef();
+            key("var");
+            When when = new When(local, readInstruction());
+            key("cases");
+            int count = this.unpack.readArray();
+            for (int i = 0; i < count; i++) {
+                this.unpack.readMap();
+                key("condition");
+                Condition cond = readNullableCondition();
+                key("body");
+                StatementBlock body = readNil() ? null : readStatementBlock();
+                key("last");
+                Instruction last = readNil() ? null : readInstruction();
+                when.getCases().add(new When.Case(cond, body, last));
+            }
+            key("else");
+            this.unpack.readMap();
+            key("condition");
+            readNullableCondition();
+            key("body");
+            StatementBlock body = readNil() ? null : readStatementBlock();
+            key("last");
+            when.setElseBody(body, readNil() ? null : readInstruction());
+            return when;
+        }
+        default:
+            throw new IllegalStateException("Unknown instruction id 0x" + Integer.toHexString(id));
+        }
+    }
+
+    private Condition readNullableCondition() throws IOException {
+        if (readNil()) {
+            return null;
+        }
+        return readCondition();
+    }
+
+    /**
+     * Reads a single condition.
+     */
+    public Condition readCondition() throws IOException {
+        this.unpack.readMap();
+        key("id");
+        int id = this.unpack.readInt();
+        switch (id) {
+        case AstSerializer.CONDITION_ID_AND:
+        case AstSerializer.CONDITION_ID_OR: {
+            key("args");
+            int count = this.unpack.readArray();
+            List<Condition> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                args.add(readCondition());
+            }
+            if (id == AstSerializer.CONDITION_ID_AND) {
+                return new AndCondition(args);
+            }
+            return new OrCondition(args);
+        }
+        case AstSerializer.CONDITION_ID_BOOL: {
+            key("val");
+            Instruction val = readInstruction();
+            key("inverse");
+            return new BooleanCondition(val, this.unpack.readBool());
+        }
+        case AstSerializer.CONDITION_ID_COMPARE: {
+            key("left");
+            Instruction left = readInstruction();
+            key("right");
+            Instruction right = readInstruction();
+            key("op");
+            return new CompareCondition(left, right, CompareOperator.values()[this.unpack.readInt()]);
+        }
+        case AstSerializer.CONDITION_ID_INVERSE: {
+            key("val");
+            return new InverseCondition(readCondition());
+        }
+        default:
+            throw new IllegalStateException("Unknown condition id 0x" + Integer.toHexString(id));
+        }
+    }
+
+}
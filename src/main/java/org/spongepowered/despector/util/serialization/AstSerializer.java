@@ -26,7 +26,7 @@ package org.spongepowered.despector.util.serialization;
 
 public class AstSerializer {
 
-    public static final int VERSION = 1;
+    public static final int VERSION = 2;
 
     public static final int ENTRY_ID_CLASS = 0x00;
     public static final int ENTRY_ID_ENUM = 0x01;
@@ -76,6 +76,8 @@ public class AstSerializer {
     public static final int STATEMENT_ID_TYPE_CONSTANT = 0x34;
     public static final int STATEMENT_ID_INVOKE = 0x35;
     public static final int STATEMENT_ID_BREAK = 0x36;
+    public static final int STATEMENT_ID_ELVIS = 0x37;
+    public static final int STATEMENT_ID_WHEN = 0x38;
 
     public static final int SIGNATURE_ID_TYPEVOID = 0x80;
     public static final int SIGNATURE_ID_TYPECLASS = 0x81;
@@ -67,10 +67,10 @@ public class MessagePacker implements AutoCloseable {
         } else if (val <= 127 && val >= -128) {
             this.stream.writeByte(TYPE_INT8);
             this.stream.writeByte((int) (val & 0xFF));
-        } else if (val <= 0xFFFF) {
+        } else if (val <= Short.MAX_VALUE && val >= Short.MIN_VALUE) {
             this.stream.writeByte(TYPE_INT16);
             this.stream.writeShort((int) (val & 0xFFFF));
-        } else if (val <= 0xFFFFFFFFL) {
+        } else if (val <= Integer.MAX_VALUE && val >= Integer.MIN_VALUE) {
             this.stream.writeByte(TYPE_INT32);
             this.stream.writeInt((int) val);
         } else {
@@ -112,19 +112,21 @@ public class MessagePacker implements AutoCloseable {
     }
 
     public MessagePacker writeString(String val) throws IOException {
-        if (val.length() <= 31) {
-            this.stream.writeByte(TYPE_STR5_MASK | val.length());
-        } else if (val.length() < 0xFF) {
+        // the length is of the encoded bytes, not the characters
+        byte[] data = val.getBytes(Charsets.UTF_8);
+        if (data.length <= 31) {
+            this.stream.writeByte(TYPE_STR5_MASK | data.length);
+        } else if (data.length < 0xFF) {
             this.stream.writeByte(TYPE_STR8);
-            this.stream.writeByte(val.length());
-        } else if (val.length() < 0xFFFF) {
+            this.stream.writeByte(data.length);
+        } else if (data.length < 0xFFFF) {
             this.stream.writeByte(TYPE_STR16);
-            this.stream.writeShort(val.length());
+            this.stream.writeShort(data.length);
         } else {
             this.stream.writeByte(TYPE_STR32);
-            this.stream.writeInt(val.length());
+            this.stream.writeInt(data.length);
         }
-        this.stream.write(val.getBytes(Charsets.UTF_8));
+        this.stream.write(data);
         return this;
     }
 
@@ -226,7 +226,7 @@ public class MessageUnpacker implements AutoCloseable {
             len = this.stream.readInt();
         }
         byte[] data = new byte[len];
-        this.stream.read(data);
+        this.stream.readFully(data);
         return new String(data, Charsets.UTF_8);
     }
 
@@ -242,7 +242,7 @@ public class MessageUnpacker implements AutoCloseable {
             len = this.stream.readInt();
         }
         byte[] data = new byte[len];
-        this.stream.read(data);
+        this.stream.readFully(data);
         return data;
     }
 
@@ -0,0 +1,237 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.ConcurrentSourceSet;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.LibraryConfiguration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentSourceSetTest {
+
+    private static class CountingLoader implements SourceSet.Loader {
+
+        private final String path = ConcurrentSourceSetTest.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        final AtomicInteger finds = new AtomicInteger();
+
+        @Override
+        public InputStream find(String name) {
+            this.finds.incrementAndGet();
+            try {
+                return new FileInputStream(new File(this.path, name + ".class"));
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+        }
+    }
+
+    @Test
+    public void testLoadsOnce() throws Exception {
+        boolean quiet = LibraryConfiguration.quiet;
+        LibraryConfiguration.quiet = true;
+        CountingLoader loader = new CountingLoader();
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        source.setLoader(loader);
+        String name = "org/spongepowered/test/ast/ConcurrentSourceSetTest";
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TypeEntry>> results = new ArrayList<>();
+            Callable<TypeEntry> lookup = () -> source.get(name);
+            for (int i = 0; i < 32; i++) {
+                results.add(workers.submit(lookup));
+            }
+            TypeEntry first = results.get(0).get();
+            assertNotNull(first);
+            for (Future<TypeEntry> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            workers.shutdownNow();
+            LibraryConfiguration.quiet = quiet;
+        }
+        assertEquals(1, loader.finds.get());
+        assertEquals(1, source.getAllClasses().size());
+    }
+
+    @Test
+    public void testRecursiveLoad() {
+        boolean quiet = LibraryConfiguration.quiet;
+        LibraryConfiguration.quiet = true;
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        String name = "org/spongepowered/test/ast/ConcurrentSourceSetTest";
+        List<TypeEntry> nested = new ArrayList<>();
+        CountingLoader loader = new CountingLoader() {
+
+            @Override
+            public InputStream find(String type) {
+                nested.add(source.get(type));
+                return super.find(type);
+            }
+        };
+        source.setLoader(loader);
+        try {
+            assertNotNull(source.get(name));
+        } finally {
+            LibraryConfiguration.quiet = quiet;
+        }
+        assertEquals(1, nested.size());
+        assertNull(nested.get(0));
+        assertEquals(1, loader.finds.get());
+    }
+
+    @Test
+    public void testCrossLoad() throws Exception {
+        boolean quiet = LibraryConfiguration.quiet;
+        LibraryConfiguration.quiet = true;
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        String first = "org/spongepowered/test/ast/ConcurrentSourceSetTest";
+        String second = "org/spongepowered/test/ast/ConcurrentSourceSetTest$CountingLoader";
+        CyclicBarrier both_loading = new CyclicBarrier(2);
+        Set<String> waited = ConcurrentHashMap.newKeySet();
+        source.setLoader(new CountingLoader() {
+
+            @Override
+            public InputStream find(String type) {
+                if (waited.add(type)) {
+                    // make sure each thread is loading its type before either
+                    // looks up the other
+                    try {
+                        both_loading.await(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                source.get(type.equals(first) ? second : first);
+                return super.find(type);
+            }
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            Future<TypeEntry> a = workers.submit(() -> source.get(first));
+            Future<TypeEntry> b = workers.submit(() -> source.get(second));
+            assertNotNull(a.get(10, TimeUnit.SECONDS));
+            assertNotNull(b.get(10, TimeUnit.SECONDS));
+        } finally {
+            workers.shutdownNow();
+            LibraryConfiguration.quiet = quiet;
+        }
+        assertNotNull(source.get(first));
+        assertNotNull(source.get(second));
+    }
+
+    @Test
+    public void testNestedLoadWaits() throws Exception {
+        boolean quiet = LibraryConfiguration.quiet;
+        LibraryConfiguration.quiet = true;
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        String outer = "org/spongepowered/test/ast/ConcurrentSourceSetTest";
+        String inner = "org/spongepowered/test/ast/ConcurrentSourceSetTest$CountingLoader";
+        CountDownLatch inner_loading = new CountDownLatch(1);
+        Map<String, AtomicInteger> type_finds = new ConcurrentHashMap<>();
+        List<TypeEntry> nested = new ArrayList<>();
+        source.setLoader(new CountingLoader() {
+
+            @Override
+            public InputStream find(String type) {
+                type_finds.computeIfAbsent(type, (k) -> new AtomicInteger()).incrementAndGet();
+                try {
+                    if (type.equals(inner)) {
+                        // give the other thread time to look the type up while
+                        // this load is in flight
+                        inner_loading.countDown();
+                        Thread.sleep(200);
+                    } else {
+                        inner_loading.await(10, TimeUnit.SECONDS);
+                        nested.add(source.get(inner));
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.find(type);
+            }
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            Future<TypeEntry> a = workers.submit(() -> source.get(inner));
+            Future<TypeEntry> b = workers.submit(() -> source.get(outer));
+            assertNotNull(b.get(10, TimeUnit.SECONDS));
+            // the loading thread waited on the in-flight load of the inner type
+            // rather than loading a second copy
+            assertSame(a.get(10, TimeUnit.SECONDS), nested.get(0));
+        } finally {
+            workers.shutdownNow();
+            LibraryConfiguration.quiet = quiet;
+        }
+        assertEquals(1, type_finds.get(inner).get());
+        assertSame(nested.get(0), source.get(inner));
+    }
+
+    @Test
+    public void testAddKeepsFirst() {
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        TypeEntry first = new ClassEntry(source, Language.JAVA, "org/spongepowered/test/ast/Added");
+        source.add(first);
+        source.add(new ClassEntry(source, Language.JAVA, "org/spongepowered/test/ast/Added"));
+        assertSame(first, source.get("org/spongepowered/test/ast/Added"));
+        assertEquals(1, source.getAllClasses().size());
+    }
+
+    @Test
+    public void testFailedLoadCached() {
+        CountingLoader loader = new CountingLoader();
+        ConcurrentSourceSet source = new ConcurrentSourceSet();
+        source.setLoader(loader);
+        assertNull(source.get("org/spongepowered/test/ast/DoesNotExist"));
+        assertNull(source.get("org/spongepowered/test/ast/DoesNotExist"));
+        assertEquals(1, loader.finds.get());
+    }
+
+}
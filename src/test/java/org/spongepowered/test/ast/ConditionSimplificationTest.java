@@ -31,8 +31,11 @@ import org.spongepowered.despector.ast.generic.ClassTypeSignature;
 import org.spongepowered.despector.ast.generic.TypeSignature;
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstant;
 import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition.CompareOperator;
 import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
 import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
 import org.spongepowered.despector.util.ConditionUtil;
@@ -146,6 +149,44 @@ public class ConditionSimplificationTest {
         assertEquals(simple, simplified);
     }
 
+    @Test
+    public void testConsensus() {
+        Condition complex = or(and(a, b), and(anot, c), and(b, c));
+        Condition simple = or(and(a, b), and(anot, c));
+        Condition simplified = ConditionUtil.simplifyCondition(complex);
+        assertEquals(simple, simplified);
+    }
+
+    @Test
+    public void testExpand() {
+        Condition complex = or(and(a, b, c), and(a, bnot), and(anot, c));
+        Condition simple = or(c, and(a, bnot));
+        Condition simplified = ConditionUtil.simplifyCondition(complex);
+        assertEquals(simple, simplified);
+    }
+
+    @Test
+    public void testEqualConditions() {
+        Condition x = new CompareCondition(new IntConstant(1), new IntConstant(2), CompareOperator.EQUAL);
+        Condition y = new CompareCondition(new IntConstant(1), new IntConstant(2), CompareOperator.EQUAL);
+        Condition ynot = new CompareCondition(new IntConstant(1), new IntConstant(2), CompareOperator.NOT_EQUAL);
+        assertEquals(x.hashCode(), y.hashCode());
+        Condition complex = or(and(x, b), and(ynot, b), and(y, c));
+        Condition simple = or(b, and(x, c));
+        Condition simplified = ConditionUtil.simplifyCondition(complex);
+        assertEquals(simple, simplified);
+    }
+
+    @Test
+    public void testSameShape() {
+        // the second condition has the same shape as the first and so shares
+        // the cached result
+        Condition simplified = ConditionUtil.simplifyCondition(or(and(a, b), and(a, bnot, c)));
+        assertEquals(and(a, or(b, c)), simplified);
+        simplified = ConditionUtil.simplifyCondition(or(and(d, e), and(d, new BooleanCondition(e.getConditionValue(), true), b)));
+        assertEquals(and(d, or(e, b)), simplified);
+    }
+
     private static class MockInsn implements Instruction {
 
         private char c;
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.Opcodes;
+import org.spongepowered.despector.ast.Locals;
+import org.spongepowered.despector.ast.Locals.Local;
+import org.spongepowered.despector.ast.Locals.LocalInstance;
+import org.spongepowered.despector.util.IntervalIndex;
+
+import java.util.Random;
+
+public class LocalsTest {
+
+    @Test
+    public void testIntervalIndex() {
+        IntervalIndex index = new IntervalIndex(new int[] {10, 0, 5, -1, 20}, new int[] {20, 30, 8, 2, 20});
+        assertEquals(3, index.find(-1));
+        assertEquals(1, index.find(0));
+        assertEquals(1, index.find(6));
+        assertEquals(0, index.find(12));
+        assertEquals(0, index.find(20));
+        assertEquals(1, index.find(25));
+        assertEquals(-1, index.find(31));
+        assertEquals(-1, index.find(-2));
+        assertEquals(-1, IntervalIndex.EMPTY.find(0));
+    }
+
+    @Test
+    public void testIntervalIndexRandom() {
+        Random random = new Random(42);
+        int[] lows = new int[200];
+        int[] highs = new int[200];
+        // a range over the whole method first, as a parameter would have
+        lows[0] = 0;
+        highs[0] = 1000;
+        for (int i = 1; i < lows.length; i++) {
+            lows[i] = random.nextInt(1000);
+            highs[i] = lows[i] + random.nextInt(50) - 5;
+        }
+        IntervalIndex index = new IntervalIndex(lows, highs);
+        for (int point = -10; point < 1100; point++) {
+            int expected = -1;
+            for (int i = 0; i < lows.length; i++) {
+                if (lows[i] <= point && point <= highs[i]) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, index.find(point));
+        }
+        IntervalIndex wide = new IntervalIndex(new int[] {Integer.MIN_VALUE, 5}, new int[] {Integer.MAX_VALUE, 10});
+        assertEquals(0, wide.find(Integer.MIN_VALUE));
+        assertEquals(0, wide.find(7));
+        assertEquals(0, wide.find(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testInstanceLookup() {
+        Locals locals = new Locals();
+        Local local = locals.getLocal(1);
+        LocalInstance a = new LocalInstance(local, null, "a", null, 5, 10);
+        LocalInstance b = new LocalInstance(local, null, "b", null, 20, 30);
+        local.addInstance(a);
+        local.addInstance(b);
+        assertNull(local.getLVTInstance(2));
+        assertSame(a, local.getLVTInstance(4));
+        assertSame(a, local.getLVTInstance(10));
+        assertNull(local.getLVTInstance(15));
+        assertSame(b, local.getLVTInstance(30));
+        // an instance added later covering the same range does not hide the
+        // earlier one
+        LocalInstance c = new LocalInstance(local, null, "c", null, 0, 40);
+        local.addInstance(c);
+        assertSame(a, local.getInstance(6));
+        assertSame(c, local.getInstance(15));
+        assertSame(b, local.getInstance(25));
+    }
+
+    @Test
+    public void testFind() {
+        InsnList insns = new InsnList();
+        LabelNode start = new LabelNode();
+        LabelNode other = new LabelNode();
+        LabelNode end = new LabelNode();
+        insns.add(start);
+        insns.add(new InsnNode(Opcodes.NOP));
+        insns.add(other);
+        insns.add(new InsnNode(Opcodes.NOP));
+        insns.add(end);
+        Locals locals = new Locals();
+        locals.getLocal(2).addLVT(new LocalVariableNode("e", "Ljava/lang/Exception;", null, start, end, 2));
+        locals.getLocal(2).addLVT(new LocalVariableNode("s", "Ljava/lang/String;", null, other, end, 2));
+        locals.getLocal(3).addLVT(new LocalVariableNode("t", "Ljava/lang/Throwable;", null, start, end, 3));
+        locals.bakeInstances(insns);
+        assertEquals("e", locals.findLocal(start.getLabel(), "Ljava/lang/Exception;").getName());
+        assertEquals("s", locals.findLocal(other.getLabel(), "Ljava/lang/String;").getName());
+        assertEquals("t", locals.findLocal(start.getLabel(), "Ljava/lang/Throwable;").getName());
+        assertNull(locals.findLocal(other.getLabel(), "Ljava/lang/Exception;"));
+        assertNull(locals.findLocal(end.getLabel(), "Ljava/lang/String;"));
+    }
+
+}
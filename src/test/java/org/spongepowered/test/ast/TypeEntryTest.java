@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TypeEntryTest {
+
+    private static MethodEntry method(SourceSet source, String name, String sig, boolean is_static) {
+        MethodEntry entry = new MethodEntry(source);
+        entry.setOwner("Test");
+        entry.setName(name);
+        entry.setSignature(sig);
+        entry.setStatic(is_static);
+        return entry;
+    }
+
+    @Test
+    public void testOverloads() {
+        SourceSet source = new SourceSet();
+        TypeEntry type = new ClassEntry(source, Language.JAVA, "Test");
+        MethodEntry a = method(source, "a", "()V", false);
+        MethodEntry b = method(source, "a", "(I)V", false);
+        MethodEntry c = method(source, "a", "(I)V", true);
+        type.addMethod(a);
+        type.addMethod(b);
+        type.addMethod(c);
+        assertSame(a, type.getMethod("a", "()V"));
+        assertSame(b, type.getMethod("a", "(I)V"));
+        assertSame(c, type.getStaticMethod("a", "(I)V"));
+        assertSame(c, type.getStaticMethod("a"));
+        assertNull(type.getMethodSafe("a", "(J)V"));
+        assertNull(type.getStaticMethodSafe("a", "()V"));
+        assertNull(type.getMethodSafe("b", "()V"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAmbiguousName() {
+        SourceSet source = new SourceSet();
+        TypeEntry type = new ClassEntry(source, Language.JAVA, "Test");
+        type.addMethod(method(source, "a", "()V", false));
+        type.addMethod(method(source, "a", "(I)V", false));
+        type.getMethodSafe("a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicate() {
+        SourceSet source = new SourceSet();
+        TypeEntry type = new ClassEntry(source, Language.JAVA, "Test");
+        type.addMethod(method(source, "a", "()V", false));
+        type.addMethod(method(source, "a", "()V", false));
+    }
+
+    @Test
+    public void testOrder() {
+        SourceSet source = new SourceSet();
+        TypeEntry type = new ClassEntry(source, Language.JAVA, "Test");
+        List<MethodEntry> added = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            MethodEntry entry = method(source, (i % 3 == 0) ? "a" : "m" + i, "(" + Integer.toString(i, 2).replace('0', 'I').replace('1', 'J') + ")V", false);
+            type.addMethod(entry);
+            added.add(entry);
+        }
+        assertEquals(added, new ArrayList<>(type.getMethods()));
+    }
+
+}
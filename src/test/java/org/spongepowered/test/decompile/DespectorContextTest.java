@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.despector.DespectorContext;
+import org.spongepowered.despector.Language;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.insn.function.InvokeStatement;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.ConfigBase;
+import org.spongepowered.despector.config.ConfigManager;
+import org.spongepowered.despector.decompiler.Decompilers;
+import org.spongepowered.despector.decompiler.method.MethodDecompiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DespectorContextTest {
+
+    private static InputStream open(Class<?> cls) throws Exception {
+        String path = cls.getProtectionDomain().getCodeSource().getLocation().getPath();
+        return new FileInputStream(new File(path, cls.getName().replace('.', '/') + ".class"));
+    }
+
+    @Test
+    public void testConfigCopied() {
+        ConfigBase config = new ConfigBase();
+        config.emitter.emit_synthetics = true;
+        DespectorContext context = DespectorContext.builder().config(config).language(Language.JAVA).build();
+        config.emitter.emit_synthetics = false;
+        assertTrue(context.getConfig().emitter.emit_synthetics);
+        assertEquals(Language.JAVA, context.getLanguage());
+        assertNull(DespectorContext.getCurrent());
+    }
+
+    @Test
+    public void testBoundWhileDecompiling() throws Exception {
+        List<DespectorContext> seen = new ArrayList<>();
+        List<ConfigBase> configs = new ArrayList<>();
+        MethodDecompiler method_decompiler = Decompilers.createJavaMethodDecompiler();
+        method_decompiler.addPostProcessor((pass) -> pass.on(InvokeStatement.class, (ctx, stmt) -> {
+            seen.add(DespectorContext.getCurrent());
+            configs.add(ConfigManager.getConfig());
+        }));
+        DespectorContext context = DespectorContext.builder().javaMethodDecompiler(method_decompiler).quiet(true).build();
+        TypeEntry type;
+        try (InputStream input = open(DespectorContextTest.class)) {
+            type = context.decompile(input, new SourceSet());
+        }
+        assertNotNull(type);
+        assertFalse(seen.isEmpty());
+        for (int i = 0; i < seen.size(); i++) {
+            assertSame(context, seen.get(i));
+            assertSame(context.getConfig(), configs.get(i));
+        }
+        assertNull(DespectorContext.getCurrent());
+        assertNotNull(context.emitToString(type));
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.despector.decompiler.method.graph.DominatorTree;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.BodyOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ConditionalOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.GotoOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ProcessedOpcodeBlock;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DominatorTreeTest {
+
+    private static List<OpcodeBlock> graph(OpcodeBlock... blocks) {
+        List<OpcodeBlock> graph = Arrays.asList(blocks);
+        OpcodeBlock.renumber(graph);
+        return graph;
+    }
+
+    private static ConditionalOpcodeBlock cond(int br) {
+        return new ConditionalOpcodeBlock(br);
+    }
+
+    private static void link(OpcodeBlock block, OpcodeBlock target) {
+        block.setTarget(target);
+    }
+
+    private static void link(ConditionalOpcodeBlock block, OpcodeBlock target, OpcodeBlock else_target) {
+        block.setTarget(target);
+        block.setElseTarget(else_target);
+    }
+
+    @Test
+    public void testIfElse() {
+        // 0: if -> 3 else 1, 1: body, 2: goto 4, 3: body, 4: return
+        ConditionalOpcodeBlock a = cond(0);
+        OpcodeBlock b = new BodyOpcodeBlock(1);
+        OpcodeBlock c = new GotoOpcodeBlock(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        OpcodeBlock e = new BodyOpcodeBlock(4);
+        link(a, d, b);
+        link(b, c);
+        link(c, e);
+        link(d, e);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d, e));
+
+        assertEquals(-1, tree.getImmediateDominator(0));
+        assertEquals(0, tree.getImmediateDominator(1));
+        assertEquals(1, tree.getImmediateDominator(2));
+        assertEquals(0, tree.getImmediateDominator(3));
+        assertEquals(0, tree.getImmediateDominator(4));
+
+        // the true branch is only entered through its first block
+        assertTrue(tree.isSingleEntry(1, 3));
+        assertTrue(tree.isSingleEntry(3, 4));
+        assertTrue(tree.isSingleEntry(0, 5));
+        // the else branch is not dominated by the true branch
+        assertFalse(tree.isSingleEntry(1, 4));
+        // the end of the region is clamped to the graph
+        assertTrue(tree.isSingleEntry(4, 10));
+
+        assertEquals(-1, tree.getLastEntry(0, 0));
+        assertEquals(0, tree.getLastEntry(1, 1));
+        // edges from within the range count as well
+        assertEquals(1, tree.getLastEntry(1, 3));
+        assertEquals(3, tree.getLastEntry(4, 4));
+        assertEquals(3, tree.getLastEntry(2, 10));
+        assertEquals(-1, tree.getLastEntry(5, 10));
+    }
+
+    @Test
+    public void testJumpIntoRegion() {
+        // 0: if -> 2 else 1, 1: body, 2: body, 3: return
+        ConditionalOpcodeBlock a = cond(0);
+        OpcodeBlock b = new BodyOpcodeBlock(1);
+        OpcodeBlock c = new BodyOpcodeBlock(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        link(a, c, b);
+        link(b, c);
+        link(c, d);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d));
+
+        // block 2 is also entered directly from block 0
+        assertFalse(tree.isSingleEntry(1, 3));
+        assertTrue(tree.isSingleEntry(1, 2));
+        assertTrue(tree.isSingleEntry(2, 4));
+
+        assertEquals(1, tree.getLastEntry(2, 2));
+        assertEquals(2, tree.getLastEntry(3, 3));
+    }
+
+    @Test
+    public void testDominatesEarlierBlock() {
+        // 0: goto 2, 1: body, 2: if -> 1 else 3, 3: return
+        OpcodeBlock a = new GotoOpcodeBlock(0);
+        OpcodeBlock b = new BodyOpcodeBlock(1);
+        ConditionalOpcodeBlock c = cond(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        link(a, c);
+        link(b, d);
+        link(c, b, d);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d));
+
+        assertEquals(2, tree.getImmediateDominator(1));
+        // block 2 is the only way into block 1 which comes before it
+        assertFalse(tree.isSingleEntry(2, 4));
+        assertTrue(tree.isSingleEntry(1, 2));
+
+        assertEquals(2, tree.getLastEntry(1, 1));
+        assertEquals(2, tree.getLastEntry(0, 3));
+    }
+
+    @Test
+    public void testLoop() {
+        // 0: body, 1: if -> 3 else 2, 2: goto 1, 3: return
+        OpcodeBlock a = new BodyOpcodeBlock(0);
+        ConditionalOpcodeBlock b = cond(1);
+        OpcodeBlock c = new GotoOpcodeBlock(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        link(a, b);
+        link(b, d, c);
+        link(c, b);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d));
+
+        assertTrue(tree.isSingleEntry(1, 3));
+        assertTrue(tree.isSingleEntry(1, 4));
+        // the back edge is the last entry into the loop condition
+        assertEquals(2, tree.getLastEntry(1, 1));
+        assertEquals(2, tree.getLastEntry(1, 2));
+    }
+
+    @Test
+    public void testSubRegion() {
+        // 0: if -> 5 else 1, 1: if -> 3 else 2, 2: body, 3: body, 4: goto 6,
+        // 5: body, 6: return
+        ConditionalOpcodeBlock a = cond(0);
+        ConditionalOpcodeBlock b = cond(1);
+        OpcodeBlock c = new BodyOpcodeBlock(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        OpcodeBlock e = new GotoOpcodeBlock(4);
+        OpcodeBlock f = new BodyOpcodeBlock(5);
+        OpcodeBlock g = new BodyOpcodeBlock(6);
+        link(a, f, b);
+        link(b, d, c);
+        link(c, d);
+        link(d, e);
+        link(e, g);
+        link(f, g);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d, e, f, g));
+
+        // the true branch with the nested if condensed into its first block
+        OpcodeBlock nested = new ProcessedOpcodeBlock(1, null);
+        nested.setIndex(1);
+        List<OpcodeBlock> region = Arrays.asList(nested, d, e);
+        assertTrue(tree.isSingleEntry(region, 0, 3));
+        assertTrue(tree.isSingleEntry(region, 0, 1));
+        assertTrue(tree.isSingleEntry(region, 1, 3));
+        assertFalse(tree.isEnteredFrom(region, 0, 1, 1));
+        // the edge from the nested if into block 3 is from before it
+        assertFalse(tree.isEnteredFrom(region, 1, 2, 2));
+        assertFalse(tree.isEnteredFrom(region, 0, 3, 3));
+
+        // a condensed block at the end of a region covers an unknown range
+        List<OpcodeBlock> tail = Arrays.asList(d, nested);
+        assertFalse(tree.isSingleEntry(tail, 0, 2));
+
+        // a later block which comes before the range in the graph cannot be
+        // placed
+        List<OpcodeBlock> unordered = Arrays.asList(d, nested);
+        assertTrue(tree.isEnteredFrom(unordered, 0, 1, 1));
+
+        // block 0 retargeted onto block 3 gives it a second entry
+        tree.addEntry(d);
+        assertFalse(tree.isSingleEntry(region, 0, 3));
+        assertTrue(tree.isSingleEntry(region, 0, 1));
+        assertTrue(tree.isSingleEntry(region, 1, 3));
+    }
+
+    @Test
+    public void testJumpIntoSubRegion() {
+        // as above but block 5 jumps into the nested if
+        ConditionalOpcodeBlock a = cond(0);
+        ConditionalOpcodeBlock b = cond(1);
+        OpcodeBlock c = new BodyOpcodeBlock(2);
+        OpcodeBlock d = new BodyOpcodeBlock(3);
+        OpcodeBlock e = new GotoOpcodeBlock(4);
+        OpcodeBlock f = new BodyOpcodeBlock(5);
+        OpcodeBlock g = new BodyOpcodeBlock(6);
+        link(a, f, b);
+        link(b, d, c);
+        link(c, d);
+        link(d, e);
+        link(e, g);
+        link(f, c);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c, d, e, f, g));
+
+        OpcodeBlock nested = new ProcessedOpcodeBlock(1, null);
+        nested.setIndex(1);
+        List<OpcodeBlock> region = Arrays.asList(nested, d, e, f);
+        // the condensed block covers block 2 which is entered from block 5
+        assertFalse(tree.isSingleEntry(region, 0, 1));
+        assertFalse(tree.isSingleEntry(region, 0, 3));
+        assertTrue(tree.isSingleEntry(region, 1, 3));
+        assertTrue(tree.isEnteredFrom(region, 0, 1, 3));
+        assertFalse(tree.isEnteredFrom(region, 1, 3, 3));
+        assertFalse(tree.isEnteredFrom(region, 0, 1, 4));
+    }
+
+    @Test
+    public void testUnreachable() {
+        // 0: return, 1: body (a catch handler), 2: return
+        OpcodeBlock a = new BodyOpcodeBlock(0);
+        OpcodeBlock b = new BodyOpcodeBlock(1);
+        OpcodeBlock c = new BodyOpcodeBlock(2);
+        link(b, c);
+        DominatorTree tree = DominatorTree.compute(graph(a, b, c));
+
+        // the unreachable block is an entry point of its own
+        assertEquals(-1, tree.getImmediateDominator(1));
+        assertEquals(1, tree.getImmediateDominator(2));
+        assertTrue(tree.isSingleEntry(1, 3));
+        assertEquals(-1, tree.getLastEntry(0, 1));
+    }
+
+}
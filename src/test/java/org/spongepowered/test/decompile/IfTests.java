@@ -754,4 +754,54 @@ public class IfTests {
         Assert.assertEquals(good, insn);
     }
 
+    @Test
+    public void testLongMixedCondition() {
+        // a0 && b0 || a1 && b1 || ... has a number of paths to the body
+        // exponential in the number of terms
+        int pairs = 16;
+        StringBuilder desc = new StringBuilder("void test_mth (");
+        for (int i = 0; i < pairs * 2; i++) {
+            desc.append(i == 0 ? "boolean" : ", boolean");
+        }
+        desc.append(")");
+        TestMethodBuilder builder = new TestMethodBuilder("test_mth", desc.toString());
+        GeneratorAdapter mv = builder.getGenerator();
+        Label start = mv.newLabel();
+        mv.visitLabel(start);
+        Label body = mv.newLabel();
+        Label end = mv.newLabel();
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < pairs; i++) {
+            boolean last = i == pairs - 1;
+            Label next = last ? end : mv.newLabel();
+            mv.loadArg(i * 2);
+            mv.ifZCmp(EQ, next);
+            mv.loadArg(i * 2 + 1);
+            if (last) {
+                mv.ifZCmp(EQ, end);
+            } else {
+                mv.ifZCmp(NE, body);
+                mv.visitLabel(next);
+            }
+            if (i > 0) {
+                condition.append(" || ");
+            }
+            condition.append("a").append(i).append(" && b").append(i);
+        }
+        mv.visitLabel(body);
+        mv.invokeStatic(THIS_TYPE, Method.getMethod("void body ()"));
+        mv.visitLabel(end);
+        mv.visitInsn(RETURN);
+        for (int i = 0; i < pairs; i++) {
+            mv.visitLocalVariable("a" + i, "Z", null, start, end, i * 2);
+            mv.visitLocalVariable("b" + i, "Z", null, start, end, i * 2 + 1);
+        }
+
+        String insn = TestHelper.getAsString(builder.finish(), "test_mth");
+        String good = "if (" + condition + ") {\n"
+                + "    IfTests.body();\n"
+                + "}";
+        Assert.assertEquals(good, insn);
+    }
+
 }
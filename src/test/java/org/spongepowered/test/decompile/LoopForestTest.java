@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spongepowered.despector.decompiler.method.graph.LoopForest;
+import org.spongepowered.despector.decompiler.method.graph.LoopForest.Loop;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.BodyOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.BreakMarkerOpcodeBlock.MarkerType;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.ConditionalOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.GotoOpcodeBlock;
+import org.spongepowered.despector.decompiler.method.graph.data.opcode.OpcodeBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoopForestTest {
+
+    private final List<OpcodeBlock> graph = new ArrayList<>();
+
+    private ConditionalOpcodeBlock cond() {
+        ConditionalOpcodeBlock block = new ConditionalOpcodeBlock(this.graph.size());
+        this.graph.add(block);
+        return block;
+    }
+
+    private GotoOpcodeBlock jump() {
+        GotoOpcodeBlock block = new GotoOpcodeBlock(this.graph.size());
+        this.graph.add(block);
+        return block;
+    }
+
+    private OpcodeBlock body() {
+        OpcodeBlock block = new BodyOpcodeBlock(this.graph.size());
+        this.graph.add(block);
+        return block;
+    }
+
+    private void link(int from, int to) {
+        OpcodeBlock block = this.graph.get(from);
+        OpcodeBlock target = this.graph.get(to);
+        block.setTarget(target);
+        target.targettedBy(block);
+    }
+
+    private void link(int from, int to, int else_to) {
+        link(from, to);
+        ConditionalOpcodeBlock block = (ConditionalOpcodeBlock) this.graph.get(from);
+        OpcodeBlock target = this.graph.get(else_to);
+        block.setElseTarget(target);
+        target.targettedBy(block);
+    }
+
+    private LoopForest compute() {
+        OpcodeBlock.renumber(this.graph);
+        return LoopForest.compute(this.graph);
+    }
+
+    @Test
+    public void testNestedLoops() {
+        // outer: while (a) {
+        //     while (b) {
+        //         if (c) continue outer;
+        //         if (d) break outer;
+        //         if (e) continue;
+        //         if (f) break;
+        //         body
+        //     }
+        // }
+        cond(); // 0: a
+        cond(); // 1: b
+        cond(); // 2: c
+        jump(); // 3: continue outer
+        cond(); // 4: d
+        jump(); // 5: break outer
+        cond(); // 6: e
+        jump(); // 7: continue inner
+        cond(); // 8: f
+        jump(); // 9: break inner
+        body(); // 10
+        jump(); // 11: inner back edge
+        jump(); // 12: outer back edge
+        body(); // 13: return
+        link(0, 13, 1);
+        link(1, 12, 2);
+        link(2, 4, 3);
+        link(3, 0);
+        link(4, 6, 5);
+        link(5, 13);
+        link(6, 8, 7);
+        link(7, 1);
+        link(8, 10, 9);
+        link(9, 12);
+        link(10, 11);
+        link(11, 1);
+        link(12, 0);
+        LoopForest loops = compute();
+
+        Loop outer = loops.getJumpLoop(this.graph.get(3));
+        Loop inner = loops.getJumpLoop(this.graph.get(7));
+        assertSame(this.graph.get(0), outer.getCondition());
+        assertSame(this.graph.get(1), inner.getCondition());
+
+        assertEquals(MarkerType.CONTINUE, loops.getJumpType(this.graph.get(3)));
+        assertSame(outer, loops.getJumpLoop(this.graph.get(5)));
+        assertEquals(MarkerType.BREAK, loops.getJumpType(this.graph.get(5)));
+        assertEquals(MarkerType.CONTINUE, loops.getJumpType(this.graph.get(7)));
+        assertSame(inner, loops.getJumpLoop(this.graph.get(9)));
+        assertEquals(MarkerType.BREAK, loops.getJumpType(this.graph.get(9)));
+
+        // the back edges are not jumps of their loops
+        assertNull(loops.getJumpLoop(this.graph.get(11)));
+        assertNull(loops.getJumpType(this.graph.get(11)));
+        assertNull(loops.getJumpLoop(this.graph.get(12)));
+        assertNull(loops.getJumpLoop(this.graph.get(10)));
+    }
+
+    @Test
+    public void testConditionAfterBody() {
+        // while (a) {
+        //     if (b) continue;
+        //     if (c) break;
+        //     body
+        // }
+        // with the condition placed after the body
+        jump(); // 0: goto condition
+        cond(); // 1: b
+        jump(); // 2: continue
+        cond(); // 3: c
+        jump(); // 4: break
+        body(); // 5
+        cond(); // 6: a
+        body(); // 7: return
+        link(0, 6);
+        link(1, 3, 2);
+        link(2, 6);
+        link(3, 5, 4);
+        link(4, 7);
+        link(5, 6);
+        link(6, 1, 7);
+        LoopForest loops = compute();
+
+        Loop loop = loops.getJumpLoop(this.graph.get(2));
+        assertSame(this.graph.get(6), loop.getCondition());
+        assertEquals(MarkerType.CONTINUE, loops.getJumpType(this.graph.get(2)));
+        assertSame(loop, loops.getJumpLoop(this.graph.get(4)));
+        assertEquals(MarkerType.BREAK, loops.getJumpType(this.graph.get(4)));
+        assertNull(loops.getJumpLoop(this.graph.get(0)));
+    }
+
+    @Test
+    public void testBreakOutOfNestedLoops() {
+        // outer: while (a) {
+        //     while (b) {
+        //         while (c) {
+        //             if (d) break outer;
+        //         }
+        //     }
+        // }
+        cond(); // 0: a
+        cond(); // 1: b
+        cond(); // 2: c
+        cond(); // 3: d
+        jump(); // 4: break outer
+        jump(); // 5: innermost back edge
+        jump(); // 6: middle back edge
+        jump(); // 7: outer back edge
+        body(); // 8: return
+        link(0, 8, 1);
+        link(1, 7, 2);
+        link(2, 6, 3);
+        link(3, 5, 4);
+        link(4, 8);
+        link(5, 2);
+        link(6, 1);
+        link(7, 0);
+        LoopForest loops = compute();
+
+        // a jump leaving several loops breaks the outermost loop it leaves
+        Loop loop = loops.getJumpLoop(this.graph.get(4));
+        assertSame(this.graph.get(0), loop.getCondition());
+        assertEquals(MarkerType.BREAK, loops.getJumpType(this.graph.get(4)));
+    }
+
+}
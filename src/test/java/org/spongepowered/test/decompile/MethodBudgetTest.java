@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.despector.DespectorContext;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.insn.Comment;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.branch.If;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.config.ConfigBase;
+import org.spongepowered.despector.decompiler.method.MethodBudget;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+public class MethodBudgetTest {
+
+    private static TypeEntry decompile(ConfigBase config) throws Exception {
+        DespectorContext context = DespectorContext.builder().config(config).quiet(true).build();
+        String path = MethodBudgetTest.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        try (InputStream input = new FileInputStream(new File(path, MethodBudgetTest.class.getName().replace('.', '/') + ".class"))) {
+            return context.decompile(input, new SourceSet());
+        }
+    }
+
+    public static int branchy(int a, int b) {
+        if (a > 0 && b > 0 || a < -5) {
+            return a;
+        }
+        return b;
+    }
+
+    @Test
+    public void testBlockLimit() throws Exception {
+        ConfigBase config = new ConfigBase();
+        config.budget.block_limit = 1;
+        StatementBlock body = decompile(config).getStaticMethod("branchy").getInstructions();
+        assertEquals(1, body.getStatementCount());
+        assertTrue(body.getStatement(0) instanceof Comment);
+    }
+
+    @Test
+    public void testExceededCount() throws Exception {
+        ConfigBase config = new ConfigBase();
+        int before = MethodBudget.getExceededCount();
+        decompile(config);
+        assertEquals(before, MethodBudget.getExceededCount());
+        config.budget.block_limit = 1;
+        decompile(config);
+        assertTrue(MethodBudget.getExceededCount() > before);
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        ConfigBase config = new ConfigBase();
+        config.budget.block_limit = 0;
+        config.budget.time_limit = 0;
+        config.budget.condition_term_limit = 0;
+        StatementBlock body = decompile(config).getStaticMethod("branchy").getInstructions();
+        assertTrue(body.getStatement(0) instanceof If);
+    }
+
+}
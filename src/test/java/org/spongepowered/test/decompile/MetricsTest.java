@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.despector.DespectorContext;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.insn.misc.Return;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.decompiler.Decompilers;
+import org.spongepowered.despector.decompiler.JarWalker;
+import org.spongepowered.despector.decompiler.method.MethodDecompiler;
+import org.spongepowered.despector.decompiler.method.postprocess.PostProcessContext;
+import org.spongepowered.despector.decompiler.method.postprocess.PostProcessPass;
+import org.spongepowered.despector.decompiler.method.postprocess.StatementCallback;
+import org.spongepowered.despector.decompiler.method.postprocess.StatementPostProcessor;
+import org.spongepowered.despector.util.metrics.MetricsSink;
+import org.spongepowered.despector.util.metrics.Phase;
+import org.spongepowered.despector.util.metrics.SummaryMetricsSink;
+import org.spongepowered.despector.util.metrics.SummaryMetricsSink.MethodTiming;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class MetricsTest {
+
+    @Test
+    public void testSummary() throws Exception {
+        SummaryMetricsSink metrics = new SummaryMetricsSink(2);
+        DespectorContext context = DespectorContext.builder().metrics(metrics).quiet(true).build();
+        String path = MetricsTest.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        TypeEntry type;
+        try (InputStream input = new FileInputStream(new File(path, MetricsTest.class.getName().replace('.', '/') + ".class"))) {
+            type = context.decompile(input, new SourceSet());
+        }
+        assertNotNull(context.emitToString(type));
+
+        assertEquals(1, metrics.getClassCount());
+        assertEquals(0, metrics.getFailedClassCount());
+        assertTrue(metrics.getMethodCount() > 0);
+        assertTrue(metrics.getBlockCount() > 0);
+        assertTrue(metrics.getPhaseTime(Phase.PARSE) > 0);
+        assertTrue(metrics.getPhaseTime(Phase.GRAPH) > 0);
+        assertTrue(metrics.getPhaseTime(Phase.EMIT) > 0);
+
+        List<MethodTiming> slowest = metrics.getSlowestMethods();
+        assertEquals(Math.min(2, metrics.getMethodCount()), slowest.size());
+        for (int i = 1; i < slowest.size(); i++) {
+            assertTrue(slowest.get(i - 1).getTime() >= slowest.get(i).getTime());
+        }
+        assertEquals("org/spongepowered/test/decompile/MetricsTest", slowest.get(0).getOwner());
+    }
+
+    public static int answer() {
+        return 42;
+    }
+
+    @Test
+    public void testPostProcessFailure() throws Exception {
+        List<String> failures = new ArrayList<>();
+        MetricsSink metrics = new MetricsSink() {
+
+            @Override
+            public void recordFailure(Phase phase, String name) {
+                if (phase == Phase.POST_PROCESS) {
+                    failures.add(name);
+                }
+            }
+        };
+        MethodDecompiler method = Decompilers.createJavaMethodDecompiler();
+        StatementPostProcessor failing = new StatementPostProcessor() {
+
+            @Override
+            public void register(PostProcessPass pass) {
+                pass.on(Return.class, new StatementCallback<Return>() {
+
+                    @Override
+                    public void visit(PostProcessContext ctx, Return ret) {
+                        throw new IllegalStateException();
+                    }
+                });
+            }
+        };
+        method.addPostProcessor(failing);
+        DespectorContext context = DespectorContext.builder().javaMethodDecompiler(method).metrics(metrics).quiet(true).build();
+        String path = MetricsTest.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        PrintStream err = System.err;
+        try (InputStream input = new FileInputStream(new File(path, MetricsTest.class.getName().replace('.', '/') + ".class"))) {
+            // the failing processor reports each failure
+            System.setErr(new PrintStream(new ByteArrayOutputStream()));
+            context.decompile(input, new SourceSet());
+        } finally {
+            System.setErr(err);
+        }
+        assertTrue(failures.contains("org/spongepowered/test/decompile/MetricsTest.answer()I (" + failing.getClass().getName() + ")"));
+    }
+
+    @Test
+    public void testJarWalk() throws Exception {
+        SummaryMetricsSink metrics = new SummaryMetricsSink(2);
+        DespectorContext context = DespectorContext.builder().metrics(metrics).quiet(true).build();
+        String name = MetricsTest.class.getName().replace('.', '/') + ".class";
+        String path = MetricsTest.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        Path jar = Files.createTempFile("despector-metrics", ".jar");
+        try {
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new JarEntry(name));
+                Files.copy(new File(path, name).toPath(), out);
+                out.closeEntry();
+            }
+            JarWalker walker = new JarWalker(jar);
+            walker.setMetrics(metrics);
+            // the class is parsed by the walker outside of the decompiler so
+            // the parse phase must still reach the sink of the context
+            walker.walk(new SourceSet(), context.getDecompiler());
+        } finally {
+            Files.delete(jar);
+        }
+        assertEquals(1, metrics.getClassCount());
+        assertTrue(metrics.getPhaseTime(Phase.PARSE) > 0);
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.decompile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.despector.ast.Locals;
+import org.spongepowered.despector.ast.members.insn.Comment;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstant;
+import org.spongepowered.despector.ast.members.insn.branch.If;
+import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.misc.Return;
+import org.spongepowered.despector.decompiler.method.postprocess.IfCombiningPostProcessor;
+import org.spongepowered.despector.decompiler.method.postprocess.PostProcessPass;
+import org.spongepowered.despector.decompiler.method.postprocess.StatementPostProcessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class PostProcessPassTest {
+
+    private static final Condition a = new BooleanCondition(new IntConstant(1), false);
+    private static final Condition b = new BooleanCondition(new IntConstant(2), false);
+    private static final Condition c = new BooleanCondition(new IntConstant(3), false);
+    private static final Condition d = new BooleanCondition(new IntConstant(4), false);
+
+    private static class Note extends Comment {
+
+        Note(String text) {
+            super(text);
+        }
+    }
+
+    private static StatementBlock block(Statement... stmts) {
+        StatementBlock block = new StatementBlock(StatementBlock.Type.IF, new Locals());
+        for (Statement stmt : stmts) {
+            block.append(stmt);
+        }
+        return block;
+    }
+
+    @Test
+    public void testReplaceRedispatch() {
+        List<Statement> seen = new ArrayList<>();
+        PostProcessPass pass = new PostProcessPass();
+        // registered before the replacing processor but must still see the
+        // replacement
+        pass.add((p) -> p.on(Return.class, (ctx, ret) -> seen.add(ret)));
+        pass.add((p) -> p.on(Comment.class, (ctx, cmt) -> ctx.replace(new Return())));
+        StatementBlock body = block(new Comment("a"), new Comment("b"));
+        assertTrue(pass.run(body).isEmpty());
+        assertEquals(2, seen.size());
+        assertSame(body.getStatement(0), seen.get(0));
+        assertSame(body.getStatement(1), seen.get(1));
+    }
+
+    @Test
+    public void testFailingProcessorSkipped() {
+        List<Statement> seen = new ArrayList<>();
+        int[] calls = new int[1];
+        PostProcessPass pass = new PostProcessPass();
+        StatementPostProcessor failing = (p) -> p.on(Comment.class, (ctx, cmt) -> {
+            calls[0]++;
+            throw new IllegalStateException();
+        });
+        pass.add(failing);
+        pass.add((p) -> p.on(Comment.class, (ctx, cmt) -> seen.add(cmt)));
+        StatementBlock body = block(new Comment("a"), new Comment("b"), new Comment("c"));
+        PrintStream err = System.err;
+        Set<StatementPostProcessor> failed;
+        try {
+            System.setErr(new PrintStream(new ByteArrayOutputStream()));
+            failed = pass.run(body);
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(Collections.singleton(failing), failed);
+        assertEquals(1, calls[0]);
+        assertEquals(body.getStatements(), seen);
+    }
+
+    @Test
+    public void testExactClassDispatch() {
+        List<Statement> seen = new ArrayList<>();
+        PostProcessPass pass = new PostProcessPass();
+        pass.add((p) -> p.on(Comment.class, (ctx, cmt) -> seen.add(cmt)));
+        Comment comment = new Comment("a");
+        pass.run(block(new Note("b"), comment));
+        assertEquals(Arrays.asList(comment), seen);
+    }
+
+    @Test
+    public void testNestedOrder() {
+        List<Statement> seen = new ArrayList<>();
+        PostProcessPass pass = new PostProcessPass();
+        pass.add((p) -> {
+            p.on(If.class, (ctx, iif) -> seen.add(iif));
+            p.on(Comment.class, (ctx, cmt) -> seen.add(cmt));
+        });
+        Comment inner = new Comment("inner");
+        Comment after = new Comment("after");
+        If iif = new If(a, block(inner));
+        pass.run(block(iif, after));
+        assertEquals(Arrays.asList(iif, inner, after), seen);
+    }
+
+    @Test
+    public void testIfCombiningElseChain() {
+        // if (a) { x } else { if (b) { y } else { if (c) { if (d) { z } } } }
+        Comment z = new Comment("z");
+        If inner_c = new If(c, block(new If(d, block(z))));
+        If inner_b = new If(b, block(new Comment("y")));
+        inner_b.new Else(block(inner_c));
+        If outer = new If(a, block(new Comment("x")));
+        outer.new Else(block(inner_b));
+
+        PostProcessPass pass = new PostProcessPass();
+        pass.add(new IfCombiningPostProcessor());
+        pass.run(block(outer));
+
+        // the else if is collapsed into the outer chain and the if moved into
+        // its else block is then visited and combined in the same pass
+        assertEquals(1, outer.getElifBlocks().size());
+        assertSame(b, outer.getElifBlocks().get(0).getCondition());
+        StatementBlock else_body = outer.getElseBlock().getElseBody();
+        assertEquals(1, else_body.getStatementCount());
+        If combined = (If) else_body.getStatement(0);
+        assertEquals(new AndCondition(c, d), combined.getCondition());
+        assertEquals(Arrays.asList(z), combined.getIfBody().getStatements());
+    }
+
+}
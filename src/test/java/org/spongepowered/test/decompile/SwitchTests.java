@@ -36,8 +36,15 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.Method;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.decompiler.Decompilers;
 import org.spongepowered.test.util.TestHelper;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
 public class SwitchTests {
 
     private static enum TestEnum {
@@ -248,6 +255,75 @@ public class SwitchTests {
         Assert.assertEquals(good, insn);
     }
 
+    public void mth_switchJavac(TestEnum ie) {
+        switch (ie) {
+        case ONE:
+            body();
+            break;
+        case THREE:
+            body();
+            break;
+        default:
+            body();
+        }
+    }
+
+    public void mth_switchJavac2(TestEnum ie) {
+        switch (ie) {
+        case TEN:
+            body();
+            break;
+        default:
+            body();
+        }
+    }
+
+    @Test
+    public void testSwitchJavac() {
+        String good = "switch (ie) {\n"
+                + "case ONE:\n"
+                + "    body();\n"
+                + "    break;\n"
+                + "case THREE:\n"
+                + "    body();\n"
+                + "    break;\n"
+                + "default:\n"
+                + "    body();\n"
+                + "}";
+        TestHelper.check(SwitchTests.class, "mth_switchJavac", good);
+        String good2 = "switch (ie) {\n"
+                + "case TEN:\n"
+                + "    body();\n"
+                + "    break;\n"
+                + "default:\n"
+                + "    body();\n"
+                + "}";
+        TestHelper.check(SwitchTests.class, "mth_switchJavac2", good2);
+    }
+
+    @Test
+    public void testSwitchMapShared() throws IOException {
+        // decompiled into a fresh source set as the holder is modified below
+        SourceSet source = new SourceSet();
+        String path = SwitchTests.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        TypeEntry type = Decompilers.WILD.decompile(new File(path, THIS_TYPE.getInternalName() + ".class"), source);
+        TypeEntry holder = Decompilers.WILD.decompile(new File(path, THIS_TYPE.getInternalName() + "$1.class"), source);
+
+        String first = TestHelper.getAsString(type, type.getMethodSafe("mth_switchJavac"));
+        Assert.assertTrue(first, first.contains("case ONE:"));
+        Map<Integer, String> table = source.getSwitchMaps().getFieldTable(holder.getName(),
+                "$SwitchMap$org$spongepowered$test$decompile$SwitchTests$TestEnum");
+        Assert.assertNotNull(table);
+
+        // with the static initializer of the holder gone the second switch
+        // can only be resolved from the table read for the first one
+        holder.getStaticMethodSafe("<clinit>").setInstructions(null);
+        String second = TestHelper.getAsString(type, type.getMethodSafe("mth_switchJavac2"));
+        Assert.assertTrue(second, second.contains("case TEN:"));
+        Assert.assertSame(table, source.getSwitchMaps().getFieldTable(holder.getName(),
+                "$SwitchMap$org$spongepowered$test$decompile$SwitchTests$TestEnum"));
+    }
+
     private static void generateSwitchSyntheticEclipse(ClassWriter cw) {
 
         MethodVisitor mv =
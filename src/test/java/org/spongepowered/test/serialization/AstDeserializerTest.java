@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.ast.type.TypeEntry.InnerClassInfo;
+import org.spongepowered.despector.emitter.EmitterContext;
+import org.spongepowered.despector.emitter.Emitters;
+import org.spongepowered.despector.emitter.format.EmitterFormat;
+import org.spongepowered.despector.util.serialization.AstDeserializer;
+import org.spongepowered.despector.util.serialization.MessagePacker;
+import org.spongepowered.test.formatting.FormattingTestClass;
+import org.spongepowered.test.util.TestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class AstDeserializerTest {
+
+    private static String emit(TypeEntry type) {
+        StringWriter writer = new StringWriter();
+        EmitterContext emitter = new EmitterContext(writer, EmitterFormat.defaults());
+        emitter.setEmitterSet(Emitters.JAVA_SET);
+        emitter.emitOuterType(type);
+        emitter.flush();
+        return writer.toString();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        TypeEntry type = TestHelper.get(FormattingTestClass.class);
+        SourceSet src = new SourceSet();
+        src.add(type);
+        for (InnerClassInfo info : type.getInnerClasses()) {
+            src.add(type.getSource().get(info.getName()));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MessagePacker pack = new MessagePacker(out)) {
+            src.writeTo(pack);
+        }
+        SourceSet read = AstDeserializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+        TypeEntry read_type = read.get(type.getName());
+        assertEquals(type.getMethodCount(), read_type.getMethodCount());
+        assertEquals(type.getStaticMethodCount(), read_type.getStaticMethodCount());
+        assertEquals(type.getFieldCount(), read_type.getFieldCount());
+        assertEquals(emit(type), emit(read_type));
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.spongepowered.despector.config.ConfigBase;
+import org.spongepowered.despector.config.ConfigManager;
+import org.spongepowered.despector.decompiler.DecompilerCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DecompilerCacheTest {
+
+    private static final List<byte[]> CLASSES = Collections.singletonList("class data".getBytes(StandardCharsets.UTF_8));
+
+    private static Map<String, String> files() {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("org/example/Foo.java", "public class Foo {\n}\n");
+        files.put("org/example/Bar.java", "public class Bar {\n}\n");
+        return files;
+    }
+
+    private static List<Path> entries(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.collect(Collectors.toList());
+        }
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testHit() throws IOException {
+        Path directory = Files.createTempDirectory("despector-cache");
+        try {
+            DecompilerCache cache = new DecompilerCache(directory, "salt");
+            String key = cache.getKey(CLASSES);
+            assertNull(cache.get(key));
+            cache.put(key, files());
+            assertEquals(files(), new DecompilerCache(directory, "salt").get(key));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testSaltMiss() throws IOException {
+        Path directory = Files.createTempDirectory("despector-cache");
+        try {
+            DecompilerCache cache = new DecompilerCache(directory, "1.0\n" + ConfigManager.getOutputFingerprint(new ConfigBase()));
+            cache.put(cache.getKey(CLASSES), files());
+
+            DecompilerCache version = new DecompilerCache(directory, "1.1\n" + ConfigManager.getOutputFingerprint(new ConfigBase()));
+            assertNull(version.get(version.getKey(CLASSES)));
+
+            ConfigBase config = new ConfigBase();
+            config.emitter.emit_synthetics = true;
+            DecompilerCache changed = new DecompilerCache(directory, "1.0\n" + ConfigManager.getOutputFingerprint(config));
+            assertNull(changed.get(changed.getKey(CLASSES)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testFingerprint() {
+        String base = ConfigManager.getOutputFingerprint(new ConfigBase());
+
+        ConfigBase budget = new ConfigBase();
+        budget.budget.block_limit = 10;
+        assertNotEquals(base, ConfigManager.getOutputFingerprint(budget));
+
+        ConfigBase section = new ConfigBase();
+        section.cleanup_sections.add(new ConfigBase.CleanupConfigSection());
+        assertNotEquals(base, ConfigManager.getOutputFingerprint(section));
+
+        ConfigBase threads = new ConfigBase();
+        threads.decompile_threads = 4;
+        threads.stream_output = true;
+        threads.cache_path = "cache";
+        assertEquals(base, ConfigManager.getOutputFingerprint(threads));
+    }
+
+    @Test
+    public void testCorruptEntry() throws IOException {
+        Path directory = Files.createTempDirectory("despector-cache");
+        try {
+            DecompilerCache cache = new DecompilerCache(directory, "salt");
+            String key = cache.getKey(CLASSES);
+            cache.put(key, files());
+            List<Path> entries = entries(directory);
+            assertEquals(1, entries.size());
+            Files.write(entries.get(0), "not a cache entry".getBytes(StandardCharsets.UTF_8));
+            assertNull(cache.get(key));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testPartialEntry() throws IOException {
+        Path directory = Files.createTempDirectory("despector-cache");
+        try {
+            DecompilerCache cache = new DecompilerCache(directory, "salt");
+            String key = cache.getKey(CLASSES);
+            cache.put(key, files());
+            Path entry = entries(directory).get(0);
+            byte[] data = Files.readAllBytes(entry);
+            List<Integer> lengths = new ArrayList<>();
+            for (int len = 1; len < data.length; len++) {
+                lengths.add(len);
+            }
+            // every truncation of the entry must be discarded rather than
+            // restoring some of the files
+            for (int len : lengths) {
+                byte[] partial = new byte[len];
+                System.arraycopy(data, 0, partial, 0, len);
+                Files.write(entry, partial);
+                assertNull(cache.get(key));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+}
@@ -145,4 +145,21 @@ public class MessagePackTest {
         }
     }
 
+    @Test
+    public void testMultiByteString() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MessagePacker msg = new MessagePacker(out)) {
+            msg.startMap(1);
+            msg.writeString("val1").writeString("\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8");
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        try (MessageUnpacker unpack = new MessageUnpacker(in)) {
+            int len = unpack.readMap();
+            assertEquals(1, len);
+            assertEquals("val1", unpack.readString());
+            assertEquals("\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8", unpack.readString());
+        }
+    }
+
 }